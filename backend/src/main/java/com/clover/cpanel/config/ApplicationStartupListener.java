@@ -1,7 +1,19 @@
 package com.clover.cpanel.config;
 
+import com.clover.cpanel.service.AlertService;
 import com.clover.cpanel.service.DatabaseInitService;
 import com.clover.cpanel.service.DataEncryptionMigrationService;
+import com.clover.cpanel.service.DirectoryUsageService;
+import com.clover.cpanel.service.RemoteMetricsCollector;
+import com.clover.cpanel.service.SshStandbyService;
+import com.clover.cpanel.service.SystemConfigService;
+import com.clover.cpanel.service.UploadAssetService;
+import com.clover.cpanel.service.SystemMetricsHistory;
+import com.clover.cpanel.service.SystemMetricsPublisher;
+import com.clover.cpanel.service.SystemMetricsSampler;
+import com.clover.cpanel.service.ServerHealthProbeService;
+import com.clover.cpanel.service.WallpaperDerivativeService;
+import com.clover.cpanel.service.WallpaperIndexService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
@@ -27,6 +39,42 @@ public class ApplicationStartupListener implements ApplicationListener<Applicati
     @Autowired
     private EncryptionConfig encryptionConfig;
 
+    @Autowired
+    private ServerHealthProbeService serverHealthProbeService;
+
+    @Autowired
+    private RemoteMetricsCollector remoteMetricsCollector;
+
+    @Autowired
+    private SshStandbyService sshStandbyService;
+
+    @Autowired
+    private SystemMetricsSampler systemMetricsSampler;
+
+    @Autowired
+    private SystemMetricsHistory systemMetricsHistory;
+
+    @Autowired
+    private SystemMetricsPublisher systemMetricsPublisher;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    @Autowired
+    private AlertService alertService;
+
+    @Autowired
+    private DirectoryUsageService directoryUsageService;
+
+    @Autowired
+    private WallpaperIndexService wallpaperIndexService;
+
+    @Autowired
+    private WallpaperDerivativeService wallpaperDerivativeService;
+
+    @Autowired
+    private UploadAssetService uploadAssetService;
+
     @Override
     public void onApplicationEvent(ApplicationReadyEvent event) {
         log.info("=== 应用启动完成，开始执行初始化操作 ===");
@@ -34,6 +82,11 @@ public class ApplicationStartupListener implements ApplicationListener<Applicati
         try {
             long startTime = System.currentTimeMillis();
 
+            // 启动本机系统指标采样、历史记录与推送（不依赖数据库，最先启动；订阅方需先于采样器启动）
+            systemMetricsHistory.start();
+            systemMetricsPublisher.start();
+            systemMetricsSampler.start();
+
             // 初始化加密配置
             log.info("正在初始化加密配置...");
             encryptionConfig.init();
@@ -56,6 +109,33 @@ public class ApplicationStartupListener implements ApplicationListener<Applicati
                 log.info("✅ 数据加密迁移检查完成");
             }
 
+            // 加载系统配置缓存（数据库初始化与迁移会直接写表，需在其后加载）
+            systemConfigService.loadCache();
+
+            // 启动系统指标告警（规则保存在数据库中）
+            alertService.start();
+
+            // 启动上传与音乐目录的占用分析（读取数据库中的音乐下载路径）
+            directoryUsageService.start();
+
+            // 建立壁纸索引并监听壁纸目录
+            wallpaperIndexService.start();
+
+            // 启动壁纸派生图生成（为已有壁纸补生成缩略图和显示尺寸）
+            wallpaperDerivativeService.start();
+
+            // 为已有的上传文件补生成预压缩变体
+            uploadAssetService.start();
+
+            // 启动服务器健康探测
+            serverHealthProbeService.start();
+
+            // 启动远程服务器指标采集
+            remoteMetricsCollector.start();
+
+            // 启动SSH预热连接
+            sshStandbyService.start();
+
             long endTime = System.currentTimeMillis();
             log.info("=== 应用初始化操作完成，耗时: {}ms ===", endTime - startTime);
 
@@ -1,6 +1,9 @@
 package com.clover.cpanel.config;
 
+import com.clover.cpanel.interceptor.HttpMetricsInterceptor;
 import com.clover.cpanel.interceptor.JwtAuthInterceptor;
+import com.clover.cpanel.interceptor.UploadCacheInterceptor;
+import com.clover.cpanel.service.UploadAssetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,6 +11,7 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.web.filter.CharacterEncodingFilter;
 import org.springframework.web.servlet.config.annotation.*;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
 import org.springframework.web.servlet.resource.PathResourceResolver;
 
 import java.io.IOException;
@@ -21,11 +25,24 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private JwtAuthInterceptor jwtAuthInterceptor;
 
+    @Autowired
+    private HttpMetricsInterceptor httpMetricsInterceptor;
+
+    @Autowired
+    private UploadCacheInterceptor uploadCacheInterceptor;
+
+    @Autowired
+    private UploadAssetService uploadAssetService;
+
     /**
      * 注册拦截器
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // 请求耗时统计，最先注册以覆盖认证拦截器的耗时
+        registry.addInterceptor(httpMetricsInterceptor)
+                .addPathPatterns("/api/**", "/metrics");
+
         registry.addInterceptor(jwtAuthInterceptor)
                 .addPathPatterns("/api/**")  // 拦截所有API请求
                 .excludePathPatterns(
@@ -39,6 +56,10 @@ public class WebConfig implements WebMvcConfigurer {
                         "/js/**",
                         "/images/**"
                 );
+
+        // 上传文件的缓存策略
+        registry.addInterceptor(uploadCacheInterceptor)
+                .addPathPatterns("/uploads/**");
     }
 
     /**
@@ -69,9 +90,13 @@ public class WebConfig implements WebMvcConfigurer {
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // 配置文件上传路径的静态资源映射（包括音乐文件）
+        // 缓存头由UploadCacheInterceptor设置，ETag按文件内容生成，并按Accept-Encoding返回预压缩的 .gz 文件
+        // 不缓存解析结果，文件删除后立即返回404
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:./uploads/")
-                .setCachePeriod(3600); // 缓存1小时
+                .setEtagGenerator(uploadAssetService::etag)
+                .resourceChain(false)
+                .addResolver(new EncodedResourceResolver());
 
         // 配置前端静态资源，支持SPA路由
         registry.addResourceHandler("/**")
@@ -1,12 +1,17 @@
 package com.clover.cpanel.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import com.clover.cpanel.interceptor.WebSocketAuthInterceptor;
+import com.clover.cpanel.websocket.EventWebSocketHandler;
 import com.clover.cpanel.websocket.TerminalWebSocketHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Arrays;
+
 /**
  * WebSocket配置
  */
@@ -17,10 +22,31 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private TerminalWebSocketHandler terminalWebSocketHandler;
 
+    @Autowired
+    private EventWebSocketHandler eventWebSocketHandler;
+
+    @Autowired
+    private WebSocketAuthInterceptor webSocketAuthInterceptor;
+
+    // 允许跨域建立WebSocket连接的源（逗号分隔，支持通配符模式），同源请求始终允许
+    @Value("${websocket.allowed-origins:http://localhost:*,http://127.0.0.1:*}")
+    private String allowedOrigins;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        // 注册终端WebSocket处理器，支持会话ID路径参数
+        String[] origins = Arrays.stream(allowedOrigins.split(","))
+                .map(String::trim)
+                .filter(origin -> !origin.isEmpty())
+                .toArray(String[]::new);
+
+        // 注册终端WebSocket处理器，支持会话ID路径参数，握手时验证JWT
         registry.addHandler(terminalWebSocketHandler, "/ws/terminal", "/ws/terminal/{sessionId}")
-                .setAllowedOrigins("*"); // 生产环境中应该限制允许的源
+                .addInterceptors(webSocketAuthInterceptor)
+                .setAllowedOriginPatterns(origins);
+
+        // 注册事件推送WebSocket处理器（服务器状态等实时事件）
+        registry.addHandler(eventWebSocketHandler, "/ws/events")
+                .addInterceptors(webSocketAuthInterceptor)
+                .setAllowedOriginPatterns(origins);
     }
 }
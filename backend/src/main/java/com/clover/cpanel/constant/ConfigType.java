@@ -35,6 +35,12 @@ public class ConfigType {
      */
     public static final String SERVER = "server";
 
+    /**
+     * 告警配置类型
+     * 包括：系统指标告警规则
+     */
+    public static final String ALERT = "alert";
+
     /**
      * 私有构造函数，防止实例化
      */
@@ -0,0 +1,78 @@
+package com.clover.cpanel.controller;
+
+import com.clover.cpanel.common.ApiResponse;
+import com.clover.cpanel.dto.AlertEvent;
+import com.clover.cpanel.dto.AlertRule;
+import com.clover.cpanel.service.AlertService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 告警控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+
+    @Autowired
+    private AlertService alertService;
+
+    /**
+     * 获取告警规则列表
+     */
+    @GetMapping("/rules")
+    public ApiResponse<List<AlertRule>> getRules() {
+        try {
+            return ApiResponse.success(alertService.getRules());
+        } catch (Exception e) {
+            log.error("获取告警规则失败", e);
+            return ApiResponse.error("获取告警规则失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 新建或更新告警规则
+     */
+    @PostMapping("/rules")
+    public ApiResponse<AlertRule> saveRule(@RequestBody AlertRule rule) {
+        try {
+            return ApiResponse.success("保存成功", alertService.saveRule(rule));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("保存告警规则失败", e);
+            return ApiResponse.error("保存告警规则失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 删除告警规则
+     */
+    @DeleteMapping("/rules/{id}")
+    public ApiResponse<Boolean> deleteRule(@PathVariable String id) {
+        try {
+            boolean deleted = alertService.deleteRule(id);
+            return deleted ? ApiResponse.success("删除成功", true) : ApiResponse.error("告警规则不存在");
+        } catch (Exception e) {
+            log.error("删除告警规则失败", e);
+            return ApiResponse.error("删除告警规则失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取触发中的告警
+     */
+    @GetMapping("/active")
+    public ApiResponse<List<AlertEvent>> getActiveAlerts() {
+        try {
+            return ApiResponse.success(alertService.getActiveAlerts());
+        } catch (Exception e) {
+            log.error("获取告警失败", e);
+            return ApiResponse.error("获取告警失败：" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.clover.cpanel.controller;
+
+import com.clover.cpanel.service.LogTailService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 远程日志跟踪控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/logs")
+public class LogTailController {
+
+    @Autowired
+    private LogTailService logTailService;
+
+    /**
+     * 跟踪远程日志，只推送匹配过滤条件的行
+     * SSE事件：started（开始）、lines（批量日志，含 scanned/matched/dropped 计数）、error（结束或出错）
+     * @param serverId 服务器ID
+     * @param path 日志文件路径
+     * @param filter 过滤条件
+     * @param regex 过滤条件是否为正则表达式
+     * @param ignoreCase 是否忽略大小写
+     * @param lines 开始时输出的历史行数
+     * @return SSE事件流
+     */
+    @GetMapping(value = "/{serverId}/tail", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter tail(@PathVariable Integer serverId,
+                           @RequestParam String path,
+                           @RequestParam(required = false) String filter,
+                           @RequestParam(defaultValue = "false") boolean regex,
+                           @RequestParam(defaultValue = "false") boolean ignoreCase,
+                           @RequestParam(defaultValue = "50") int lines) {
+        log.info("跟踪远程日志: serverId={}, path={}, filter={}", serverId, path, filter);
+        return logTailService.tail(serverId, path, filter, regex, ignoreCase, lines);
+    }
+}
@@ -0,0 +1,75 @@
+package com.clover.cpanel.controller;
+
+import com.clover.cpanel.service.MetricsExportService;
+import com.clover.cpanel.util.OpenMetricsWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Prometheus指标抓取接口
+ * 不在 /api/** 下，不经过JWT认证，要求 Authorization: Bearer &lt;metrics.token&gt;；
+ * 默认关闭，开启后未配置令牌时同样不提供服务
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final MetricsExportService metricsExportService;
+
+    @Value("${metrics.enabled:false}")
+    private boolean enabled;
+
+    @Value("${metrics.token:}")
+    private String token;
+
+    private final AtomicBoolean missingTokenLogged = new AtomicBoolean(false);
+
+    /**
+     * 以OpenMetrics文本格式导出指标
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (!enabled) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (token == null || token.isEmpty()) {
+            if (missingTokenLogged.compareAndSet(false, true)) {
+                log.warn("指标接口已开启但未配置 metrics.token，拒绝提供服务");
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (!isAuthorized(authorization)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_TYPE, OpenMetricsWriter.CONTENT_TYPE)
+                    .body(metricsExportService.scrape());
+        } catch (Exception e) {
+            log.error("导出指标失败", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private boolean isAuthorized(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        byte[] expected = token.getBytes(StandardCharsets.UTF_8);
+        byte[] actual = authorization.substring(7).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, actual);
+    }
+}
@@ -5,6 +5,7 @@ import com.clover.cpanel.dto.MusicSearchRequestDTO;
 import com.clover.cpanel.dto.MusicSearchResultDTO;
 import com.clover.cpanel.dto.PlaylistParseRequestDTO;
 import com.clover.cpanel.dto.PlaylistInfoDTO;
+import com.clover.cpanel.service.MetricsRegistry;
 import com.clover.cpanel.service.MusicSearchService;
 import com.clover.cpanel.service.SystemConfigService;
 import com.clover.cpanel.service.PlaylistParserService;
@@ -42,6 +43,7 @@ public class MusicController {
     private final MusicSearchService musicSearchService;
     private final SystemConfigService systemConfigService;
     private final PlaylistParserService playlistParserService;
+    private final MetricsRegistry metricsRegistry;
 
     @Value("${server.servlet.context-path:}")
     private String contextPath;
@@ -337,6 +339,7 @@ public class MusicController {
             // 读取音频数据
             try (InputStream inputStream = connection.getInputStream()) {
                 byte[] audioData = inputStream.readAllBytes();
+                metricsRegistry.recordProxy("audio-stream", audioData.length);
 
                 log.debug("成功代理音频流，大小: {} bytes, 类型: {}, 状态码: {}",
                     audioData.length, contentType, responseCode);
@@ -431,6 +434,7 @@ public class MusicController {
             // 读取音频数据
             try (InputStream inputStream = connection.getInputStream()) {
                 byte[] audioData = inputStream.readAllBytes();
+                metricsRegistry.recordProxy("audio", audioData.length);
 
                 log.debug("成功代理音频，大小: {} bytes, 类型: {}", audioData.length, contentType);
 
@@ -493,6 +497,7 @@ public class MusicController {
             // 读取图片数据
             try (InputStream inputStream = connection.getInputStream()) {
                 byte[] imageData = inputStream.readAllBytes();
+                metricsRegistry.recordProxy("image", imageData.length);
 
                 // 设置响应头
                 HttpHeaders headers = new HttpHeaders();
@@ -279,11 +279,6 @@ public class NavigationItemController {
                 // 上传新图标文件（包含导航项名称）
                 logoUrl = fileUploadService.uploadFile(logoFile, request.getName());
                 log.info("新图标文件上传成功: {}", logoUrl);
-
-                // 删除旧图标文件（如果是本地文件）
-                if (existingItem.getLogo() != null && existingItem.getLogo().startsWith("/uploads/")) {
-                    fileUploadService.deleteFile(existingItem.getLogo());
-                }
             }
 
             // 更新导航项实体
@@ -301,6 +296,13 @@ public class NavigationItemController {
             boolean success = navigationItemService.updateNavigationItem(navigationItem);
             if (success) {
                 log.info("导航项更新成功: {}", navigationItem.getName());
+
+                // 删除旧图标文件（如果是本地文件）；图标按内容存储，可能被其他导航项共用，无引用时才删除
+                String oldLogo = existingItem.getLogo();
+                if (oldLogo != null && oldLogo.startsWith("/uploads/") && !oldLogo.equals(logoUrl)
+                        && navigationItemService.countByLogo(oldLogo) == 0) {
+                    fileUploadService.deleteFile(oldLogo);
+                }
                 return ApiResponse.success("导航项更新成功", navigationItem);
             } else {
                 return ApiResponse.error("导航项更新失败");
@@ -1,16 +1,25 @@
 package com.clover.cpanel.controller;
 
 import com.clover.cpanel.common.ApiResponse;
+import com.clover.cpanel.dto.BatchExecRequest;
+import com.clover.cpanel.dto.ServerHealthStatus;
 import com.clover.cpanel.dto.ServerRequest;
 import com.clover.cpanel.dto.ServerResponse;
 import com.clover.cpanel.entity.Server;
+import com.clover.cpanel.service.RemoteMetricsCollector;
+import com.clover.cpanel.service.ServerHealthProbeService;
 import com.clover.cpanel.service.ServerService;
+import com.clover.cpanel.service.SshExecService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 服务器配置控制器
@@ -20,9 +29,21 @@ import java.util.Map;
 @RequestMapping("/api/servers")
 public class ServerController {
 
+    // 批量执行事件流在估算耗时之外预留的时长（毫秒），覆盖建立连接与推送结果的开销
+    private static final long BATCH_EXEC_STREAM_MARGIN_MILLIS = 30_000;
+
     @Autowired
     private ServerService serverService;
 
+    @Autowired
+    private SshExecService sshExecService;
+
+    @Autowired
+    private ServerHealthProbeService serverHealthProbeService;
+
+    @Autowired
+    private RemoteMetricsCollector remoteMetricsCollector;
+
     /**
      * 获取所有服务器配置
      * @return 服务器配置列表
@@ -197,6 +218,55 @@ public class ServerController {
         }
     }
 
+    /**
+     * 获取所有服务器最近一次健康探测结果
+     * @return 探测结果列表
+     */
+    @GetMapping("/health")
+    public ApiResponse<List<ServerHealthStatus>> getServerHealth() {
+        try {
+            return ApiResponse.success(serverHealthProbeService.getLatestStatus());
+        } catch (Exception e) {
+            log.error("获取服务器健康状态失败", e);
+            return ApiResponse.error("获取服务器健康状态失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取所有服务器的最新指标
+     * @return 最新指标列表
+     */
+    @GetMapping("/metrics/latest")
+    public ApiResponse<List<Map<String, Object>>> getLatestMetrics() {
+        try {
+            return ApiResponse.success(remoteMetricsCollector.getLatest());
+        } catch (Exception e) {
+            log.error("获取服务器指标失败", e);
+            return ApiResponse.error("获取服务器指标失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取服务器指标历史
+     * @param id 服务器ID
+     * @param limit 最多返回的采样数，默认全部
+     * @return 指标历史
+     */
+    @GetMapping("/{id}/metrics")
+    public ApiResponse<Map<String, Object>> getServerMetrics(@PathVariable Integer id,
+                                                             @RequestParam(defaultValue = "0") int limit) {
+        try {
+            Map<String, Object> history = remoteMetricsCollector.getHistory(id, limit);
+            if (history == null) {
+                return ApiResponse.error("暂无该服务器的指标数据");
+            }
+            return ApiResponse.success(history);
+        } catch (Exception e) {
+            log.error("获取服务器指标历史失败: serverId={}", id, e);
+            return ApiResponse.error("获取服务器指标历史失败：" + e.getMessage());
+        }
+    }
+
     /**
      * 测试服务器连接
      * @param request 服务器配置请求
@@ -301,4 +371,93 @@ public class ServerController {
             return ApiResponse.error("获取分组服务器列表失败：" + e.getMessage());
         }
     }
+
+    /**
+     * 在多台服务器上批量执行命令
+     * 通过SSE推送结果：每台服务器执行完毕立即推送一个result事件，全部完成后推送complete事件；
+     * 流的时长上限按服务器数量、并发数和单机超时估算，客户端断开或流超时时取消未完成的执行
+     * @param request 批量执行请求
+     * @return SSE事件流
+     */
+    @PostMapping(value = "/batch-exec", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter batchExec(@RequestBody BatchExecRequest request) {
+        List<Server> servers;
+        try {
+            if (request.getCommand() == null || request.getCommand().trim().isEmpty()) {
+                return errorEmitter("命令不能为空");
+            }
+            servers = serverService.getServersWithAuthInfo(request.getServerIds(), request.getCategoryIds());
+            if (servers.isEmpty()) {
+                return errorEmitter("未找到目标服务器");
+            }
+        } catch (Exception e) {
+            log.error("批量执行命令失败", e);
+            return errorEmitter("批量执行命令失败：" + e.getMessage());
+        }
+
+        SseEmitter emitter = new SseEmitter(BATCH_EXEC_STREAM_MARGIN_MILLIS + sshExecService.estimateBatchMillis(
+                servers.size(), request.getTimeoutSeconds(), request.getParallelism()));
+        try {
+            log.info("批量执行命令，目标服务器: {} 台", servers.size());
+            emitter.send(SseEmitter.event().name("start").data(Map.of("total", servers.size())));
+
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            CompletableFuture<Void> batch = sshExecService.batchExec(servers, request.getCommand(),
+                    request.getTimeoutSeconds(), request.getParallelism(),
+                    result -> {
+                        if (result.getExitCode() != null && result.getExitCode() == 0) {
+                            succeeded.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                        try {
+                            emitter.send(SseEmitter.event().name("result").data(result));
+                        } catch (Exception e) {
+                            log.debug("推送执行结果失败，客户端可能已断开: {}", result.getServerName());
+                        }
+                    });
+            // 客户端断开、流超时或出错时取消剩余的执行；正常结束时batch已完成，取消无效果
+            emitter.onCompletion(() -> batch.cancel(true));
+            emitter.onTimeout(() -> {
+                log.warn("批量执行命令超出流时长上限，取消剩余执行");
+                batch.cancel(true);
+                emitter.complete();
+            });
+            emitter.onError(e -> batch.cancel(true));
+            batch.whenComplete((v, e) -> {
+                if (batch.isCancelled()) {
+                    return;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name("complete").data(Map.of(
+                            "total", servers.size(),
+                            "succeeded", succeeded.get(),
+                            "failed", failed.get())));
+                    emitter.complete();
+                } catch (Exception ex) {
+                    emitter.completeWithError(ex);
+                }
+            });
+        } catch (Exception e) {
+            log.error("批量执行命令失败", e);
+            sendErrorAndComplete(emitter, "批量执行命令失败：" + e.getMessage());
+        }
+        return emitter;
+    }
+
+    private SseEmitter errorEmitter(String message) {
+        SseEmitter emitter = new SseEmitter();
+        sendErrorAndComplete(emitter, message);
+        return emitter;
+    }
+
+    private void sendErrorAndComplete(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("message", message)));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+    }
 }
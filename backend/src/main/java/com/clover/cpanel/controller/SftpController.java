@@ -0,0 +1,153 @@
+package com.clover.cpanel.controller;
+
+import com.clover.cpanel.common.ApiResponse;
+import com.clover.cpanel.dto.SftpFileInfo;
+import com.clover.cpanel.service.SftpService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.*;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SFTP文件管理控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/sftp/{serverId}")
+public class SftpController {
+
+    @Autowired
+    private SftpService sftpService;
+
+    /**
+     * 分页列出目录内容
+     * @param serverId 服务器ID
+     * @param path 目录路径，默认为用户主目录
+     * @param offset 起始位置
+     * @param limit 条数
+     * @return 目录内容
+     */
+    @GetMapping("/list")
+    public ApiResponse<Map<String, Object>> listDirectory(@PathVariable Integer serverId,
+                                                          @RequestParam(defaultValue = ".") String path,
+                                                          @RequestParam(defaultValue = "0") int offset,
+                                                          @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return ApiResponse.success(sftpService.listDirectory(serverId, path, offset, limit));
+        } catch (Exception e) {
+            log.error("列出远程目录失败: serverId={}, path={}", serverId, path, e);
+            return ApiResponse.error("列出远程目录失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取文件信息（上传续传前可用于查询已上传的大小）
+     * @param serverId 服务器ID
+     * @param path 文件路径
+     * @return 文件信息
+     */
+    @GetMapping("/stat")
+    public ApiResponse<SftpFileInfo> stat(@PathVariable Integer serverId, @RequestParam String path) {
+        try {
+            SftpFileInfo info = sftpService.stat(serverId, path);
+            if (info == null) {
+                return ApiResponse.error("远程文件不存在");
+            }
+            return ApiResponse.success(info);
+        } catch (Exception e) {
+            log.error("获取远程文件信息失败: serverId={}, path={}", serverId, path, e);
+            return ApiResponse.error("获取远程文件信息失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 下载文件，支持Range断点续传
+     * @param serverId 服务器ID
+     * @param path 文件路径
+     * @param rangeHeader Range请求头
+     * @return 文件流
+     */
+    @GetMapping("/download")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable Integer serverId,
+                                                          @RequestParam String path,
+                                                          @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader) {
+        SftpService.SftpDownload download;
+        try {
+            download = sftpService.openDownload(serverId, path);
+        } catch (Exception e) {
+            log.error("打开远程文件失败: serverId={}, path={}", serverId, path, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        long size = download.getSize();
+        long start = 0;
+        long end = size - 1;
+        boolean partial = false;
+
+        if (rangeHeader != null && size > 0) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                if (!ranges.isEmpty()) {
+                    // 只支持单区间
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    partial = true;
+                }
+            } catch (IllegalArgumentException e) {
+                download.close();
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                        .build();
+            }
+        }
+
+        long offset = start;
+        long length = Math.max(0, end - start + 1);
+        StreamingResponseBody body = out -> {
+            try (download) {
+                download.transferTo(out, offset, length);
+            }
+        };
+
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(length)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName, StandardCharsets.UTF_8).build().toString());
+        if (partial) {
+            builder.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        return builder.body(body);
+    }
+
+    /**
+     * 上传文件分块（请求体为原始二进制）
+     * 偏移为0时创建或覆盖文件，其余分块的偏移必须等于远程文件当前大小
+     * @param serverId 服务器ID
+     * @param path 远程文件路径
+     * @param offset 分块偏移
+     * @param request HTTP请求
+     * @return 上传后的文件大小
+     */
+    @PutMapping("/upload")
+    public ApiResponse<Map<String, Object>> uploadChunk(@PathVariable Integer serverId,
+                                                        @RequestParam String path,
+                                                        @RequestParam(defaultValue = "0") long offset,
+                                                        HttpServletRequest request) {
+        try {
+            long size = sftpService.uploadChunk(serverId, path, offset, request.getInputStream());
+            return ApiResponse.success(Map.of("path", path, "size", size));
+        } catch (Exception e) {
+            log.error("上传文件分块失败: serverId={}, path={}, offset={}", serverId, path, offset, e);
+            return ApiResponse.error("上传文件分块失败：" + e.getMessage());
+        }
+    }
+}
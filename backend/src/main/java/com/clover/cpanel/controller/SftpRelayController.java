@@ -0,0 +1,80 @@
+package com.clover.cpanel.controller;
+
+import com.clover.cpanel.common.ApiResponse;
+import com.clover.cpanel.dto.RelayRequest;
+import com.clover.cpanel.dto.RelayStatus;
+import com.clover.cpanel.service.SftpRelayService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 服务器间文件中转控制器
+ * 进度通过 /ws/events 的 sftp.relay 主题推送
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/sftp/relay")
+public class SftpRelayController {
+
+    @Autowired
+    private SftpRelayService sftpRelayService;
+
+    /**
+     * 启动中转任务
+     * @param request 中转请求
+     * @return 初始状态（包含传输ID）
+     */
+    @PostMapping
+    public ApiResponse<RelayStatus> startRelay(@RequestBody RelayRequest request) {
+        try {
+            return ApiResponse.success(sftpRelayService.startRelay(request));
+        } catch (Exception e) {
+            log.error("启动文件中转失败", e);
+            return ApiResponse.error("启动文件中转失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取所有中转任务
+     * @return 中转状态列表
+     */
+    @GetMapping
+    public ApiResponse<List<RelayStatus>> listTransfers() {
+        try {
+            return ApiResponse.success(sftpRelayService.listTransfers());
+        } catch (Exception e) {
+            log.error("获取文件中转列表失败", e);
+            return ApiResponse.error("获取文件中转列表失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取中转任务状态
+     * @param transferId 传输ID
+     * @return 中转状态
+     */
+    @GetMapping("/{transferId}")
+    public ApiResponse<RelayStatus> getStatus(@PathVariable String transferId) {
+        RelayStatus status = sftpRelayService.getStatus(transferId);
+        if (status == null) {
+            return ApiResponse.error("中转任务不存在");
+        }
+        return ApiResponse.success(status);
+    }
+
+    /**
+     * 取消中转任务
+     * @param transferId 传输ID
+     * @return 操作结果
+     */
+    @DeleteMapping("/{transferId}")
+    public ApiResponse<String> cancel(@PathVariable String transferId) {
+        if (sftpRelayService.cancel(transferId)) {
+            return ApiResponse.success("已请求取消中转任务");
+        }
+        return ApiResponse.error("中转任务不存在或已结束");
+    }
+}
@@ -6,13 +6,16 @@ import com.clover.cpanel.dto.MarginConfigRequest;
 import com.clover.cpanel.dto.PrivateKeyRequest;
 import com.clover.cpanel.dto.ServerConfigRequest;
 import com.clover.cpanel.dto.WallpaperConfigRequest;
+import com.clover.cpanel.dto.WallpaperItem;
 import com.clover.cpanel.entity.SystemConfig;
 import com.clover.cpanel.service.FileUploadService;
 import com.clover.cpanel.service.SystemConfigService;
+import com.clover.cpanel.service.WallpaperIndexService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
@@ -36,6 +39,9 @@ public class SystemConfigController {
     @Autowired
     private FileUploadService fileUploadService;
 
+    @Autowired
+    private WallpaperIndexService wallpaperIndexService;
+
     // 上传目录配置
     @Value("${file.upload.path:uploads}")
     private String uploadPath;
@@ -77,14 +83,27 @@ public class SystemConfigController {
     public ApiResponse<Map<String, Object>> getWallpaperConfig() {
         try {
             Map<String, Object> config = new HashMap<>();
-            
-            String wallpaperUrl = systemConfigService.getConfigValue(WALLPAPER_URL_KEY);
-            String wallpaperBlur = systemConfigService.getConfigValue(WALLPAPER_BLUR_KEY);
-            String wallpaperMask = systemConfigService.getConfigValue(WALLPAPER_MASK_KEY);
+
+            Map<String, String> values = systemConfigService.getConfigValues(
+                List.of(WALLPAPER_URL_KEY, WALLPAPER_BLUR_KEY, WALLPAPER_MASK_KEY));
+            String wallpaperUrl = values.get(WALLPAPER_URL_KEY);
+            String wallpaperBlur = values.get(WALLPAPER_BLUR_KEY);
+            String wallpaperMask = values.get(WALLPAPER_MASK_KEY);
             
             config.put("wallpaperUrl", wallpaperUrl != null ? wallpaperUrl : "");
             config.put("wallpaperBlur", wallpaperBlur != null ? Integer.parseInt(wallpaperBlur) : 5);
             config.put("wallpaperMask", wallpaperMask != null ? Integer.parseInt(wallpaperMask) : 30);
+
+            // 当前壁纸的各显示尺寸，客户端按屏幕宽度选择
+            List<WallpaperItem.Variant> variants = new ArrayList<>();
+            String prefix = "/uploads/backgrounds/";
+            if (wallpaperUrl != null && wallpaperUrl.startsWith(prefix)) {
+                WallpaperIndexService.Wallpaper wallpaper = wallpaperIndexService.find(wallpaperUrl.substring(prefix.length()));
+                if (wallpaper != null) {
+                    variants = toVariants(wallpaper);
+                }
+            }
+            config.put("wallpaperVariants", variants);
             
             return ApiResponse.success(config);
         } catch (Exception e) {
@@ -124,6 +143,7 @@ public class SystemConfigController {
             // 上传文件到backgrounds子目录
             String wallpaperUrl = fileUploadService.uploadFileToSubDirectory(file, "backgrounds", "wallpaper");
             log.info("壁纸文件上传成功: {}", wallpaperUrl);
+            wallpaperIndexService.refresh(wallpaperUrl.substring(wallpaperUrl.lastIndexOf('/') + 1));
 
             // 保存配置到数据库
             boolean success = saveWallpaperConfig(wallpaperUrl, blur, mask);
@@ -212,14 +232,17 @@ public class SystemConfigController {
      */
     private boolean saveWallpaperConfig(String wallpaperUrl, Integer blur, Integer mask) {
         try {
-            boolean success1 = systemConfigService.setConfigValue(WALLPAPER_URL_KEY,
-                wallpaperUrl != null ? wallpaperUrl : "", "自定义壁纸URL", ConfigType.THEME);
-            boolean success2 = systemConfigService.setConfigValue(WALLPAPER_BLUR_KEY,
-                blur.toString(), "壁纸模糊度", ConfigType.THEME);
-            boolean success3 = systemConfigService.setConfigValue(WALLPAPER_MASK_KEY,
-                mask.toString(), "壁纸遮罩透明度", ConfigType.THEME);
-
-            return success1 && success2 && success3;
+            Map<String, String> values = new LinkedHashMap<>();
+            Map<String, String> descriptions = new HashMap<>();
+            values.put(WALLPAPER_URL_KEY, wallpaperUrl != null ? wallpaperUrl : "");
+            descriptions.put(WALLPAPER_URL_KEY, "自定义壁纸URL");
+            values.put(WALLPAPER_BLUR_KEY, blur.toString());
+            descriptions.put(WALLPAPER_BLUR_KEY, "壁纸模糊度");
+            values.put(WALLPAPER_MASK_KEY, mask.toString());
+            descriptions.put(WALLPAPER_MASK_KEY, "壁纸遮罩透明度");
+
+            // 三项配置一次写入，要么全部成功要么全部不变
+            return systemConfigService.setConfigValues(values, descriptions, ConfigType.THEME);
         } catch (Exception e) {
             log.error("保存壁纸配置失败", e);
             return false;
@@ -390,13 +413,15 @@ public class SystemConfigController {
     public ApiResponse<Map<String, Object>> getMusicConfig() {
         try {
             Map<String, Object> musicConfig = new HashMap<>();
+            Map<String, String> values = systemConfigService.getConfigValues(
+                List.of(MUSIC_DOWNLOAD_LOCATION_KEY, MUSIC_SERVER_DOWNLOAD_PATH_KEY));
 
             // 获取下载位置设置（默认为本地）
-            String downloadLocation = systemConfigService.getConfigValue(MUSIC_DOWNLOAD_LOCATION_KEY);
+            String downloadLocation = values.get(MUSIC_DOWNLOAD_LOCATION_KEY);
             musicConfig.put("downloadLocation", downloadLocation != null ? downloadLocation : "local");
 
             // 获取服务器下载路径设置（默认为 uploads/music）
-            String serverDownloadPath = systemConfigService.getConfigValue(MUSIC_SERVER_DOWNLOAD_PATH_KEY);
+            String serverDownloadPath = values.get(MUSIC_SERVER_DOWNLOAD_PATH_KEY);
             musicConfig.put("serverDownloadPath", serverDownloadPath != null ? serverDownloadPath : "uploads/music");
 
             return ApiResponse.success(musicConfig);
@@ -423,15 +448,12 @@ public class SystemConfigController {
             }
 
             // 保存下载位置设置
-            boolean success1 = systemConfigService.setConfigValue(
-                MUSIC_DOWNLOAD_LOCATION_KEY,
-                downloadLocation,
-                "音乐下载位置设置",
-                ConfigType.MUSIC
-            );
+            Map<String, String> values = new LinkedHashMap<>();
+            Map<String, String> descriptions = new HashMap<>();
+            values.put(MUSIC_DOWNLOAD_LOCATION_KEY, downloadLocation);
+            descriptions.put(MUSIC_DOWNLOAD_LOCATION_KEY, "音乐下载位置设置");
 
             // 如果是服务器下载，保存服务器路径设置
-            boolean success2 = true;
             if ("server".equals(downloadLocation) && serverDownloadPath != null && !serverDownloadPath.trim().isEmpty()) {
                 // 清理路径，移除多余的斜杠但保留绝对路径标识
                 String cleanPath = serverDownloadPath.trim();
@@ -457,15 +479,11 @@ public class SystemConfigController {
                     cleanPath = "uploads/music";
                 }
 
-                success2 = systemConfigService.setConfigValue(
-                    MUSIC_SERVER_DOWNLOAD_PATH_KEY,
-                    cleanPath,
-                    "音乐服务器下载路径",
-                    ConfigType.MUSIC
-                );
+                values.put(MUSIC_SERVER_DOWNLOAD_PATH_KEY, cleanPath);
+                descriptions.put(MUSIC_SERVER_DOWNLOAD_PATH_KEY, "音乐服务器下载路径");
             }
 
-            if (success1 && success2) {
+            if (systemConfigService.setConfigValues(values, descriptions, ConfigType.MUSIC)) {
                 log.info("音乐配置保存成功: downloadLocation={}, serverDownloadPath={}",
                     downloadLocation, serverDownloadPath);
                 return ApiResponse.success("音乐配置保存成功");
@@ -613,52 +631,20 @@ public class SystemConfigController {
 
     /**
      * 获取历史壁纸列表
+     * 数据来自内存中的壁纸索引，ETag由索引版本和配置版本组成，未变化时返回304
      * @return 壁纸列表
      */
     @GetMapping("/wallpaper/history")
-    public ApiResponse<List<Map<String, Object>>> getWallpaperHistory() {
+    public ApiResponse<List<WallpaperItem>> getWallpaperHistory(WebRequest webRequest) {
         try {
-            List<Map<String, Object>> wallpapers = new ArrayList<>();
-
-            // 获取backgrounds目录
-            File backgroundsDir = new File(uploadPath, "backgrounds");
-            if (!backgroundsDir.exists() || !backgroundsDir.isDirectory()) {
-                return ApiResponse.success(wallpapers);
+            if (webRequest.checkNotModified(wallpaperETag())) {
+                return null;
             }
 
-            // 获取当前使用的壁纸URL
             String currentWallpaperUrl = systemConfigService.getConfigValue(WALLPAPER_URL_KEY);
-
-            // 遍历backgrounds目录中的所有图片文件
-            File[] files = backgroundsDir.listFiles((dir, name) -> {
-                String lowerName = name.toLowerCase();
-                return lowerName.endsWith(".jpg") || lowerName.endsWith(".jpeg") ||
-                       lowerName.endsWith(".png") || lowerName.endsWith(".gif") ||
-                       lowerName.endsWith(".bmp") || lowerName.endsWith(".webp");
-            });
-
-            if (files != null) {
-                for (File file : files) {
-                    Map<String, Object> wallpaper = new HashMap<>();
-                    String fileName = file.getName();
-                    String fileUrl = "/uploads/backgrounds/" + fileName;
-
-                    wallpaper.put("id", fileName);
-                    wallpaper.put("name", fileName);
-                    wallpaper.put("url", fileUrl);
-                    wallpaper.put("size", file.length());
-                    wallpaper.put("lastModified", file.lastModified());
-                    wallpaper.put("isCurrent", fileUrl.equals(currentWallpaperUrl));
-
-                    wallpapers.add(wallpaper);
-                }
-
-                // 按最后修改时间倒序排列
-                wallpapers.sort((a, b) -> Long.compare(
-                    (Long) b.get("lastModified"),
-                    (Long) a.get("lastModified")
-                ));
-            }
+            List<WallpaperItem> wallpapers = wallpaperIndexService.list().stream()
+                .map(wallpaper -> toWallpaperItem(wallpaper, currentWallpaperUrl))
+                .collect(Collectors.toList());
 
             return ApiResponse.success(wallpapers);
         } catch (Exception e) {
@@ -667,6 +653,68 @@ public class SystemConfigController {
         }
     }
 
+    /**
+     * 分页获取历史壁纸
+     * @param cursor 上一页返回的游标，为空时获取第一页
+     * @param limit 每页数量
+     * @return 本页壁纸、下一页游标和总数
+     */
+    @GetMapping("/wallpaper/gallery")
+    public ApiResponse<Map<String, Object>> getWallpaperGallery(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "30") Integer limit,
+            WebRequest webRequest) {
+        try {
+            if (webRequest.checkNotModified(wallpaperETag())) {
+                return null;
+            }
+
+            WallpaperIndexService.Page page = wallpaperIndexService.page(cursor, limit);
+            String currentWallpaperUrl = systemConfigService.getConfigValue(WALLPAPER_URL_KEY);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("items", page.items().stream()
+                .map(wallpaper -> toWallpaperItem(wallpaper, currentWallpaperUrl))
+                .collect(Collectors.toList()));
+            result.put("nextCursor", page.nextCursor());
+            result.put("total", page.total());
+
+            return ApiResponse.success(result);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("分页获取历史壁纸失败", e);
+            return ApiResponse.error("分页获取历史壁纸失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 壁纸列表的ETag，壁纸增删或当前壁纸变化时改变
+     */
+    private String wallpaperETag() {
+        return "\"" + wallpaperIndexService.getVersion() + "-" + systemConfigService.getConfigVersion() + "\"";
+    }
+
+    private WallpaperItem toWallpaperItem(WallpaperIndexService.Wallpaper wallpaper, String currentWallpaperUrl) {
+        String fileUrl = "/uploads/backgrounds/" + wallpaper.name();
+        String derivedUrl = derivedUrlPrefix(wallpaper.name());
+        return new WallpaperItem(wallpaper.name(), wallpaper.name(), fileUrl,
+            wallpaper.size(), wallpaper.lastModified(), fileUrl.equals(currentWallpaperUrl),
+            wallpaper.thumbnail() ? derivedUrl + WallpaperIndexService.THUMBNAIL_FILE : null,
+            toVariants(wallpaper));
+    }
+
+    private List<WallpaperItem.Variant> toVariants(WallpaperIndexService.Wallpaper wallpaper) {
+        String derivedUrl = derivedUrlPrefix(wallpaper.name());
+        return Arrays.stream(wallpaper.widths())
+            .mapToObj(width -> new WallpaperItem.Variant(width, derivedUrl + WallpaperIndexService.derivedFileName(width)))
+            .collect(Collectors.toList());
+    }
+
+    private String derivedUrlPrefix(String name) {
+        return "/uploads/backgrounds/" + WallpaperIndexService.DERIVED_DIRECTORY + "/" + name + "/";
+    }
+
     /**
      * 删除指定壁纸
      * @param wallpaperId 壁纸ID（文件名）
@@ -688,6 +736,7 @@ public class SystemConfigController {
             boolean deleted = fileUploadService.deleteFile(fileUrl);
 
             if (deleted) {
+                wallpaperIndexService.remove(wallpaperId);
                 log.info("壁纸删除成功: {}", fileUrl);
                 return ApiResponse.success("壁纸删除成功");
             } else {
@@ -730,6 +779,8 @@ public class SystemConfigController {
                 result.put("wallpaperUrl", fileUrl);
                 result.put("wallpaperBlur", blur);
                 result.put("wallpaperMask", mask);
+                WallpaperIndexService.Wallpaper wallpaper = wallpaperIndexService.find(wallpaperId);
+                result.put("wallpaperVariants", wallpaper != null ? toVariants(wallpaper) : List.of());
 
                 log.info("壁纸应用成功: {}", fileUrl);
                 return ApiResponse.success(result);
@@ -750,13 +801,15 @@ public class SystemConfigController {
     public ApiResponse<Map<String, Object>> getCookieConfig() {
         try {
             Map<String, Object> cookieConfig = new HashMap<>();
+            Map<String, String> values = systemConfigService.getConfigValues(
+                List.of(BILIBILI_COOKIE_KEY, YOUTUBE_COOKIE_KEY));
 
             // 获取Bilibili Cookie设置
-            String bilibiliCookie = systemConfigService.getConfigValue(BILIBILI_COOKIE_KEY);
+            String bilibiliCookie = values.get(BILIBILI_COOKIE_KEY);
             cookieConfig.put("bilibiliCookie", bilibiliCookie != null ? bilibiliCookie : "");
 
             // 获取YouTube Cookie设置
-            String youtubeCookie = systemConfigService.getConfigValue(YOUTUBE_COOKIE_KEY);
+            String youtubeCookie = values.get(YOUTUBE_COOKIE_KEY);
             cookieConfig.put("youtubeCookie", youtubeCookie != null ? youtubeCookie : "");
 
             return ApiResponse.success(cookieConfig);
@@ -777,23 +830,18 @@ public class SystemConfigController {
             @RequestParam(required = false, defaultValue = "") String bilibiliCookie,
             @RequestParam(required = false, defaultValue = "") String youtubeCookie) {
         try {
+            Map<String, String> values = new LinkedHashMap<>();
+            Map<String, String> descriptions = new HashMap<>();
+
             // 保存Bilibili Cookie设置
-            boolean success1 = systemConfigService.setConfigValue(
-                BILIBILI_COOKIE_KEY,
-                bilibiliCookie != null ? bilibiliCookie.trim() : "",
-                "Bilibili Cookie配置",
-                ConfigType.MUSIC
-            );
+            values.put(BILIBILI_COOKIE_KEY, bilibiliCookie != null ? bilibiliCookie.trim() : "");
+            descriptions.put(BILIBILI_COOKIE_KEY, "Bilibili Cookie配置");
 
             // 保存YouTube Cookie设置
-            boolean success2 = systemConfigService.setConfigValue(
-                YOUTUBE_COOKIE_KEY,
-                youtubeCookie != null ? youtubeCookie.trim() : "",
-                "YouTube Cookie配置",
-                ConfigType.MUSIC
-            );
+            values.put(YOUTUBE_COOKIE_KEY, youtubeCookie != null ? youtubeCookie.trim() : "");
+            descriptions.put(YOUTUBE_COOKIE_KEY, "YouTube Cookie配置");
 
-            if (success1 && success2) {
+            if (systemConfigService.setConfigValues(values, descriptions, ConfigType.MUSIC)) {
                 log.info("Cookie配置保存成功");
                 return ApiResponse.success("Cookie配置保存成功");
             } else {
@@ -2,14 +2,19 @@ package com.clover.cpanel.controller;
 
 import com.clover.cpanel.common.ApiResponse;
 import com.clover.cpanel.dto.SystemInfoDto;
+import com.clover.cpanel.service.DirectoryUsageService;
 import com.clover.cpanel.service.SystemInfoService;
+import com.clover.cpanel.service.SystemMetricsHistory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 系统信息控制器
@@ -22,6 +27,10 @@ public class SystemInfoController {
 
     private final SystemInfoService systemInfoService;
 
+    private final SystemMetricsHistory systemMetricsHistory;
+
+    private final DirectoryUsageService directoryUsageService;
+
     /**
      * 获取完整的系统信息
      * @return 系统信息
@@ -96,4 +105,54 @@ public class SystemInfoController {
             return ApiResponse.error("获取系统基本信息失败：" + e.getMessage());
         }
     }
+
+    /**
+     * 获取系统指标历史
+     * @param resolution 粒度：raw / minute / hour / auto
+     * @param from 起始时间（毫秒）
+     * @param to 结束时间（毫秒），默认当前
+     * @return 时间戳与各通道数据
+     */
+    @GetMapping("/history")
+    public ApiResponse<Map<String, Object>> getHistory(@RequestParam(defaultValue = "auto") String resolution,
+                                                       @RequestParam(defaultValue = "0") long from,
+                                                       @RequestParam(defaultValue = "0") long to) {
+        try {
+            return ApiResponse.success(systemMetricsHistory.query(resolution, from, to));
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        } catch (Exception e) {
+            log.error("获取系统指标历史失败", e);
+            return ApiResponse.error("获取系统指标历史失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取上传目录、音乐目录等的占用分析
+     * @param limit 返回占用最大的目录和文件类型数量
+     * @return 根目录合计、最大目录、文件类型统计
+     */
+    @GetMapping("/disk-usage")
+    public ApiResponse<Map<String, Object>> getDiskUsage(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ApiResponse.success(directoryUsageService.getReport(limit));
+        } catch (Exception e) {
+            log.error("获取目录占用失败", e);
+            return ApiResponse.error("获取目录占用失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 重新扫描目录占用（异步）
+     */
+    @PostMapping("/disk-usage/rescan")
+    public ApiResponse<Void> rescanDiskUsage() {
+        try {
+            directoryUsageService.requestRescan();
+            return ApiResponse.success();
+        } catch (Exception e) {
+            log.error("重新扫描目录占用失败", e);
+            return ApiResponse.error("重新扫描目录占用失败：" + e.getMessage());
+        }
+    }
 }
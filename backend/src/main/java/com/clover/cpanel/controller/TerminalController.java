@@ -1,14 +1,22 @@
 package com.clover.cpanel.controller;
 
 import com.clover.cpanel.common.ApiResponse;
+import com.clover.cpanel.service.SshConnectionPool;
 import com.clover.cpanel.service.SshService;
+import com.clover.cpanel.service.SshStandbyService;
+import com.clover.cpanel.service.TerminalRecordingService;
 import com.clover.cpanel.service.TwoFactorAuthService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -22,9 +30,18 @@ public class TerminalController {
     @Autowired
     private SshService sshService;
 
+    @Autowired
+    private SshConnectionPool sshConnectionPool;
+
+    @Autowired
+    private SshStandbyService sshStandbyService;
+
     @Autowired
     private TwoFactorAuthService twoFactorAuthService;
 
+    @Autowired
+    private TerminalRecordingService terminalRecordingService;
+
     /**
      * 验证2FA并测试SSH连接
      */
@@ -155,6 +172,8 @@ public class TerminalController {
             
             Map<String, Object> status = Map.of(
                 "activeSessionCount", activeSessionCount,
+                "pooledConnectionCount", sshConnectionPool.getPooledConnectionCount(),
+                "standbyCount", sshStandbyService.getStandbyCount(),
                 "maxSessions", 10, // 可配置的最大会话数
                 "serverTime", System.currentTimeMillis()
             );
@@ -193,4 +212,51 @@ public class TerminalController {
             return ApiResponse.error("断开所有会话失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 获取终端录制列表
+     */
+    @GetMapping("/recordings")
+    public ApiResponse<List<Map<String, Object>>> getRecordings() {
+        try {
+            return ApiResponse.success(terminalRecordingService.listRecordings());
+        } catch (Exception e) {
+            log.error("获取终端录制列表失败", e);
+            return ApiResponse.error("获取录制列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 回放终端录制（asciicast v2），from参数指定起始秒数用于跳转
+     */
+    @GetMapping("/recordings/{recordingId}")
+    public ResponseEntity<StreamingResponseBody> replayRecording(
+            @PathVariable String recordingId,
+            @RequestParam(value = "from", defaultValue = "0") double from) {
+        // 提前校验录制是否存在，避免在流式响应开始后才报错
+        if (!terminalRecordingService.recordingExists(recordingId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        StreamingResponseBody body = out -> terminalRecordingService.replay(recordingId, Math.max(0, from), out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-asciicast"))
+                .body(body);
+    }
+
+    /**
+     * 删除终端录制
+     */
+    @DeleteMapping("/recordings/{recordingId}")
+    public ApiResponse<String> deleteRecording(@PathVariable String recordingId) {
+        try {
+            if (terminalRecordingService.deleteRecording(recordingId)) {
+                return ApiResponse.success("录制已删除");
+            }
+            return ApiResponse.error("录制正在进行或不存在");
+        } catch (Exception e) {
+            log.error("删除终端录制失败: {}", recordingId, e);
+            return ApiResponse.error("删除录制失败: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package com.clover.cpanel.controller;
+
+import com.clover.cpanel.common.ApiResponse;
+import com.clover.cpanel.dto.TunnelInfo;
+import com.clover.cpanel.dto.TunnelRequest;
+import com.clover.cpanel.service.SshTunnelService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * SSH隧道控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tunnels")
+public class TunnelController {
+
+    @Autowired
+    private SshTunnelService sshTunnelService;
+
+    /**
+     * 创建隧道
+     * @param request 隧道请求
+     * @return 隧道信息（包含本地监听端口）
+     */
+    @PostMapping
+    public ApiResponse<TunnelInfo> createTunnel(@RequestBody TunnelRequest request) {
+        try {
+            return ApiResponse.success(sshTunnelService.createTunnel(request));
+        } catch (Exception e) {
+            log.error("创建SSH隧道失败", e);
+            return ApiResponse.error("创建SSH隧道失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取所有隧道及其流量统计
+     * @return 隧道列表
+     */
+    @GetMapping
+    public ApiResponse<List<TunnelInfo>> listTunnels() {
+        try {
+            return ApiResponse.success(sshTunnelService.listTunnels());
+        } catch (Exception e) {
+            log.error("获取SSH隧道列表失败", e);
+            return ApiResponse.error("获取SSH隧道列表失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 关闭隧道
+     * @param tunnelId 隧道ID
+     * @return 操作结果
+     */
+    @DeleteMapping("/{tunnelId}")
+    public ApiResponse<String> closeTunnel(@PathVariable String tunnelId) {
+        if (sshTunnelService.closeTunnel(tunnelId)) {
+            return ApiResponse.success("隧道已关闭");
+        }
+        return ApiResponse.error("隧道不存在");
+    }
+}
@@ -0,0 +1,61 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * 告警事件DTO
+ * 仅在告警状态变化（触发、恢复）时产生，经事件WebSocket（alerts 主题）和webhook发送
+ */
+@Data
+public class AlertEvent {
+
+    /**
+     * 状态：firing（触发）、resolved（恢复）
+     */
+    private String state;
+
+    /**
+     * 规则ID
+     */
+    private String ruleId;
+
+    /**
+     * 规则名称
+     */
+    private String ruleName;
+
+    /**
+     * 指标
+     */
+    private String metric;
+
+    /**
+     * 指标对象（磁盘挂载点），CPU和内存为空
+     */
+    private String target;
+
+    /**
+     * 级别
+     */
+    private String severity;
+
+    /**
+     * 当前值（百分比）
+     */
+    private double value;
+
+    /**
+     * 告警阈值
+     */
+    private double threshold;
+
+    /**
+     * 告警开始时间戳（毫秒），从首次超过阈值算起
+     */
+    private long startedAt;
+
+    /**
+     * 事件时间戳（毫秒）
+     */
+    private long timestamp;
+}
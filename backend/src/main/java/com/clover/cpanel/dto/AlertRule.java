@@ -0,0 +1,61 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * 告警规则DTO
+ * 以JSON形式保存在 panel_system_config 中（配置类型 alert）
+ */
+@Data
+public class AlertRule {
+
+    /**
+     * 规则ID，新建时为空
+     */
+    private String id;
+
+    /**
+     * 规则名称
+     */
+    private String name;
+
+    /**
+     * 指标：cpu（CPU使用率）、memory（内存使用率）、disk（磁盘使用率）
+     */
+    private String metric;
+
+    /**
+     * 指标对象，仅对disk有效，为挂载点名称；为空时每个磁盘分别判断
+     */
+    private String target;
+
+    /**
+     * 比较方式：gt（高于阈值告警）、lt（低于阈值告警）
+     */
+    private String operator = "gt";
+
+    /**
+     * 告警阈值（百分比）
+     */
+    private double threshold;
+
+    /**
+     * 恢复阈值（百分比），为空时使用阈值减去（gt）或加上（lt）默认回差
+     */
+    private Double clearThreshold;
+
+    /**
+     * 持续超过阈值多少秒后才告警，0表示立即告警
+     */
+    private int durationSeconds;
+
+    /**
+     * 级别：warning、critical
+     */
+    private String severity = "warning";
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = true;
+}
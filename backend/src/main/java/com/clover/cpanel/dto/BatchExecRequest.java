@@ -0,0 +1,37 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量执行命令请求DTO
+ */
+@Data
+public class BatchExecRequest {
+
+    /**
+     * 目标服务器ID列表
+     */
+    private List<Integer> serverIds;
+
+    /**
+     * 目标分组ID列表（分组下的所有服务器都会执行）
+     */
+    private List<Integer> categoryIds;
+
+    /**
+     * 要执行的命令
+     */
+    private String command;
+
+    /**
+     * 单台服务器的超时时间（秒），为空时使用默认值
+     */
+    private Integer timeoutSeconds;
+
+    /**
+     * 并发数，为空时使用默认值，不超过配置的上限
+     */
+    private Integer parallelism;
+}
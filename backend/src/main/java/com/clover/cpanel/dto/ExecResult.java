@@ -0,0 +1,60 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * 单台服务器命令执行结果DTO
+ */
+@Data
+public class ExecResult {
+
+    /**
+     * 服务器ID
+     */
+    private Integer serverId;
+
+    /**
+     * 服务器名称
+     */
+    private String serverName;
+
+    /**
+     * 服务器主机地址
+     */
+    private String host;
+
+    /**
+     * 退出码（超时或连接失败时为空）
+     */
+    private Integer exitCode;
+
+    /**
+     * 标准输出
+     */
+    private String stdout;
+
+    /**
+     * 标准错误
+     */
+    private String stderr;
+
+    /**
+     * 输出是否因超出上限被截断
+     */
+    private boolean truncated;
+
+    /**
+     * 是否超时
+     */
+    private boolean timedOut;
+
+    /**
+     * 错误信息（连接或认证失败等）
+     */
+    private String error;
+
+    /**
+     * 执行耗时（毫秒）
+     */
+    private long durationMs;
+}
@@ -0,0 +1,40 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * 服务器间文件中转请求DTO
+ */
+@Data
+public class RelayRequest {
+
+    /**
+     * 源服务器ID
+     */
+    private Integer sourceServerId;
+
+    /**
+     * 源文件路径
+     */
+    private String sourcePath;
+
+    /**
+     * 目标服务器ID
+     */
+    private Integer targetServerId;
+
+    /**
+     * 目标文件路径
+     */
+    private String targetPath;
+
+    /**
+     * 并行分块数，为空时按文件大小自动决定
+     */
+    private Integer parallelism;
+
+    /**
+     * 完成后是否校验SHA-256，默认校验
+     */
+    private Boolean verify;
+}
@@ -0,0 +1,63 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * 服务器间文件中转状态DTO
+ */
+@Data
+public class RelayStatus {
+
+    /**
+     * 传输ID
+     */
+    private String transferId;
+
+    private Integer sourceServerId;
+
+    private String sourcePath;
+
+    private Integer targetServerId;
+
+    private String targetPath;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private long totalBytes;
+
+    /**
+     * 已传输字节数
+     */
+    private long transferredBytes;
+
+    /**
+     * 状态：running（传输中）、verifying（校验中）、completed（完成）、failed（失败）、cancelled（已取消）
+     */
+    private String status;
+
+    /**
+     * 并行分块数
+     */
+    private int chunks;
+
+    /**
+     * 校验通过后的SHA-256
+     */
+    private String checksum;
+
+    /**
+     * 错误信息
+     */
+    private String error;
+
+    /**
+     * 开始时间戳（毫秒）
+     */
+    private long startedAt;
+
+    /**
+     * 结束时间戳（毫秒），未结束时为0
+     */
+    private long finishedAt;
+}
@@ -0,0 +1,45 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * 服务器健康探测结果DTO
+ */
+@Data
+public class ServerHealthStatus {
+
+    /**
+     * 服务器ID
+     */
+    private Integer serverId;
+
+    /**
+     * 服务器状态：active（可达）、inactive（不可达）、auth_failed（可达但认证失败）
+     */
+    private String status;
+
+    /**
+     * TCP连接延迟（毫秒），不可达时为空
+     */
+    private Integer latencyMs;
+
+    /**
+     * SSH服务标识（如 SSH-2.0-OpenSSH_9.6）
+     */
+    private String banner;
+
+    /**
+     * 认证检查是否通过，未启用认证检查时为空
+     */
+    private Boolean authenticated;
+
+    /**
+     * 错误信息
+     */
+    private String error;
+
+    /**
+     * 探测时间戳（毫秒）
+     */
+    private long checkedAt;
+}
@@ -64,10 +64,15 @@ public class ServerResponse {
     private Boolean isDefault;
 
     /**
-     * 服务器状态：active（活跃）、inactive（非活跃）
+     * 服务器状态：active（活跃）、inactive（非活跃）、auth_failed（认证失败）
      */
     private String status;
 
+    /**
+     * 最近一次健康探测的连接延迟（毫秒）
+     */
+    private Integer latencyMs;
+
     /**
      * 排序顺序
      */
@@ -0,0 +1,45 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * SFTP文件信息DTO
+ */
+@Data
+public class SftpFileInfo {
+
+    /**
+     * 文件名
+     */
+    private String name;
+
+    /**
+     * 完整路径
+     */
+    private String path;
+
+    /**
+     * 是否为目录
+     */
+    private boolean directory;
+
+    /**
+     * 是否为符号链接
+     */
+    private boolean symlink;
+
+    /**
+     * 文件大小（字节）
+     */
+    private long size;
+
+    /**
+     * 权限（八进制，如 0755）
+     */
+    private String permissions;
+
+    /**
+     * 修改时间（秒级时间戳）
+     */
+    private long modifiedTime;
+}
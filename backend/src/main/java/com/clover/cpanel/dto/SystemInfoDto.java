@@ -30,6 +30,26 @@ public class SystemInfoDto {
      */
     private SystemBasicInfo system;
 
+    /**
+     * 网络接口流量列表
+     */
+    private List<NetworkInfo> networks;
+
+    /**
+     * 磁盘读写列表
+     */
+    private List<DiskIoInfo> diskIo;
+
+    /**
+     * CPU占用最高的进程
+     */
+    private List<ProcessInfo> topCpuProcesses;
+
+    /**
+     * 内存（RSS）占用最高的进程
+     */
+    private List<ProcessInfo> topMemoryProcesses;
+
     /**
      * CPU信息
      */
@@ -153,4 +173,97 @@ public class SystemInfoDto {
          */
         private long uptime;
     }
+
+    /**
+     * 网络接口流量
+     */
+    @Data
+    public static class NetworkInfo {
+        /**
+         * 接口名称
+         */
+        private String name;
+
+        /**
+         * 累计接收字节数
+         */
+        private long rxBytes;
+
+        /**
+         * 累计发送字节数
+         */
+        private long txBytes;
+
+        /**
+         * 接收速率（字节/秒）
+         */
+        private double rxRate;
+
+        /**
+         * 发送速率（字节/秒）
+         */
+        private double txRate;
+    }
+
+    /**
+     * 磁盘读写
+     */
+    @Data
+    public static class DiskIoInfo {
+        /**
+         * 磁盘设备名称
+         */
+        private String name;
+
+        /**
+         * 每秒读次数
+         */
+        private double readIops;
+
+        /**
+         * 每秒写次数
+         */
+        private double writeIops;
+
+        /**
+         * 读速率（字节/秒）
+         */
+        private double readRate;
+
+        /**
+         * 写速率（字节/秒）
+         */
+        private double writeRate;
+    }
+
+    /**
+     * 进程信息
+     */
+    @Data
+    public static class ProcessInfo {
+        /**
+         * 进程ID
+         */
+        private int pid;
+
+        /**
+         * 进程名称
+         */
+        private String name;
+
+        /**
+         * 所属用户
+         */
+        private String user;
+
+        /**
+         * CPU使用率（占全部逻辑处理器的百分比）
+         */
+        private double cpuUsage;
+
+        /**
+         * 常驻内存（MB）
+         */
+        private double rss;
+    }
 }
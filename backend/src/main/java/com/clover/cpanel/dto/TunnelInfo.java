@@ -0,0 +1,95 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * SSH隧道信息DTO
+ */
+@Data
+public class TunnelInfo {
+
+    /**
+     * 隧道ID
+     */
+    private String tunnelId;
+
+    /**
+     * 跳板服务器ID
+     */
+    private Integer serverId;
+
+    /**
+     * 跳板服务器名称
+     */
+    private String serverName;
+
+    /**
+     * 本地监听地址
+     */
+    private String localHost;
+
+    /**
+     * 本地监听端口
+     */
+    private int localPort;
+
+    /**
+     * 目标主机
+     */
+    private String remoteHost;
+
+    /**
+     * 目标端口
+     */
+    private int remotePort;
+
+    /**
+     * 当前连接数
+     */
+    private int activeConnections;
+
+    /**
+     * 累计连接数
+     */
+    private long totalConnections;
+
+    /**
+     * 累计发往目标的字节数
+     */
+    private long bytesSent;
+
+    /**
+     * 累计从目标收到的字节数
+     */
+    private long bytesReceived;
+
+    /**
+     * 最近统计周期内的发送速率（字节/秒）
+     */
+    private double sendRate;
+
+    /**
+     * 最近统计周期内的接收速率（字节/秒）
+     */
+    private double receiveRate;
+
+    /**
+     * 创建时间戳（毫秒）
+     */
+    private long createdAt;
+
+    /**
+     * 最近活动时间戳（毫秒）
+     */
+    private long lastActivityAt;
+
+    /**
+     * 状态：active / reconnecting / failed
+     */
+    private String status;
+
+    /**
+     * 重新连接失败的原因
+     */
+    private String error;
+}
@@ -0,0 +1,30 @@
+package com.clover.cpanel.dto;
+
+import lombok.Data;
+
+/**
+ * SSH隧道创建请求DTO
+ */
+@Data
+public class TunnelRequest {
+
+    /**
+     * 跳板服务器ID
+     */
+    private Integer serverId;
+
+    /**
+     * 目标主机（从跳板服务器看到的地址，如 127.0.0.1 或内网数据库地址）
+     */
+    private String remoteHost;
+
+    /**
+     * 目标端口
+     */
+    private Integer remotePort;
+
+    /**
+     * 本地监听端口，为空或0时自动分配
+     */
+    private Integer localPort;
+}
@@ -0,0 +1,75 @@
+package com.clover.cpanel.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 历史壁纸DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WallpaperItem {
+
+    /**
+     * 壁纸ID（文件名）
+     */
+    private String id;
+
+    /**
+     * 文件名
+     */
+    private String name;
+
+    /**
+     * 访问URL
+     */
+    private String url;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+
+    /**
+     * 修改时间（毫秒）
+     */
+    private Long lastModified;
+
+    /**
+     * 是否为当前壁纸
+     */
+    private Boolean isCurrent;
+
+    /**
+     * 缩略图URL，未生成时为null（使用原图）
+     */
+    private String thumbnailUrl;
+
+    /**
+     * 各显示宽度的派生图（按宽度升序），客户端按屏幕宽度选择，都不够宽时使用原图
+     */
+    private List<Variant> variants;
+
+    /**
+     * 壁纸派生图
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variant {
+
+        /**
+         * 宽度（像素）
+         */
+        private Integer width;
+
+        /**
+         * 访问URL
+         */
+        private String url;
+    }
+}
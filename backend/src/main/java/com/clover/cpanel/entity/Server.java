@@ -92,11 +92,17 @@ public class Server {
     private Boolean isDefault;
 
     /**
-     * 服务器状态：active（活跃）、inactive（非活跃）
+     * 服务器状态：active（活跃）、inactive（非活跃）、auth_failed（认证失败）
      */
     @TableField("status")
     private String status;
 
+    /**
+     * 最近一次健康探测的连接延迟（毫秒），不可达时为空
+     */
+    @TableField("latency_ms")
+    private Integer latencyMs;
+
     /**
      * 排序顺序
      */
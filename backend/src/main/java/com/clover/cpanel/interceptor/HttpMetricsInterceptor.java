@@ -0,0 +1,40 @@
+package com.clover.cpanel.interceptor;
+
+import com.clover.cpanel.service.MetricsRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * HTTP请求耗时统计拦截器
+ * 按请求方法、最佳匹配的路由模式与状态码分类记录延迟直方图，路由使用模式而非实际路径以控制标签基数
+ */
+@Component
+public class HttpMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = HttpMetricsInterceptor.class.getName() + ".start";
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        metricsRegistry.recordHttpRequest(request.getMethod(), pattern != null ? pattern.toString() : null,
+                status, System.nanoTime() - (Long) start);
+    }
+}
@@ -0,0 +1,40 @@
+package com.clover.cpanel.interceptor;
+
+import com.clover.cpanel.service.UploadAssetService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传文件缓存策略拦截器
+ * 带内容版本号或不会被覆盖的文件永久缓存，其余文件（包括会在原位置重新生成的壁纸派生图）每次按ETag重新验证
+ */
+@Component
+public class UploadCacheInterceptor implements HandlerInterceptor {
+
+    private static final String IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    @Autowired
+    private UploadAssetService uploadAssetService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object path = request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        String relativePath = path != null ? path.toString() : "";
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                uploadAssetService.isImmutable(relativePath) ? IMMUTABLE : REVALIDATE);
+        if (uploadAssetService.isPrecompressible(relativePath)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package com.clover.cpanel.interceptor;
+
+import com.clover.cpanel.util.JwtUtil;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * WebSocket握手认证拦截器
+ * 浏览器的WebSocket API不能设置请求头，token依次从查询参数 token、Cookie access_token、Authorization头读取，
+ * 验证失败时返回401并拒绝升级
+ */
+@Slf4j
+@Component
+public class WebSocketAuthInterceptor implements HandshakeInterceptor {
+
+    public static final String TOKEN_PARAMETER = "token";
+
+    public static final String TOKEN_COOKIE = "access_token";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        String token = extractToken(httpRequest);
+        if (token == null) {
+            log.warn("WebSocket握手缺少JWT token: {}", httpRequest.getRequestURI());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        if (!jwtUtil.validateAccessToken(token)) {
+            log.warn("WebSocket握手JWT token验证失败: {}", httpRequest.getRequestURI());
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            return false;
+        }
+
+        // 将用户信息存储到WebSocket会话属性中，供处理器使用
+        attributes.put("currentUser", jwtUtil.getSubjectFromToken(token));
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        // 无需处理
+    }
+
+    private String extractToken(HttpServletRequest request) {
+        String token = request.getParameter(TOKEN_PARAMETER);
+        if (token != null && !token.isEmpty()) {
+            return token;
+        }
+
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (TOKEN_COOKIE.equals(cookie.getName()) && !cookie.getValue().isEmpty()) {
+                    return cookie.getValue();
+                }
+            }
+        }
+
+        return jwtUtil.extractTokenFromHeader(request.getHeader("Authorization"));
+    }
+}
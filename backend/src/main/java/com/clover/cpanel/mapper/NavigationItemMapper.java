@@ -45,4 +45,12 @@ public interface NavigationItemMapper extends BaseMapper<NavigationItem> {
      */
     @Select("SELECT COALESCE(MAX(sort_order), 0) FROM panel_navigation_items WHERE category_id = #{categoryId}")
     Integer getMaxSortOrderByCategory(Integer categoryId);
+
+    /**
+     * 统计使用指定图标的导航项数量
+     * @param logo 图标URL
+     * @return 导航项数量
+     */
+    @Select("SELECT COUNT(*) FROM panel_navigation_items WHERE logo = #{logo}")
+    int countByLogo(String logo);
 }
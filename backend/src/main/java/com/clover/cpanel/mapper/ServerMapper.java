@@ -3,6 +3,7 @@ package com.clover.cpanel.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.clover.cpanel.entity.Server;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
@@ -41,4 +42,17 @@ public interface ServerMapper extends BaseMapper<Server> {
      */
     @Select("SELECT * FROM panel_servers ORDER BY category_id ASC, sort_order ASC, id ASC")
     List<Server> getAllServersOrdered();
+
+    /**
+     * 批量更新服务器健康状态（单条SQL，不触发updated_at自动填充）
+     * @param servers 包含id、status、latencyMs的服务器列表
+     * @return 影响行数
+     */
+    @Update("<script>" +
+            "UPDATE panel_servers SET " +
+            "status = CASE id <foreach collection='servers' item='s'>WHEN #{s.id} THEN #{s.status} </foreach>END, " +
+            "latency_ms = CASE id <foreach collection='servers' item='s'>WHEN #{s.id} THEN #{s.latencyMs} </foreach>END " +
+            "WHERE id IN <foreach collection='servers' item='s' open='(' separator=',' close=')'>#{s.id}</foreach>" +
+            "</script>")
+    int batchUpdateHealth(@Param("servers") List<Server> servers);
 }
@@ -2,9 +2,14 @@ package com.clover.cpanel.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.clover.cpanel.entity.SystemConfig;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 系统配置数据访问层
  */
@@ -18,4 +23,31 @@ public interface SystemConfigMapper extends BaseMapper<SystemConfig> {
      */
     @Select("SELECT config_value FROM panel_system_config WHERE config_key = #{configKey}")
     String getConfigValue(String configKey);
+
+    /**
+     * 根据多个配置键名批量获取配置
+     * @param configKeys 配置键名
+     * @return 存在的配置
+     */
+    @Select("<script>" +
+            "SELECT * FROM panel_system_config WHERE config_key IN " +
+            "<foreach collection='configKeys' item='key' open='(' separator=',' close=')'>#{key}</foreach>" +
+            "</script>")
+    List<SystemConfig> selectByKeys(@Param("configKeys") Collection<String> configKeys);
+
+    /**
+     * 批量写入配置（单条SQL），键名已存在时更新值和更新时间；描述、类型为空时保留原值
+     * @param configs 配置列表，需包含configKey、configValue、description、configType、createdAt、updatedAt
+     * @return 影响行数
+     */
+    @Insert("<script>" +
+            "INSERT INTO panel_system_config (config_key, config_value, description, config_type, created_at, updated_at) VALUES " +
+            "<foreach collection='configs' item='c' separator=','>" +
+            "(#{c.configKey}, #{c.configValue}, #{c.description}, #{c.configType}, #{c.createdAt}, #{c.updatedAt})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE config_value = VALUES(config_value), " +
+            "description = COALESCE(VALUES(description), description), " +
+            "config_type = COALESCE(VALUES(config_type), config_type), updated_at = VALUES(updated_at)" +
+            "</script>")
+    int upsertBatch(@Param("configs") List<SystemConfig> configs);
 }
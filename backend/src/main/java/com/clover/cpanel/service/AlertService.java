@@ -0,0 +1,474 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.constant.ConfigType;
+import com.clover.cpanel.dto.AlertEvent;
+import com.clover.cpanel.dto.AlertRule;
+import com.clover.cpanel.dto.SystemInfoDto;
+import com.clover.cpanel.entity.SystemConfig;
+import com.clover.cpanel.util.DiskFilter;
+import com.clover.cpanel.websocket.EventWebSocketHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 系统指标告警服务
+ * 在每次采样回调中按规则增量判断：每条规则每个对象只保存“首次超过阈值的时间”和“是否已触发”，
+ * 不回看历史数据，单次判断成本与规则数成正比；
+ * 触发后须回落到恢复阈值以下才恢复（回差），同一告警在恢复前只通知一次（去重）
+ *
+ * 通知经事件WebSocket（alerts 主题）推送，订阅时先收到当前触发中的告警列表；配置了 alert.webhook-url 时同时POST到该地址
+ */
+@Slf4j
+@Service
+public class AlertService {
+
+    /**
+     * 告警事件主题
+     */
+    public static final String ALERT_TOPIC = "alerts";
+
+    public static final String STATE_FIRING = "firing";
+    public static final String STATE_RESOLVED = "resolved";
+
+    private static final String RULE_KEY_PREFIX = "alert_rule_";
+    // 已写入默认规则的标记，避免用户删除全部规则后再次写入
+    private static final String SEEDED_KEY = "alert_rules_seeded";
+
+    private static final Set<String> METRICS = Set.of("cpu", "memory", "disk");
+    private static final Set<String> OPERATORS = Set.of("gt", "lt");
+    private static final Set<String> SEVERITIES = Set.of("warning", "critical");
+
+    private static final int WEBHOOK_QUEUE_CAPACITY = 100;
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    @Autowired
+    private SystemMetricsSampler systemMetricsSampler;
+
+    @Autowired
+    private EventWebSocketHandler eventWebSocketHandler;
+
+    /**
+     * 是否启用告警
+     */
+    @Value("${alert.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 规则未设置恢复阈值时的默认回差（百分点）
+     */
+    @Value("${alert.hysteresis:5}")
+    private double hysteresis = 5;
+
+    /**
+     * 告警webhook地址，为空时不发送
+     */
+    @Value("${alert.webhook-url:}")
+    private String webhookUrl;
+
+    /**
+     * webhook连接与读取超时（毫秒）
+     */
+    @Value("${alert.webhook-timeout-ms:5000}")
+    private int webhookTimeoutMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 当前规则，保存或删除后整体替换
+    private volatile List<AlertRule> rules = List.of();
+
+    // 以下字段只在采样线程中访问
+    private List<AlertRule> appliedRules = List.of();
+    private final Map<String, AlertRule> appliedRuleById = new HashMap<>();
+    private final Map<String, SeriesState> states = new HashMap<>(); // 规则ID|对象 -> 状态
+    private long tick;
+
+    // 触发中的告警，规则ID|对象 -> 事件
+    private final Map<String, AlertEvent> active = new ConcurrentHashMap<>();
+
+    private ExecutorService webhookExecutor;
+    private boolean started;
+
+    /**
+     * 单个规则对象的判断状态
+     */
+    private static class SeriesState {
+        private final String ruleId;
+        private long breachSince;
+        private boolean firing;
+        private long lastSeenTick;
+
+        SeriesState(String ruleId) {
+            this.ruleId = ruleId;
+        }
+    }
+
+    /**
+     * 启动告警判断（需在数据库初始化后调用）
+     */
+    public synchronized void start() {
+        if (started || !enabled) {
+            return;
+        }
+        seedDefaultRules();
+        reloadRules();
+
+        webhookExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(WEBHOOK_QUEUE_CAPACITY), r -> {
+            Thread thread = new Thread(r, "alert-webhook");
+            thread.setDaemon(true);
+            return thread;
+        }, (task, executor) -> log.warn("告警webhook队列已满，丢弃通知"));
+
+        eventWebSocketHandler.registerInitialState(ALERT_TOPIC, this::getActiveAlerts);
+        systemMetricsSampler.addListener(this::onSample);
+        started = true;
+        log.info("告警规则判断已启动，规则数: {}", rules.size());
+    }
+
+    /**
+     * 获取所有规则
+     */
+    public List<AlertRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * 获取触发中的告警
+     */
+    public List<AlertEvent> getActiveAlerts() {
+        List<AlertEvent> alerts = new ArrayList<>(active.values());
+        alerts.sort(Comparator.comparingLong(AlertEvent::getStartedAt));
+        return alerts;
+    }
+
+    /**
+     * 保存规则（新建或更新）
+     * @param rule 规则，ID为空时新建
+     * @return 保存后的规则
+     */
+    public AlertRule saveRule(AlertRule rule) {
+        validate(rule);
+        if (rule.getId() == null || rule.getId().isBlank()) {
+            rule.setId(UUID.randomUUID().toString().replace("-", "").substring(0, 12));
+        }
+        try {
+            String json = objectMapper.writeValueAsString(rule);
+            if (!systemConfigService.setConfigValue(RULE_KEY_PREFIX + rule.getId(), json, "告警规则: " + rule.getName(), ConfigType.ALERT)) {
+                throw new RuntimeException("保存告警规则失败");
+            }
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new RuntimeException("序列化告警规则失败: " + e.getMessage());
+        }
+        reloadRules();
+        return rule;
+    }
+
+    /**
+     * 删除规则，触发中的告警会在下一次采样时恢复
+     * @param ruleId 规则ID
+     * @return 是否删除成功
+     */
+    public boolean deleteRule(String ruleId) {
+        boolean deleted = systemConfigService.deleteConfigByKey(RULE_KEY_PREFIX + ruleId);
+        reloadRules();
+        return deleted;
+    }
+
+    /**
+     * 从数据库重新加载规则
+     */
+    public void reloadRules() {
+        List<AlertRule> loaded = new ArrayList<>();
+        for (SystemConfig config : systemConfigService.getConfigsByType(ConfigType.ALERT)) {
+            if (!config.getConfigKey().startsWith(RULE_KEY_PREFIX)) {
+                continue;
+            }
+            try {
+                AlertRule rule = objectMapper.readValue(config.getConfigValue(), AlertRule.class);
+                validate(rule);
+                loaded.add(rule);
+            } catch (Exception e) {
+                log.warn("忽略无效的告警规则: {}", config.getConfigKey(), e);
+            }
+        }
+        rules = List.copyOf(loaded);
+    }
+
+    private void seedDefaultRules() {
+        if (systemConfigService.getConfigValue(SEEDED_KEY) != null) {
+            return;
+        }
+
+        AlertRule disk = new AlertRule();
+        disk.setName("磁盘使用率过高");
+        disk.setMetric("disk");
+        disk.setThreshold(90);
+        disk.setSeverity("critical");
+        saveRule(disk);
+
+        AlertRule cpu = new AlertRule();
+        cpu.setName("CPU持续高负载");
+        cpu.setMetric("cpu");
+        cpu.setThreshold(80);
+        cpu.setDurationSeconds(300);
+        saveRule(cpu);
+
+        systemConfigService.setConfigValue(SEEDED_KEY, "true", "已写入默认告警规则", ConfigType.ALERT);
+        log.info("已写入默认告警规则");
+    }
+
+    private void validate(AlertRule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("告警规则不能为空");
+        }
+        if (rule.getName() == null || rule.getName().isBlank()) {
+            throw new IllegalArgumentException("规则名称不能为空");
+        }
+        if (!METRICS.contains(rule.getMetric())) {
+            throw new IllegalArgumentException("不支持的指标: " + rule.getMetric());
+        }
+        if (!OPERATORS.contains(rule.getOperator())) {
+            throw new IllegalArgumentException("不支持的比较方式: " + rule.getOperator());
+        }
+        if (!SEVERITIES.contains(rule.getSeverity())) {
+            throw new IllegalArgumentException("不支持的告警级别: " + rule.getSeverity());
+        }
+        if (!Double.isFinite(rule.getThreshold())) {
+            throw new IllegalArgumentException("阈值无效");
+        }
+        if (rule.getDurationSeconds() < 0) {
+            throw new IllegalArgumentException("持续时间不能为负数");
+        }
+        if (rule.getClearThreshold() != null) {
+            boolean above = "gt".equals(rule.getOperator());
+            if (above ? rule.getClearThreshold() > rule.getThreshold() : rule.getClearThreshold() < rule.getThreshold()) {
+                throw new IllegalArgumentException("恢复阈值必须在告警阈值的另一侧");
+            }
+        }
+    }
+
+    /**
+     * 采样回调（采样线程调用）
+     */
+    private void onSample(long timestamp, SystemInfoDto snapshot) {
+        List<AlertEvent> events;
+        try {
+            events = evaluate(rules, timestamp, snapshot);
+        } catch (Exception e) {
+            log.warn("告警规则判断失败", e);
+            return;
+        }
+        for (AlertEvent event : events) {
+            log.info("告警{}: {} {} 当前值: {}", STATE_FIRING.equals(event.getState()) ? "触发" : "恢复",
+                    event.getRuleName(), event.getTarget() != null ? event.getTarget() : "", event.getValue());
+            eventWebSocketHandler.publish(ALERT_TOPIC, event);
+            sendWebhook(event);
+        }
+    }
+
+    /**
+     * 按当前规则判断一次采样，返回状态发生变化的告警事件
+     */
+    List<AlertEvent> evaluate(List<AlertRule> currentRules, long timestamp, SystemInfoDto snapshot) {
+        List<AlertEvent> events = new ArrayList<>();
+        if (currentRules != appliedRules) {
+            applyRules(currentRules, timestamp, events);
+        }
+        tick++;
+
+        for (AlertRule rule : currentRules) {
+            if (!rule.isEnabled()) {
+                continue;
+            }
+            switch (rule.getMetric()) {
+                case "cpu":
+                    if (snapshot.getCpu() != null) {
+                        check(rule, null, snapshot.getCpu().getUsage(), timestamp, events);
+                    }
+                    break;
+                case "memory":
+                    if (snapshot.getMemory() != null) {
+                        check(rule, null, snapshot.getMemory().getUsage(), timestamp, events);
+                    }
+                    break;
+                case "disk":
+                    if (snapshot.getDisks() != null) {
+                        if (rule.getTarget() == null || rule.getTarget().isEmpty()) {
+                            // 未指定挂载点时只检查真实磁盘，squashfs等只读镜像恒为100%，不能触发告警
+                            for (SystemInfoDto.DiskInfo disk : DiskFilter.realDisks(snapshot.getDisks())) {
+                                check(rule, disk.getName(), disk.getUsage(), timestamp, events);
+                            }
+                        } else {
+                            for (SystemInfoDto.DiskInfo disk : snapshot.getDisks()) {
+                                if (rule.getTarget().equals(disk.getName())) {
+                                    check(rule, disk.getName(), disk.getUsage(), timestamp, events);
+                                }
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // 本次采样中已不存在的对象（如磁盘被卸载）直接恢复
+        Iterator<Map.Entry<String, SeriesState>> iterator = states.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, SeriesState> entry = iterator.next();
+            if (entry.getValue().lastSeenTick != tick) {
+                iterator.remove();
+                resolveRemoved(entry.getKey(), timestamp, events);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * 规则变化时清除被删除或被修改规则的状态，修改后的规则从头开始判断
+     */
+    private void applyRules(List<AlertRule> currentRules, long timestamp, List<AlertEvent> events) {
+        Map<String, AlertRule> byId = new HashMap<>();
+        for (AlertRule rule : currentRules) {
+            byId.put(rule.getId(), rule);
+        }
+        Iterator<Map.Entry<String, SeriesState>> iterator = states.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, SeriesState> entry = iterator.next();
+            String ruleId = entry.getValue().ruleId;
+            if (!Objects.equals(byId.get(ruleId), appliedRuleById.get(ruleId))) {
+                iterator.remove();
+                resolveRemoved(entry.getKey(), timestamp, events);
+            }
+        }
+        appliedRuleById.clear();
+        appliedRuleById.putAll(byId);
+        appliedRules = currentRules;
+    }
+
+    private void check(AlertRule rule, String target, double value, long timestamp, List<AlertEvent> events) {
+        String key = target == null ? rule.getId() : rule.getId() + "|" + target;
+        SeriesState state = states.computeIfAbsent(key, k -> new SeriesState(rule.getId()));
+        state.lastSeenTick = tick;
+
+        boolean above = "gt".equals(rule.getOperator());
+        if (!state.firing) {
+            boolean breached = above ? value > rule.getThreshold() : value < rule.getThreshold();
+            if (!breached) {
+                state.breachSince = 0;
+                return;
+            }
+            if (state.breachSince == 0) {
+                state.breachSince = timestamp;
+            }
+            if (timestamp - state.breachSince >= rule.getDurationSeconds() * 1000L) {
+                state.firing = true;
+                AlertEvent event = createEvent(STATE_FIRING, rule, target, value, state.breachSince, timestamp);
+                active.put(key, event);
+                events.add(event);
+            }
+            return;
+        }
+
+        double clear = rule.getClearThreshold() != null ? rule.getClearThreshold()
+                : (above ? rule.getThreshold() - hysteresis : rule.getThreshold() + hysteresis);
+        boolean cleared = above ? value < clear : value > clear;
+        if (cleared) {
+            state.firing = false;
+            state.breachSince = 0;
+            events.add(createEvent(STATE_RESOLVED, rule, target, value, active.remove(key), timestamp));
+        }
+    }
+
+    private void resolveRemoved(String key, long timestamp, List<AlertEvent> events) {
+        AlertEvent firing = active.remove(key);
+        if (firing == null) {
+            return;
+        }
+        AlertEvent event = new AlertEvent();
+        event.setState(STATE_RESOLVED);
+        event.setRuleId(firing.getRuleId());
+        event.setRuleName(firing.getRuleName());
+        event.setMetric(firing.getMetric());
+        event.setTarget(firing.getTarget());
+        event.setSeverity(firing.getSeverity());
+        event.setValue(firing.getValue());
+        event.setThreshold(firing.getThreshold());
+        event.setStartedAt(firing.getStartedAt());
+        event.setTimestamp(timestamp);
+        events.add(event);
+    }
+
+    private static AlertEvent createEvent(String state, AlertRule rule, String target, double value, AlertEvent firing, long timestamp) {
+        return createEvent(state, rule, target, value, firing != null ? firing.getStartedAt() : timestamp, timestamp);
+    }
+
+    private static AlertEvent createEvent(String state, AlertRule rule, String target, double value, long startedAt, long timestamp) {
+        AlertEvent event = new AlertEvent();
+        event.setState(state);
+        event.setRuleId(rule.getId());
+        event.setRuleName(rule.getName());
+        event.setMetric(rule.getMetric());
+        event.setTarget(target);
+        event.setSeverity(rule.getSeverity());
+        event.setValue(value);
+        event.setThreshold(rule.getThreshold());
+        event.setStartedAt(startedAt);
+        event.setTimestamp(timestamp);
+        return event;
+    }
+
+    private void sendWebhook(AlertEvent event) {
+        if (webhookUrl == null || webhookUrl.isBlank() || webhookExecutor == null) {
+            return;
+        }
+        webhookExecutor.execute(() -> {
+            HttpURLConnection connection = null;
+            try {
+                byte[] body = objectMapper.writeValueAsBytes(event);
+                connection = (HttpURLConnection) new URL(webhookUrl).openConnection();
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+                connection.setConnectTimeout(webhookTimeoutMs);
+                connection.setReadTimeout(webhookTimeoutMs);
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body);
+                }
+                int responseCode = connection.getResponseCode();
+                if (responseCode >= 300) {
+                    log.warn("告警webhook返回异常状态码: {}", responseCode);
+                }
+            } catch (Exception e) {
+                log.warn("发送告警webhook失败: {}", e.getMessage());
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        });
+    }
+
+    /**
+     * 应用关闭时停止webhook发送
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (webhookExecutor != null) {
+            webhookExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.clover.cpanel.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 目录占用分析服务
+ * 启动时用ForkJoin并行遍历上传目录、音乐下载目录等根目录，按目录和文件类型汇总大小并常驻内存；
+ * 之后通过WatchService增量更新（只重新读取变化的文件或新建的子目录），事件溢出时才重新扫描对应根目录
+ *
+ * 扫描与事件处理都在同一个监听线程中进行，查询只读取内存中的汇总结果
+ */
+@Slf4j
+@Service
+public class DirectoryUsageService {
+
+    private static final String MUSIC_PATH_KEY = "music_server_download_path";
+    private static final String DEFAULT_MUSIC_PATH = "uploads/music";
+    private static final String NO_EXTENSION = "(none)";
+
+    @Autowired
+    private SystemConfigService systemConfigService;
+
+    /**
+     * 是否启用目录占用分析
+     */
+    @Value("${disk-usage.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.upload.path:./uploads/}")
+    private String uploadPath;
+
+    /**
+     * 额外分析的根目录，逗号分隔
+     */
+    @Value("${disk-usage.extra-roots:}")
+    private String extraRoots;
+
+    /**
+     * 扫描并行度
+     */
+    @Value("${disk-usage.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * 检查根目录配置（如音乐下载路径）是否变化的间隔（秒）
+     */
+    @Value("${disk-usage.root-check-seconds:60}")
+    private int rootCheckSeconds;
+
+    /**
+     * 目录节点
+     */
+    private static class DirNode {
+        private final Path path;
+        private DirNode parent;
+        private final Map<String, DirNode> children = new HashMap<>();
+        private final Map<String, Long> files = new HashMap<>(); // 文件名 -> 大小
+        private long ownBytes;
+        private long totalBytes;
+        private long totalFiles;
+        private WatchKey watchKey;
+
+        DirNode(Path path) {
+            this.path = path;
+        }
+    }
+
+    // 以下字段在 lock 下读写
+    private final Object lock = new Object();
+    private final Map<Path, DirNode> roots = new LinkedHashMap<>();
+    private final Map<String, long[]> typeStats = new HashMap<>(); // 扩展名 -> {字节数, 文件数}
+    private long version;
+    private long scannedAt;
+    private boolean scanning;
+
+    // 缓存的查询结果，版本和参数不变时直接返回
+    private Map<String, Object> cachedReport;
+    private long cachedVersion = -1;
+    private int cachedLimit;
+
+    private final Map<WatchKey, DirNode> watchKeys = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private ForkJoinPool scanPool;
+    private Thread watcherThread;
+    private volatile boolean running;
+    private volatile boolean rescanRequested;
+    private volatile boolean watchLimitWarned;
+
+    /**
+     * 启动分析（需在数据库初始化后调用，以读取音乐下载路径）
+     */
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            log.error("创建目录监听失败，目录占用分析未启动", e);
+            return;
+        }
+        scanPool = new ForkJoinPool(Math.max(1, parallelism));
+        running = true;
+        rescanRequested = true;
+        watcherThread = new Thread(this::watchLoop, "dir-usage-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * 请求重新扫描全部根目录（异步）
+     */
+    public void requestRescan() {
+        rescanRequested = true;
+    }
+
+    /**
+     * 获取占用最大的目录与文件类型
+     * @param limit 返回的目录和类型数量
+     * @return roots（各根目录合计）、folders（按子树大小排序的目录）、types（按大小排序的文件类型）
+     */
+    public Map<String, Object> getReport(int limit) {
+        limit = Math.max(1, Math.min(limit, 500));
+        synchronized (lock) {
+            Map<String, Object> cached = cachedReport;
+            if (cached != null && cachedVersion == version && cachedLimit == limit) {
+                return cached;
+            }
+
+            List<Map<String, Object>> rootList = new ArrayList<>();
+            PriorityQueue<DirNode> largest = new PriorityQueue<>(Comparator.comparingLong((DirNode node) -> node.totalBytes));
+            Deque<DirNode> stack = new ArrayDeque<>();
+            for (DirNode root : roots.values()) {
+                rootList.add(describe(root));
+                stack.addAll(root.children.values());
+            }
+            while (!stack.isEmpty()) {
+                DirNode node = stack.pop();
+                if (largest.size() < limit) {
+                    largest.add(node);
+                } else if (node.totalBytes > largest.peek().totalBytes) {
+                    largest.poll();
+                    largest.add(node);
+                }
+                stack.addAll(node.children.values());
+            }
+            List<Map<String, Object>> folders = new ArrayList<>();
+            largest.stream()
+                    .sorted(Comparator.comparingLong((DirNode node) -> node.totalBytes).reversed())
+                    .forEach(node -> folders.add(describe(node)));
+
+            List<Map<String, Object>> types = new ArrayList<>();
+            typeStats.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+                    .limit(limit)
+                    .forEach(entry -> {
+                        Map<String, Object> type = new LinkedHashMap<>();
+                        type.put("extension", entry.getKey());
+                        type.put("bytes", entry.getValue()[0]);
+                        type.put("files", entry.getValue()[1]);
+                        types.add(type);
+                    });
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("roots", rootList);
+            report.put("folders", folders);
+            report.put("types", types);
+            report.put("scannedAt", scannedAt);
+            report.put("scanning", scanning);
+
+            cachedReport = report;
+            cachedVersion = version;
+            cachedLimit = limit;
+            return report;
+        }
+    }
+
+    private static Map<String, Object> describe(DirNode node) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("path", node.path.toString());
+        item.put("bytes", node.totalBytes);
+        item.put("ownBytes", node.ownBytes);
+        item.put("files", node.totalFiles);
+        return item;
+    }
+
+    /**
+     * 监听线程：执行扫描并处理文件系统事件
+     */
+    private void watchLoop() {
+        long lastRootCheck = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (rescanRequested) {
+                    rescanRequested = false;
+                    lastRootCheck = now;
+                    rescanAll();
+                } else if (now - lastRootCheck >= TimeUnit.SECONDS.toMillis(Math.max(1, rootCheckSeconds))) {
+                    lastRootCheck = now;
+                    if (!resolveRoots().equals(currentRoots())) {
+                        log.info("目录占用分析的根目录已变化，重新扫描");
+                        rescanAll();
+                    }
+                }
+
+                WatchKey key = watchService.poll(1, TimeUnit.SECONDS);
+                if (key != null) {
+                    handleKey(key);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (Exception e) {
+                log.warn("处理目录变化失败", e);
+            }
+        }
+    }
+
+    /**
+     * 需要分析的根目录：上传目录、音乐下载目录与额外配置的目录，已包含在其他根目录中的会被去掉
+     */
+    private List<Path> resolveRoots() {
+        List<String> configured = new ArrayList<>();
+        configured.add(uploadPath);
+        try {
+            String musicPath = systemConfigService.getConfigValue(MUSIC_PATH_KEY);
+            configured.add(musicPath == null || musicPath.isBlank() ? DEFAULT_MUSIC_PATH : musicPath);
+        } catch (Exception e) {
+            log.debug("读取音乐下载路径失败", e);
+        }
+        if (extraRoots != null) {
+            configured.addAll(Arrays.asList(extraRoots.split(",")));
+        }
+
+        List<Path> candidates = new ArrayList<>();
+        for (String value : configured) {
+            if (value == null || value.isBlank()) {
+                continue;
+            }
+            Path path = Paths.get(value.trim()).toAbsolutePath().normalize();
+            if (Files.isDirectory(path) && !candidates.contains(path)) {
+                candidates.add(path);
+            }
+        }
+        List<Path> result = new ArrayList<>();
+        for (Path path : candidates) {
+            boolean nested = candidates.stream().anyMatch(other -> !other.equals(path) && path.startsWith(other));
+            if (!nested) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    private List<Path> currentRoots() {
+        synchronized (lock) {
+            return new ArrayList<>(roots.keySet());
+        }
+    }
+
+    private void rescanAll() {
+        List<Path> rootPaths = resolveRoots();
+        synchronized (lock) {
+            scanning = true;
+            version++;
+        }
+        long start = System.currentTimeMillis();
+
+        Map<Path, DirNode> scanned = new LinkedHashMap<>();
+        for (Path rootPath : rootPaths) {
+            scanned.put(rootPath, scanPool.invoke(new ScanTask(rootPath)));
+        }
+
+        Set<WatchKey> staleKeys = new HashSet<>(watchKeys.keySet());
+        synchronized (lock) {
+            roots.clear();
+            roots.putAll(scanned);
+            typeStats.clear();
+            for (DirNode root : roots.values()) {
+                addTypeStats(root, 1);
+            }
+            scanning = false;
+            scannedAt = System.currentTimeMillis();
+            version++;
+        }
+
+        // 重新注册同一目录会得到同一个WatchKey，只取消已不在任何根目录下的监听
+        Map<WatchKey, DirNode> fresh = new HashMap<>();
+        for (DirNode root : scanned.values()) {
+            collectKeys(root, fresh);
+        }
+        staleKeys.removeAll(fresh.keySet());
+        staleKeys.forEach(WatchKey::cancel);
+        watchKeys.clear();
+        watchKeys.putAll(fresh);
+
+        long fileCount = scanned.values().stream().mapToLong(node -> node.totalFiles).sum();
+        log.info("目录占用扫描完成，根目录: {}，文件数: {}，耗时: {}ms", rootPaths, fileCount, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 处理一个目录的事件
+     */
+    private void handleKey(WatchKey key) {
+        DirNode node = watchKeys.get(key);
+        List<WatchEvent<?>> events = key.pollEvents();
+        boolean valid = key.reset();
+        if (node != null) {
+            applyEvents(node, events);
+        }
+        if (!valid) {
+            watchKeys.remove(key);
+        }
+    }
+
+    /**
+     * 将一组事件应用到指定目录（供测试注入事件，正常情况下由监听线程调用）
+     * @param dir 已在监听中的目录
+     * @param events 该目录的事件
+     */
+    void handleEvents(Path dir, List<WatchEvent<?>> events) {
+        Path normalized = dir.toAbsolutePath().normalize();
+        watchKeys.values().stream()
+                .filter(node -> node.path.equals(normalized))
+                .findFirst()
+                .ifPresent(node -> applyEvents(node, events));
+    }
+
+    /**
+     * 当前监听中的目录数
+     */
+    int watchedDirectoryCount() {
+        return watchKeys.size();
+    }
+
+    private void applyEvents(DirNode node, List<WatchEvent<?>> events) {
+        for (WatchEvent<?> event : events) {
+            if (event.kind() == OVERFLOW) {
+                log.info("目录事件溢出，重新扫描: {}", node.path);
+                rescanRequested = true;
+                return;
+            }
+            String name = event.context().toString();
+            Path child = node.path.resolve(name);
+            if (event.kind() == ENTRY_DELETE) {
+                removeEntry(node, name);
+            } else if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                if (event.kind() == ENTRY_CREATE) {
+                    addDirectory(node, child);
+                }
+            } else {
+                updateFile(node, name);
+            }
+        }
+    }
+
+    private void addDirectory(DirNode parent, Path dir) {
+        String name = dir.getFileName().toString();
+        synchronized (lock) {
+            if (parent.children.containsKey(name)) {
+                return;
+            }
+        }
+        DirNode child = scanPool.invoke(new ScanTask(dir));
+        Map<WatchKey, DirNode> keys = new HashMap<>();
+        collectKeys(child, keys);
+        watchKeys.putAll(keys);
+        synchronized (lock) {
+            child.parent = parent;
+            parent.children.put(name, child);
+            propagate(parent, child.totalBytes, child.totalFiles);
+            addTypeStats(child, 1);
+            version++;
+        }
+    }
+
+    private void updateFile(DirNode node, String name) {
+        Path file = node.path.resolve(name);
+        long size;
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attributes.isRegularFile()) {
+                return;
+            }
+            size = attributes.size();
+        } catch (IOException e) {
+            // 文件已被删除，稍后会收到删除事件
+            return;
+        }
+        synchronized (lock) {
+            Long previous = node.files.put(name, size);
+            long delta = size - (previous != null ? previous : 0);
+            node.ownBytes += delta;
+            propagate(node, delta, previous == null ? 1 : 0);
+            addType(name, delta, previous == null ? 1 : 0);
+            version++;
+        }
+    }
+
+    private void removeEntry(DirNode node, String name) {
+        synchronized (lock) {
+            Long size = node.files.remove(name);
+            if (size != null) {
+                node.ownBytes -= size;
+                propagate(node, -size, -1);
+                addType(name, -size, -1);
+                version++;
+                return;
+            }
+            DirNode child = node.children.remove(name);
+            if (child != null) {
+                propagate(node, -child.totalBytes, -child.totalFiles);
+                addTypeStats(child, -1);
+                version++;
+                Map<WatchKey, DirNode> keys = new HashMap<>();
+                collectKeys(child, keys);
+                keys.keySet().forEach(key -> {
+                    key.cancel();
+                    watchKeys.remove(key);
+                });
+            }
+        }
+    }
+
+    /**
+     * 把变化累加到目录及其所有上级
+     */
+    private static void propagate(DirNode node, long bytes, long files) {
+        for (DirNode current = node; current != null; current = current.parent) {
+            current.totalBytes += bytes;
+            current.totalFiles += files;
+        }
+    }
+
+    private void addTypeStats(DirNode root, int sign) {
+        Deque<DirNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            DirNode node = stack.pop();
+            for (Map.Entry<String, Long> file : node.files.entrySet()) {
+                addType(file.getKey(), sign * file.getValue(), sign);
+            }
+            stack.addAll(node.children.values());
+        }
+    }
+
+    private void addType(String fileName, long bytes, long files) {
+        String extension = extensionOf(fileName);
+        long[] stats = typeStats.computeIfAbsent(extension, k -> new long[2]);
+        stats[0] += bytes;
+        stats[1] += files;
+        if (stats[1] <= 0) {
+            typeStats.remove(extension);
+        }
+    }
+
+    static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot <= 0 || dot == fileName.length() - 1) {
+            return NO_EXTENSION;
+        }
+        return fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static void collectKeys(DirNode root, Map<WatchKey, DirNode> keys) {
+        Deque<DirNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            DirNode node = stack.pop();
+            if (node.watchKey != null) {
+                keys.put(node.watchKey, node);
+            }
+            stack.addAll(node.children.values());
+        }
+    }
+
+    private WatchKey register(Path dir) {
+        try {
+            return dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            if (!watchLimitWarned) {
+                watchLimitWarned = true;
+                log.warn("注册目录监听失败（可能超出inotify上限），部分目录不会增量更新: {}", e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 扫描任务：先注册监听再用 walkFileTree 读取一层目录项（扫描期间的变化会在扫描后按事件补上），
+     * 子目录分叉为并行子任务，返回汇总好的子树
+     */
+    private class ScanTask extends RecursiveTask<DirNode> {
+        private final Path dir;
+
+        ScanTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected DirNode compute() {
+            DirNode node = new DirNode(dir);
+            node.watchKey = register(dir);
+            List<ScanTask> subtasks = new ArrayList<>();
+            try {
+                Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (attributes.isDirectory()) {
+                            subtasks.add(new ScanTask(file));
+                        } else if (attributes.isRegularFile()) {
+                            node.files.put(file.getFileName().toString(), attributes.size());
+                            node.ownBytes += attributes.size();
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                log.debug("读取目录失败: {}", dir, e);
+            }
+
+            invokeAll(subtasks);
+            node.totalBytes = node.ownBytes;
+            node.totalFiles = node.files.size();
+            for (ScanTask subtask : subtasks) {
+                DirNode child = subtask.join();
+                child.parent = node;
+                node.children.put(child.path.getFileName().toString(), child);
+                node.totalBytes += child.totalBytes;
+                node.totalFiles += child.totalFiles;
+            }
+            return node;
+        }
+    }
+
+    /**
+     * 应用关闭时停止监听
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("关闭目录监听失败", e);
+            }
+        }
+        if (scanPool != null) {
+            scanPool.shutdownNow();
+        }
+    }
+}
@@ -16,17 +16,19 @@ public interface FileUploadService {
 
     /**
      * 上传文件到本地服务器（包含导航项名称）
+     * 文件按内容哈希命名，内容相同的文件只保存一份并返回同一URL
      * @param file 上传的文件
-     * @param navigationName 导航项名称，用于文件命名
+     * @param navigationName 导航项名称（仅用于日志）
      * @return 文件访问URL
      */
     String uploadFile(MultipartFile file, String navigationName);
 
     /**
      * 上传文件到指定子目录
+     * 文件按内容哈希命名，子目录中已有相同内容的文件时直接返回其URL
      * @param file 上传的文件
      * @param subDirectory 子目录名称（如 "backgrounds"）
-     * @param fileName 文件名称（用于命名）
+     * @param fileName 文件用途名称（仅用于日志）
      * @return 文件访问URL
      */
     String uploadFileToSubDirectory(MultipartFile file, String subDirectory, String fileName);
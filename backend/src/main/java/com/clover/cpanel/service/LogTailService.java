@@ -0,0 +1,335 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.entity.Server;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.connection.channel.direct.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 远程日志跟踪服务
+ * 通过SSH exec通道执行 tail -F，在面板端用预编译的过滤条件筛选，
+ * 只把匹配的行按批次推送给客户端；超过速率上限的行直接丢弃并计数
+ */
+@Slf4j
+@Service
+public class LogTailService {
+
+    @Autowired
+    private ServerService serverService;
+
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    /**
+     * 每秒推送的最大行数，超出部分丢弃
+     */
+    @Value("${logtail.max-lines-per-second:200}")
+    private int maxLinesPerSecond;
+
+    /**
+     * 批量推送间隔（毫秒）
+     */
+    @Value("${logtail.batch-interval-ms:250}")
+    private int batchIntervalMs;
+
+    /**
+     * 单批最大行数
+     */
+    @Value("${logtail.max-batch-lines:500}")
+    private int maxBatchLines;
+
+    /**
+     * 单次跟踪最长持续时间（秒）
+     */
+    @Value("${logtail.max-duration-seconds:1800}")
+    private int maxDurationSeconds;
+
+    /**
+     * 单行最大长度，超出部分截断
+     */
+    @Value("${logtail.max-line-length:4096}")
+    private int maxLineLength;
+
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private final ExecutorService readerExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "log-tail-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-tail-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 令牌桶限速
+     */
+    private static class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(int ratePerSecond) {
+            this.ratePerNano = ratePerSecond / 1_000_000_000.0;
+            this.capacity = Math.max(1, ratePerSecond);
+            this.tokens = capacity;
+        }
+
+        boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 单个跟踪任务
+     */
+    private class TailTask {
+        private final SseEmitter emitter;
+        private final Predicate<String> filter;
+        private final TokenBucket bucket = new TokenBucket(maxLinesPerSecond);
+        private final Object flushLock = new Object();
+        private List<String> batch = new ArrayList<>();
+        private long scanned;
+        private long matched;
+        private long dropped;
+        private volatile boolean closed;
+
+        private SshConnectionPool.Lease lease;
+        private Session session;
+        private Session.Command command;
+        private ScheduledFuture<?> flushTask;
+
+        TailTask(SseEmitter emitter, Predicate<String> filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        /**
+         * 读取线程调用：过滤并放入批次
+         */
+        void accept(String line) {
+            boolean flushNow = false;
+            synchronized (this) {
+                scanned++;
+                if (!filter.test(line)) {
+                    return;
+                }
+                matched++;
+                if (!bucket.tryAcquire()) {
+                    dropped++;
+                    return;
+                }
+                batch.add(line.length() > maxLineLength ? line.substring(0, maxLineLength) : line);
+                flushNow = batch.size() >= maxBatchLines;
+            }
+            if (flushNow) {
+                flush();
+            }
+        }
+
+        void flush() {
+            // 交换批次与发送在同一把锁内完成，保证批次按顺序送达
+            synchronized (flushLock) {
+                Map<String, Object> data = new LinkedHashMap<>();
+                synchronized (this) {
+                    if (batch.isEmpty() || closed) {
+                        return;
+                    }
+                    data.put("lines", batch);
+                    data.put("scanned", scanned);
+                    data.put("matched", matched);
+                    data.put("dropped", dropped);
+                    batch = new ArrayList<>();
+                }
+                try {
+                    emitter.send(SseEmitter.event().name("lines").data(data));
+                } catch (Exception e) {
+                    log.debug("推送日志失败，客户端可能已断开");
+                    close();
+                }
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (flushTask != null) {
+                flushTask.cancel(false);
+            }
+            try {
+                if (command != null) {
+                    command.close();
+                }
+            } catch (Exception e) {
+                log.debug("关闭日志跟踪通道失败", e);
+            }
+            try {
+                if (session != null) {
+                    session.close();
+                }
+            } catch (Exception e) {
+                log.debug("关闭日志跟踪会话失败", e);
+            }
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    /**
+     * 开始跟踪远程日志
+     * @param serverId 服务器ID
+     * @param path 日志文件路径
+     * @param keyword 过滤条件，为空时不过滤
+     * @param regex 过滤条件是否为正则表达式
+     * @param ignoreCase 是否忽略大小写
+     * @param initialLines 开始时输出的历史行数
+     * @return SSE事件流
+     */
+    public SseEmitter tail(Integer serverId, String path, String keyword, boolean regex,
+                           boolean ignoreCase, int initialLines) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(maxDurationSeconds));
+
+        Predicate<String> filter;
+        try {
+            filter = compileFilter(keyword, regex, ignoreCase);
+        } catch (PatternSyntaxException e) {
+            completeWithError(emitter, "正则表达式错误: " + e.getDescription());
+            return emitter;
+        }
+
+        Server server = serverService.getServerWithAuthInfo(serverId);
+        if (server == null) {
+            completeWithError(emitter, "服务器配置不存在");
+            return emitter;
+        }
+
+        TailTask task = new TailTask(emitter, filter);
+        emitter.onCompletion(task::close);
+        emitter.onTimeout(task::close);
+        emitter.onError(e -> task.close());
+
+        String tailCommand = "tail -n " + Math.max(0, Math.min(initialLines, 1000)) + " -F -- " + shellQuote(path);
+        readerExecutor.execute(() -> runTail(task, server, tailCommand));
+        return emitter;
+    }
+
+    private void runTail(TailTask task, Server server, String tailCommand) {
+        int port = server.getPort() != null ? server.getPort() : 22;
+        try {
+            synchronized (task) {
+                if (task.closed) {
+                    return;
+                }
+                task.lease = connectionPool.acquire(server.getHost(), port, server.getUsername(), server.getAuthType(),
+                        server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+                task.session = task.lease.getClient().startSession();
+                task.command = task.session.exec(tailCommand);
+                task.flushTask = flusher.scheduleWithFixedDelay(task::flush, batchIntervalMs, batchIntervalMs, TimeUnit.MILLISECONDS);
+            }
+            log.info("开始跟踪远程日志: {} {}", server.getServerName(), tailCommand);
+            task.emitter.send(SseEmitter.event().name("started").data(Map.of("command", tailCommand)));
+
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(task.command.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while (!task.closed && (line = reader.readLine()) != null) {
+                task.accept(line);
+            }
+
+            // tail 退出（如文件不存在且无权限），把错误输出返回给客户端
+            if (!task.closed) {
+                task.flush();
+                String stderr = new String(task.command.getErrorStream().readNBytes(4096), StandardCharsets.UTF_8).trim();
+                completeWithError(task.emitter, stderr.isEmpty() ? "日志跟踪已结束" : stderr);
+            }
+        } catch (Exception e) {
+            if (!task.closed) {
+                log.warn("跟踪远程日志失败: {}", server.getServerName(), e);
+                completeWithError(task.emitter, "跟踪远程日志失败: " + e.getMessage());
+            }
+        } finally {
+            task.close();
+        }
+    }
+
+    /**
+     * 预编译过滤条件
+     */
+    private Predicate<String> compileFilter(String keyword, boolean regex, boolean ignoreCase) {
+        if (keyword == null || keyword.isEmpty()) {
+            return line -> true;
+        }
+        if (regex) {
+            Pattern pattern = Pattern.compile(keyword, ignoreCase ? Pattern.CASE_INSENSITIVE : 0);
+            return line -> pattern.matcher(line).find();
+        }
+        if (ignoreCase) {
+            // 忽略大小写的子串匹配，不为每行创建小写副本
+            int length = keyword.length();
+            return line -> {
+                for (int i = 0, last = line.length() - length; i <= last; i++) {
+                    if (line.regionMatches(true, i, keyword, 0, length)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        return line -> line.contains(keyword);
+    }
+
+    private void completeWithError(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("message", message)));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    /**
+     * 单引号转义，防止路径中的特殊字符被shell解释
+     */
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * 应用关闭时停止所有跟踪
+     */
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdownNow();
+        readerExecutor.shutdownNow();
+    }
+}
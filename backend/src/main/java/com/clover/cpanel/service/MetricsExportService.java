@@ -0,0 +1,217 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.SystemInfoDto;
+import com.clover.cpanel.util.LatencyHistogram;
+import com.clover.cpanel.util.OpenMetricsWriter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 指标导出服务
+ * 将本机系统指标与应用自身的计数器汇总为OpenMetrics文本，供Prometheus抓取；
+ * 所有数据都来自已有的快照或累加器，抓取时不做采样也不查询数据库
+ */
+@Slf4j
+@Service
+public class MetricsExportService {
+
+    private static final String PREFIX = "cpanel_";
+    private static final double GB = 1024.0 * 1024.0 * 1024.0;
+
+    @Autowired
+    private SystemMetricsSampler systemMetricsSampler;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private SshService sshService;
+
+    @Autowired
+    private SshConnectionPool sshConnectionPool;
+
+    @Autowired
+    private SshCredentialCache sshCredentialCache;
+
+    @Autowired
+    private SshStandbyService sshStandbyService;
+
+    @Autowired
+    private SshTunnelService sshTunnelService;
+
+    @Autowired
+    private SftpRelayService sftpRelayService;
+
+    @Autowired
+    private MusicSearchService musicSearchService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 生成OpenMetrics文本
+     */
+    public String scrape() {
+        OpenMetricsWriter writer = new OpenMetricsWriter();
+        writeHostMetrics(writer);
+        writeSshMetrics(writer);
+        writeMusicMetrics(writer);
+        writeHttpMetrics(writer);
+        writeDataSourceMetrics(writer);
+        return writer.finish();
+    }
+
+    private void writeHostMetrics(OpenMetricsWriter writer) {
+        SystemInfoDto snapshot = systemMetricsSampler.getSnapshot();
+
+        if (snapshot.getCpu() != null) {
+            writer.family(PREFIX + "host_cpu_usage_ratio", "gauge", "主机CPU使用率")
+                    .sample(PREFIX + "host_cpu_usage_ratio", snapshot.getCpu().getUsage() / 100.0);
+            writer.family(PREFIX + "host_cpu_logical_processors", "gauge", "主机逻辑处理器数")
+                    .sample(PREFIX + "host_cpu_logical_processors", snapshot.getCpu().getLogicalProcessors());
+        }
+
+        if (snapshot.getMemory() != null) {
+            writer.family(PREFIX + "host_memory_total_bytes", "gauge", "主机总内存")
+                    .sample(PREFIX + "host_memory_total_bytes", Math.round(snapshot.getMemory().getTotal() * GB));
+            writer.family(PREFIX + "host_memory_used_bytes", "gauge", "主机已使用内存")
+                    .sample(PREFIX + "host_memory_used_bytes", Math.round(snapshot.getMemory().getUsed() * GB));
+        }
+
+        if (snapshot.getDisks() != null) {
+            writer.family(PREFIX + "host_filesystem_size_bytes", "gauge", "文件系统总容量");
+            for (SystemInfoDto.DiskInfo disk : snapshot.getDisks()) {
+                writer.sample(PREFIX + "host_filesystem_size_bytes", Math.round(disk.getTotal() * GB),
+                        "mount", disk.getName(), "fstype", disk.getFileSystem());
+            }
+            writer.family(PREFIX + "host_filesystem_used_bytes", "gauge", "文件系统已使用容量");
+            for (SystemInfoDto.DiskInfo disk : snapshot.getDisks()) {
+                writer.sample(PREFIX + "host_filesystem_used_bytes", Math.round(disk.getUsed() * GB),
+                        "mount", disk.getName(), "fstype", disk.getFileSystem());
+            }
+        }
+
+        if (snapshot.getNetworks() != null) {
+            writer.family(PREFIX + "host_network_receive_bytes", "counter", "网卡累计接收字节数");
+            for (SystemInfoDto.NetworkInfo network : snapshot.getNetworks()) {
+                writer.sample(PREFIX + "host_network_receive_bytes_total", network.getRxBytes(), "device", network.getName());
+            }
+            writer.family(PREFIX + "host_network_transmit_bytes", "counter", "网卡累计发送字节数");
+            for (SystemInfoDto.NetworkInfo network : snapshot.getNetworks()) {
+                writer.sample(PREFIX + "host_network_transmit_bytes_total", network.getTxBytes(), "device", network.getName());
+            }
+        }
+
+        if (snapshot.getDiskIo() != null) {
+            writer.family(PREFIX + "host_disk_read_bytes_per_second", "gauge", "磁盘读速率");
+            for (SystemInfoDto.DiskIoInfo diskIo : snapshot.getDiskIo()) {
+                writer.sample(PREFIX + "host_disk_read_bytes_per_second", diskIo.getReadRate(), "device", diskIo.getName());
+            }
+            writer.family(PREFIX + "host_disk_write_bytes_per_second", "gauge", "磁盘写速率");
+            for (SystemInfoDto.DiskIoInfo diskIo : snapshot.getDiskIo()) {
+                writer.sample(PREFIX + "host_disk_write_bytes_per_second", diskIo.getWriteRate(), "device", diskIo.getName());
+            }
+        }
+
+        if (snapshot.getSystem() != null) {
+            writer.family(PREFIX + "host_uptime_seconds", "gauge", "主机运行时长")
+                    .sample(PREFIX + "host_uptime_seconds", snapshot.getSystem().getUptime());
+        }
+    }
+
+    private void writeSshMetrics(OpenMetricsWriter writer) {
+        writer.family(PREFIX + "ssh_sessions", "gauge", "活跃的SSH终端会话数")
+                .sample(PREFIX + "ssh_sessions", sshService.getActiveSessionCount());
+        writer.family(PREFIX + "ssh_terminal_relayed_chars", "counter", "终端累计转发的字符数")
+                .sample(PREFIX + "ssh_terminal_relayed_chars_total", sshService.getRelayedInputChars(), "direction", "input")
+                .sample(PREFIX + "ssh_terminal_relayed_chars_total", sshService.getRelayedOutputChars(), "direction", "output");
+
+        writer.family(PREFIX + "ssh_pool_connections", "gauge", "连接池中的底层SSH连接数")
+                .sample(PREFIX + "ssh_pool_connections", sshConnectionPool.getPooledConnectionCount());
+        writer.family(PREFIX + "ssh_pool_acquires", "counter", "连接池获取次数")
+                .sample(PREFIX + "ssh_pool_acquires_total", sshConnectionPool.getCreatedCount(), "result", "created")
+                .sample(PREFIX + "ssh_pool_acquires_total", sshConnectionPool.getReusedCount(), "result", "reused");
+
+        writer.family(PREFIX + "ssh_standby_shells", "gauge", "预热的备用SSH终端数")
+                .sample(PREFIX + "ssh_standby_shells", sshStandbyService.getStandbyCount());
+        writeCache(writer, "ssh_standby", sshStandbyService.getHitCount(), sshStandbyService.getMissCount());
+        writeCache(writer, "ssh_credential_cache", sshCredentialCache.getHitCount(), sshCredentialCache.getMissCount());
+
+        writer.family(PREFIX + "ssh_tunnels", "gauge", "SSH隧道数")
+                .sample(PREFIX + "ssh_tunnels", sshTunnelService.getTunnelCount());
+        writer.family(PREFIX + "ssh_tunnel_relayed_bytes", "counter", "SSH隧道累计转发字节数")
+                .sample(PREFIX + "ssh_tunnel_relayed_bytes_total", sshTunnelService.getTotalBytesSent(), "direction", "sent")
+                .sample(PREFIX + "ssh_tunnel_relayed_bytes_total", sshTunnelService.getTotalBytesReceived(), "direction", "received");
+
+        writer.family(PREFIX + "sftp_relay_transfers", "gauge", "进行中的SFTP中转任务数")
+                .sample(PREFIX + "sftp_relay_transfers", sftpRelayService.getActiveTransferCount());
+        writer.family(PREFIX + "sftp_relay_bytes", "counter", "SFTP中转累计传输字节数")
+                .sample(PREFIX + "sftp_relay_bytes_total", sftpRelayService.getTotalTransferredBytes());
+    }
+
+    private void writeMusicMetrics(OpenMetricsWriter writer) {
+        writer.family(PREFIX + "ytdlp_processes_running", "gauge", "正在运行的yt-dlp进程数")
+                .sample(PREFIX + "ytdlp_processes_running", musicSearchService.getRunningYtDlpCount());
+        writer.family(PREFIX + "ytdlp_processes_queued", "gauge", "排队等待启动的yt-dlp调用数")
+                .sample(PREFIX + "ytdlp_processes_queued", musicSearchService.getQueuedYtDlpCount());
+        writer.family(PREFIX + "ytdlp_processes_started", "counter", "已启动的yt-dlp进程总数")
+                .sample(PREFIX + "ytdlp_processes_started_total", musicSearchService.getStartedYtDlpCount());
+
+        writer.family(PREFIX + "proxy_requests", "counter", "音乐代理成功转发的请求数");
+        for (Map.Entry<String, LongAdder> entry : metricsRegistry.getProxyRequests().entrySet()) {
+            writer.sample(PREFIX + "proxy_requests_total", entry.getValue().sum(), "kind", entry.getKey());
+        }
+        writer.family(PREFIX + "proxy_bytes", "counter", "音乐代理累计转发字节数");
+        for (Map.Entry<String, LongAdder> entry : metricsRegistry.getProxyBytes().entrySet()) {
+            writer.sample(PREFIX + "proxy_bytes_total", entry.getValue().sum(), "kind", entry.getKey());
+        }
+    }
+
+    private void writeHttpMetrics(OpenMetricsWriter writer) {
+        writer.family(PREFIX + "http_request_duration_seconds", "histogram", "HTTP请求耗时")
+                .unit(PREFIX + "http_request_duration_seconds", "seconds");
+        for (Map.Entry<MetricsRegistry.RouteKey, LatencyHistogram> entry : metricsRegistry.getHttpLatency().entrySet()) {
+            MetricsRegistry.RouteKey key = entry.getKey();
+            writer.histogram(PREFIX + "http_request_duration_seconds", entry.getValue(),
+                    "method", key.method(), "route", key.route(), "status", key.status());
+        }
+    }
+
+    private void writeDataSourceMetrics(OpenMetricsWriter writer) {
+        HikariPoolMXBean pool = getHikariPool();
+        if (pool == null) {
+            return;
+        }
+        writer.family(PREFIX + "db_pool_connections", "gauge", "数据库连接池连接数")
+                .sample(PREFIX + "db_pool_connections", pool.getActiveConnections(), "state", "active")
+                .sample(PREFIX + "db_pool_connections", pool.getIdleConnections(), "state", "idle");
+        writer.family(PREFIX + "db_pool_pending_threads", "gauge", "等待数据库连接的线程数")
+                .sample(PREFIX + "db_pool_pending_threads", pool.getThreadsAwaitingConnection());
+    }
+
+    private void writeCache(OpenMetricsWriter writer, String name, long hits, long misses) {
+        writer.family(PREFIX + name + "_lookups", "counter", null)
+                .sample(PREFIX + name + "_lookups_total", hits, "result", "hit")
+                .sample(PREFIX + name + "_lookups_total", misses, "result", "miss");
+        writer.family(PREFIX + name + "_hit_ratio", "gauge", null)
+                .sample(PREFIX + name + "_hit_ratio", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+    }
+
+    private HikariPoolMXBean getHikariPool() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+            }
+        } catch (Exception e) {
+            log.debug("获取数据库连接池状态失败", e);
+        }
+        return null;
+    }
+}
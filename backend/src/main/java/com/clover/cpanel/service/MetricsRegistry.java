@@ -0,0 +1,81 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.util.LatencyHistogram;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 应用指标注册表
+ * 热路径只做无锁累加（LongAdder），导出时再汇总，抓取成本与请求量无关
+ */
+@Service
+public class MetricsRegistry {
+
+    // 路由数量上限，防止未匹配的路径撑大标签基数
+    private static final int MAX_ROUTES = 500;
+
+    private final Map<RouteKey, LatencyHistogram> httpLatency = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> proxyBytes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> proxyRequests = new ConcurrentHashMap<>();
+
+    /**
+     * HTTP路由标签
+     * @param method 请求方法
+     * @param route 最佳匹配的路由模式
+     * @param status 状态码分类，如 2xx
+     */
+    public record RouteKey(String method, String route, String status) {
+        public RouteKey {
+            Objects.requireNonNull(method);
+            Objects.requireNonNull(route);
+            Objects.requireNonNull(status);
+        }
+    }
+
+    /**
+     * 记录一次HTTP请求耗时
+     * @param method 请求方法
+     * @param route 路由模式，未匹配时传null
+     * @param status 响应状态码
+     * @param nanos 耗时（纳秒）
+     */
+    public void recordHttpRequest(String method, String route, int status, long nanos) {
+        RouteKey key = new RouteKey(method, route != null ? route : "unmatched", (status / 100) + "xx");
+        LatencyHistogram histogram = httpLatency.get(key);
+        if (histogram == null) {
+            if (httpLatency.size() >= MAX_ROUTES) {
+                key = new RouteKey(method, "other", key.status());
+            }
+            histogram = httpLatency.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * 记录一次代理请求转发的字节数
+     * @param kind 代理类型，如 audio / image
+     * @param bytes 字节数
+     */
+    public void recordProxy(String kind, long bytes) {
+        proxyRequests.computeIfAbsent(kind, k -> new LongAdder()).increment();
+        if (bytes > 0) {
+            proxyBytes.computeIfAbsent(kind, k -> new LongAdder()).add(bytes);
+        }
+    }
+
+    public Map<RouteKey, LatencyHistogram> getHttpLatency() {
+        return httpLatency;
+    }
+
+    public Map<String, LongAdder> getProxyBytes() {
+        return proxyBytes;
+    }
+
+    public Map<String, LongAdder> getProxyRequests() {
+        return proxyRequests;
+    }
+}
@@ -22,6 +22,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,6 +43,15 @@ public class MusicSearchService {
     private SystemConfigService systemConfigService;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 同时运行的yt-dlp进程上限，0表示不限制，超出上限的调用排队等待
+    @Value("${music.yt-dlp.max-concurrent:0}")
+    private int ytDlpMaxConcurrent;
+
+    private volatile Semaphore ytDlpPermits;
+    private final AtomicInteger ytDlpRunning = new AtomicInteger();
+    private final AtomicInteger ytDlpQueued = new AtomicInteger();
+    private final LongAdder ytDlpStarted = new LongAdder();
     
     /**
      * 搜索音乐
@@ -496,7 +508,7 @@ public class MusicSearchService {
             );
 
             processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
+            Process process = startYtDlp(processBuilder);
 
             // 读取输出
             StringBuilder output = new StringBuilder();
@@ -568,7 +580,7 @@ public class MusicSearchService {
             ProcessBuilder processBuilder = new ProcessBuilder(command);
 
             processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
+            Process process = startYtDlp(processBuilder);
 
             // 读取输出
             StringBuilder output = new StringBuilder();
@@ -802,7 +814,7 @@ public class MusicSearchService {
             );
 
             processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
+            Process process = startYtDlp(processBuilder);
 
             StringBuilder output = new StringBuilder();
             try (BufferedReader reader = new BufferedReader(
@@ -2012,7 +2024,7 @@ public class MusicSearchService {
             );
 
             processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
+            Process process = startYtDlp(processBuilder);
 
             // 读取输出
             StringBuilder output = new StringBuilder();
@@ -2274,7 +2286,7 @@ public class MusicSearchService {
 
             ProcessBuilder processBuilder = new ProcessBuilder(command);
             processBuilder.redirectErrorStream(false); // 分离错误流和输出流
-            Process process = processBuilder.start();
+            Process process = startYtDlp(processBuilder);
 
             // 在单独的线程中读取stderr流，区分进度信息和错误信息
             Thread stderrReaderThread = new Thread(() -> {
@@ -2536,7 +2548,7 @@ public class MusicSearchService {
 
             ProcessBuilder processBuilder = new ProcessBuilder(command);
             processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
+            Process process = startYtDlp(processBuilder);
 
             // 读取输出
             StringBuilder output = new StringBuilder();
@@ -2620,4 +2632,75 @@ public class MusicSearchService {
             }
         }
     }
+
+    /**
+     * 启动yt-dlp进程，超出并发上限时排队等待，进程退出后自动释放名额
+     */
+    private Process startYtDlp(ProcessBuilder processBuilder) throws IOException, InterruptedException {
+        Semaphore permits = getYtDlpPermits();
+        if (permits != null) {
+            ytDlpQueued.incrementAndGet();
+            try {
+                permits.acquire();
+            } finally {
+                ytDlpQueued.decrementAndGet();
+            }
+        }
+
+        Process process;
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            throw e;
+        }
+        ytDlpRunning.incrementAndGet();
+        ytDlpStarted.increment();
+        process.onExit().whenComplete((exited, error) -> {
+            ytDlpRunning.decrementAndGet();
+            if (permits != null) {
+                permits.release();
+            }
+        });
+        return process;
+    }
+
+    private Semaphore getYtDlpPermits() {
+        if (ytDlpMaxConcurrent <= 0) {
+            return null;
+        }
+        Semaphore permits = ytDlpPermits;
+        if (permits == null) {
+            synchronized (this) {
+                if (ytDlpPermits == null) {
+                    ytDlpPermits = new Semaphore(ytDlpMaxConcurrent, true);
+                }
+                permits = ytDlpPermits;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * 获取正在运行的yt-dlp进程数
+     */
+    public int getRunningYtDlpCount() {
+        return ytDlpRunning.get();
+    }
+
+    /**
+     * 获取排队等待启动的yt-dlp调用数
+     */
+    public int getQueuedYtDlpCount() {
+        return ytDlpQueued.get();
+    }
+
+    /**
+     * 获取已启动的yt-dlp进程总数
+     */
+    public long getStartedYtDlpCount() {
+        return ytDlpStarted.sum();
+    }
 }
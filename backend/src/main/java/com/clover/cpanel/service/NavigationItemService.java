@@ -86,4 +86,11 @@ public interface NavigationItemService extends IService<NavigationItem> {
      * @return 下一个排序号
      */
     Integer getNextSortOrder(Integer categoryId);
+
+    /**
+     * 统计使用指定图标的导航项数量
+     * @param logo 图标URL
+     * @return 导航项数量
+     */
+    int countByLogo(String logo);
 }
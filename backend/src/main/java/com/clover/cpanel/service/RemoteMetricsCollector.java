@@ -0,0 +1,431 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.entity.Server;
+import com.clover.cpanel.util.DfUsage;
+import com.clover.cpanel.util.ProcMetricsParser;
+import com.clover.cpanel.util.TimeSeriesRing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.connection.channel.direct.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 远程服务器指标采集服务（无需在目标服务器安装agent）
+ * 每台服务器在连接池的连接上保持一个常驻exec通道，循环输出 /proc/stat、/proc/meminfo、
+ * /proc/loadavg、/proc/net/dev 和 df；本地逐行解析并计算差值，写入每台服务器的时间序列环形缓冲区
+ */
+@Slf4j
+@Service
+public class RemoteMetricsCollector {
+
+    public static final int CPU_USAGE = 0;
+    public static final int MEMORY_USAGE = 1;
+    public static final int MEMORY_USED = 2;
+    public static final int MEMORY_TOTAL = 3;
+    public static final int LOAD_1 = 4;
+    public static final int LOAD_5 = 5;
+    public static final int LOAD_15 = 6;
+    public static final int NET_RX_RATE = 7;
+    public static final int NET_TX_RATE = 8;
+    public static final int DISK_USAGE = 9;
+    public static final int DISK_USED = 10;
+    public static final int DISK_TOTAL = 11;
+
+    /**
+     * 通道名称，下标与上面的常量对应
+     */
+    public static final List<String> CHANNEL_NAMES = List.of(
+            "cpuUsage", "memoryUsage", "memoryUsed", "memoryTotal",
+            "load1", "load5", "load15", "netRxRate", "netTxRate",
+            "diskUsage", "diskUsed", "diskTotal");
+
+    private static final String SECTION_STAT = "@stat";
+    private static final String SECTION_MEM = "@mem";
+    private static final String SECTION_LOAD = "@load";
+    private static final String SECTION_NET = "@net";
+    private static final String SECTION_DF = "@df";
+    private static final String SECTION_END = "@end";
+
+    @Autowired
+    private ServerService serverService;
+
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    /**
+     * 是否启用远程指标采集
+     */
+    @Value("${ssh.metrics.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 采样间隔（秒）
+     */
+    @Value("${ssh.metrics.interval-seconds:5}")
+    private int intervalSeconds;
+
+    /**
+     * 每台服务器保留的采样数
+     */
+    @Value("${ssh.metrics.history-size:720}")
+    private int historySize;
+
+    /**
+     * 同步服务器列表、重连失败采集的间隔（秒）
+     */
+    @Value("${ssh.metrics.sync-interval-seconds:60}")
+    private int syncIntervalSeconds;
+
+    // 服务器ID -> 采集器
+    private final Map<Integer, Collector> collectors = new ConcurrentHashMap<>();
+
+    // 服务器ID -> 时间序列，重连后继续使用
+    private final Map<Integer, TimeSeriesRing> rings = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService collectorExecutor;
+
+    /**
+     * 启动采集（数据库初始化完成后调用）
+     */
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "remote-metrics-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadIndex = new AtomicInteger();
+        collectorExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "remote-metrics-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.scheduleWithFixedDelay(this::syncCollectors, 0, syncIntervalSeconds, TimeUnit.SECONDS);
+        log.info("远程指标采集已启动，采样间隔: {}秒", intervalSeconds);
+    }
+
+    /**
+     * 获取服务器指标历史
+     * @param serverId 服务器ID
+     * @param limit 最多返回的采样数，小于等于0表示全部
+     * @return 指标历史，没有数据时返回null
+     */
+    public Map<String, Object> getHistory(Integer serverId, int limit) {
+        TimeSeriesRing ring = rings.get(serverId);
+        if (ring == null) {
+            return null;
+        }
+
+        TimeSeriesRing.Snapshot snapshot = ring.snapshot(limit);
+        Map<String, Object> series = new LinkedHashMap<>();
+        for (int c = 0; c < CHANNEL_NAMES.size(); c++) {
+            series.put(CHANNEL_NAMES.get(c), snapshot.getSeries(c));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("serverId", serverId);
+        result.put("intervalSeconds", intervalSeconds);
+        result.put("timestamps", snapshot.getTimestamps());
+        result.put("series", series);
+        return result;
+    }
+
+    /**
+     * 获取所有服务器的最新指标
+     * @return 每台服务器一项
+     */
+    public List<Map<String, Object>> getLatest() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        rings.forEach((serverId, ring) -> {
+            long timestamp = ring.latestTimestamp();
+            if (timestamp < 0) {
+                return;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("serverId", serverId);
+            item.put("timestamp", timestamp);
+            item.put("online", collectors.containsKey(serverId));
+            for (int c = 0; c < CHANNEL_NAMES.size(); c++) {
+                item.put(CHANNEL_NAMES.get(c), ring.latest(c));
+            }
+            result.add(item);
+        });
+        return result;
+    }
+
+    /**
+     * 同步服务器列表：为新服务器启动采集、停止已删除服务器的采集、凭据变更后重连
+     */
+    private void syncCollectors() {
+        try {
+            List<Server> servers = serverService.list();
+            Set<Integer> ids = servers.stream().map(Server::getId).collect(Collectors.toSet());
+
+            collectors.forEach((serverId, collector) -> {
+                if (!ids.contains(serverId)) {
+                    collectors.remove(serverId, collector);
+                    collector.stop();
+                }
+            });
+            rings.keySet().retainAll(ids);
+
+            for (Server server : servers) {
+                Collector collector = collectors.get(server.getId());
+                if (collector != null && !Objects.equals(collector.updatedAt, server.getUpdatedAt())) {
+                    // 服务器配置已修改，使用新配置重连
+                    collectors.remove(server.getId(), collector);
+                    collector.stop();
+                    collector = null;
+                }
+                if (collector == null && ServerHealthProbeService.isUsable(server.getStatus())) {
+                    startCollector(server.getId());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("同步远程指标采集器失败", e);
+        }
+    }
+
+    private void startCollector(Integer serverId) {
+        Server server = serverService.getServerWithAuthInfo(serverId);
+        if (server == null) {
+            return;
+        }
+        TimeSeriesRing ring = rings.computeIfAbsent(serverId, id -> new TimeSeriesRing(historySize, CHANNEL_NAMES.size()));
+        Collector collector = new Collector(server, ring);
+        if (collectors.putIfAbsent(serverId, collector) == null) {
+            collectorExecutor.execute(collector);
+        }
+    }
+
+    /**
+     * 生成远端循环脚本：每轮以分段标记输出各数据源，以 @end 结束
+     */
+    private String buildScript() {
+        return "while :; do "
+                + "echo " + SECTION_STAT + "; head -n 1 /proc/stat; "
+                + "echo " + SECTION_MEM + "; cat /proc/meminfo; "
+                + "echo " + SECTION_LOAD + "; cat /proc/loadavg; "
+                + "echo " + SECTION_NET + "; cat /proc/net/dev; "
+                + "echo " + SECTION_DF + "; df -P -k -T 2>/dev/null || df -P -k 2>/dev/null; "
+                + "echo " + SECTION_END + "; sleep " + Math.max(1, intervalSeconds) + "; done";
+    }
+
+    /**
+     * 单台服务器的采集器，占用一个线程阻塞读取常驻exec通道的输出
+     */
+    private class Collector implements Runnable {
+        private final Server server;
+        private final String updatedAt;
+        private final TimeSeriesRing ring;
+        private volatile boolean stopped;
+
+        private volatile SshConnectionPool.Lease lease;
+        private volatile Session session;
+        private volatile Session.Command command;
+
+        // 解析缓冲区，整个采集周期内复用
+        private final long[] numbers = new long[16];
+        private final DfUsage dfUsage = new DfUsage();
+        private final double[] loads = new double[3];
+        private final double[] sample = new double[CHANNEL_NAMES.size()];
+
+        // 本轮解析结果
+        private String section;
+        private long cpuTotal;
+        private long cpuIdle;
+        private long memTotal;
+        private long memAvailable;
+        private long netRx;
+        private long netTx;
+
+        // 上一轮的累计值，用于计算差值
+        private long prevCpuTotal = -1;
+        private long prevCpuIdle;
+        private long prevNetRx;
+        private long prevNetTx;
+        private long prevNanos;
+
+        Collector(Server server, TimeSeriesRing ring) {
+            this.server = server;
+            this.updatedAt = server.getUpdatedAt();
+            this.ring = ring;
+        }
+
+        @Override
+        public void run() {
+            int port = server.getPort() != null ? server.getPort() : 22;
+            try {
+                lease = connectionPool.acquire(server.getHost(), port, server.getUsername(), server.getAuthType(),
+                        server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+                session = lease.getClient().startSession();
+                command = session.exec(buildScript());
+                log.info("远程指标采集已连接: {}", server.getServerName());
+
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(command.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                while (!stopped && (line = reader.readLine()) != null) {
+                    parseLine(line);
+                }
+            } catch (Exception e) {
+                if (!stopped) {
+                    log.warn("远程指标采集中断: {}, {}", server.getServerName(), e.getMessage());
+                }
+            } finally {
+                close();
+                collectors.remove(server.getId(), this);
+            }
+        }
+
+        private void parseLine(String line) {
+            if (line.startsWith("@")) {
+                switch (line) {
+                    case SECTION_STAT -> cpuTotal = cpuIdle = 0;
+                    case SECTION_MEM -> memTotal = memAvailable = -1;
+                    case SECTION_NET -> netRx = netTx = 0;
+                    case SECTION_DF -> dfUsage.reset();
+                    case SECTION_END -> commit();
+                    default -> { }
+                }
+                section = line;
+                return;
+            }
+            if (section == null) {
+                return;
+            }
+
+            switch (section) {
+                case SECTION_STAT -> {
+                    // cpu  user nice system idle iowait irq softirq steal
+                    if (line.startsWith("cpu ")) {
+                        int n = Math.min(ProcMetricsParser.parseLongs(line, 3, numbers), 8);
+                        for (int i = 0; i < n; i++) {
+                            cpuTotal += numbers[i];
+                        }
+                        cpuIdle = (n > 3 ? numbers[3] : 0) + (n > 4 ? numbers[4] : 0);
+                    }
+                }
+                case SECTION_MEM -> {
+                    long value;
+                    if ((value = ProcMetricsParser.parseMemInfoValue(line, "MemTotal")) >= 0) {
+                        memTotal = value;
+                    } else if ((value = ProcMetricsParser.parseMemInfoValue(line, "MemAvailable")) >= 0) {
+                        memAvailable = value;
+                    }
+                }
+                case SECTION_LOAD -> {
+                    if (ProcMetricsParser.parseDecimals(line, 0, loads) == 3) {
+                        sample[LOAD_1] = loads[0];
+                        sample[LOAD_5] = loads[1];
+                        sample[LOAD_15] = loads[2];
+                    }
+                }
+                case SECTION_NET -> {
+                    // eth0: rx_bytes rx_packets ... (第9个字段为tx_bytes)
+                    int colon = line.indexOf(':');
+                    if (colon > 0 && !ProcMetricsParser.isLoopbackInterface(line, colon)
+                            && ProcMetricsParser.parseLongs(line, colon + 1, numbers) >= 9) {
+                        netRx += numbers[0];
+                        netTx += numbers[8];
+                    }
+                }
+                // /dev/sda1 ext4 1024-blocks Used Available Capacity Mounted-on
+                case SECTION_DF -> dfUsage.accept(line);
+                default -> { }
+            }
+        }
+
+        /**
+         * 一轮输出结束，计算差值并写入时间序列；第一轮只记录基准值
+         */
+        private void commit() {
+            long now = System.nanoTime();
+            boolean hasBaseline = prevCpuTotal >= 0;
+
+            if (hasBaseline) {
+                long totalDelta = cpuTotal - prevCpuTotal;
+                long idleDelta = cpuIdle - prevCpuIdle;
+                sample[CPU_USAGE] = totalDelta > 0 ? 100.0 * (totalDelta - idleDelta) / totalDelta : 0;
+
+                double seconds = (now - prevNanos) / 1_000_000_000.0;
+                // 网卡重置或计数回绕时差值为负，按0处理
+                sample[NET_RX_RATE] = seconds > 0 ? Math.max(0, netRx - prevNetRx) / seconds : 0;
+                sample[NET_TX_RATE] = seconds > 0 ? Math.max(0, netTx - prevNetTx) / seconds : 0;
+            }
+
+            if (memTotal > 0 && memAvailable >= 0) {
+                sample[MEMORY_TOTAL] = memTotal * 1024.0;
+                sample[MEMORY_USED] = (memTotal - memAvailable) * 1024.0;
+                sample[MEMORY_USAGE] = 100.0 * (memTotal - memAvailable) / memTotal;
+            }
+            long diskTotal = dfUsage.getTotal();
+            long diskUsed = dfUsage.getUsed();
+            sample[DISK_TOTAL] = diskTotal;
+            sample[DISK_USED] = diskUsed;
+            sample[DISK_USAGE] = diskTotal > 0 ? 100.0 * diskUsed / diskTotal : 0;
+
+            if (hasBaseline) {
+                ring.append(System.currentTimeMillis(), sample);
+            }
+
+            prevCpuTotal = cpuTotal;
+            prevCpuIdle = cpuIdle;
+            prevNetRx = netRx;
+            prevNetTx = netTx;
+            prevNanos = now;
+        }
+
+        void stop() {
+            stopped = true;
+            close();
+        }
+
+        private synchronized void close() {
+            try {
+                if (command != null) {
+                    command.close();
+                }
+            } catch (Exception e) {
+                log.debug("关闭远程指标采集通道失败", e);
+            }
+            try {
+                if (session != null) {
+                    session.close();
+                }
+            } catch (Exception e) {
+                log.debug("关闭远程指标采集会话失败", e);
+            }
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    /**
+     * 应用关闭时停止所有采集
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            collectors.values().forEach(Collector::stop);
+            collectorExecutor.shutdownNow();
+        }
+    }
+}
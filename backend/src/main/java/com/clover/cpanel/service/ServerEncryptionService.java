@@ -110,6 +110,7 @@ public class ServerEncryptionService {
             decryptedServer.setSortOrder(server.getSortOrder());
             decryptedServer.setCreatedAt(server.getCreatedAt());
             decryptedServer.setUpdatedAt(server.getUpdatedAt());
+            decryptedServer.setLatencyMs(server.getLatencyMs());
 
             // 解密敏感字段
             if (server.getPassword() != null && !server.getPassword().isEmpty()) {
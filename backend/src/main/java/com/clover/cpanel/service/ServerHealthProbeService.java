@@ -0,0 +1,375 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.ServerHealthStatus;
+import com.clover.cpanel.entity.Server;
+import com.clover.cpanel.mapper.ServerMapper;
+import com.clover.cpanel.websocket.EventWebSocketHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.connection.channel.direct.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 服务器健康探测服务
+ * 周期性并发探测所有服务器：TCP连接耗时、SSH服务标识，可选执行一次认证；
+ * 每轮结束后只把有变化的服务器合并为一条SQL写回数据库，并通过事件WebSocket推送变化
+ */
+@Slf4j
+@Service
+public class ServerHealthProbeService {
+
+    /**
+     * 健康事件主题
+     */
+    public static final String HEALTH_TOPIC = "server.health";
+
+    public static final String STATUS_ACTIVE = "active";
+    public static final String STATUS_INACTIVE = "inactive";
+    public static final String STATUS_AUTH_FAILED = "auth_failed";
+
+    // SSH服务标识之前允许出现的最大行数（RFC 4253允许服务端先发送其他文本）
+    private static final int MAX_BANNER_LINES = 5;
+    private static final int MAX_BANNER_LENGTH = 255;
+
+    // 延迟变化小于该值（毫秒）或不足原值20%时不写库
+    private static final int LATENCY_CHANGE_THRESHOLD_MS = 10;
+
+    @Autowired
+    private ServerService serverService;
+
+    @Autowired
+    private ServerMapper serverMapper;
+
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    @Autowired
+    private EventWebSocketHandler eventWebSocketHandler;
+
+    /**
+     * 是否启用健康探测
+     */
+    @Value("${ssh.health.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 探测间隔（秒）
+     */
+    @Value("${ssh.health.interval-seconds:60}")
+    private int intervalSeconds;
+
+    /**
+     * 每台服务器在一轮内的随机延迟上限（秒），用于打散探测
+     */
+    @Value("${ssh.health.jitter-seconds:10}")
+    private int jitterSeconds;
+
+    /**
+     * 同时进行的探测数上限
+     */
+    @Value("${ssh.health.max-concurrency:8}")
+    private int maxConcurrency;
+
+    /**
+     * TCP连接及读取SSH标识的超时时间（毫秒）
+     */
+    @Value("${ssh.health.connect-timeout:5000}")
+    private int connectTimeout;
+
+    /**
+     * 是否执行认证检查（会复用或建立SSH连接）
+     */
+    @Value("${ssh.health.auth-check:false}")
+    private boolean authCheck;
+
+    // 服务器ID -> 最近一次探测结果
+    private final Map<Integer, ServerHealthStatus> latestStatus = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService probeExecutor;
+
+    /**
+     * 启动探测调度（数据库初始化完成后调用）
+     */
+    public synchronized void start() {
+        if (!enabled || scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "server-health-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadIndex = new AtomicInteger();
+        probeExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrency), r -> {
+            Thread thread = new Thread(r, "server-health-probe-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.schedule(this::runRound, randomDelayMillis(), TimeUnit.MILLISECONDS);
+        log.info("服务器健康探测已启动，间隔: {}秒，并发: {}", intervalSeconds, maxConcurrency);
+    }
+
+    /**
+     * 获取所有服务器最近一次探测结果
+     */
+    public List<ServerHealthStatus> getLatestStatus() {
+        return new ArrayList<>(latestStatus.values());
+    }
+
+    /**
+     * 执行一轮探测
+     */
+    private void runRound() {
+        List<Server> servers;
+        try {
+            servers = loadServers();
+        } catch (Exception e) {
+            log.warn("加载服务器列表失败，跳过本轮健康探测", e);
+            scheduleNextRound();
+            return;
+        }
+
+        if (servers.isEmpty()) {
+            scheduleNextRound();
+            return;
+        }
+
+        // 每台服务器随机延迟后提交到固定大小的探测线程池，避免同时发起大量连接；
+        // 每个future无论探测成功、异常还是提交被拒绝都会完成，保证本轮能结束并调度下一轮
+        List<CompletableFuture<ServerHealthStatus>> futures = new ArrayList<>(servers.size());
+        for (Server server : servers) {
+            CompletableFuture<ServerHealthStatus> future = new CompletableFuture<>();
+            futures.add(future);
+            try {
+                scheduler.schedule(() -> submitProbe(server, future), randomDelayMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                future.complete(failedStatus(server, "探测调度已停止"));
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((v, e) -> {
+            try {
+                if (isStopped()) {
+                    // 应用关闭导致的失败结果不写回数据库
+                    return;
+                }
+                applyResults(servers, futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+            } catch (Exception ex) {
+                log.error("保存服务器健康状态失败", ex);
+            } finally {
+                scheduleNextRound();
+            }
+        });
+    }
+
+    /**
+     * 提交单台服务器的探测，任何情况下都会完成future
+     */
+    private void submitProbe(Server server, CompletableFuture<ServerHealthStatus> future) {
+        try {
+            probeExecutor.execute(() -> {
+                ServerHealthStatus status = null;
+                String error = "探测失败";
+                try {
+                    status = probe(server);
+                } catch (Exception e) {
+                    log.warn("探测服务器失败: {}", server.getId(), e);
+                    error = "探测失败: " + e.getMessage();
+                } finally {
+                    future.complete(status != null ? status : failedStatus(server, error));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.complete(failedStatus(server, "探测线程池已停止"));
+        }
+    }
+
+    private ServerHealthStatus failedStatus(Server server, String error) {
+        ServerHealthStatus status = new ServerHealthStatus();
+        status.setServerId(server.getId());
+        status.setCheckedAt(System.currentTimeMillis());
+        status.setStatus(STATUS_INACTIVE);
+        status.setError(error);
+        return status;
+    }
+
+    private boolean isStopped() {
+        return scheduler == null || scheduler.isShutdown();
+    }
+
+    private List<Server> loadServers() {
+        List<Server> servers = serverService.list();
+        if (!authCheck || servers.isEmpty()) {
+            return servers;
+        }
+        // 认证检查需要解密后的凭据
+        List<Integer> ids = servers.stream().map(Server::getId).collect(Collectors.toList());
+        return serverService.getServersWithAuthInfo(ids, null);
+    }
+
+    private void scheduleNextRound() {
+        if (isStopped()) {
+            return;
+        }
+        try {
+            scheduler.schedule(this::runRound, intervalSeconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("健康探测调度已停止");
+        }
+    }
+
+    /**
+     * 探测单台服务器
+     */
+    private ServerHealthStatus probe(Server server) {
+        ServerHealthStatus status = new ServerHealthStatus();
+        status.setServerId(server.getId());
+        status.setCheckedAt(System.currentTimeMillis());
+        int port = server.getPort() != null ? server.getPort() : 22;
+
+        try (Socket socket = new Socket()) {
+            long start = System.nanoTime();
+            socket.connect(new InetSocketAddress(server.getHost(), port), connectTimeout);
+            status.setLatencyMs((int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            socket.setSoTimeout(connectTimeout);
+            String banner = readBanner(socket.getInputStream());
+            if (banner == null) {
+                status.setStatus(STATUS_INACTIVE);
+                status.setError("端口可连接但未检测到SSH服务");
+                return status;
+            }
+            status.setBanner(banner);
+            status.setStatus(STATUS_ACTIVE);
+        } catch (Exception e) {
+            status.setStatus(STATUS_INACTIVE);
+            status.setLatencyMs(null);
+            status.setError(e.getMessage());
+            return status;
+        }
+
+        if (authCheck) {
+            try (SshConnectionPool.Lease lease = connectionPool.acquire(server.getHost(), port, server.getUsername(),
+                    server.getAuthType(), server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+                 Session session = lease.getClient().startSession()) {
+                status.setAuthenticated(true);
+            } catch (Exception e) {
+                // 端口可达但凭据不可用，不能视为正常服务器
+                status.setStatus(STATUS_AUTH_FAILED);
+                status.setAuthenticated(false);
+                status.setError("认证失败: " + e.getMessage());
+            }
+        }
+        return status;
+    }
+
+    /**
+     * 服务器是否可以建立SSH连接：不可达或认证失败的服务器不预热连接、不采集指标
+     */
+    public static boolean isUsable(String status) {
+        return !STATUS_INACTIVE.equals(status) && !STATUS_AUTH_FAILED.equals(status);
+    }
+
+    /**
+     * 读取SSH服务标识行（以 SSH- 开头），未读到时返回null
+     */
+    private String readBanner(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int lines = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                String text = line.toString(StandardCharsets.UTF_8).trim();
+                if (text.startsWith("SSH-")) {
+                    return text;
+                }
+                if (++lines >= MAX_BANNER_LINES) {
+                    return null;
+                }
+                line.reset();
+            } else if (line.size() < MAX_BANNER_LENGTH) {
+                line.write(b);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 合并本轮结果：只写回有变化的服务器，并推送变化事件
+     */
+    private void applyResults(List<Server> servers, List<ServerHealthStatus> results) {
+        List<Server> changedRows = new ArrayList<>();
+        List<ServerHealthStatus> changedStatus = new ArrayList<>();
+
+        for (int i = 0; i < servers.size(); i++) {
+            Server server = servers.get(i);
+            ServerHealthStatus result = results.get(i);
+            latestStatus.put(server.getId(), result);
+
+            if (isChanged(server, result)) {
+                Server row = new Server();
+                row.setId(server.getId());
+                row.setStatus(result.getStatus());
+                row.setLatencyMs(result.getLatencyMs());
+                changedRows.add(row);
+                changedStatus.add(result);
+            }
+        }
+
+        // 移除已删除服务器的缓存结果
+        Set<Integer> ids = servers.stream().map(Server::getId).collect(Collectors.toSet());
+        latestStatus.keySet().retainAll(ids);
+
+        if (changedRows.isEmpty()) {
+            return;
+        }
+
+        serverMapper.batchUpdateHealth(changedRows);
+        eventWebSocketHandler.publish(HEALTH_TOPIC, changedStatus);
+        log.debug("服务器健康状态更新: {} 台", changedRows.size());
+    }
+
+    private boolean isChanged(Server server, ServerHealthStatus result) {
+        if (!Objects.equals(server.getStatus(), result.getStatus())) {
+            return true;
+        }
+        Integer oldLatency = server.getLatencyMs();
+        Integer newLatency = result.getLatencyMs();
+        if (oldLatency == null || newLatency == null) {
+            return !Objects.equals(oldLatency, newLatency);
+        }
+        int delta = Math.abs(newLatency - oldLatency);
+        return delta >= LATENCY_CHANGE_THRESHOLD_MS && delta * 5 >= oldLatency;
+    }
+
+    private long randomDelayMillis() {
+        return jitterSeconds > 0 ? ThreadLocalRandom.current().nextLong(TimeUnit.SECONDS.toMillis(jitterSeconds)) : 0;
+    }
+
+    /**
+     * 应用关闭时停止探测
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            probeExecutor.shutdownNow();
+        }
+    }
+}
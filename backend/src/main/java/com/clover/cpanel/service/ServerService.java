@@ -108,4 +108,12 @@ public interface ServerService extends IService<Server> {
      * @return 服务器列表
      */
     List<ServerResponse> getServersByCategoryId(Integer categoryId);
+
+    /**
+     * 批量获取服务器配置（包含敏感信息，用于SSH连接）
+     * @param serverIds 服务器ID列表
+     * @param categoryIds 分类ID列表，分类下的所有服务器都会包含在内
+     * @return 去重后的服务器配置列表
+     */
+    List<Server> getServersWithAuthInfo(List<Integer> serverIds, List<Integer> categoryIds);
 }
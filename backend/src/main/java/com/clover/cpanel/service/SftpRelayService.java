@@ -0,0 +1,516 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.ExecResult;
+import com.clover.cpanel.dto.RelayRequest;
+import com.clover.cpanel.dto.RelayStatus;
+import com.clover.cpanel.entity.Server;
+import com.clover.cpanel.websocket.EventWebSocketHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.sftp.FileAttributes;
+import net.schmizz.sshj.sftp.FileMode;
+import net.schmizz.sshj.sftp.OpenMode;
+import net.schmizz.sshj.sftp.RemoteFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务器间文件中转服务
+ * 在源和目标服务器上分别开启SFTP，通过固定数量的缓冲区直接在两端之间搬运数据，不经过面板磁盘；
+ * 大文件按区间拆分并行传输，完成后在两端执行sha256sum校验，进度通过事件WebSocket推送。
+ * 同时进行的中转任务数有上限；每个分块的预读与未确认写入窗口按其占用的池内缓冲区大小限制，
+ * 因此总内存占用随缓冲区数量线性有界
+ */
+@Slf4j
+@Service
+public class SftpRelayService {
+
+    /**
+     * 中转进度事件主题
+     */
+    public static final String RELAY_TOPIC = "sftp.relay";
+
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_VERIFYING = "verifying";
+    public static final String STATUS_COMPLETED = "completed";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_CANCELLED = "cancelled";
+
+    // 进度事件最小推送间隔（毫秒）
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    // 保留的已结束传输记录数
+    private static final int MAX_FINISHED_TRANSFERS = 50;
+
+    // 单个SFTP读写请求的数据量（字节），用于按缓冲区大小换算预读与未确认写入的请求数
+    private static final int SFTP_REQUEST_SIZE = 32 * 1024;
+
+    @Autowired
+    private SftpService sftpService;
+
+    @Autowired
+    private ServerService serverService;
+
+    @Autowired
+    private SshExecService sshExecService;
+
+    @Autowired
+    private EventWebSocketHandler eventWebSocketHandler;
+
+    /**
+     * 缓冲区数量，决定所有中转任务合计的最大内存占用与最大并行分块数
+     */
+    @Value("${sftp.relay.buffer-count:16}")
+    private int bufferCount;
+
+    /**
+     * 单个缓冲区大小（字节）
+     */
+    @Value("${sftp.relay.buffer-size:262144}")
+    private int bufferSize;
+
+    /**
+     * 超过该大小（字节）的文件才拆分为多个分块并行传输
+     */
+    @Value("${sftp.relay.chunk-threshold:67108864}")
+    private long chunkThreshold;
+
+    /**
+     * 单个文件的默认并行分块数
+     */
+    @Value("${sftp.relay.default-parallelism:4}")
+    private int defaultParallelism;
+
+    /**
+     * 校验命令超时时间（秒）
+     */
+    @Value("${sftp.relay.checksum-timeout:600}")
+    private int checksumTimeoutSeconds;
+
+    /**
+     * 同时进行的中转任务数上限（含校验阶段），超出时拒绝新的中转
+     */
+    @Value("${sftp.relay.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${sftp.max-outstanding-requests:16}")
+    private int maxOutstandingRequests;
+
+    // 传输ID -> 传输任务
+    private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+
+    // 所有中转任务累计传输的字节数
+    private final LongAdder totalTransferred = new LongAdder();
+
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "sftp-relay-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 缓冲区池，懒加载创建，总数不超过bufferCount
+    private BlockingQueue<byte[]> bufferPool;
+    private final AtomicInteger allocatedBuffers = new AtomicInteger();
+
+    // 中转任务数许可，启动前获取、任务结束（含校验）后归还
+    private volatile Semaphore transferPermits;
+
+    /**
+     * 单个中转任务
+     */
+    private class Transfer {
+        private final String transferId = UUID.randomUUID().toString().replace("-", "");
+        private final RelayRequest request;
+        private final AtomicLong transferred = new AtomicLong();
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long totalBytes;
+        private volatile int chunks;
+        private volatile String status = STATUS_RUNNING;
+        private volatile String checksum;
+        private volatile String error;
+        private volatile long finishedAt;
+        private volatile boolean cancelled;
+        private volatile long lastPublished;
+
+        Transfer(RelayRequest request) {
+            this.request = request;
+        }
+
+        RelayStatus toStatus() {
+            RelayStatus relayStatus = new RelayStatus();
+            relayStatus.setTransferId(transferId);
+            relayStatus.setSourceServerId(request.getSourceServerId());
+            relayStatus.setSourcePath(request.getSourcePath());
+            relayStatus.setTargetServerId(request.getTargetServerId());
+            relayStatus.setTargetPath(request.getTargetPath());
+            relayStatus.setTotalBytes(totalBytes);
+            relayStatus.setTransferredBytes(transferred.get());
+            relayStatus.setStatus(status);
+            relayStatus.setChunks(chunks);
+            relayStatus.setChecksum(checksum);
+            relayStatus.setError(error);
+            relayStatus.setStartedAt(startedAt);
+            relayStatus.setFinishedAt(finishedAt);
+            return relayStatus;
+        }
+
+        void addProgress(long bytes) {
+            transferred.addAndGet(bytes);
+            totalTransferred.add(bytes);
+            long now = System.currentTimeMillis();
+            if (now - lastPublished >= PROGRESS_INTERVAL_MS) {
+                lastPublished = now;
+                publish(this);
+            }
+        }
+
+        void finish(String finalStatus, String message) {
+            status = finalStatus;
+            error = message;
+            finishedAt = System.currentTimeMillis();
+            publish(this);
+            trimFinishedTransfers();
+        }
+    }
+
+    /**
+     * 启动中转任务
+     * @param request 中转请求
+     * @return 初始状态
+     */
+    public RelayStatus startRelay(RelayRequest request) {
+        if (request.getSourceServerId() == null || request.getTargetServerId() == null
+                || isBlank(request.getSourcePath()) || isBlank(request.getTargetPath())) {
+            throw new IllegalArgumentException("源和目标的服务器及路径不能为空");
+        }
+        if (request.getSourceServerId().equals(request.getTargetServerId())
+                && request.getSourcePath().equals(request.getTargetPath())) {
+            throw new IllegalArgumentException("源文件与目标文件相同");
+        }
+
+        Semaphore permits = getTransferPermits();
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("中转任务数量已达上限: " + maxConcurrent);
+        }
+        Transfer transfer = new Transfer(request);
+        transfers.put(transfer.transferId, transfer);
+        try {
+            executor.execute(() -> {
+                try {
+                    runTransfer(transfer);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            transfers.remove(transfer.transferId);
+            throw e;
+        }
+        log.info("开始服务器间文件中转: {} {}:{} -> {}:{}", transfer.transferId,
+                request.getSourceServerId(), request.getSourcePath(), request.getTargetServerId(), request.getTargetPath());
+        return transfer.toStatus();
+    }
+
+    /**
+     * 获取中转状态
+     */
+    public RelayStatus getStatus(String transferId) {
+        Transfer transfer = transfers.get(transferId);
+        return transfer != null ? transfer.toStatus() : null;
+    }
+
+    /**
+     * 获取所有中转任务状态
+     */
+    public List<RelayStatus> listTransfers() {
+        List<RelayStatus> result = new ArrayList<>();
+        transfers.values().forEach(transfer -> result.add(transfer.toStatus()));
+        result.sort(Comparator.comparingLong(RelayStatus::getStartedAt).reversed());
+        return result;
+    }
+
+    /**
+     * 取消中转任务
+     * @return 任务是否存在且仍在进行中
+     */
+    public boolean cancel(String transferId) {
+        Transfer transfer = transfers.get(transferId);
+        if (transfer == null || transfer.finishedAt > 0) {
+            return false;
+        }
+        transfer.cancelled = true;
+        return true;
+    }
+
+    private void runTransfer(Transfer transfer) {
+        RelayRequest request = transfer.request;
+        try (SftpService.SftpHandle source = sftpService.open(request.getSourceServerId());
+             SftpService.SftpHandle target = sftpService.open(request.getTargetServerId())) {
+
+            FileAttributes attributes = source.getClient().stat(request.getSourcePath());
+            if (attributes.getType() != FileMode.Type.REGULAR) {
+                throw new IllegalArgumentException("源路径不是普通文件");
+            }
+            long size = attributes.getSize();
+            transfer.totalBytes = size;
+
+            // 先创建并截断目标文件，各分块再按偏移写入
+            target.getClient().open(request.getTargetPath(),
+                    EnumSet.of(OpenMode.WRITE, OpenMode.CREAT, OpenMode.TRUNC)).close();
+
+            int chunks = size >= chunkThreshold ? Math.max(1, Math.min(requestedParallelism(request), bufferCount)) : 1;
+            transfer.chunks = chunks;
+            publish(transfer);
+
+            long chunkSize = (size + chunks - 1) / Math.max(1, chunks);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                long offset = i * chunkSize;
+                long length = Math.min(chunkSize, size - offset);
+                if (length <= 0) {
+                    break;
+                }
+                futures.add(executor.submit(() -> {
+                    copyRange(transfer, source, target, offset, length);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // 一个分块失败时让其余分块尽快停止
+                    transfer.cancelled = true;
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } catch (Exception e) {
+            if (transfer.cancelled && isCancellation(e)) {
+                transfer.finish(STATUS_CANCELLED, null);
+            } else {
+                log.error("服务器间文件中转失败: {}", transfer.transferId, e);
+                transfer.finish(STATUS_FAILED, e.getMessage());
+            }
+            return;
+        }
+
+        if (Boolean.FALSE.equals(request.getVerify())) {
+            transfer.finish(STATUS_COMPLETED, null);
+            return;
+        }
+
+        transfer.status = STATUS_VERIFYING;
+        publish(transfer);
+        verifyChecksum(transfer);
+    }
+
+    /**
+     * 在两个远程文件之间复制指定区间，占用缓冲区池中的一个缓冲区；
+     * 预读和未确认写入的数据由SFTP客户端自行分配，其请求数按该缓冲区大小换算，使窗口不超过一个缓冲区
+     */
+    private void copyRange(Transfer transfer, SftpService.SftpHandle source, SftpService.SftpHandle target,
+                           long offset, long length) throws Exception {
+        byte[] buffer = acquireBuffer();
+        int window = windowRequests(buffer.length);
+        try (RemoteFile in = source.getClient().open(transfer.request.getSourcePath(), EnumSet.of(OpenMode.READ));
+             RemoteFile out = target.getClient().open(transfer.request.getTargetPath(), EnumSet.of(OpenMode.WRITE))) {
+            InputStream input = in.new ReadAheadRemoteFileInputStream(window, offset, length);
+            try (OutputStream output = out.new RemoteFileOutputStream(offset, window)) {
+                long remaining = length;
+                while (remaining > 0) {
+                    if (transfer.cancelled) {
+                        throw new CancellationException("传输已取消");
+                    }
+                    int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        throw new IOException("源文件在传输过程中被截断");
+                    }
+                    output.write(buffer, 0, read);
+                    remaining -= read;
+                    transfer.addProgress(read);
+                }
+            }
+        } finally {
+            bufferPool.offer(buffer);
+        }
+    }
+
+    /**
+     * 在源和目标服务器上分别计算SHA-256并比较
+     */
+    private void verifyChecksum(Transfer transfer) {
+        RelayRequest request = transfer.request;
+        try {
+            Server sourceServer = serverService.getServerWithAuthInfo(request.getSourceServerId());
+            Server targetServer = serverService.getServerWithAuthInfo(request.getTargetServerId());
+            long timeoutMillis = TimeUnit.SECONDS.toMillis(checksumTimeoutSeconds);
+
+            // 两端同时计算
+            Future<ExecResult> sourceFuture = executor.submit(() ->
+                    sshExecService.exec(sourceServer, "sha256sum -- " + shellQuote(request.getSourcePath()), timeoutMillis));
+            ExecResult targetResult = sshExecService.exec(targetServer,
+                    "sha256sum -- " + shellQuote(request.getTargetPath()), timeoutMillis);
+            ExecResult sourceResult = sourceFuture.get();
+
+            String sourceHash = parseChecksum(sourceResult);
+            String targetHash = parseChecksum(targetResult);
+            if (sourceHash == null || targetHash == null) {
+                transfer.finish(STATUS_FAILED, "无法计算校验值: " + firstNonBlank(sourceResult.getError(),
+                        sourceResult.getStderr(), targetResult.getError(), targetResult.getStderr()));
+            } else if (!sourceHash.equals(targetHash)) {
+                transfer.finish(STATUS_FAILED, "校验值不一致: " + sourceHash + " != " + targetHash);
+            } else {
+                transfer.checksum = sourceHash;
+                transfer.finish(STATUS_COMPLETED, null);
+                log.info("服务器间文件中转完成: {}, sha256={}", transfer.transferId, sourceHash);
+            }
+        } catch (Exception e) {
+            log.error("文件中转校验失败: {}", transfer.transferId, e);
+            transfer.finish(STATUS_FAILED, "校验失败: " + e.getMessage());
+        }
+    }
+
+    private String parseChecksum(ExecResult result) {
+        if (result.getExitCode() == null || result.getExitCode() != 0 || result.getStdout() == null) {
+            return null;
+        }
+        String output = result.getStdout().trim();
+        int space = output.indexOf(' ');
+        String hash = space > 0 ? output.substring(0, space) : output;
+        return hash.length() == 64 ? hash.toLowerCase() : null;
+    }
+
+    /**
+     * 预读/未确认写入的请求数：不超过配置的上限，且合计数据量不超过一个缓冲区
+     */
+    int windowRequests(int bufferLength) {
+        return Math.max(1, Math.min(maxOutstandingRequests, bufferLength / SFTP_REQUEST_SIZE));
+    }
+
+    private Semaphore getTransferPermits() {
+        Semaphore permits = transferPermits;
+        if (permits == null) {
+            synchronized (this) {
+                if (transferPermits == null) {
+                    transferPermits = new Semaphore(Math.max(0, maxConcurrent));
+                }
+                permits = transferPermits;
+            }
+        }
+        return permits;
+    }
+
+    private byte[] acquireBuffer() throws InterruptedException {
+        synchronized (this) {
+            if (bufferPool == null) {
+                bufferPool = new ArrayBlockingQueue<>(Math.max(1, bufferCount));
+            }
+        }
+        byte[] buffer = bufferPool.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocatedBuffers.incrementAndGet() <= bufferCount) {
+            return new byte[bufferSize];
+        }
+        allocatedBuffers.decrementAndGet();
+        // 缓冲区已全部占用，等待其他分块归还
+        return bufferPool.take();
+    }
+
+    private void publish(Transfer transfer) {
+        eventWebSocketHandler.publish(RELAY_TOPIC, transfer.toStatus());
+    }
+
+    private void trimFinishedTransfers() {
+        List<Transfer> finished = new ArrayList<>();
+        transfers.values().forEach(transfer -> {
+            if (transfer.finishedAt > 0) {
+                finished.add(transfer);
+            }
+        });
+        if (finished.size() <= MAX_FINISHED_TRANSFERS) {
+            return;
+        }
+        finished.sort(Comparator.comparingLong(transfer -> transfer.finishedAt));
+        for (int i = 0; i < finished.size() - MAX_FINISHED_TRANSFERS; i++) {
+            transfers.remove(finished.get(i).transferId);
+        }
+    }
+
+    private int requestedParallelism(RelayRequest request) {
+        return request.getParallelism() != null && request.getParallelism() > 0
+                ? request.getParallelism() : defaultParallelism;
+    }
+
+    private boolean isCancellation(Throwable e) {
+        while (e != null) {
+            if (e instanceof CancellationException) {
+                return true;
+            }
+            e = e.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * 单引号转义，防止路径中的特殊字符被shell解释
+     */
+    private static String shellQuote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String firstNonBlank(String... values) {
+        for (String value : values) {
+            if (!isBlank(value)) {
+                return value.trim();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * 获取正在进行的中转任务数
+     */
+    public int getActiveTransferCount() {
+        int count = 0;
+        for (Transfer transfer : transfers.values()) {
+            if (transfer.finishedAt == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 获取累计中转的字节数
+     */
+    public long getTotalTransferredBytes() {
+        return totalTransferred.sum();
+    }
+
+    /**
+     * 应用关闭时停止所有中转
+     */
+    @PreDestroy
+    public void shutdown() {
+        transfers.values().forEach(transfer -> transfer.cancelled = true);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,273 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.SftpFileInfo;
+import com.clover.cpanel.entity.Server;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.sftp.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * SFTP文件服务
+ * 基于连接池中的已认证连接开启SFTP子系统；下载与上传均直接在远程文件与HTTP流之间传输，
+ * 不落地临时文件，并通过多个未确认的读写请求流水线化，降低高延迟链路上的往返等待
+ */
+@Slf4j
+@Service
+public class SftpService {
+
+    @Autowired
+    private ServerService serverService;
+
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    /**
+     * 同时未确认的SFTP读/写请求数
+     */
+    @Value("${sftp.max-outstanding-requests:16}")
+    private int maxOutstandingRequests;
+
+    /**
+     * 目录列表单页最大条数
+     */
+    @Value("${sftp.list.max-page-size:500}")
+    private int maxPageSize;
+
+    /**
+     * 传输缓冲区大小（字节）
+     */
+    @Value("${sftp.buffer-size:32768}")
+    private int bufferSize;
+
+    /**
+     * SFTP会话，关闭时释放SFTP通道与连接租约
+     */
+    public static class SftpHandle implements Closeable {
+        private final SshConnectionPool.Lease lease;
+        private final SFTPClient sftp;
+
+        SftpHandle(SshConnectionPool.Lease lease, SFTPClient sftp) {
+            this.lease = lease;
+            this.sftp = sftp;
+        }
+
+        public SFTPClient getClient() {
+            return sftp;
+        }
+
+        @Override
+        public void close() {
+            try {
+                sftp.close();
+            } catch (IOException e) {
+                log.debug("关闭SFTP客户端失败", e);
+            }
+            lease.close();
+        }
+    }
+
+    /**
+     * 下载句柄，持有已打开的远程文件
+     */
+    public class SftpDownload implements Closeable {
+        private final SftpHandle handle;
+        private final RemoteFile file;
+        private final long size;
+
+        private SftpDownload(SftpHandle handle, RemoteFile file, long size) {
+            this.handle = handle;
+            this.file = file;
+            this.size = size;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * 将远程文件的指定区间写入输出流
+         * @param out 输出流
+         * @param offset 起始偏移
+         * @param length 长度
+         */
+        public void transferTo(OutputStream out, long offset, long length) throws IOException {
+            InputStream in = file.new ReadAheadRemoteFileInputStream(maxOutstandingRequests, offset, length);
+            byte[] buffer = new byte[bufferSize];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            try {
+                file.close();
+            } catch (IOException e) {
+                log.debug("关闭远程文件失败", e);
+            }
+            handle.close();
+        }
+    }
+
+    /**
+     * 打开指定服务器的SFTP会话
+     * @param serverId 服务器ID
+     * @return SFTP会话，使用完毕后必须关闭
+     */
+    public SftpHandle open(Integer serverId) throws Exception {
+        Server server = serverService.getServerWithAuthInfo(serverId);
+        if (server == null) {
+            throw new IllegalArgumentException("服务器配置不存在");
+        }
+
+        int port = server.getPort() != null ? server.getPort() : 22;
+        SshConnectionPool.Lease lease = connectionPool.acquire(server.getHost(), port, server.getUsername(),
+                server.getAuthType(), server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+        try {
+            return new SftpHandle(lease, lease.getClient().newSFTPClient());
+        } catch (Exception e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 分页列出目录内容，目录在前，按名称排序
+     * @param serverId 服务器ID
+     * @param path 目录路径
+     * @param offset 起始位置
+     * @param limit 条数
+     * @return 包含 path、total、items 的结果
+     */
+    public Map<String, Object> listDirectory(Integer serverId, String path, int offset, int limit) throws Exception {
+        int pageSize = limit > 0 ? Math.min(limit, maxPageSize) : maxPageSize;
+        int start = Math.max(0, offset);
+
+        try (SftpHandle handle = open(serverId)) {
+            SFTPClient sftp = handle.getClient();
+            String directory = sftp.canonicalize(path == null || path.isEmpty() ? "." : path);
+
+            List<RemoteResourceInfo> entries = sftp.ls(directory);
+            entries.sort(Comparator.comparing((RemoteResourceInfo info) -> !info.isDirectory())
+                    .thenComparing(RemoteResourceInfo::getName));
+
+            List<SftpFileInfo> items = new ArrayList<>();
+            for (int i = start; i < entries.size() && items.size() < pageSize; i++) {
+                items.add(toFileInfo(entries.get(i).getPath(), entries.get(i).getName(), entries.get(i).getAttributes()));
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("path", directory);
+            result.put("total", entries.size());
+            result.put("offset", start);
+            result.put("items", items);
+            return result;
+        }
+    }
+
+    /**
+     * 获取文件信息
+     * @param serverId 服务器ID
+     * @param path 文件路径
+     * @return 文件信息，不存在时返回null
+     */
+    public SftpFileInfo stat(Integer serverId, String path) throws Exception {
+        try (SftpHandle handle = open(serverId)) {
+            FileAttributes attributes = handle.getClient().statExistence(path);
+            return attributes != null ? toFileInfo(path, fileName(path), attributes) : null;
+        }
+    }
+
+    /**
+     * 打开远程文件用于下载
+     * @param serverId 服务器ID
+     * @param path 文件路径
+     * @return 下载句柄，使用完毕后必须关闭
+     */
+    public SftpDownload openDownload(Integer serverId, String path) throws Exception {
+        SftpHandle handle = open(serverId);
+        try {
+            FileAttributes attributes = handle.getClient().stat(path);
+            if (attributes.getType() == FileMode.Type.DIRECTORY) {
+                throw new IllegalArgumentException("不能下载目录");
+            }
+            RemoteFile file = handle.getClient().open(path, EnumSet.of(OpenMode.READ));
+            return new SftpDownload(handle, file, attributes.getSize());
+        } catch (Exception e) {
+            handle.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 上传文件分块
+     * 偏移为0时创建或截断文件；其余分块的偏移必须等于远程文件当前大小，以便中断后从断点续传
+     * @param serverId 服务器ID
+     * @param path 远程文件路径
+     * @param offset 分块在文件中的偏移
+     * @param in 分块内容
+     * @return 写入后的文件大小
+     */
+    public long uploadChunk(Integer serverId, String path, long offset, InputStream in) throws Exception {
+        try (SftpHandle handle = open(serverId)) {
+            SFTPClient sftp = handle.getClient();
+
+            Set<OpenMode> modes;
+            if (offset == 0) {
+                modes = EnumSet.of(OpenMode.WRITE, OpenMode.CREAT, OpenMode.TRUNC);
+            } else {
+                FileAttributes attributes = sftp.statExistence(path);
+                long currentSize = attributes != null ? attributes.getSize() : 0;
+                if (currentSize != offset) {
+                    throw new IllegalStateException("上传偏移不匹配，远程文件当前大小: " + currentSize);
+                }
+                modes = EnumSet.of(OpenMode.WRITE);
+            }
+
+            long written = 0;
+            try (RemoteFile file = sftp.open(path, modes);
+                 OutputStream out = file.new RemoteFileOutputStream(offset, maxOutstandingRequests)) {
+                byte[] buffer = new byte[bufferSize];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    written += read;
+                }
+            }
+            log.debug("SFTP上传分块完成: {} offset={} length={}", path, offset, written);
+            return offset + written;
+        }
+    }
+
+    private SftpFileInfo toFileInfo(String path, String name, FileAttributes attributes) {
+        SftpFileInfo info = new SftpFileInfo();
+        info.setName(name);
+        info.setPath(path);
+        info.setDirectory(attributes.getType() == FileMode.Type.DIRECTORY);
+        info.setSymlink(attributes.getType() == FileMode.Type.SYMLINK);
+        info.setSize(attributes.getSize());
+        info.setPermissions(String.format("%04o", attributes.getMode().getPermissionsMask()));
+        info.setModifiedTime(attributes.getMtime());
+        return info;
+    }
+
+    private String fileName(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(slash + 1) : path;
+    }
+}
@@ -0,0 +1,384 @@
+package com.clover.cpanel.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
+import net.schmizz.sshj.userauth.keyprovider.KeyProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSH连接池
+ * 按 主机+端口+用户名+凭据指纹 复用已认证的SSHClient，
+ * 同一服务器的多个终端在同一条传输上开启独立的会话通道，引用计数归零时断开底层连接
+ */
+@Slf4j
+@Service
+public class SshConnectionPool {
+
+    @Autowired
+    private SshCredentialCache credentialCache;
+
+    /**
+     * 应用关闭时等待未归还租约的最长时间（毫秒），超时后强制断开；0表示不等待
+     */
+    @Value("${ssh.pool.shutdown-timeout-millis:5000}")
+    private long shutdownTimeoutMillis;
+
+    // 连接键 -> 池化连接
+    private final Map<String, PooledConnection> pool = new ConcurrentHashMap<>();
+
+    // 条目退役时通知shutdown
+    private final Object drainLock = new Object();
+
+    private volatile boolean closed;
+
+    // 统计：新建连接数 / 复用连接数
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong reusedCount = new AtomicLong();
+
+    /**
+     * 池化的SSH连接
+     */
+    private static class PooledConnection {
+        private final String key;
+        private SSHClient client;
+        // 持有当前client的租约，旧client被替换时这些租约随之失效
+        private final Set<Lease> leases = new HashSet<>();
+        // 正在建立的连接，其他请求在锁外等待其完成
+        private CompletableFuture<Void> connecting;
+        private boolean retired;
+
+        PooledConnection(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 连接租约，使用完毕后必须关闭以归还引用计数
+     */
+    public class Lease implements Closeable {
+        private final PooledConnection entry;
+        private final SSHClient client;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile boolean invalidated;
+
+        private Lease(PooledConnection entry, SSHClient client) {
+            this.entry = entry;
+            this.client = client;
+        }
+
+        public SSHClient getClient() { return client; }
+
+        public String getKey() { return entry.key; }
+
+        /**
+         * 租约是否仍可使用：未归还、底层连接未被替换且仍已认证
+         */
+        public boolean isValid() {
+            return !released.get() && !invalidated && client.isConnected() && client.isAuthenticated();
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(entry, this);
+            }
+        }
+    }
+
+    /**
+     * 获取一个已认证的SSH连接租约，存在可用连接时直接复用
+     */
+    public Lease acquire(String host, int port, String username, String authType,
+                         String password, String privateKey, String privateKeyPassword) throws Exception {
+        String key = buildKey(host, port, username, authType, password, privateKey, privateKeyPassword);
+
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("SSH连接池已关闭");
+            }
+            PooledConnection entry = pool.computeIfAbsent(key, PooledConnection::new);
+            CompletableFuture<Void> pending;
+            SSHClient stale = null;
+            synchronized (entry) {
+                if (entry.retired) {
+                    // 该条目已被并发释放，重新获取
+                    continue;
+                }
+
+                if (entry.connecting == null) {
+                    if (entry.client != null && entry.client.isConnected() && entry.client.isAuthenticated()) {
+                        Lease lease = new Lease(entry, entry.client);
+                        entry.leases.add(lease);
+                        reusedCount.incrementAndGet();
+                        log.info("复用SSH连接: {}@{}:{}, 当前引用数: {}", username, host, port, entry.leases.size());
+                        return lease;
+                    }
+
+                    // 连接不存在或已失效：旧租约一并失效，由当前请求在锁外重新建立
+                    entry.leases.forEach(lease -> lease.invalidated = true);
+                    entry.leases.clear();
+                    stale = entry.client;
+                    entry.client = null;
+                    entry.connecting = new CompletableFuture<>();
+                    pending = null;
+                } else {
+                    pending = entry.connecting;
+                }
+            }
+
+            if (pending != null) {
+                // 同一服务器的并发请求等待正在建立的连接，成功后重新尝试复用
+                awaitConnecting(pending);
+                continue;
+            }
+            return connectEntry(entry, stale, host, port, username, authType, password, privateKey, privateKeyPassword);
+        }
+    }
+
+    /**
+     * 在条目锁外建立连接，完成后放入条目并通知等待的请求
+     */
+    private Lease connectEntry(PooledConnection entry, SSHClient stale, String host, int port, String username,
+                               String authType, String password, String privateKey,
+                               String privateKeyPassword) throws Exception {
+        disconnectQuietly(stale);
+        SSHClient client;
+        try {
+            client = connect(host, port, username, authType, password, privateKey, privateKeyPassword);
+        } catch (Exception e) {
+            CompletableFuture<Void> pending;
+            synchronized (entry) {
+                pending = entry.connecting;
+                entry.connecting = null;
+                retireIfUnused(entry);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+
+        CompletableFuture<Void> pending;
+        Lease lease = null;
+        synchronized (entry) {
+            pending = entry.connecting;
+            entry.connecting = null;
+            if (!entry.retired) {
+                entry.client = client;
+                lease = new Lease(entry, client);
+                entry.leases.add(lease);
+                createdCount.incrementAndGet();
+            }
+        }
+        pending.complete(null);
+        if (lease == null) {
+            // 建立连接期间连接池已关闭
+            disconnectQuietly(client);
+            throw new IllegalStateException("SSH连接池已关闭");
+        }
+        return lease;
+    }
+
+    private static void awaitConnecting(CompletableFuture<Void> pending) throws Exception {
+        try {
+            pending.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 归还连接，引用计数归零时断开底层传输
+     */
+    private void release(PooledConnection entry, Lease lease) {
+        SSHClient toClose;
+        synchronized (entry) {
+            // 已失效的租约不再计入当前连接
+            if (!entry.leases.remove(lease)) {
+                return;
+            }
+            toClose = retireIfUnused(entry);
+        }
+        if (toClose != null) {
+            disconnectQuietly(toClose);
+            log.info("SSH连接引用计数归零，已断开底层连接");
+        }
+    }
+
+    /**
+     * 没有租约且不在建立连接时退役条目，返回需要断开的连接；调用方持有条目锁
+     */
+    private SSHClient retireIfUnused(PooledConnection entry) {
+        if (!entry.leases.isEmpty() || entry.connecting != null || entry.retired) {
+            return null;
+        }
+        entry.retired = true;
+        pool.remove(entry.key, entry);
+        SSHClient client = entry.client;
+        entry.client = null;
+        synchronized (drainLock) {
+            drainLock.notifyAll();
+        }
+        return client;
+    }
+
+    /**
+     * 建立并认证新的SSH连接
+     */
+    SSHClient connect(String host, int port, String username, String authType,
+                      String password, String privateKey, String privateKeyPassword) throws Exception {
+        log.info("建立新的SSH传输: {}@{}:{}", username, host, port);
+        SSHClient sshClient = new SSHClient();
+        try {
+            // 跳过主机密钥检查（生产环境中应该验证）
+            sshClient.addHostKeyVerifier(new PromiscuousVerifier());
+
+            // 设置连接超时
+            sshClient.setConnectTimeout(30000); // 30秒
+
+            // 连接到服务器
+            sshClient.connect(host, port);
+            log.info("SSH客户端连接成功");
+
+            authenticate(sshClient, username, authType, password, privateKey, privateKeyPassword);
+            return sshClient;
+        } catch (Exception e) {
+            disconnectQuietly(sshClient);
+            throw e;
+        }
+    }
+
+    /**
+     * 根据认证类型进行认证
+     */
+    private void authenticate(SSHClient sshClient, String username, String authType,
+                              String password, String privateKey, String privateKeyPassword) throws Exception {
+        if ("password".equals(authType) && password != null && !password.trim().isEmpty()) {
+            sshClient.authPassword(username, password);
+            log.info("密码认证成功");
+        } else if ("publickey".equals(authType) && privateKey != null && !privateKey.trim().isEmpty()) {
+            try {
+                // 解析后的私钥由凭据缓存复用，重连时跳过口令KDF
+                KeyProvider keyProvider = credentialCache.getKeyProvider(sshClient, privateKey, privateKeyPassword);
+                sshClient.authPublickey(username, keyProvider);
+                log.info("公钥认证成功");
+            } catch (Exception e) {
+                log.error("公钥认证失败", e);
+                throw new RuntimeException("私钥格式错误或密码不正确: " + e.getMessage());
+            }
+        } else {
+            throw new RuntimeException("不支持的认证类型或认证信息不完整");
+        }
+    }
+
+    /**
+     * 构建连接键：主机、端口、用户名与凭据指纹，凭据本身不会出现在键中
+     */
+    String buildKey(String host, int port, String username, String authType,
+                    String password, String privateKey, String privateKeyPassword) {
+        return username + "@" + host + ":" + port + "#"
+                + credentialFingerprint(authType, password, privateKey, privateKeyPassword);
+    }
+
+    /**
+     * 计算凭据指纹（SHA-256）
+     */
+    public static String credentialFingerprint(String authType, String password, String privateKey, String privateKeyPassword) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{authType, password, privateKey, privateKeyPassword}) {
+                if (part != null) {
+                    digest.update(part.getBytes(StandardCharsets.UTF_8));
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (Exception e) {
+            throw new IllegalStateException("计算凭据指纹失败", e);
+        }
+    }
+
+    private void disconnectQuietly(SSHClient client) {
+        if (client != null && client.isConnected()) {
+            try {
+                client.disconnect();
+            } catch (Exception e) {
+                log.warn("断开SSH客户端失败", e);
+            }
+        }
+    }
+
+    /**
+     * 获取池中底层连接数量
+     */
+    public int getPooledConnectionCount() {
+        return pool.size();
+    }
+
+    /**
+     * 获取新建连接总数
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * 获取复用连接总数
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * 应用关闭时拒绝新的租约，在限定时间内等待已有租约归还，随后断开所有池化连接
+     */
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        synchronized (drainLock) {
+            long remaining;
+            while (!pool.isEmpty() && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    drainLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (!pool.isEmpty()) {
+            log.info("SSH连接池关闭时仍有{}个连接未归还，强制断开", pool.size());
+        }
+        pool.values().forEach(entry -> {
+            SSHClient client;
+            synchronized (entry) {
+                entry.retired = true;
+                entry.leases.forEach(lease -> lease.invalidated = true);
+                entry.leases.clear();
+                client = entry.client;
+                entry.client = null;
+            }
+            disconnectQuietly(client);
+        });
+        pool.clear();
+    }
+}
@@ -0,0 +1,168 @@
+package com.clover.cpanel.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.userauth.keyprovider.KeyProvider;
+import net.schmizz.sshj.userauth.password.PasswordFinder;
+import net.schmizz.sshj.userauth.password.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSH私钥缓存
+ * 短时间缓存解析好的私钥（KeyProvider），重连时跳过PEM解析和私钥口令KDF；
+ * 解析后的私钥对象无法可靠清零（JCA私钥不支持destroy），过期或失效时只移除引用、由GC回收，
+ * 因此缓存时间不宜过长，设为0可完全关闭
+ */
+@Slf4j
+@Service
+public class SshCredentialCache {
+
+    /**
+     * 缓存有效期（秒），0表示不缓存
+     */
+    @Value("${ssh.credential-cache.ttl-seconds:600}")
+    private int ttlSeconds;
+
+    // 私钥指纹 -> 解析后的KeyProvider
+    private final Map<String, CachedKeyProvider> keyProviders = new ConcurrentHashMap<>();
+
+    // 统计：命中 / 未命中
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ssh-credential-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SshCredentialCache() {
+        sweeper.scheduleWithFixedDelay(this::evictExpired, 60, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 缓存的KeyProvider
+     */
+    private static class CachedKeyProvider {
+        private final KeyProvider keyProvider;
+        private final long expiresAt;
+
+        CachedKeyProvider(KeyProvider keyProvider, long expiresAt) {
+            this.keyProvider = keyProvider;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 获取解析后的私钥，命中缓存时跳过PEM解析与口令KDF
+     * @param sshClient 用于选择私钥格式解析器的客户端
+     * @param privateKey 私钥内容
+     * @param privateKeyPassword 私钥口令，可为空
+     * @return KeyProvider
+     */
+    public KeyProvider getKeyProvider(SSHClient sshClient, String privateKey, String privateKeyPassword) throws Exception {
+        String fingerprint = keyFingerprint(privateKey, privateKeyPassword);
+        long now = System.currentTimeMillis();
+        if (ttlSeconds > 0) {
+            CachedKeyProvider cached = keyProviders.get(fingerprint);
+            if (cached != null && cached.expiresAt > now) {
+                hitCount.incrementAndGet();
+                return cached.keyProvider;
+            }
+        }
+
+        missCount.incrementAndGet();
+        KeyProvider keyProvider;
+        if (privateKeyPassword != null && !privateKeyPassword.trim().isEmpty()) {
+            // 使用密码保护的私钥
+            PasswordFinder passwordFinder = new PasswordFinder() {
+                @Override
+                public char[] reqPassword(Resource<?> resource) {
+                    return privateKeyPassword.toCharArray();
+                }
+
+                @Override
+                public boolean shouldRetry(Resource<?> resource) {
+                    return false;
+                }
+            };
+            keyProvider = sshClient.loadKeys(privateKey, null, passwordFinder);
+        } else {
+            // 无密码保护的私钥
+            keyProvider = sshClient.loadKeys(privateKey, null, null);
+        }
+
+        // 立即解析私钥（KDF在此执行），解析后的密钥对由KeyProvider自身持有
+        keyProvider.getPrivate();
+
+        if (ttlSeconds > 0) {
+            keyProviders.put(fingerprint, new CachedKeyProvider(keyProvider, expiresAt()));
+        }
+        return keyProvider;
+    }
+
+    /**
+     * 服务器修改或删除时调用
+     * 缓存按私钥内容索引，无法定位到某台服务器，直接清空全部私钥（下次连接各重新解析一次）
+     * @param serverId 服务器ID
+     */
+    public void invalidate(Integer serverId) {
+        if (serverId == null) {
+            return;
+        }
+        keyProviders.clear();
+        log.debug("服务器凭据变化，已清空私钥缓存: {}", serverId);
+    }
+
+    /**
+     * 清空所有缓存
+     */
+    public void invalidateAll() {
+        keyProviders.clear();
+    }
+
+    /**
+     * 获取缓存命中次数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 获取缓存未命中次数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        keyProviders.entrySet().removeIf(entry -> entry.getValue().expiresAt <= now);
+    }
+
+    private String keyFingerprint(String privateKey, String privateKeyPassword) {
+        return SshConnectionPool.credentialFingerprint("publickey", null, privateKey, privateKeyPassword);
+    }
+
+    private long expiresAt() {
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * 应用关闭时清空缓存
+     */
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        invalidateAll();
+    }
+}
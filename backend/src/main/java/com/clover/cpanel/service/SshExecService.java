@@ -0,0 +1,302 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.ExecResult;
+import com.clover.cpanel.entity.Server;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.connection.channel.direct.Session;
+import net.schmizz.sshj.connection.channel.direct.Signal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * SSH命令执行服务
+ * 通过exec通道执行非交互式命令，复用连接池中的已认证连接，支持按批量服务器并发执行
+ */
+@Slf4j
+@Service
+public class SshExecService {
+
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    /**
+     * 单台服务器默认超时时间（秒）
+     */
+    @Value("${ssh.exec.default-timeout:60}")
+    private int defaultTimeoutSeconds;
+
+    /**
+     * 批量执行的最大并发数
+     */
+    @Value("${ssh.exec.max-parallelism:10}")
+    private int maxParallelism;
+
+    /**
+     * 每路输出（stdout/stderr）保留的最大字节数，超出部分丢弃
+     */
+    @Value("${ssh.exec.max-output-bytes:65536}")
+    private int maxOutputBytes;
+
+    private final ExecutorService workerExecutor = Executors.newCachedThreadPool(namedDaemonFactory("ssh-exec-worker-"));
+
+    // 读取stdout/stderr及执行获取连接等阻塞阶段的线程，两路输出必须同时读取，否则远端缓冲区写满会导致命令阻塞
+    private final ExecutorService streamExecutor = Executors.newCachedThreadPool(namedDaemonFactory("ssh-exec-io-"));
+
+    /**
+     * 批量执行命令，每台服务器执行完毕后立即回调
+     * @param servers 目标服务器（已解密）
+     * @param command 命令
+     * @param timeoutSeconds 单台服务器超时时间（秒），为空时使用默认值
+     * @param parallelism 并发数，为空时使用配置上限
+     * @param onResult 单台服务器结果回调（可能在多个线程中调用）
+     * @return 全部执行完毕时完成的Future；取消它会中断正在执行的命令，剩余服务器不再执行，也不再回调
+     */
+    public CompletableFuture<Void> batchExec(List<Server> servers, String command, Integer timeoutSeconds,
+                                             Integer parallelism, Consumer<ExecResult> onResult) {
+        long timeoutMillis = timeoutMillis(timeoutSeconds);
+        int workers = workers(servers.size(), parallelism);
+
+        log.info("批量执行命令: 服务器数量={}, 并发数={}", servers.size(), workers);
+
+        CompletableFuture<Void> batch = new CompletableFuture<>();
+        if (workers == 0) {
+            batch.complete(null);
+            return batch;
+        }
+
+        // 固定数量的工作任务从队列中领取服务器，限制同时打开的exec通道数量
+        Queue<Server> pending = new ConcurrentLinkedQueue<>(servers);
+        AtomicInteger running = new AtomicInteger(workers);
+        List<Future<?>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            tasks.add(workerExecutor.submit(() -> {
+                try {
+                    Server server;
+                    while (!batch.isDone() && (server = pending.poll()) != null) {
+                        ExecResult result = exec(server, command, timeoutMillis);
+                        if (batch.isDone()) {
+                            break;
+                        }
+                        try {
+                            onResult.accept(result);
+                        } catch (Exception e) {
+                            log.warn("处理命令执行结果失败: {}", server.getServerName(), e);
+                        }
+                    }
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        batch.complete(null);
+                    }
+                }
+            }));
+        }
+        batch.whenComplete((v, e) -> {
+            if (batch.isCancelled()) {
+                log.info("批量执行已取消，中断未完成的命令");
+                tasks.forEach(task -> task.cancel(true));
+            }
+        });
+        return batch;
+    }
+
+    /**
+     * 估算批量执行的最长耗时：按并发数分轮执行，每台服务器不超过单机超时
+     * @param serverCount 服务器数量
+     * @param timeoutSeconds 单台服务器超时时间（秒），为空时使用默认值
+     * @param parallelism 并发数，为空时使用配置上限
+     * @return 最长耗时（毫秒）
+     */
+    public long estimateBatchMillis(int serverCount, Integer timeoutSeconds, Integer parallelism) {
+        int workers = Math.max(1, workers(serverCount, parallelism));
+        long rounds = (serverCount + workers - 1) / workers;
+        return Math.max(1, rounds) * timeoutMillis(timeoutSeconds);
+    }
+
+    private long timeoutMillis(Integer timeoutSeconds) {
+        return TimeUnit.SECONDS.toMillis(timeoutSeconds != null && timeoutSeconds > 0 ? timeoutSeconds : defaultTimeoutSeconds);
+    }
+
+    private int workers(int serverCount, Integer parallelism) {
+        return Math.min(serverCount,
+                parallelism != null && parallelism > 0 ? Math.min(parallelism, maxParallelism) : maxParallelism);
+    }
+
+    /**
+     * 在单台服务器上执行命令
+     * @param server 服务器（已解密）
+     * @param command 命令
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 执行结果
+     */
+    public ExecResult exec(Server server, String command, long timeoutMillis) {
+        ExecResult result = new ExecResult();
+        result.setServerId(server.getId());
+        result.setServerName(server.getServerName());
+        result.setHost(server.getHost());
+
+        // 超时从获取连接前开始计算，获取连接、打开会话、启动命令、等待输出各阶段共用剩余时间
+        long start = System.currentTimeMillis();
+        long deadline = start + timeoutMillis;
+        int port = server.getPort() != null ? server.getPort() : 22;
+
+        try (SshConnectionPool.Lease lease = withinDeadline(() -> connectionPool.acquire(server.getHost(), port,
+                server.getUsername(), server.getAuthType(), server.getPassword(), server.getPrivateKey(),
+                server.getPrivateKeyPassword()), deadline, "获取SSH连接超时");
+             Session session = withinDeadline(lease.getClient()::startSession, deadline, "打开SSH会话超时")) {
+
+            Session.Command cmd = withinDeadline(() -> session.exec(command), deadline, "启动命令超时");
+            Future<CappedOutput> stdout = streamExecutor.submit(() -> readCapped(cmd.getInputStream()));
+            Future<CappedOutput> stderr = streamExecutor.submit(() -> readCapped(cmd.getErrorStream()));
+
+            try {
+                // stdout到达EOF即说明命令已结束
+                CappedOutput out = stdout.get(remaining(deadline), TimeUnit.MILLISECONDS);
+                CappedOutput err = stderr.get(remaining(deadline), TimeUnit.MILLISECONDS);
+                cmd.join(remaining(deadline), TimeUnit.MILLISECONDS);
+
+                result.setStdout(out.text());
+                result.setStderr(err.text());
+                result.setTruncated(out.truncated || err.truncated);
+                result.setExitCode(cmd.getExitStatus());
+            } catch (TimeoutException e) {
+                result.setTimedOut(true);
+                result.setError("命令执行超时");
+                killQuietly(cmd);
+                stdout.cancel(true);
+                stderr.cancel(true);
+            } catch (InterruptedException e) {
+                result.setError("已取消");
+                killQuietly(cmd);
+                stdout.cancel(true);
+                stderr.cancel(true);
+            } finally {
+                cmd.close();
+            }
+        } catch (TimeoutException e) {
+            log.warn("执行命令超时: {}@{}, {}", server.getUsername(), server.getHost(), e.getMessage());
+            result.setTimedOut(true);
+            result.setError(e.getMessage());
+        } catch (InterruptedException e) {
+            log.debug("命令执行已取消: {}@{}", server.getUsername(), server.getHost());
+            result.setError("已取消");
+        } catch (Exception e) {
+            log.warn("执行命令失败: {}@{}", server.getUsername(), server.getHost(), e);
+            result.setError(e.getMessage());
+        }
+
+        result.setDurationMs(System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * 读取的输出及是否截断
+     */
+    private static class CappedOutput {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private boolean truncated;
+
+        String text() {
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 读取输出流直到EOF，超出上限的部分读取后丢弃，保证远端不会因缓冲区写满而阻塞
+     */
+    private CappedOutput readCapped(InputStream in) throws IOException {
+        CappedOutput output = new CappedOutput();
+        byte[] chunk = new byte[8192];
+        int len;
+        while ((len = in.read(chunk)) != -1) {
+            int room = maxOutputBytes - output.buffer.size();
+            if (room > 0) {
+                output.buffer.write(chunk, 0, Math.min(room, len));
+            }
+            if (len > room) {
+                output.truncated = true;
+            }
+        }
+        return output;
+    }
+
+    /**
+     * 在截止时间前完成一个可能阻塞的阶段（获取连接、打开会话等）
+     * 超时或被中断（批量执行取消）后不再等待，该阶段稍后完成时得到的资源会被立即关闭，避免泄漏连接租约或通道
+     * @param stage 阶段
+     * @param deadline 截止时间（毫秒时间戳）
+     * @param timeoutMessage 超时时的错误信息
+     */
+    private <T extends AutoCloseable> T withinDeadline(Callable<T> stage, long deadline, String timeoutMessage)
+            throws Exception {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        streamExecutor.execute(() -> {
+            try {
+                future.complete(stage.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        try {
+            return future.get(remaining(deadline), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            future.thenAccept(this::closeQuietly);
+            throw e instanceof TimeoutException ? new TimeoutException(timeoutMessage) : e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void closeQuietly(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            log.debug("关闭超时后才获取到的资源失败", e);
+        }
+    }
+
+    private long remaining(long deadline) {
+        return Math.max(1, deadline - System.currentTimeMillis());
+    }
+
+    private void killQuietly(Session.Command cmd) {
+        try {
+            cmd.signal(Signal.KILL);
+        } catch (Exception e) {
+            log.debug("发送KILL信号失败", e);
+        }
+    }
+
+    private static ThreadFactory namedDaemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 应用关闭时停止执行线程
+     */
+    @PreDestroy
+    public void shutdown() {
+        workerExecutor.shutdownNow();
+        streamExecutor.shutdownNow();
+    }
+}
@@ -3,17 +3,21 @@ package com.clover.cpanel.service;
 import net.schmizz.sshj.SSHClient;
 import net.schmizz.sshj.connection.channel.direct.Session;
 import net.schmizz.sshj.connection.channel.direct.Session.Shell;
-import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
-import net.schmizz.sshj.userauth.keyprovider.KeyProvider;
-import net.schmizz.sshj.userauth.password.PasswordFinder;
-import net.schmizz.sshj.userauth.password.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * SSH连接服务
@@ -22,14 +26,51 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class SshService {
 
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    @Autowired
+    private SshStandbyService standbyService;
+
     // 存储活跃的SSH会话
     private final Map<String, SshConnection> activeSessions = new ConcurrentHashMap<>();
 
+    // 所有会话累计转发的终端字符数
+    private final LongAdder relayedInputChars = new LongAdder();
+    private final LongAdder relayedOutputChars = new LongAdder();
+
+    // 输出泵线程池，每个SSH会话一个阻塞读取线程
+    private final AtomicInteger pumpThreadIndex = new AtomicInteger();
+    private final ExecutorService outputPumpExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ssh-output-pump-" + pumpThreadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * SSH输出监听器
+     * 输出泵只读取一次SSH通道，再分发给所有订阅者
+     */
+    public interface OutputListener {
+
+        /**
+         * 收到SSH输出（在输出泵线程中回调，不能阻塞）
+         * @param output 原始输出
+         */
+        void onOutput(String output);
+
+        /**
+         * SSH会话已结束
+         */
+        void onClosed();
+    }
+
     /**
      * SSH连接信息
      */
     public static class SshConnection {
         private SSHClient sshClient;
+        private SshConnectionPool.Lease lease;
         private Session session;
         private Shell shell;
         private PrintWriter writer;
@@ -39,6 +80,10 @@ public class SshService {
         private String lastCommand;
         private long lastCommandTime;
         private boolean isInitialConnection;
+        private final List<OutputListener> listeners = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean pumpStarted = new AtomicBoolean(false);
+        private final AtomicBoolean listenersClosed = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
 
         public SshConnection(String sessionId) {
             this.sessionId = sessionId;
@@ -52,6 +97,9 @@ public class SshService {
         public SSHClient getSshClient() { return sshClient; }
         public void setSshClient(SSHClient sshClient) { this.sshClient = sshClient; }
 
+        public SshConnectionPool.Lease getLease() { return lease; }
+        public void setLease(SshConnectionPool.Lease lease) { this.lease = lease; }
+
         public Session getSession() { return session; }
         public void setSession(Session session) { this.session = session; }
 
@@ -84,69 +132,37 @@ public class SshService {
      */
     public SshConnection createConnection(String sessionId, String host, int port, String username, 
                                         String authType, String password, String privateKey, String privateKeyPassword) {
+        SshConnectionPool.Lease lease = null;
         try {
             log.info("创建SSH连接: {}@{}:{}", username, host, port);
 
-            SSHClient sshClient = new SSHClient();
-
-            // 跳过主机密钥检查（生产环境中应该验证）
-            sshClient.addHostKeyVerifier(new PromiscuousVerifier());
-
-            // 设置连接超时
-            sshClient.setConnectTimeout(30000); // 30秒
-
-            // 连接到服务器
-            sshClient.connect(host, port);
-            log.info("SSH客户端连接成功");
-
-            // 根据认证类型进行认证
-            if ("password".equals(authType) && password != null && !password.trim().isEmpty()) {
-                sshClient.authPassword(username, password);
-                log.info("密码认证成功");
-            } else if ("publickey".equals(authType) && privateKey != null && !privateKey.trim().isEmpty()) {
-                try {
-                    KeyProvider keyProvider;
-                    if (privateKeyPassword != null && !privateKeyPassword.trim().isEmpty()) {
-                        // 使用密码保护的私钥
-                        PasswordFinder passwordFinder = new PasswordFinder() {
-                            @Override
-                            public char[] reqPassword(Resource<?> resource) {
-                                return privateKeyPassword.toCharArray();
-                            }
-
-                            @Override
-                            public boolean shouldRetry(Resource<?> resource) {
-                                return false;
-                            }
-                        };
-                        keyProvider = sshClient.loadKeys(privateKey, null, passwordFinder);
-                    } else {
-                        // 无密码保护的私钥
-                        keyProvider = sshClient.loadKeys(privateKey, null, null);
-                    }
-                    sshClient.authPublickey(username, keyProvider);
-                    log.info("公钥认证成功");
-                } catch (Exception e) {
-                    log.error("公钥认证失败", e);
-                    throw new RuntimeException("私钥格式错误或密码不正确: " + e.getMessage());
-                }
+            Session session;
+            Shell shell;
+            SshStandbyService.Standby standby = standbyService.take(host, port, username, authType, password, privateKey, privateKeyPassword);
+            if (standby != null) {
+                // 使用预热好的连接和Shell，跳过握手与会话建立
+                lease = standby.getLease();
+                session = standby.getSession();
+                shell = standby.getShell();
             } else {
-                throw new RuntimeException("不支持的认证类型或认证信息不完整");
-            }
-
-            // 创建会话
-            Session session = sshClient.startSession();
-            log.info("SSH会话创建成功");
+                // 从连接池获取已认证的连接，同一服务器的多个终端共享底层传输
+                lease = connectionPool.acquire(host, port, username, authType, password, privateKey, privateKeyPassword);
 
+                // 创建会话
+                session = lease.getClient().startSession();
+                log.info("SSH会话创建成功");
 
-            // 分配PTY并启动Shell
-            session.allocatePTY("xterm", 80, 24, 0, 0, Collections.emptyMap());
-            Shell shell = session.startShell();
-            log.info("SSH Shell启动成功");
+                // 分配PTY并启动Shell
+                session.allocatePTY("xterm", 80, 24, 0, 0, Collections.emptyMap());
+                shell = session.startShell();
+                log.info("SSH Shell启动成功");
+            }
+            SSHClient sshClient = lease.getClient();
 
             // 创建连接对象
             SshConnection connection = new SshConnection(sessionId);
             connection.setSshClient(sshClient);
+            connection.setLease(lease);
             connection.setSession(session);
             connection.setShell(shell);
             connection.setWriter(new PrintWriter(shell.getOutputStream(), true));
@@ -154,17 +170,31 @@ public class SshService {
             connection.setConnected(true);
 
             // 存储连接
-            activeSessions.put(sessionId, connection);
-            
+            register(connection);
+
             log.info("SSH连接创建完成，会话ID: {}", sessionId);
             return connection;
 
         } catch (Exception e) {
+            if (lease != null) {
+                lease.close();
+            }
             log.error("创建SSH连接失败: {}@{}:{}", username, host, port, e);
             throw new RuntimeException("SSH连接失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 登记活跃会话；同一会话ID重连时断开被替换的旧连接，释放其Shell和连接池引用
+     */
+    void register(SshConnection connection) {
+        SshConnection previous = activeSessions.put(connection.getSessionId(), connection);
+        if (previous != null && previous != connection) {
+            log.info("会话ID {} 重新连接，断开旧连接", connection.getSessionId());
+            disconnect(previous);
+        }
+    }
+
     /**
      * 发送命令到SSH会话
      */
@@ -176,6 +206,7 @@ public class SshService {
                 // 这样可以确保服务器完全控制终端的行为
                 connection.getWriter().print(command);
                 connection.getWriter().flush();
+                relayedInputChars.add(command.length());
 
                 // 记录发送的内容用于调试
                 if (command.length() == 1) {
@@ -210,37 +241,83 @@ public class SshService {
     }
 
     /**
-     * 读取SSH会话输出
+     * 订阅SSH会话输出，首批订阅者到来时启动输出泵
+     * 需要完整接收登录输出（欢迎信息、提示符）的订阅者应在同一次调用中传入，全部加入后才启动输出泵
+     * @param sessionId SSH会话ID
+     * @param listeners 输出监听器
+     * @return 是否订阅成功
      */
-    public String readOutput(String sessionId) {
+    public boolean subscribe(String sessionId, OutputListener... listeners) {
         SshConnection connection = activeSessions.get(sessionId);
-        if (connection != null && connection.isConnected()) {
-            try {
-                StringBuilder output = new StringBuilder();
-                BufferedReader reader = connection.getReader();
-
-                // 非阻塞读取
-                while (reader.ready()) {
-                    char[] buffer = new char[1024];
-                    int length = reader.read(buffer);
-                    if (length > 0) {
-                        output.append(buffer, 0, length);
-                    }
-                }
+        if (connection == null || !connection.isConnected()) {
+            return false;
+        }
+        connection.listeners.addAll(List.of(listeners));
+        if (connection.pumpStarted.compareAndSet(false, true)) {
+            outputPumpExecutor.execute(() -> pumpOutput(connection));
+        }
+        return true;
+    }
 
-                String rawOutput = output.toString();
+    /**
+     * 取消订阅SSH会话输出
+     */
+    public void unsubscribe(String sessionId, OutputListener listener) {
+        SshConnection connection = activeSessions.get(sessionId);
+        if (connection != null) {
+            connection.listeners.remove(listener);
+        }
+    }
 
-                // 直接返回原始输出，不做任何处理，交给前端xterm.js处理
-                return rawOutput;
-            } catch (Exception e) {
-                log.error("读取输出失败", e);
-                return "";
+    /**
+     * 输出泵：阻塞读取SSH通道并分发给所有订阅者，通道结束时断开会话
+     */
+    private void pumpOutput(SshConnection connection) {
+        char[] buffer = new char[8192];
+        try {
+            BufferedReader reader = connection.getReader();
+            int length;
+            while ((length = reader.read(buffer)) != -1) {
+                if (length == 0) {
+                    continue;
+                }
+                // 直接分发原始输出，不做任何处理，交给前端xterm.js处理
+                String output = new String(buffer, 0, length);
+                relayedOutputChars.add(length);
+                for (OutputListener listener : connection.listeners) {
+                    try {
+                        listener.onOutput(output);
+                    } catch (Exception e) {
+                        log.warn("分发SSH输出失败, 会话: {}", connection.getSessionId(), e);
+                    }
+                }
             }
+            log.info("SSH通道已结束，会话ID: {}", connection.getSessionId());
+        } catch (Exception e) {
+            if (connection.isConnected()) {
+                log.warn("读取SSH输出失败, 会话: {}", connection.getSessionId(), e);
+            }
+        } finally {
+            disconnect(connection);
+            closeListeners(connection);
         }
-        return "";
     }
 
-
+    /**
+     * 通知所有订阅者会话已结束（只通知一次）
+     */
+    private void closeListeners(SshConnection connection) {
+        if (connection.listenersClosed.compareAndSet(false, true)) {
+            for (OutputListener listener : connection.listeners) {
+                try {
+                    listener.onClosed();
+                } catch (Exception e) {
+                    log.warn("通知SSH会话结束失败, 会话: {}", connection.getSessionId(), e);
+                }
+            }
+            connection.listeners.clear();
+        }
+    }
 
     /**
      * 断开SSH连接
@@ -248,6 +325,16 @@ public class SshService {
     public void disconnect(String sessionId) {
         SshConnection connection = activeSessions.get(sessionId);
         if (connection != null) {
+            disconnect(connection);
+        }
+    }
+
+    /**
+     * 断开指定的SSH连接对象（同一会话ID可能已被新的连接替换，因此按对象断开）
+     */
+    private void disconnect(SshConnection connection) {
+        String sessionId = connection.getSessionId();
+        if (connection.closed.compareAndSet(false, true)) {
             try {
                 connection.setConnected(false);
 
@@ -269,13 +356,9 @@ public class SshService {
                     }
                 }
 
-                // 关闭SSH客户端
-                if (connection.getSshClient() != null && connection.getSshClient().isConnected()) {
-                    try {
-                        connection.getSshClient().disconnect();
-                    } catch (Exception e) {
-                        log.warn("断开SSH客户端失败", e);
-                    }
+                // 归还池化连接（引用计数归零时连接池会断开底层传输）
+                if (connection.getLease() != null) {
+                    connection.getLease().close();
                 }
 
                 // 关闭流
@@ -286,7 +369,8 @@ public class SshService {
                         log.warn("关闭Writer失败", e);
                     }
                 }
-                if (connection.getReader() != null) {
+                // 输出泵运行时由泵线程持有Reader，通道关闭后读取自然结束
+                if (connection.getReader() != null && !connection.pumpStarted.get()) {
                     try {
                         connection.getReader().close();
                     } catch (Exception e) {
@@ -294,9 +378,14 @@ public class SshService {
                     }
                 }
 
-                activeSessions.remove(sessionId);
+                activeSessions.remove(sessionId, connection);
                 log.info("SSH连接已断开，会话ID: {}", sessionId);
 
+                // 输出泵未启动时由此处通知订阅者，否则由输出泵在通道结束后通知
+                if (!connection.pumpStarted.get()) {
+                    closeListeners(connection);
+                }
+
             } catch (Exception e) {
                 log.error("断开SSH连接失败", e);
             }
@@ -340,6 +429,20 @@ public class SshService {
         return activeSessions.size();
     }
 
+    /**
+     * 获取累计发送到SSH会话的字符数
+     */
+    public long getRelayedInputChars() {
+        return relayedInputChars.sum();
+    }
+
+    /**
+     * 获取累计从SSH会话读取的字符数
+     */
+    public long getRelayedOutputChars() {
+        return relayedOutputChars.sum();
+    }
+
     /**
      * 清理所有连接
      */
@@ -0,0 +1,346 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.entity.Server;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.connection.channel.direct.Session;
+import net.schmizz.sshj.connection.channel.direct.Session.Shell;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * SSH预热连接服务
+ * 为默认服务器（以及可选的最常用的N台服务器）保持一条已认证的传输和一个已启动的Shell，
+ * 打开终端时直接交出，被取走后在后台补充；空闲期间定时发送keepalive，超过最长保留时间后轮换
+ */
+@Slf4j
+@Service
+public class SshStandbyService {
+
+    private static final String KEEPALIVE_REQUEST = "keepalive@openssh.com";
+
+    @Autowired
+    private ServerService serverService;
+
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    /**
+     * 是否启用预热连接
+     */
+    @Value("${ssh.standby.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 除默认服务器外，额外预热的最常用服务器数量
+     */
+    @Value("${ssh.standby.top-n:0}")
+    private int topN;
+
+    /**
+     * 预热连接数上限
+     */
+    @Value("${ssh.standby.max-standby:3}")
+    private int maxStandby;
+
+    /**
+     * keepalive间隔（秒）
+     */
+    @Value("${ssh.standby.keepalive-seconds:30}")
+    private int keepaliveSeconds;
+
+    /**
+     * 单个预热Shell的最长保留时间（秒），超过后关闭并重新建立
+     */
+    @Value("${ssh.standby.max-age-seconds:1800}")
+    private int maxAgeSeconds;
+
+    /**
+     * 重新计算预热目标的间隔（秒）
+     */
+    @Value("${ssh.standby.refresh-interval-seconds:60}")
+    private int refreshIntervalSeconds;
+
+    // 连接键 -> 预热连接
+    private final Map<String, Standby> standbys = new ConcurrentHashMap<>();
+
+    // 连接键 -> 预热目标服务器（已解密）
+    private volatile Map<String, Server> targets = Collections.emptyMap();
+
+    // 连接键 -> 打开终端的次数，用于挑选最常用的服务器
+    private final Map<String, LongAdder> usage = new ConcurrentHashMap<>();
+
+    // 正在建立中的连接键
+    private final Set<String> filling = ConcurrentHashMap.newKeySet();
+
+    // 统计：命中 / 未命中
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ssh-standby");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService fillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ssh-standby-fill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 预热好的连接：连接池租约 + 已分配PTY并启动的Shell
+     */
+    public static class Standby {
+        private final String serverName;
+        private final SshConnectionPool.Lease lease;
+        private final Session session;
+        private final Shell shell;
+        private final long createdAt = System.currentTimeMillis();
+
+        Standby(String serverName, SshConnectionPool.Lease lease, Session session, Shell shell) {
+            this.serverName = serverName;
+            this.lease = lease;
+            this.session = session;
+            this.shell = shell;
+        }
+
+        public SshConnectionPool.Lease getLease() { return lease; }
+
+        public Session getSession() { return session; }
+
+        public Shell getShell() { return shell; }
+
+        boolean isUsable() {
+            return lease.isValid() && shell.isOpen();
+        }
+
+        void close() {
+            try {
+                shell.close();
+            } catch (Exception e) {
+                log.debug("关闭预热Shell失败", e);
+            }
+            try {
+                session.close();
+            } catch (Exception e) {
+                log.debug("关闭预热会话失败", e);
+            }
+            lease.close();
+        }
+    }
+
+    /**
+     * 启动预热（应用启动完成、数据库初始化之后调用）
+     */
+    public void start() {
+        if (!enabled) {
+            log.info("SSH预热连接未启用");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::refreshTargets, 0, refreshIntervalSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::keepAlive, keepaliveSeconds, keepaliveSeconds, TimeUnit.SECONDS);
+        log.info("SSH预热连接已启动，最常用服务器数: {}，上限: {}", topN, maxStandby);
+    }
+
+    /**
+     * 取走与给定连接参数匹配的预热连接，取走后在后台补充
+     * @return 预热连接，没有可用的预热连接时返回null
+     */
+    public Standby take(String host, int port, String username, String authType,
+                        String password, String privateKey, String privateKeyPassword) {
+        if (!enabled) {
+            return null;
+        }
+        String key = connectionPool.buildKey(host, port, username, authType, password, privateKey, privateKeyPassword);
+        usage.computeIfAbsent(key, k -> new LongAdder()).increment();
+
+        Standby standby = standbys.remove(key);
+        scheduleFill(key);
+        if (standby == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (!standby.isUsable()) {
+            standby.close();
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        log.info("使用预热的SSH连接: {}", standby.serverName);
+        return standby;
+    }
+
+    /**
+     * 重新计算预热目标：默认服务器 + 最常用的N台，关闭不再需要的预热连接并补充缺少的
+     */
+    private void refreshTargets() {
+        try {
+            List<Integer> serverIds = serverService.list().stream()
+                    .filter(server -> ServerHealthProbeService.isUsable(server.getStatus()))
+                    .map(Server::getId)
+                    .collect(Collectors.toList());
+            List<Server> servers = serverService.getServersWithAuthInfo(serverIds, null);
+
+            Map<String, Server> byKey = new LinkedHashMap<>();
+            for (Server server : servers) {
+                byKey.put(keyOf(server), server);
+            }
+
+            Map<String, Server> newTargets = new LinkedHashMap<>();
+            servers.stream()
+                    .filter(server -> Boolean.TRUE.equals(server.getIsDefault()))
+                    .findFirst()
+                    .ifPresent(server -> newTargets.put(keyOf(server), server));
+
+            usage.entrySet().stream()
+                    .filter(entry -> byKey.containsKey(entry.getKey()))
+                    .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                    .limit(topN)
+                    .forEach(entry -> newTargets.putIfAbsent(entry.getKey(), byKey.get(entry.getKey())));
+
+            // 遵守上限：按默认服务器优先、使用次数降序截断
+            Map<String, Server> capped = newTargets.entrySet().stream()
+                    .limit(Math.max(0, maxStandby))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+            targets = capped;
+
+            // 服务器被删除、凭据变更或跌出前N时关闭对应的预热连接
+            standbys.forEach((key, standby) -> {
+                if (!capped.containsKey(key) && standbys.remove(key, standby)) {
+                    standby.close();
+                }
+            });
+            capped.keySet().forEach(this::scheduleFill);
+        } catch (Exception e) {
+            log.warn("刷新SSH预热目标失败", e);
+        }
+    }
+
+    /**
+     * 发送keepalive，并淘汰已断开或超过最长保留时间的预热连接
+     */
+    private void keepAlive() {
+        long maxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+        long now = System.currentTimeMillis();
+        standbys.forEach((key, standby) -> {
+            boolean healthy = standby.isUsable() && now - standby.createdAt < maxAgeMillis;
+            if (healthy) {
+                try {
+                    // 不要求回复，仅产生流量防止NAT或防火墙回收空闲连接；传输已断时此处抛出异常
+                    standby.lease.getClient().getConnection().sendGlobalRequest(KEEPALIVE_REQUEST, false, new byte[0]);
+                } catch (Exception e) {
+                    healthy = false;
+                }
+            }
+            if (!healthy && standbys.remove(key, standby)) {
+                log.debug("预热连接失效或到期，重新建立: {}", standby.serverName);
+                standby.close();
+                scheduleFill(key);
+            }
+        });
+    }
+
+    private void scheduleFill(String key) {
+        Server target = targets.get(key);
+        if (target == null || standbys.containsKey(key) || !filling.add(key)) {
+            return;
+        }
+        try {
+            fillExecutor.execute(() -> {
+                try {
+                    fill(key, target);
+                } finally {
+                    filling.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            filling.remove(key);
+        }
+    }
+
+    private void fill(String key, Server server) {
+        if (standbys.containsKey(key) || standbys.size() >= maxStandby || !targets.containsKey(key)) {
+            return;
+        }
+        int port = server.getPort() != null ? server.getPort() : 22;
+        SshConnectionPool.Lease lease = null;
+        Session session = null;
+        try {
+            lease = connectionPool.acquire(server.getHost(), port, server.getUsername(), server.getAuthType(),
+                    server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+            session = lease.getClient().startSession();
+            session.allocatePTY("xterm", 80, 24, 0, 0, Collections.emptyMap());
+            Shell shell = session.startShell();
+
+            Standby standby = new Standby(server.getServerName(), lease, session, shell);
+            if (standbys.putIfAbsent(key, standby) != null) {
+                standby.close();
+            } else {
+                log.debug("SSH预热连接已就绪: {}", server.getServerName());
+            }
+        } catch (Exception e) {
+            log.warn("建立SSH预热连接失败: {}, {}", server.getServerName(), e.getMessage());
+            if (session != null) {
+                try {
+                    session.close();
+                } catch (Exception ignored) {
+                    // 忽略关闭异常
+                }
+            }
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+
+    private String keyOf(Server server) {
+        int port = server.getPort() != null ? server.getPort() : 22;
+        return connectionPool.buildKey(server.getHost(), port, server.getUsername(), server.getAuthType(),
+                server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+    }
+
+    /**
+     * 获取当前预热连接数
+     */
+    public int getStandbyCount() {
+        return standbys.size();
+    }
+
+    /**
+     * 获取预热命中次数
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 获取预热未命中次数
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 应用关闭时关闭所有预热连接
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        fillExecutor.shutdownNow();
+        new ArrayList<>(standbys.keySet()).forEach(key -> {
+            Standby standby = standbys.remove(key);
+            if (standby != null) {
+                standby.close();
+            }
+        });
+    }
+}
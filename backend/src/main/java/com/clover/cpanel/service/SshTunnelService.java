@@ -0,0 +1,489 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.TunnelInfo;
+import com.clover.cpanel.dto.TunnelRequest;
+import com.clover.cpanel.entity.Server;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.connection.channel.direct.DirectConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SSH隧道（本地端口转发）管理服务
+ * 在本机回环地址上监听端口，每个入站连接在连接池的SSH传输上开启一个direct-tcpip通道转发到目标地址；
+ * 统计每条隧道的流量与连接数，长时间无连接的隧道自动关闭。
+ * SSH传输断开后隧道归还旧租约并从连接池重新获取，重新连接失败时标记为失败并显示原因，下一个入站连接会再次尝试
+ */
+@Slf4j
+@Service
+public class SshTunnelService {
+
+    public static final String STATUS_ACTIVE = "active";
+    public static final String STATUS_RECONNECTING = "reconnecting";
+    public static final String STATUS_FAILED = "failed";
+
+    // 统计与空闲检查周期（秒）
+    private static final int MONITOR_INTERVAL_SECONDS = 5;
+
+    @Autowired
+    private ServerService serverService;
+
+    @Autowired
+    private SshConnectionPool connectionPool;
+
+    /**
+     * 本地监听地址
+     */
+    @Value("${tunnel.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    /**
+     * 无连接的隧道在多长时间（秒）后自动关闭
+     */
+    @Value("${tunnel.idle-timeout-seconds:600}")
+    private int idleTimeoutSeconds;
+
+    /**
+     * 最大隧道数
+     */
+    @Value("${tunnel.max-tunnels:20}")
+    private int maxTunnels;
+
+    /**
+     * 转发缓冲区大小（字节）
+     */
+    @Value("${tunnel.buffer-size:16384}")
+    private int bufferSize;
+
+    // 隧道ID -> 隧道
+    private final Map<String, Tunnel> tunnels = new ConcurrentHashMap<>();
+
+    // 隧道数量许可，创建前获取、隧道从表中移除时归还，保证并发创建也不会超出上限
+    private volatile Semaphore tunnelPermits;
+
+    // 所有隧道（含已关闭）累计转发的字节数
+    private final LongAdder totalBytesSent = new LongAdder();
+    private final LongAdder totalBytesReceived = new LongAdder();
+
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private final ExecutorService relayExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ssh-tunnel-" + threadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ssh-tunnel-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SshTunnelService() {
+        monitor.scheduleWithFixedDelay(this::monitorTunnels, MONITOR_INTERVAL_SECONDS, MONITOR_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 单条隧道
+     */
+    private class Tunnel {
+        private final String tunnelId = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+        private final Integer serverId;
+        private final String serverName;
+        private final String remoteHost;
+        private final int remotePort;
+        private final ServerSocket serverSocket;
+        private final long createdAt = System.currentTimeMillis();
+
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final AtomicInteger activeConnections = new AtomicInteger();
+        private final AtomicLong totalConnections = new AtomicLong();
+        private final Set<Closeable> openResources = ConcurrentHashMap.newKeySet();
+        private volatile long lastActivityAt = createdAt;
+        private volatile boolean closed;
+        private volatile SshConnectionPool.Lease lease;
+        private volatile String status = STATUS_ACTIVE;
+        private volatile String error;
+
+        // 速率统计，仅由监控线程更新
+        private long lastSent;
+        private long lastReceived;
+        private volatile double sendRate;
+        private volatile double receiveRate;
+
+        Tunnel(Server server, String remoteHost, int remotePort, SshConnectionPool.Lease lease, ServerSocket serverSocket) {
+            this.serverId = server.getId();
+            this.serverName = server.getServerName();
+            this.remoteHost = remoteHost;
+            this.remotePort = remotePort;
+            this.lease = lease;
+            this.serverSocket = serverSocket;
+        }
+
+        TunnelInfo toInfo() {
+            TunnelInfo info = new TunnelInfo();
+            info.setTunnelId(tunnelId);
+            info.setServerId(serverId);
+            info.setServerName(serverName);
+            info.setLocalHost(bindAddress);
+            info.setLocalPort(serverSocket.getLocalPort());
+            info.setRemoteHost(remoteHost);
+            info.setRemotePort(remotePort);
+            info.setActiveConnections(activeConnections.get());
+            info.setTotalConnections(totalConnections.get());
+            info.setBytesSent(bytesSent.sum());
+            info.setBytesReceived(bytesReceived.sum());
+            info.setSendRate(sendRate);
+            info.setReceiveRate(receiveRate);
+            info.setCreatedAt(createdAt);
+            info.setLastActivityAt(lastActivityAt);
+            info.setStatus(status);
+            info.setError(error);
+            return info;
+        }
+
+        /**
+         * 获取可用的SSH连接，传输已断开时先重新获取租约
+         */
+        SSHClient client() throws Exception {
+            SshConnectionPool.Lease current = lease;
+            if (isAlive(current)) {
+                return current.getClient();
+            }
+            synchronized (this) {
+                if (closed) {
+                    throw new IOException("隧道已关闭");
+                }
+                if (isAlive(lease)) {
+                    return lease.getClient();
+                }
+                return reconnect().getClient();
+            }
+        }
+
+        /**
+         * 归还已断开的租约并从连接池重新获取，调用方持有隧道锁
+         */
+        private SshConnectionPool.Lease reconnect() throws Exception {
+            status = STATUS_RECONNECTING;
+            lease.close();
+            try {
+                Server server = serverService.getServerWithAuthInfo(serverId);
+                if (server == null) {
+                    throw new IllegalStateException("服务器配置不存在");
+                }
+                int port = server.getPort() != null ? server.getPort() : 22;
+                SshConnectionPool.Lease fresh = connectionPool.acquire(server.getHost(), port, server.getUsername(),
+                        server.getAuthType(), server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+                lease = fresh;
+                // 与close()并发时由后完成的一方归还新租约（Lease.close可重复调用）
+                if (closed) {
+                    fresh.close();
+                    throw new IOException("隧道已关闭");
+                }
+                status = STATUS_ACTIVE;
+                error = null;
+                log.info("SSH隧道已重新连接: {}", tunnelId);
+                return fresh;
+            } catch (Exception e) {
+                status = STATUS_FAILED;
+                error = e.getMessage();
+                log.warn("SSH隧道重新连接失败: {}, {}", tunnelId, e.getMessage());
+                throw e;
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            closeQuietly(serverSocket);
+            openResources.forEach(SshTunnelService::closeQuietly);
+            openResources.clear();
+            lease.close();
+        }
+    }
+
+    private static boolean isAlive(SshConnectionPool.Lease lease) {
+        // 连接池替换了底层连接时旧租约同样视为断开
+        return lease.isValid();
+    }
+
+    /**
+     * 创建隧道
+     * @param request 隧道请求
+     * @return 隧道信息
+     */
+    public TunnelInfo createTunnel(TunnelRequest request) throws Exception {
+        if (request.getServerId() == null || request.getRemoteHost() == null || request.getRemoteHost().trim().isEmpty()
+                || request.getRemotePort() == null || request.getRemotePort() <= 0 || request.getRemotePort() > 65535) {
+            throw new IllegalArgumentException("服务器、目标主机和目标端口不能为空");
+        }
+        Semaphore permits = getTunnelPermits();
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("隧道数量已达上限: " + maxTunnels);
+        }
+
+        SshConnectionPool.Lease lease = null;
+        ServerSocket serverSocket;
+        Server server;
+        try {
+            server = serverService.getServerWithAuthInfo(request.getServerId());
+            if (server == null) {
+                throw new IllegalArgumentException("服务器配置不存在");
+            }
+
+            int port = server.getPort() != null ? server.getPort() : 22;
+            lease = connectionPool.acquire(server.getHost(), port, server.getUsername(),
+                    server.getAuthType(), server.getPassword(), server.getPrivateKey(), server.getPrivateKeyPassword());
+
+            try {
+                serverSocket = new ServerSocket();
+                serverSocket.setReuseAddress(true);
+                int localPort = request.getLocalPort() != null ? request.getLocalPort() : 0;
+                serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bindAddress), localPort));
+            } catch (Exception e) {
+                throw new IllegalStateException("本地端口监听失败: " + e.getMessage(), e);
+            }
+        } catch (Exception e) {
+            if (lease != null) {
+                lease.close();
+            }
+            permits.release();
+            throw e;
+        }
+
+        Tunnel tunnel = new Tunnel(server, request.getRemoteHost().trim(), request.getRemotePort(), lease, serverSocket);
+        tunnels.put(tunnel.tunnelId, tunnel);
+        relayExecutor.execute(() -> acceptLoop(tunnel));
+
+        log.info("SSH隧道已创建: {} {}:{} -> {} -> {}:{}", tunnel.tunnelId, bindAddress, serverSocket.getLocalPort(),
+                server.getServerName(), tunnel.remoteHost, tunnel.remotePort);
+        return tunnel.toInfo();
+    }
+
+    /**
+     * 获取所有隧道
+     */
+    public List<TunnelInfo> listTunnels() {
+        List<TunnelInfo> result = new ArrayList<>();
+        tunnels.values().forEach(tunnel -> result.add(tunnel.toInfo()));
+        result.sort(Comparator.comparingLong(TunnelInfo::getCreatedAt));
+        return result;
+    }
+
+    /**
+     * 关闭隧道
+     * @return 隧道是否存在
+     */
+    public boolean closeTunnel(String tunnelId) {
+        Tunnel tunnel = tunnels.remove(tunnelId);
+        if (tunnel == null) {
+            return false;
+        }
+        getTunnelPermits().release();
+        tunnel.close();
+        log.info("SSH隧道已关闭: {}", tunnelId);
+        return true;
+    }
+
+    private Semaphore getTunnelPermits() {
+        Semaphore permits = tunnelPermits;
+        if (permits == null) {
+            synchronized (this) {
+                if (tunnelPermits == null) {
+                    tunnelPermits = new Semaphore(Math.max(0, maxTunnels));
+                }
+                permits = tunnelPermits;
+            }
+        }
+        return permits;
+    }
+
+    private void acceptLoop(Tunnel tunnel) {
+        while (!tunnel.closed) {
+            try {
+                Socket socket = tunnel.serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                relayExecutor.execute(() -> handleConnection(tunnel, socket));
+            } catch (IOException e) {
+                if (!tunnel.closed) {
+                    log.warn("SSH隧道接受连接失败: {}", tunnel.tunnelId, e);
+                    closeTunnel(tunnel.tunnelId);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * 处理一个入站连接：开启direct-tcpip通道双向转发
+     * 一个方向读到EOF时只关闭对端的输出（半关闭），另一方向继续转发；两个方向都结束或通道已被远端关闭后才关闭连接
+     */
+    private void handleConnection(Tunnel tunnel, Socket socket) {
+        DirectConnection channel = null;
+        tunnel.openResources.add(socket);
+        tunnel.activeConnections.incrementAndGet();
+        tunnel.totalConnections.incrementAndGet();
+        tunnel.lastActivityAt = System.currentTimeMillis();
+        try {
+            channel = tunnel.client().newDirectConnection(tunnel.remoteHost, tunnel.remotePort);
+            tunnel.openResources.add(channel);
+
+            // 关闭通道输出流会向远端发送EOF；本地socket只关闭输出方向
+            DirectConnection remote = channel;
+            OutputStream remoteOut = remote.getOutputStream();
+            Future<?> upstream = relayExecutor.submit(() ->
+                    pump(tunnel, socket.getInputStream(), remoteOut, remoteOut, tunnel.bytesSent, totalBytesSent));
+            pump(tunnel, channel.getInputStream(), socket.getOutputStream(), socket::shutdownOutput,
+                    tunnel.bytesReceived, totalBytesReceived);
+            awaitUpstream(tunnel, upstream, channel);
+        } catch (Exception e) {
+            if (!tunnel.closed) {
+                log.debug("SSH隧道连接结束: {}, {}", tunnel.tunnelId, e.getMessage());
+            }
+        } finally {
+            closeQuietly(socket);
+            closeQuietly(channel);
+            tunnel.openResources.remove(socket);
+            if (channel != null) {
+                tunnel.openResources.remove(channel);
+            }
+            tunnel.activeConnections.decrementAndGet();
+            tunnel.lastActivityAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 远端已发送EOF后等待本地到远端的方向结束；通道被远端关闭后无法再发送，不再等待
+     */
+    private void awaitUpstream(Tunnel tunnel, Future<?> upstream, DirectConnection channel) throws Exception {
+        while (!tunnel.closed) {
+            try {
+                upstream.get(1, TimeUnit.SECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (!channel.isOpen()) {
+                    return;
+                }
+            } catch (ExecutionException e) {
+                log.debug("SSH隧道上行转发结束: {}, {}", tunnel.tunnelId, e.getCause().getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 单向转发，读到EOF或出错时关闭该方向的输出（halfClose）使对端感知
+     */
+    private Void pump(Tunnel tunnel, InputStream in, OutputStream out, Closeable halfClose,
+                      LongAdder counter, LongAdder total) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+                counter.add(read);
+                total.add(read);
+                tunnel.lastActivityAt = System.currentTimeMillis();
+            }
+        } finally {
+            closeQuietly(halfClose);
+        }
+        return null;
+    }
+
+    /**
+     * 计算速率、检测已断开的SSH传输并关闭空闲隧道
+     */
+    private void monitorTunnels() {
+        long now = System.currentTimeMillis();
+        long idleMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+        for (Tunnel tunnel : tunnels.values()) {
+            long sent = tunnel.bytesSent.sum();
+            long received = tunnel.bytesReceived.sum();
+            tunnel.sendRate = (double) (sent - tunnel.lastSent) / MONITOR_INTERVAL_SECONDS;
+            tunnel.receiveRate = (double) (received - tunnel.lastReceived) / MONITOR_INTERVAL_SECONDS;
+            tunnel.lastSent = sent;
+            tunnel.lastReceived = received;
+
+            // 传输断开时在后台重新连接，使列表及时显示状态；失败的隧道等下一个入站连接再尝试
+            if (!tunnel.closed && STATUS_ACTIVE.equals(tunnel.status) && !isAlive(tunnel.lease)) {
+                log.warn("SSH隧道的连接已断开，尝试重新连接: {}", tunnel.tunnelId);
+                tunnel.status = STATUS_RECONNECTING;
+                relayExecutor.execute(() -> {
+                    try {
+                        tunnel.client();
+                    } catch (Exception e) {
+                        log.debug("SSH隧道后台重新连接失败: {}", tunnel.tunnelId);
+                    }
+                });
+            }
+
+            if (idleTimeoutSeconds > 0 && tunnel.activeConnections.get() == 0 && now - tunnel.lastActivityAt > idleMillis) {
+                log.info("SSH隧道空闲超时，自动关闭: {}", tunnel.tunnelId);
+                closeTunnel(tunnel.tunnelId);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.debug("关闭隧道资源失败", e);
+            }
+        }
+    }
+
+    /**
+     * 获取隧道数量
+     */
+    public int getTunnelCount() {
+        return tunnels.size();
+    }
+
+    /**
+     * 获取累计发送到远端的字节数
+     */
+    public long getTotalBytesSent() {
+        return totalBytesSent.sum();
+    }
+
+    /**
+     * 获取累计从远端接收的字节数
+     */
+    public long getTotalBytesReceived() {
+        return totalBytesReceived.sum();
+    }
+
+    /**
+     * 应用关闭时关闭所有隧道
+     */
+    @PreDestroy
+    public void shutdown() {
+        monitor.shutdownNow();
+        new ArrayList<>(tunnels.keySet()).forEach(this::closeTunnel);
+        relayExecutor.shutdownNow();
+    }
+}
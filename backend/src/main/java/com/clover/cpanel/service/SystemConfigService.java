@@ -3,7 +3,9 @@ package com.clover.cpanel.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.clover.cpanel.entity.SystemConfig;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 系统配置服务接口
@@ -36,6 +38,22 @@ public interface SystemConfigService extends IService<SystemConfig> {
      */
     boolean setConfigValue(String configKey, String configValue, String description, String configType);
 
+    /**
+     * 批量获取配置值
+     * @param configKeys 配置键名
+     * @return 配置键名 -> 配置值，不存在的键不包含在结果中
+     */
+    Map<String, String> getConfigValues(Collection<String> configKeys);
+
+    /**
+     * 批量设置配置值（单条SQL写入，同一事务内完成）
+     * @param configValues 配置键名 -> 配置值
+     * @param descriptions 配置键名 -> 配置描述
+     * @param configType 配置类型
+     * @return 是否设置成功
+     */
+    boolean setConfigValues(Map<String, String> configValues, Map<String, String> descriptions, String configType);
+
     /**
      * 验证登录密码
      * @param password 输入的密码
@@ -69,4 +87,15 @@ public interface SystemConfigService extends IService<SystemConfig> {
      * @return 是否删除成功
      */
     boolean deleteConfigByKey(String configKey);
+
+    /**
+     * 从数据库加载全部配置到内存缓存（需在数据库初始化后调用），之后的配置读取不再访问数据库
+     */
+    void loadCache();
+
+    /**
+     * 获取配置版本号，任意配置发生变化后递增
+     * @return 配置版本号
+     */
+    long getConfigVersion();
 }
@@ -0,0 +1,455 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.SystemInfoDto;
+import com.clover.cpanel.util.DiskFilter;
+import com.clover.cpanel.util.TimeSeriesRing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机系统指标历史存储
+ * 原始采样保存在定长环形缓冲区中，同时自动汇总为1分钟和1小时粒度的 最小/平均/最大 值；
+ * 定期把三个缓冲区以紧凑的二进制格式写入磁盘，重启后恢复，内存占用与运行时长无关
+ */
+@Slf4j
+@Service
+public class SystemMetricsHistory {
+
+    /**
+     * 历史数据通道
+     * disk 为真实文件系统中使用率最高的挂载点，不含tmpfs、overlay、squashfs等伪文件系统（见 {@link DiskFilter}）；
+     * 只有伪文件系统时（如容器内）取根挂载点
+     */
+    public static final String[] CHANNEL_NAMES = {"cpu", "memory", "memoryUsed", "disk", "netRx", "netTx", "diskRead", "diskWrite"};
+
+    public static final String RESOLUTION_RAW = "raw";
+    public static final String RESOLUTION_MINUTE = "minute";
+    public static final String RESOLUTION_HOUR = "hour";
+
+    private static final int FILE_MAGIC = 0x434D4853; // "CMHS"
+    private static final int FILE_VERSION = 1;
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Autowired
+    private SystemMetricsSampler sampler;
+
+    /**
+     * 保留的原始采样数
+     */
+    @Value("${system.metrics.history.raw-size:1800}")
+    private int rawSize;
+
+    /**
+     * 保留的1分钟汇总数
+     */
+    @Value("${system.metrics.history.minute-size:2880}")
+    private int minuteSize;
+
+    /**
+     * 保留的1小时汇总数
+     */
+    @Value("${system.metrics.history.hour-size:2160}")
+    private int hourSize;
+
+    /**
+     * 快照文件路径
+     */
+    @Value("${system.metrics.history.path:./data/metrics-history.bin}")
+    private String snapshotPath;
+
+    /**
+     * 写快照的间隔（秒）
+     */
+    @Value("${system.metrics.history.persist-interval-seconds:300}")
+    private int persistIntervalSeconds;
+
+    private final int channels = CHANNEL_NAMES.length;
+
+    private TimeSeriesRing raw;
+    // 汇总缓冲区按 [通道 * 3 + (0最小/1平均/2最大)] 排列
+    private TimeSeriesRing minutes;
+    private TimeSeriesRing hours;
+
+    private final Accumulator minuteAccumulator = new Accumulator(MINUTE_MILLIS);
+    private final Accumulator hourAccumulator = new Accumulator(HOUR_MILLIS);
+
+    // 复用的计算缓冲区，仅在采样线程中使用
+    private final double[] sampleBuffer = new double[channels];
+    private final double[] minuteRow = new double[channels * 3];
+    private final double[] hourRow = new double[channels * 3];
+    private final double[] minuteMins = new double[channels];
+    private final double[] minuteAvgs = new double[channels];
+    private final double[] minuteMaxs = new double[channels];
+
+    private final ScheduledExecutorService persister = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "system-metrics-persister");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object persistLock = new Object();
+
+    private volatile boolean started;
+
+    /**
+     * 汇总累加器：累计一个时间桶内的最小、总和与最大值，桶切换时输出上一个桶的结果
+     */
+    private class Accumulator {
+        private final long bucketMillis;
+        private long bucketStart = -1;
+        private long weight;
+        private final double[] min = new double[channels];
+        private final double[] sum = new double[channels];
+        private final double[] max = new double[channels];
+        // 最近一次输出的桶起点
+        private long flushedStart;
+
+        Accumulator(long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+        }
+
+        /**
+         * 加入一组值，发生桶切换时把上一个桶的结果写入output并返回true
+         */
+        boolean add(long timestamp, double[] mins, double[] avgs, double[] maxs, double[] output) {
+            long bucket = timestamp - timestamp % bucketMillis;
+            boolean flushed = false;
+            if (bucket != bucketStart) {
+                if (bucketStart >= 0 && weight > 0) {
+                    for (int c = 0; c < channels; c++) {
+                        output[c * 3] = min[c];
+                        output[c * 3 + 1] = sum[c] / weight;
+                        output[c * 3 + 2] = max[c];
+                    }
+                    flushedStart = bucketStart;
+                    flushed = true;
+                }
+                bucketStart = bucket;
+                weight = 0;
+                Arrays.fill(min, Double.POSITIVE_INFINITY);
+                Arrays.fill(sum, 0);
+                Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            }
+            for (int c = 0; c < channels; c++) {
+                min[c] = Math.min(min[c], mins[c]);
+                sum[c] += avgs[c];
+                max[c] = Math.max(max[c], maxs[c]);
+            }
+            weight++;
+            return flushed;
+        }
+    }
+
+    /**
+     * 启动历史记录：恢复磁盘快照并订阅采样器（需在采样器启动前调用）
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        raw = new TimeSeriesRing(Math.max(1, rawSize), channels);
+        minutes = new TimeSeriesRing(Math.max(1, minuteSize), channels * 3);
+        hours = new TimeSeriesRing(Math.max(1, hourSize), channels * 3);
+        loadSnapshot();
+
+        sampler.addListener(this::onSample);
+        if (persistIntervalSeconds > 0) {
+            persister.scheduleWithFixedDelay(this::saveSnapshot, persistIntervalSeconds, persistIntervalSeconds, TimeUnit.SECONDS);
+        }
+        started = true;
+        log.info("系统指标历史记录已启动，原始/分钟/小时容量: {}/{}/{}", rawSize, minuteSize, hourSize);
+    }
+
+    /**
+     * 采样回调（采样线程调用）
+     */
+    private void onSample(long timestamp, SystemInfoDto snapshot) {
+        double[] values = sampleBuffer;
+        values[0] = snapshot.getCpu() != null ? snapshot.getCpu().getUsage() : 0;
+        values[1] = snapshot.getMemory() != null ? snapshot.getMemory().getUsage() : 0;
+        values[2] = snapshot.getMemory() != null ? snapshot.getMemory().getUsed() : 0;
+        values[3] = diskUsage(snapshot.getDisks());
+
+        // 网络与磁盘吞吐按所有接口/设备求和（字节/秒）
+        double rx = 0;
+        double tx = 0;
+        if (snapshot.getNetworks() != null) {
+            for (SystemInfoDto.NetworkInfo info : snapshot.getNetworks()) {
+                rx += info.getRxRate();
+                tx += info.getTxRate();
+            }
+        }
+        double read = 0;
+        double write = 0;
+        if (snapshot.getDiskIo() != null) {
+            for (SystemInfoDto.DiskIoInfo info : snapshot.getDiskIo()) {
+                read += info.getReadRate();
+                write += info.getWriteRate();
+            }
+        }
+        values[4] = rx;
+        values[5] = tx;
+        values[6] = read;
+        values[7] = write;
+        append(timestamp, values);
+    }
+
+    /**
+     * 磁盘通道的值：真实文件系统中最高的使用率
+     */
+    static double diskUsage(List<SystemInfoDto.DiskInfo> disks) {
+        double usage = 0;
+        for (SystemInfoDto.DiskInfo info : DiskFilter.realDisks(disks)) {
+            usage = Math.max(usage, info.getUsage());
+        }
+        return usage;
+    }
+
+    /**
+     * 追加一个原始采样并更新汇总
+     */
+    synchronized void append(long timestamp, double[] values) {
+        // 系统时钟回拨时丢弃，保证各缓冲区按时间有序
+        if (!appendIfNewer(raw, timestamp, values)) {
+            return;
+        }
+        if (!minuteAccumulator.add(timestamp, values, values, values, minuteRow)) {
+            return;
+        }
+        long minuteStart = minuteAccumulator.flushedStart;
+        appendIfNewer(minutes, minuteStart, minuteRow);
+
+        for (int c = 0; c < channels; c++) {
+            minuteMins[c] = minuteRow[c * 3];
+            minuteAvgs[c] = minuteRow[c * 3 + 1];
+            minuteMaxs[c] = minuteRow[c * 3 + 2];
+        }
+        if (hourAccumulator.add(minuteStart, minuteMins, minuteAvgs, minuteMaxs, hourRow)) {
+            appendIfNewer(hours, hourAccumulator.flushedStart, hourRow);
+        }
+    }
+
+    private static boolean appendIfNewer(TimeSeriesRing ring, long timestamp, double[] row) {
+        if (ring.size() > 0 && ring.latestTimestamp() >= timestamp) {
+            return false;
+        }
+        ring.append(timestamp, row);
+        return true;
+    }
+
+    /**
+     * 按时间范围与粒度查询历史数据
+     * @param resolution raw / minute / hour / auto（按范围自动选择能覆盖的最细粒度）
+     * @param from 起始时间（毫秒），小于等于0表示不限
+     * @param to 结束时间（毫秒），小于等于0表示当前
+     * @return 时间戳与各通道数据；汇总粒度下每个通道包含 min/avg/max 三组数据
+     */
+    public Map<String, Object> query(String resolution, long from, long to) {
+        if (!started) {
+            throw new IllegalStateException("系统指标历史记录未启动");
+        }
+        long end = to > 0 ? to : System.currentTimeMillis();
+        String selected = resolution == null || resolution.isEmpty() ? "auto" : resolution;
+        if ("auto".equals(selected)) {
+            selected = selectResolution(from);
+        }
+
+        TimeSeriesRing ring;
+        switch (selected) {
+            case RESOLUTION_RAW -> ring = raw;
+            case RESOLUTION_MINUTE -> ring = minutes;
+            case RESOLUTION_HOUR -> ring = hours;
+            default -> throw new IllegalArgumentException("不支持的粒度: " + resolution);
+        }
+
+        TimeSeriesRing.Snapshot snapshot = ring.snapshot(0);
+        long[] timestamps = snapshot.getTimestamps();
+        int startIndex = lowerBound(timestamps, from);
+        int endIndex = lowerBound(timestamps, end + 1);
+
+        Map<String, Object> series = new LinkedHashMap<>();
+        for (int c = 0; c < channels; c++) {
+            if (ring == raw) {
+                series.put(CHANNEL_NAMES[c], Arrays.copyOfRange(snapshot.getSeries(c), startIndex, endIndex));
+            } else {
+                Map<String, double[]> stats = new LinkedHashMap<>();
+                stats.put("min", Arrays.copyOfRange(snapshot.getSeries(c * 3), startIndex, endIndex));
+                stats.put("avg", Arrays.copyOfRange(snapshot.getSeries(c * 3 + 1), startIndex, endIndex));
+                stats.put("max", Arrays.copyOfRange(snapshot.getSeries(c * 3 + 2), startIndex, endIndex));
+                series.put(CHANNEL_NAMES[c], stats);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("resolution", selected);
+        result.put("timestamps", Arrays.copyOfRange(timestamps, startIndex, endIndex));
+        result.put("series", series);
+        return result;
+    }
+
+    /**
+     * 选择能覆盖起始时间的最细粒度
+     */
+    private String selectResolution(long from) {
+        if (from <= 0) {
+            return RESOLUTION_RAW;
+        }
+        if (coversFrom(raw, from)) {
+            return RESOLUTION_RAW;
+        }
+        if (coversFrom(minutes, from)) {
+            return RESOLUTION_MINUTE;
+        }
+        return RESOLUTION_HOUR;
+    }
+
+    private boolean coversFrom(TimeSeriesRing ring, long from) {
+        if (ring.size() < ring.getCapacity()) {
+            // 缓冲区未写满，说明更早的数据本就不存在，以该粒度返回即可
+            return true;
+        }
+        TimeSeriesRing.Snapshot oldest = ring.snapshot(ring.getCapacity());
+        return oldest.getTimestamps().length > 0 && oldest.getTimestamps()[0] <= from;
+    }
+
+    private static int lowerBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 写入磁盘快照（先写临时文件再原子替换）
+     */
+    private void saveSnapshot() {
+        if (raw == null) {
+            return;
+        }
+        Path path = Paths.get(snapshotPath);
+        // 各缓冲区自身线程安全，写文件时不持有采样锁，避免阻塞采样线程
+        synchronized (persistLock) {
+            try {
+                Path parent = path.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeInt(FILE_VERSION);
+                    out.writeInt(channels);
+                    for (String name : CHANNEL_NAMES) {
+                        out.writeUTF(name);
+                    }
+                    writeRing(out, raw);
+                    writeRing(out, minutes);
+                    writeRing(out, hours);
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Exception e) {
+                log.warn("写入系统指标历史快照失败: {}", path, e);
+            }
+        }
+    }
+
+    private void writeRing(DataOutputStream out, TimeSeriesRing ring) throws IOException {
+        TimeSeriesRing.Snapshot snapshot = ring.snapshot(0);
+        long[] timestamps = snapshot.getTimestamps();
+        int width = ring.getChannels();
+        out.writeInt(width);
+        out.writeInt(timestamps.length);
+        for (int i = 0; i < timestamps.length; i++) {
+            out.writeLong(timestamps[i]);
+            for (int c = 0; c < width; c++) {
+                out.writeDouble(snapshot.getSeries(c)[i]);
+            }
+        }
+    }
+
+    /**
+     * 从磁盘快照恢复，通道按名称对应，新增的通道以NaN填充
+     */
+    private void loadSnapshot() {
+        Path path = Paths.get(snapshotPath);
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                log.warn("系统指标历史快照格式不匹配，已忽略: {}", path);
+                return;
+            }
+            int fileChannels = in.readInt();
+            int[] mapping = new int[fileChannels];
+            List<String> names = Arrays.asList(CHANNEL_NAMES);
+            for (int i = 0; i < fileChannels; i++) {
+                mapping[i] = names.indexOf(in.readUTF());
+            }
+            readRing(in, raw, mapping, 1);
+            readRing(in, minutes, mapping, 3);
+            readRing(in, hours, mapping, 3);
+            log.info("已恢复系统指标历史: 原始{}条，分钟{}条，小时{}条", raw.size(), minutes.size(), hours.size());
+        } catch (Exception e) {
+            log.warn("读取系统指标历史快照失败，已忽略: {}", path, e);
+            raw.clear();
+            minutes.clear();
+            hours.clear();
+        }
+    }
+
+    private void readRing(DataInputStream in, TimeSeriesRing ring, int[] mapping, int stride) throws IOException {
+        int width = in.readInt();
+        int count = in.readInt();
+        if (width != mapping.length * stride) {
+            throw new IOException("通道宽度不匹配: " + width);
+        }
+        double[] fileRow = new double[width];
+        double[] row = new double[ring.getChannels()];
+        for (int i = 0; i < count; i++) {
+            long timestamp = in.readLong();
+            for (int c = 0; c < width; c++) {
+                fileRow[c] = in.readDouble();
+            }
+            Arrays.fill(row, Double.NaN);
+            for (int c = 0; c < mapping.length; c++) {
+                if (mapping[c] >= 0) {
+                    System.arraycopy(fileRow, c * stride, row, mapping[c] * stride, stride);
+                }
+            }
+            ring.append(timestamp, row);
+        }
+    }
+
+    /**
+     * 应用关闭时写入最后一次快照
+     */
+    @PreDestroy
+    public void shutdown() {
+        persister.shutdownNow();
+        if (started) {
+            saveSnapshot();
+        }
+    }
+}
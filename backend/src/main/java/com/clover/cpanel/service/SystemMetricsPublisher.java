@@ -0,0 +1,119 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.SystemInfoDto;
+import com.clover.cpanel.websocket.EventWebSocketHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 本机系统指标推送服务
+ * 每次采样只计算一次与上一次快照的差异，经事件推送通道（/ws/events 的 system.metrics 主题）
+ * 广播给所有订阅者，推送成本与打开的面板数量无关
+ *
+ * 客户端订阅时先收到一次完整状态 {"seq":n,"full":true,"data":{...}}，
+ * 之后收到只包含变化字段的增量 {"seq":n,"full":false,"data":{...}}；
+ * 收到完整状态之前的增量、以及序号不大于完整状态序号的增量应忽略，序号不连续时重新订阅即可
+ */
+@Service
+public class SystemMetricsPublisher {
+
+    public static final String METRICS_TOPIC = "system.metrics";
+
+    @Autowired
+    private SystemMetricsSampler sampler;
+
+    @Autowired
+    private EventWebSocketHandler eventWebSocketHandler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 最新的完整状态，整体替换
+    private volatile ObjectNode fullState;
+    private long seq;
+    private JsonNode previous;
+
+    private boolean started;
+
+    /**
+     * 启动推送（需在采样器启动前调用）
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        eventWebSocketHandler.registerInitialState(METRICS_TOPIC, () -> fullState);
+        sampler.addListener(this::onSample);
+        started = true;
+    }
+
+    /**
+     * 采样回调（采样线程调用）
+     */
+    private void onSample(long timestamp, SystemInfoDto snapshot) {
+        ObjectNode current = objectMapper.valueToTree(snapshot);
+        current.put("timestamp", timestamp);
+        seq++;
+
+        JsonNode changes = previous != null ? diff(previous, current) : current;
+        previous = current;
+        fullState = message(true, current);
+
+        if (changes != null && eventWebSocketHandler.hasSubscribers(METRICS_TOPIC)) {
+            eventWebSocketHandler.publish(METRICS_TOPIC, message(false, changes));
+        }
+    }
+
+    private ObjectNode message(boolean full, JsonNode data) {
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("seq", seq);
+        message.put("full", full);
+        message.set("data", data);
+        return message;
+    }
+
+    /**
+     * 计算两个对象之间变化的字段，嵌套对象递归比较，数组整体比较
+     * @return 只包含变化字段的对象，没有变化时返回null
+     */
+    static ObjectNode diff(JsonNode previous, JsonNode current) {
+        ObjectNode changes = null;
+        Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode before = previous.get(field.getKey());
+            JsonNode after = field.getValue();
+            if (after.equals(before)) {
+                continue;
+            }
+            JsonNode changed = after;
+            if (before != null && before.isObject() && after.isObject()) {
+                changed = diff(before, after);
+            }
+            if (changed != null) {
+                if (changes == null) {
+                    changes = JsonNodeFactory.instance.objectNode();
+                }
+                changes.set(field.getKey(), changed);
+            }
+        }
+        Iterator<String> previousNames = previous.fieldNames();
+        while (previousNames.hasNext()) {
+            String name = previousNames.next();
+            if (!current.has(name)) {
+                if (changes == null) {
+                    changes = JsonNodeFactory.instance.objectNode();
+                }
+                changes.set(name, NullNode.getInstance());
+            }
+        }
+        return changes;
+    }
+}
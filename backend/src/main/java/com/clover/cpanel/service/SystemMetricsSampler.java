@@ -0,0 +1,467 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.SystemInfoDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import oshi.SystemInfo;
+import oshi.hardware.CentralProcessor;
+import oshi.hardware.GlobalMemory;
+import oshi.hardware.HWDiskStore;
+import oshi.hardware.HardwareAbstractionLayer;
+import oshi.hardware.NetworkIF;
+import oshi.software.os.OSFileStore;
+import oshi.software.os.OSProcess;
+import oshi.software.os.OperatingSystem;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本机系统指标采样器
+ * 后台线程按固定间隔读取CPU时钟计数、内存和运行时间，生成不可变快照供接口直接返回；
+ * 文件系统枚举开销较大，按更长的间隔单独采样
+ */
+@Slf4j
+@Service
+public class SystemMetricsSampler {
+
+    private static final double GB = 1024.0 * 1024.0 * 1024.0;
+
+    /**
+     * 采样间隔（秒）
+     */
+    @Value("${system.metrics.interval-seconds:2}")
+    private int intervalSeconds;
+
+    /**
+     * 磁盘采样间隔（秒）
+     */
+    @Value("${system.metrics.disk-interval-seconds:30}")
+    private int diskIntervalSeconds;
+
+    /**
+     * 进程列表采样间隔（秒）
+     */
+    @Value("${system.metrics.process-interval-seconds:5}")
+    private int processIntervalSeconds;
+
+    /**
+     * 返回的进程数（按CPU、按内存各取前N个）
+     */
+    @Value("${system.metrics.top-processes:10}")
+    private int topProcesses;
+
+    private final HardwareAbstractionLayer hardware;
+    private final OperatingSystem operatingSystem;
+    private final CentralProcessor processor;
+
+    // 以下字段仅由采样线程访问
+    private long[] prevTicks;
+    private long lastDiskSampleAt;
+    private List<SystemInfoDto.DiskInfo> disks = Collections.emptyList();
+    private SystemInfoDto.SystemBasicInfo basicInfo = new SystemInfoDto.SystemBasicInfo();
+    private List<NetworkIF> networkIFs = Collections.emptyList();
+    private List<HWDiskStore> diskStores = Collections.emptyList();
+    // 名称 -> 上一次的计数器与时间戳，接口/设备列表刷新后仍可按名称衔接
+    private final Map<String, long[]> prevNetCounters = new HashMap<>();
+    private final Map<String, long[]> prevDiskCounters = new HashMap<>();
+    // 进程ID -> 上一次枚举的进程对象，用于计算区间CPU使用率
+    private Map<Integer, OSProcess> priorProcesses = Collections.emptyMap();
+    private long lastProcessSampleAt;
+    private List<SystemInfoDto.ProcessInfo> topCpu = Collections.emptyList();
+    private List<SystemInfoDto.ProcessInfo> topMemory = Collections.emptyList();
+
+    // 最新快照，整体替换，读取方无需加锁
+    private volatile SystemInfoDto latest;
+    private volatile long latestTimestamp;
+
+    private ScheduledExecutorService scheduler;
+
+    private final List<SampleListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 采样监听器，在采样线程中回调，实现方不应阻塞
+     */
+    public interface SampleListener {
+        void onSample(long timestamp, SystemInfoDto snapshot);
+    }
+
+    public SystemMetricsSampler() {
+        SystemInfo systemInfo = new SystemInfo();
+        this.hardware = systemInfo.getHardware();
+        this.operatingSystem = systemInfo.getOperatingSystem();
+        this.processor = hardware.getProcessor();
+    }
+
+    /**
+     * 启动后台采样
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        prevTicks = processor.getSystemCpuLoadTicks();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "system-metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = Math.max(1, intervalSeconds);
+        // 首次采样延后一个间隔，以便和启动时的时钟计数做差
+        scheduler.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.SECONDS);
+        log.info("系统指标采样已启动，间隔: {}秒，磁盘间隔: {}秒", interval, diskIntervalSeconds);
+    }
+
+    /**
+     * 注册采样监听器
+     */
+    public void addListener(SampleListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 获取最新快照
+     * 后台采样尚未产生数据时（如未启动或刚启动），同步采样一次（CPU使用率需要等待1秒）
+     * @return 系统信息快照，调用方不应修改
+     */
+    public SystemInfoDto getSnapshot() {
+        SystemInfoDto snapshot = latest;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        return sampleBlocking();
+    }
+
+    /**
+     * 获取最新快照的采样时间（毫秒），尚未采样时为0
+     */
+    public long getLatestTimestamp() {
+        return latestTimestamp;
+    }
+
+    private void sample() {
+        try {
+            long[] ticks = processor.getSystemCpuLoadTicks();
+            double cpuUsage = processor.getSystemCpuLoadBetweenTicks(prevTicks) * 100;
+            prevTicks = ticks;
+
+            long now = System.currentTimeMillis();
+            if (now - lastDiskSampleAt >= TimeUnit.SECONDS.toMillis(diskIntervalSeconds)) {
+                // 磁盘与主机名等变化很少的信息走慢速路径
+                disks = readDiskInfo();
+                basicInfo = readSystemBasicInfo();
+                networkIFs = hardware.getNetworkIFs();
+                diskStores = hardware.getDiskStores();
+                lastDiskSampleAt = now;
+            }
+            if (now - lastProcessSampleAt >= TimeUnit.SECONDS.toMillis(processIntervalSeconds)) {
+                sampleProcesses();
+                lastProcessSampleAt = now;
+            }
+
+            SystemInfoDto snapshot = new SystemInfoDto();
+            snapshot.setCpu(readCpuInfo(cpuUsage));
+            snapshot.setMemory(readMemoryInfo());
+            snapshot.setDisks(disks);
+            snapshot.setSystem(withUptime(basicInfo));
+            snapshot.setNetworks(readNetworkInfo());
+            snapshot.setDiskIo(readDiskIoInfo());
+            snapshot.setTopCpuProcesses(topCpu);
+            snapshot.setTopMemoryProcesses(topMemory);
+
+            latest = snapshot;
+            latestTimestamp = now;
+
+            for (SampleListener listener : listeners) {
+                try {
+                    listener.onSample(now, snapshot);
+                } catch (Exception e) {
+                    log.warn("系统指标采样监听器处理失败", e);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("系统指标采样失败", e);
+        }
+    }
+
+    private SystemInfoDto sampleBlocking() {
+        // CPU使用率（需要两次采样计算）
+        long[] ticks = processor.getSystemCpuLoadTicks();
+        try {
+            Thread.sleep(1000); // 等待1秒
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        double cpuUsage = processor.getSystemCpuLoadBetweenTicks(ticks) * 100;
+
+        SystemInfoDto snapshot = new SystemInfoDto();
+        snapshot.setCpu(readCpuInfo(cpuUsage));
+        snapshot.setMemory(readMemoryInfo());
+        snapshot.setDisks(readDiskInfo());
+        snapshot.setSystem(readSystemBasicInfo());
+        // 速率类指标需要两次采样的差值，同步采样时不提供
+        snapshot.setNetworks(Collections.emptyList());
+        snapshot.setDiskIo(Collections.emptyList());
+        snapshot.setTopCpuProcesses(Collections.emptyList());
+        snapshot.setTopMemoryProcesses(Collections.emptyList());
+        return snapshot;
+    }
+
+    /**
+     * 刷新网络接口计数器并按与上一次的差值计算速率
+     */
+    private List<SystemInfoDto.NetworkInfo> readNetworkInfo() {
+        List<SystemInfoDto.NetworkInfo> result = new ArrayList<>(networkIFs.size());
+        for (NetworkIF networkIF : networkIFs) {
+            try {
+                String name = networkIF.getName();
+                if ("lo".equals(name) || !networkIF.updateAttributes()) {
+                    continue;
+                }
+                long rx = networkIF.getBytesRecv();
+                long tx = networkIF.getBytesSent();
+                long timestamp = networkIF.getTimeStamp();
+
+                SystemInfoDto.NetworkInfo info = new SystemInfoDto.NetworkInfo();
+                info.setName(name);
+                info.setRxBytes(rx);
+                info.setTxBytes(tx);
+                long[] prev = prevNetCounters.get(name);
+                if (prev != null && timestamp > prev[2]) {
+                    double seconds = (timestamp - prev[2]) / 1000.0;
+                    info.setRxRate(round(rate(rx, prev[0], seconds)));
+                    info.setTxRate(round(rate(tx, prev[1], seconds)));
+                    prev[0] = rx;
+                    prev[1] = tx;
+                    prev[2] = timestamp;
+                } else if (prev == null) {
+                    prevNetCounters.put(name, new long[]{rx, tx, timestamp});
+                }
+                result.add(info);
+            } catch (Exception e) {
+                log.debug("读取网络接口失败: {}", networkIF.getName(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 刷新磁盘设备计数器并按与上一次的差值计算IOPS与吞吐
+     */
+    private List<SystemInfoDto.DiskIoInfo> readDiskIoInfo() {
+        List<SystemInfoDto.DiskIoInfo> result = new ArrayList<>(diskStores.size());
+        for (HWDiskStore store : diskStores) {
+            try {
+                String name = store.getName();
+                // 忽略loop、ram等虚拟块设备
+                if (name.contains("/loop") || name.contains("/ram") || !store.updateAttributes()) {
+                    continue;
+                }
+                long reads = store.getReads();
+                long writes = store.getWrites();
+                long readBytes = store.getReadBytes();
+                long writeBytes = store.getWriteBytes();
+                long timestamp = store.getTimeStamp();
+
+                SystemInfoDto.DiskIoInfo info = new SystemInfoDto.DiskIoInfo();
+                info.setName(name);
+                long[] prev = prevDiskCounters.get(name);
+                if (prev != null && timestamp > prev[4]) {
+                    double seconds = (timestamp - prev[4]) / 1000.0;
+                    info.setReadIops(round(rate(reads, prev[0], seconds)));
+                    info.setWriteIops(round(rate(writes, prev[1], seconds)));
+                    info.setReadRate(round(rate(readBytes, prev[2], seconds)));
+                    info.setWriteRate(round(rate(writeBytes, prev[3], seconds)));
+                    prev[0] = reads;
+                    prev[1] = writes;
+                    prev[2] = readBytes;
+                    prev[3] = writeBytes;
+                    prev[4] = timestamp;
+                } else if (prev == null) {
+                    prevDiskCounters.put(name, new long[]{reads, writes, readBytes, writeBytes, timestamp});
+                }
+                result.add(info);
+            } catch (Exception e) {
+                log.debug("读取磁盘设备失败: {}", store.getName(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 枚举进程，根据与上一次枚举的进程对象的时钟差值计算区间CPU使用率，取CPU和内存占用最高的前N个
+     */
+    private void sampleProcesses() {
+        try {
+            List<OSProcess> processes = operatingSystem.getProcesses(OperatingSystem.ProcessFiltering.VALID_PROCESS, null, 0);
+            int logicalProcessors = Math.max(1, processor.getLogicalProcessorCount());
+            Map<Integer, OSProcess> current = new HashMap<>(processes.size() * 2);
+            double[] cpuLoads = new double[processes.size()];
+            for (int i = 0; i < processes.size(); i++) {
+                OSProcess process = processes.get(i);
+                current.put(process.getProcessID(), process);
+                OSProcess prior = priorProcesses.get(process.getProcessID());
+                cpuLoads[i] = process.getProcessCpuLoadBetweenTicks(prior) / logicalProcessors * 100;
+            }
+            priorProcesses = current;
+
+            int limit = Math.max(0, topProcesses);
+            Integer[] order = new Integer[processes.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+
+            Arrays.sort(order, (a, b) -> Double.compare(cpuLoads[b], cpuLoads[a]));
+            List<SystemInfoDto.ProcessInfo> byCpu = new ArrayList<>(limit);
+            for (int i = 0; i < Math.min(limit, order.length); i++) {
+                byCpu.add(toProcessInfo(processes.get(order[i]), cpuLoads[order[i]]));
+            }
+
+            Arrays.sort(order, (a, b) -> Long.compare(processes.get(b).getResidentSetSize(), processes.get(a).getResidentSetSize()));
+            List<SystemInfoDto.ProcessInfo> byMemory = new ArrayList<>(limit);
+            for (int i = 0; i < Math.min(limit, order.length); i++) {
+                byMemory.add(toProcessInfo(processes.get(order[i]), cpuLoads[order[i]]));
+            }
+
+            topCpu = Collections.unmodifiableList(byCpu);
+            topMemory = Collections.unmodifiableList(byMemory);
+        } catch (Exception e) {
+            log.warn("采样进程列表失败", e);
+        }
+    }
+
+    private SystemInfoDto.ProcessInfo toProcessInfo(OSProcess process, double cpuUsage) {
+        SystemInfoDto.ProcessInfo info = new SystemInfoDto.ProcessInfo();
+        info.setPid(process.getProcessID());
+        info.setName(process.getName());
+        info.setUser(process.getUser());
+        info.setCpuUsage(round(cpuUsage));
+        info.setRss(round(process.getResidentSetSize() / (1024.0 * 1024.0)));
+        return info;
+    }
+
+    /**
+     * 计数器差值换算为每秒速率，计数器回绕或重置时返回0
+     */
+    private static double rate(long current, long previous, double seconds) {
+        long delta = current - previous;
+        return delta > 0 && seconds > 0 ? delta / seconds : 0;
+    }
+
+    private SystemInfoDto.CpuInfo readCpuInfo(double cpuUsage) {
+        try {
+            SystemInfoDto.CpuInfo cpuInfo = new SystemInfoDto.CpuInfo();
+
+            // CPU基本信息
+            cpuInfo.setModel(processor.getProcessorIdentifier().getName());
+            cpuInfo.setCores(processor.getPhysicalProcessorCount());
+            cpuInfo.setLogicalProcessors(processor.getLogicalProcessorCount());
+            cpuInfo.setFrequency(processor.getMaxFreq());
+            cpuInfo.setUsage(round(cpuUsage)); // 保留两位小数
+
+            return cpuInfo;
+        } catch (Exception e) {
+            log.error("获取CPU信息失败", e);
+            return new SystemInfoDto.CpuInfo();
+        }
+    }
+
+    private SystemInfoDto.MemoryInfo readMemoryInfo() {
+        try {
+            GlobalMemory memory = hardware.getMemory();
+            SystemInfoDto.MemoryInfo memoryInfo = new SystemInfoDto.MemoryInfo();
+
+            long totalMemory = memory.getTotal();
+            long availableMemory = memory.getAvailable();
+            long usedMemory = totalMemory - availableMemory;
+
+            // 转换为GB并保留两位小数
+            memoryInfo.setTotal(round(totalMemory / GB));
+            memoryInfo.setUsed(round(usedMemory / GB));
+            memoryInfo.setAvailable(round(availableMemory / GB));
+
+            // 计算使用率
+            memoryInfo.setUsage(round((double) usedMemory / totalMemory * 100));
+
+            return memoryInfo;
+        } catch (Exception e) {
+            log.error("获取内存信息失败", e);
+            return new SystemInfoDto.MemoryInfo();
+        }
+    }
+
+    private List<SystemInfoDto.DiskInfo> readDiskInfo() {
+        List<SystemInfoDto.DiskInfo> diskInfoList = new ArrayList<>();
+        try {
+            for (OSFileStore store : operatingSystem.getFileSystem().getFileStores()) {
+                SystemInfoDto.DiskInfo diskInfo = new SystemInfoDto.DiskInfo();
+
+                diskInfo.setName(store.getMount());
+                diskInfo.setFileSystem(store.getType());
+
+                long totalSpace = store.getTotalSpace();
+                long usableSpace = store.getUsableSpace();
+                long usedSpace = totalSpace - usableSpace;
+
+                // 转换为GB并保留两位小数
+                diskInfo.setTotal(round(totalSpace / GB));
+                diskInfo.setUsed(round(usedSpace / GB));
+                diskInfo.setAvailable(round(usableSpace / GB));
+
+                // 计算使用率
+                diskInfo.setUsage(totalSpace > 0 ? round((double) usedSpace / totalSpace * 100) : 0.0);
+
+                diskInfoList.add(diskInfo);
+            }
+        } catch (Exception e) {
+            log.error("获取磁盘信息失败", e);
+        }
+        return Collections.unmodifiableList(diskInfoList);
+    }
+
+    private SystemInfoDto.SystemBasicInfo readSystemBasicInfo() {
+        try {
+            SystemInfoDto.SystemBasicInfo basicInfo = new SystemInfoDto.SystemBasicInfo();
+
+            basicInfo.setOsName(operatingSystem.getFamily());
+            basicInfo.setOsVersion(operatingSystem.getVersionInfo().toString());
+            basicInfo.setArchitecture(System.getProperty("os.arch"));
+            basicInfo.setHostname(operatingSystem.getNetworkParams().getHostName());
+            basicInfo.setUptime(operatingSystem.getSystemUptime());
+
+            return basicInfo;
+        } catch (Exception e) {
+            log.error("获取系统基本信息失败", e);
+            return new SystemInfoDto.SystemBasicInfo();
+        }
+    }
+
+    private SystemInfoDto.SystemBasicInfo withUptime(SystemInfoDto.SystemBasicInfo cached) {
+        SystemInfoDto.SystemBasicInfo info = new SystemInfoDto.SystemBasicInfo();
+        info.setOsName(cached.getOsName());
+        info.setOsVersion(cached.getOsVersion());
+        info.setArchitecture(cached.getArchitecture());
+        info.setHostname(cached.getHostname());
+        info.setUptime(operatingSystem.getSystemUptime());
+        return info;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    /**
+     * 应用关闭时停止采样
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package com.clover.cpanel.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 终端会话录制服务
+ * 以asciicast v2格式录制终端输出（键盘输入默认不录制，其中可能包含密码）。录制不阻塞终端：事件写入无锁队列，
+ * 由后台线程批量写入gzip文件。文件由多个gzip成员组成，每个成员覆盖一段时间，
+ * 配合索引文件可以直接定位到指定时间点回放，而不必从头解压。
+ * 待写入的事件和单个录制文件都有大小上限，录制总大小由写入线程定期检查
+ */
+@Slf4j
+@Service
+public class TerminalRecordingService {
+
+    private static final String RECORDING_SUFFIX = ".cast.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final Pattern RECORDING_ID_PATTERN = Pattern.compile("[A-Za-z0-9_.-]+");
+
+    // 每个gzip成员覆盖的录制时长（秒），即回放定位的粒度
+    private static final int SEGMENT_SECONDS = 10;
+
+    // 检查录制总大小的间隔（秒）
+    private static final int RETENTION_CHECK_SECONDS = 60;
+
+    /**
+     * 是否默认录制所有终端会话（关闭时可由连接消息单独开启）
+     */
+    @Value("${terminal.recording.enabled:false}")
+    private boolean recordingEnabled;
+
+    /**
+     * 录制文件目录
+     */
+    @Value("${terminal.recording.path:./recordings/}")
+    private String recordingPath;
+
+    /**
+     * 录制文件总大小上限（字节），超出后删除最旧的录制
+     */
+    @Value("${terminal.recording.max-total-size:1073741824}")
+    private long maxTotalSize;
+
+    /**
+     * 单个录制文件的大小上限（字节），达到后停止该会话的录制，0表示不限制
+     */
+    @Value("${terminal.recording.max-file-size:104857600}")
+    private long maxFileSize;
+
+    /**
+     * 每个会话待写入事件的上限（字符），写入跟不上时丢弃超出的事件并在录制中标记，0表示不限制
+     */
+    @Value("${terminal.recording.max-queued-chars:4194304}")
+    private long maxQueuedChars;
+
+    /**
+     * 是否录制键盘输入，其中可能包含密码，默认关闭
+     */
+    @Value("${terminal.recording.record-input:false}")
+    private boolean recordInput;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // SSH会话ID -> 录制器
+    private final Map<String, Recorder> activeRecorders = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "terminal-recording-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TerminalRecordingService() {
+        writer.scheduleWithFixedDelay(this::flushAll, 200, 200, TimeUnit.MILLISECONDS);
+        writer.scheduleWithFixedDelay(this::enforceRetention,
+                RETENTION_CHECK_SECONDS, RETENTION_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 录制事件
+     */
+    private static class RecordEvent {
+        private final long nanoTime;
+        private final String type;
+        private final String data;
+
+        RecordEvent(long nanoTime, String type, String data) {
+            this.nanoTime = nanoTime;
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    /**
+     * 单个会话的录制器，同时作为SSH输出泵的订阅者
+     */
+    public class Recorder implements SshService.OutputListener {
+        private final String recordingId;
+        private final String sshSessionId;
+        private final long startNanos = System.nanoTime();
+        private final Queue<RecordEvent> events = new ConcurrentLinkedQueue<>();
+        private final AtomicLong queuedChars = new AtomicLong();
+        private final AtomicInteger droppedEvents = new AtomicInteger();
+        private volatile boolean stopped;
+
+        // 以下字段仅由写入线程访问
+        private FileOutputStream fileOut;
+        private Writer indexWriter;
+        private GZIPOutputStream segment;
+        private Writer segmentWriter;
+        private long segmentStartSecond = -1;
+        private boolean limitReached;
+
+        private Recorder(String recordingId, String sshSessionId) {
+            this.recordingId = recordingId;
+            this.sshSessionId = sshSessionId;
+        }
+
+        public String getRecordingId() {
+            return recordingId;
+        }
+
+        /**
+         * 记录键盘输入，未开启输入录制时忽略
+         */
+        public void recordInput(String input) {
+            if (recordInput) {
+                enqueue("i", input);
+            }
+        }
+
+        public void recordResize(int cols, int rows) {
+            enqueue("r", cols + "x" + rows);
+        }
+
+        @Override
+        public void onOutput(String output) {
+            enqueue("o", output);
+        }
+
+        @Override
+        public void onClosed() {
+            stopRecording(sshSessionId);
+        }
+
+        private void enqueue(String type, String data) {
+            if (stopped) {
+                return;
+            }
+            if (queuedChars.addAndGet(data.length()) > maxQueuedChars && maxQueuedChars > 0) {
+                queuedChars.addAndGet(-data.length());
+                droppedEvents.incrementAndGet();
+                return;
+            }
+            events.offer(new RecordEvent(System.nanoTime(), type, data));
+        }
+
+        /**
+         * 写入队列中的事件（写入线程调用）
+         * @return 录制文件是否已达到大小上限
+         */
+        private boolean drain() throws IOException {
+            if (limitReached) {
+                events.clear();
+                return true;
+            }
+            RecordEvent event;
+            boolean written = false;
+            while ((event = events.poll()) != null) {
+                queuedChars.addAndGet(-event.data.length());
+                write(event);
+                written = true;
+            }
+            int dropped = droppedEvents.getAndSet(0);
+            if (dropped > 0) {
+                log.warn("终端录制写入跟不上，丢弃{}个事件: {}", dropped, recordingId);
+                write(new RecordEvent(System.nanoTime(), "m", "录制丢弃了" + dropped + "个事件"));
+                written = true;
+            }
+            if (!written) {
+                return false;
+            }
+            segmentWriter.flush();
+            segment.flush();
+            if (maxFileSize > 0 && fileOut.getChannel().position() >= maxFileSize) {
+                write(new RecordEvent(System.nanoTime(), "m", "录制文件达到大小上限，停止录制"));
+                segmentWriter.flush();
+                segment.flush();
+                limitReached = true;
+                return true;
+            }
+            return false;
+        }
+
+        private void write(RecordEvent event) throws IOException {
+            double seconds = (event.nanoTime - startNanos) / 1_000_000_000.0;
+            long second = (long) seconds;
+            if (segment == null || second - segmentStartSecond >= SEGMENT_SECONDS) {
+                startSegment(second);
+            }
+            segmentWriter.write(objectMapper.writeValueAsString(
+                    List.of(Math.round(seconds * 1_000_000.0) / 1_000_000.0, event.type, event.data)));
+            segmentWriter.write('\n');
+        }
+
+        /**
+         * 结束当前gzip成员并开始新的成员，同时记录其时间与文件偏移
+         */
+        private void startSegment(long second) throws IOException {
+            finishSegment();
+            long offset = fileOut.getChannel().position();
+            indexWriter.write(second + " " + offset + "\n");
+            indexWriter.flush();
+            segment = new GZIPOutputStream(new NonClosingOutputStream(fileOut), 8192, true);
+            segmentWriter = new BufferedWriter(new OutputStreamWriter(segment, StandardCharsets.UTF_8));
+            segmentStartSecond = second;
+        }
+
+        private void finishSegment() throws IOException {
+            if (segment != null) {
+                segmentWriter.flush();
+                segment.finish();
+                segment = null;
+                segmentWriter = null;
+            }
+        }
+
+        private void close() {
+            try {
+                drain();
+                finishSegment();
+            } catch (IOException e) {
+                log.warn("写入终端录制失败: {}", recordingId, e);
+            }
+            closeQuietly(indexWriter);
+            closeQuietly(fileOut);
+        }
+    }
+
+    /**
+     * 是否默认录制
+     */
+    public boolean isRecordingEnabled() {
+        return recordingEnabled;
+    }
+
+    /**
+     * 开始录制SSH会话
+     * @param sshSessionId SSH会话ID
+     * @param cols 终端列数
+     * @param rows 终端行数
+     * @return 录制器
+     */
+    public Recorder startRecording(String sshSessionId, int cols, int rows) throws IOException {
+        Path dir = Paths.get(recordingPath);
+        Files.createDirectories(dir);
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String safeSessionId = sshSessionId.replaceAll("[^A-Za-z0-9_-]", "");
+        String recordingId = timestamp + "_" + safeSessionId;
+
+        Recorder recorder = new Recorder(recordingId, sshSessionId);
+        recorder.fileOut = new FileOutputStream(dir.resolve(recordingId + RECORDING_SUFFIX).toFile());
+        recorder.indexWriter = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(dir.resolve(recordingId + INDEX_SUFFIX).toFile()), StandardCharsets.UTF_8));
+
+        // 头部单独写入第一个gzip成员
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("version", 2);
+        header.put("width", cols);
+        header.put("height", rows);
+        header.put("timestamp", System.currentTimeMillis() / 1000);
+        header.put("title", sshSessionId);
+        GZIPOutputStream headerSegment = new GZIPOutputStream(new NonClosingOutputStream(recorder.fileOut));
+        headerSegment.write((objectMapper.writeValueAsString(header) + "\n").getBytes(StandardCharsets.UTF_8));
+        headerSegment.finish();
+
+        Recorder previous = activeRecorders.put(sshSessionId, recorder);
+        if (previous != null) {
+            previous.stopped = true;
+            writer.execute(previous::close);
+        }
+        log.info("开始录制终端会话: {}, 录制ID: {}", sshSessionId, recordingId);
+        return recorder;
+    }
+
+    /**
+     * 获取会话的录制器
+     */
+    public Recorder getRecorder(String sshSessionId) {
+        return activeRecorders.get(sshSessionId);
+    }
+
+    /**
+     * 停止录制SSH会话，剩余事件由写入线程落盘后关闭文件
+     */
+    public void stopRecording(String sshSessionId) {
+        Recorder recorder = activeRecorders.remove(sshSessionId);
+        if (recorder != null) {
+            recorder.stopped = true;
+            writer.execute(() -> {
+                recorder.close();
+                log.info("终端会话录制结束: {}", recorder.recordingId);
+                enforceRetention();
+            });
+        }
+    }
+
+    /**
+     * 批量写入所有录制器的事件
+     */
+    private void flushAll() {
+        for (Recorder recorder : activeRecorders.values()) {
+            try {
+                if (recorder.drain()) {
+                    log.info("终端录制达到大小上限，停止录制: {}", recorder.recordingId);
+                    stopRecording(recorder.sshSessionId);
+                }
+            } catch (Exception e) {
+                log.warn("写入终端录制失败，停止录制: {}", recorder.recordingId, e);
+                stopRecording(recorder.sshSessionId);
+            }
+        }
+    }
+
+    /**
+     * 按总大小上限删除最旧的录制（录制结束时及定期执行，录制中的文件不删除）
+     */
+    private void enforceRetention() {
+        Path dir = Paths.get(recordingPath);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> recordings = new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().endsWith(RECORDING_SUFFIX))
+                    .toList());
+            recordings.sort(Comparator.comparingLong(this::lastModified));
+
+            long totalSize = 0;
+            for (Path path : recordings) {
+                totalSize += Files.size(path);
+            }
+            for (Path path : recordings) {
+                if (totalSize <= maxTotalSize) {
+                    break;
+                }
+                String recordingId = toRecordingId(path);
+                if (isActive(recordingId)) {
+                    continue;
+                }
+                totalSize -= Files.size(path);
+                Files.deleteIfExists(path);
+                Files.deleteIfExists(dir.resolve(recordingId + INDEX_SUFFIX));
+                log.info("超出录制容量上限，删除旧录制: {}", recordingId);
+            }
+        } catch (IOException e) {
+            log.warn("清理终端录制失败", e);
+        }
+    }
+
+    /**
+     * 获取录制列表（按时间倒序）
+     */
+    public List<Map<String, Object>> listRecordings() throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        Path dir = Paths.get(recordingPath);
+        if (!Files.isDirectory(dir)) {
+            return result;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(path -> path.getFileName().toString().endsWith(RECORDING_SUFFIX))
+                    .sorted(Comparator.comparingLong(this::lastModified).reversed())
+                    .forEach(path -> {
+                        String recordingId = toRecordingId(path);
+                        Map<String, Object> item = new HashMap<>();
+                        item.put("id", recordingId);
+                        item.put("size", path.toFile().length());
+                        item.put("lastModified", lastModified(path));
+                        item.put("active", isActive(recordingId));
+                        result.add(item);
+                    });
+        }
+        return result;
+    }
+
+    /**
+     * 从指定时间点开始回放录制，输出完整的asciicast v2内容（事件时间相对于起点）
+     * @param recordingId 录制ID
+     * @param fromSeconds 起始时间（秒）
+     * @param out 输出流
+     */
+    public void replay(String recordingId, double fromSeconds, OutputStream out) throws IOException {
+        Path file = resolveRecording(recordingId);
+        Writer output = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        // 头部位于第一个gzip成员
+        try (BufferedReader headerReader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String header = headerReader.readLine();
+            if (header != null) {
+                output.write(header);
+                output.write('\n');
+            }
+        }
+
+        long offset = findSegmentOffset(recordingId, fromSeconds);
+        if (offset < 0) {
+            output.flush();
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(offset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Channels.newInputStream(channel)), StandardCharsets.UTF_8));
+            String line;
+            while ((line = readLineQuietly(reader)) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                List<?> event = objectMapper.readValue(line, List.class);
+                double time = ((Number) event.get(0)).doubleValue();
+                if (time < fromSeconds) {
+                    continue;
+                }
+                output.write(objectMapper.writeValueAsString(
+                        List.of(Math.round((time - fromSeconds) * 1_000_000.0) / 1_000_000.0, event.get(1), event.get(2))));
+                output.write('\n');
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * 录制是否存在
+     */
+    public boolean recordingExists(String recordingId) {
+        return recordingId != null && RECORDING_ID_PATTERN.matcher(recordingId).matches()
+                && Files.exists(Paths.get(recordingPath).resolve(recordingId + RECORDING_SUFFIX));
+    }
+
+    /**
+     * 删除录制
+     */
+    public boolean deleteRecording(String recordingId) throws IOException {
+        Path file = resolveRecording(recordingId);
+        if (isActive(recordingId)) {
+            return false;
+        }
+        Files.deleteIfExists(Paths.get(recordingPath).resolve(recordingId + INDEX_SUFFIX));
+        return Files.deleteIfExists(file);
+    }
+
+    /**
+     * 根据索引查找不晚于起始时间的最后一个gzip成员偏移
+     */
+    private long findSegmentOffset(String recordingId, double fromSeconds) throws IOException {
+        Path index = Paths.get(recordingPath).resolve(recordingId + INDEX_SUFFIX);
+        if (!Files.exists(index)) {
+            return -1;
+        }
+        long offset = -1;
+        for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            String[] parts = line.trim().split(" ");
+            if (parts.length != 2) {
+                continue;
+            }
+            long second = Long.parseLong(parts[0]);
+            if (offset < 0 || second <= fromSeconds) {
+                offset = Long.parseLong(parts[1]);
+            }
+            if (second > fromSeconds) {
+                break;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * 录制中的文件最后一个gzip成员尚未结束，读到末尾时视为结束
+     */
+    private String readLineQuietly(BufferedReader reader) {
+        try {
+            return reader.readLine();
+        } catch (EOFException e) {
+            return null;
+        } catch (IOException e) {
+            log.debug("读取录制文件结束: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Path resolveRecording(String recordingId) throws FileNotFoundException {
+        if (recordingId == null || !RECORDING_ID_PATTERN.matcher(recordingId).matches()) {
+            throw new IllegalArgumentException("录制ID不合法");
+        }
+        Path file = Paths.get(recordingPath).resolve(recordingId + RECORDING_SUFFIX);
+        if (!Files.exists(file)) {
+            throw new FileNotFoundException("录制不存在: " + recordingId);
+        }
+        return file;
+    }
+
+    private boolean isActive(String recordingId) {
+        return activeRecorders.values().stream().anyMatch(recorder -> recorder.recordingId.equals(recordingId));
+    }
+
+    private String toRecordingId(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.length() - RECORDING_SUFFIX.length());
+    }
+
+    private long lastModified(Path path) {
+        return path.toFile().lastModified();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                log.debug("关闭录制文件失败", e);
+            }
+        }
+    }
+
+    /**
+     * 结束gzip成员时不关闭底层文件流
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * 应用关闭时结束所有录制
+     */
+    @PreDestroy
+    public void shutdown() {
+        new ArrayList<>(activeRecorders.keySet()).forEach(this::stopRecording);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.clover.cpanel.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 上传文件静态资源服务
+ * 负责 /uploads 下文件的预压缩变体（.gz）、强ETag，以及判断URL能否永久缓存
+ */
+@Slf4j
+@Service
+public class UploadAssetService {
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    // 上传服务生成的文件名，写入后不会被覆盖：
+    // 按内容命名的 <SHA-256前32位>.扩展名，以及旧版本的 [名称_]yyyyMMdd_HHmmss_<8位UUID>.扩展名
+    private static final Pattern UPLOADED_NAME = Pattern.compile(
+            "([0-9a-f]{32}|(.+_)?\\d{8}_\\d{6}_[0-9a-f]{8})(\\.[^./]+)?$");
+
+    // 按内容命名的文件（含其 .gz 变体），文件名中的哈希在上传时已计算
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("([0-9a-f]{32})\\.[^./]+?(\\.gz)?$");
+
+    private static final int MAX_CACHED_ETAGS = 10000;
+
+    @Value("${file.upload.path:./uploads/}")
+    private String uploadPath;
+
+    @Value("${file.upload.precompress-types:svg,ico,bmp}")
+    private String precompressTypes;
+
+    @Value("${file.upload.precompress-min-size:512}")
+    private long precompressMinSize;
+
+    /**
+     * 请求时按内容计算ETag的文件大小上限（字节），更大的文件使用大小和修改时间
+     */
+    @Value("${file.upload.etag-max-size:1048576}")
+    private long etagMaxSize;
+
+    private volatile Set<String> precompressExtensions;
+
+    private record CachedETag(long size, long lastModified, String value) {
+    }
+
+    private final Map<String, CachedETag> etagCache = new ConcurrentHashMap<>();
+
+    /**
+     * 为已有的上传文件补生成预压缩变体（在后台线程执行）
+     */
+    public void start() {
+        Thread thread = new Thread(this::precompressAll, "upload-precompress");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * 文件能否永久缓存：上传服务生成的文件名写入后不会被覆盖，URL即内容地址。
+     * 壁纸派生图会在原位置重新生成（如调整尺寸配置后），不永久缓存，按ETag重新验证；
+     * 文件不存在时返回false，避免404被永久缓存
+     * @param relativePath 相对上传目录的路径
+     */
+    public boolean isImmutable(String relativePath) {
+        if (relativePath.contains(WallpaperIndexService.DERIVED_DIRECTORY + "/")) {
+            return false;
+        }
+        String name = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        if (!UPLOADED_NAME.matcher(name).matches()) {
+            return false;
+        }
+        Path root = Paths.get(uploadPath).toAbsolutePath().normalize();
+        Path file = root.resolve(relativePath).normalize();
+        return file.startsWith(root) && Files.isRegularFile(file);
+    }
+
+    /**
+     * 是否为预压缩的文件类型（响应需按Accept-Encoding区分缓存）
+     * @param name 文件名
+     */
+    public boolean isPrecompressible(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && getPrecompressExtensions().contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 生成强ETag：按内容命名的文件直接使用上传时计算的哈希；其他文件在大小上限内按内容计算SHA-256，
+     * 结果按文件大小和修改时间缓存，超出上限时使用大小和修改时间，避免首次请求同步读取整个大文件
+     * @param resource 实际返回的资源（预压缩时为 .gz 文件，ETag与原文件不同）
+     */
+    public String etag(Resource resource) {
+        try {
+            File file = resource.getFile();
+            Matcher contentAddressed = CONTENT_ADDRESSED_NAME.matcher(file.getName());
+            if (contentAddressed.matches()) {
+                return "\"" + contentAddressed.group(1) + (contentAddressed.group(2) != null ? "-gz" : "") + "\"";
+            }
+            long size = file.length();
+            long lastModified = file.lastModified();
+            if (size > etagMaxSize) {
+                return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+            }
+            String key = file.getAbsolutePath();
+            CachedETag cached = etagCache.get(key);
+            if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+                return cached.value();
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[16 * 1024];
+            try (InputStream input = Files.newInputStream(file.toPath())) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            String value = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + "\"";
+            if (etagCache.size() >= MAX_CACHED_ETAGS) {
+                etagCache.clear();
+            }
+            etagCache.put(key, new CachedETag(size, lastModified, value));
+            return value;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 为可压缩类型的文件生成 .gz 变体，压缩后不更小时不生成
+     * @param file 上传的文件
+     */
+    public void precompress(Path file) {
+        String name = file.getFileName().toString();
+        if (!isPrecompressible(name)) {
+            return;
+        }
+        Path target = file.resolveSibling(name + GZIP_SUFFIX);
+        Path temp = file.resolveSibling(name + GZIP_SUFFIX + ".tmp");
+        try {
+            long size = Files.size(file);
+            if (size < precompressMinSize) {
+                return;
+            }
+            try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp)) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            }) {
+                Files.copy(file, output);
+            }
+            if (Files.size(temp) >= size) {
+                Files.deleteIfExists(temp);
+                return;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("已生成预压缩文件: {}", target);
+        } catch (IOException e) {
+            log.warn("生成预压缩文件失败: {}, {}", file, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 忽略
+            }
+        }
+    }
+
+    /**
+     * 删除文件的预压缩变体
+     * @param file 原文件
+     */
+    public void deleteVariants(Path file) {
+        try {
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + GZIP_SUFFIX));
+        } catch (IOException e) {
+            log.warn("删除预压缩文件失败: {}", file, e);
+        }
+    }
+
+    private void precompressAll() {
+        Path root = Paths.get(uploadPath);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (!file.getFileName().toString().endsWith(GZIP_SUFFIX)) {
+                        Path compressed = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+                        // 原文件比压缩文件新时重新生成
+                        if (!Files.exists(compressed)
+                                || Files.getLastModifiedTime(compressed).compareTo(attributes.lastModifiedTime()) < 0) {
+                            precompress(file);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("补生成预压缩文件失败: {}", e.getMessage());
+        }
+    }
+
+    private Set<String> getPrecompressExtensions() {
+        Set<String> extensions = precompressExtensions;
+        if (extensions == null) {
+            extensions = Arrays.stream(precompressTypes.toLowerCase(Locale.ROOT).split(","))
+                    .map(String::trim)
+                    .filter(type -> !type.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+            precompressExtensions = extensions;
+        }
+        return extensions;
+    }
+}
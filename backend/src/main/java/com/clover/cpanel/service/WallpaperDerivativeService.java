@@ -0,0 +1,279 @@
+package com.clover.cpanel.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * 壁纸派生图服务
+ * 壁纸上传后在后台生成缩略图和多个显示宽度的JPEG，写入 backgrounds/derived/<壁纸文件名>/ 并刷新壁纸索引
+ */
+@Slf4j
+@Service
+public class WallpaperDerivativeService {
+
+    @Autowired
+    private WallpaperIndexService wallpaperIndexService;
+
+    @Value("${wallpaper.derivative.enabled:true}")
+    private boolean enabled;
+
+    @Value("${wallpaper.derivative.widths:1280,1920,2560}")
+    private String widthsConfig;
+
+    @Value("${wallpaper.derivative.thumbnail-width:480}")
+    private int thumbnailWidth;
+
+    @Value("${wallpaper.derivative.quality:0.82}")
+    private float quality;
+
+    @Value("${wallpaper.derivative.threads:1}")
+    private int threads;
+
+    @Value("${wallpaper.derivative.queue-capacity:32}")
+    private int queueCapacity;
+
+    /**
+     * 原图像素数上限，解码前按ImageReader读到的尺寸检查；解码后每像素约占4字节，默认上限约对应96MB
+     */
+    @Value("${wallpaper.derivative.max-pixels:24000000}")
+    private long maxPixels;
+
+    private int[] widths = new int[0];
+    private ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 启动后台生成线程，并为还没有派生图的壁纸补生成（需在壁纸索引启动后调用）
+     */
+    public synchronized void start() {
+        if (executor != null || !enabled) {
+            return;
+        }
+        widths = Arrays.stream(widthsConfig.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .filter(width -> width > 0)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        int poolSize = Math.max(1, threads);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+            Thread thread = new Thread(r, "wallpaper-derivative");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        // 历史壁纸在一个任务里依次补生成，避免占满队列
+        executor.execute(() -> {
+            int generated = 0;
+            for (WallpaperIndexService.Wallpaper wallpaper : wallpaperIndexService.list()) {
+                if (!wallpaper.thumbnail() && pending.add(wallpaper.name())) {
+                    try {
+                        if (generate(wallpaper.name())) {
+                            generated++;
+                        }
+                    } finally {
+                        pending.remove(wallpaper.name());
+                    }
+                }
+            }
+            if (generated > 0) {
+                log.info("已为 {} 张历史壁纸生成派生图", generated);
+            }
+        });
+        log.info("壁纸派生图生成已启动，显示宽度: {}，缩略图宽度: {}", Arrays.toString(widths), thumbnailWidth);
+    }
+
+    /**
+     * 提交壁纸派生图生成任务，队列已满时跳过（前端回退到原图）
+     * @param name 壁纸文件名
+     */
+    public void submit(String name) {
+        ThreadPoolExecutor current = executor;
+        if (current == null || !pending.add(name)) {
+            return;
+        }
+        try {
+            current.execute(() -> {
+                try {
+                    generate(name);
+                } finally {
+                    pending.remove(name);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(name);
+            log.warn("壁纸派生图队列已满，跳过: {}", name);
+        }
+    }
+
+    /**
+     * 删除壁纸的全部派生图
+     * @param name 壁纸文件名
+     */
+    public void delete(String name) {
+        Path derived = wallpaperIndexService.derivedDirectory(name);
+        if (derived == null || !Files.isDirectory(derived)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(derived)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("删除壁纸派生图失败: {}", path);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("删除壁纸派生图失败: {}", derived, e);
+        }
+    }
+
+    /**
+     * 生成单张壁纸的派生图
+     * @return 是否生成成功
+     */
+    private boolean generate(String name) {
+        Path directory = wallpaperIndexService.getDirectory();
+        if (directory == null) {
+            return false;
+        }
+        Path source = directory.resolve(name);
+        Path target = wallpaperIndexService.derivedDirectory(name);
+        try {
+            BufferedImage image = readImage(source);
+            if (image == null) {
+                return false;
+            }
+
+            Files.createDirectories(target);
+            writeJpeg(resize(image, Math.min(thumbnailWidth, image.getWidth())),
+                    target.resolve(WallpaperIndexService.THUMBNAIL_FILE));
+            // 只生成比原图窄的尺寸，原图本身就是最大尺寸
+            for (int width : widths) {
+                if (width < image.getWidth()) {
+                    writeJpeg(resize(image, width), target.resolve(WallpaperIndexService.derivedFileName(width)));
+                }
+            }
+            wallpaperIndexService.refresh(name);
+            log.debug("壁纸派生图生成完成: {}", name);
+            return true;
+        } catch (Exception e) {
+            log.warn("生成壁纸派生图失败: {}, {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 读取图片，格式不受支持（如WebP、SVG）或像素数超限时返回null
+     * 尺寸从图片头部读取，超限的图片不会被解码
+     */
+    private BufferedImage readImage(Path source) throws IOException {
+        if (!Files.isRegularFile(source)) {
+            return null;
+        }
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                log.debug("不支持生成派生图的图片格式: {}", source.getFileName());
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("壁纸像素数 {} 超过上限，跳过派生图生成: {}", pixels, source.getFileName());
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 按宽度等比缩放并转换为RGB（透明区域填充黑色）
+     * 缩小比例较大时逐级减半，避免双线性插值直接缩小产生锯齿
+     */
+    static BufferedImage resize(BufferedImage image, int width) {
+        int height = Math.max(1, (int) Math.round((double) image.getHeight() * width / image.getWidth()));
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            int stepWidth = Math.max(width, currentWidth / 2);
+            int stepHeight = stepWidth == width ? height : Math.max(height, currentHeight / 2);
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setColor(Color.BLACK);
+                graphics.fillRect(0, 0, stepWidth, stepHeight);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+            currentWidth = stepWidth;
+            currentHeight = stepHeight;
+        } while (currentWidth != width);
+        return current;
+    }
+
+    /**
+     * 写入渐进式JPEG，先写临时文件再原子替换，索引不会读到写了一半的文件
+     */
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 应用关闭时停止生成线程
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
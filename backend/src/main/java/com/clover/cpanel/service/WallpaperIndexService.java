@@ -0,0 +1,401 @@
+package com.clover.cpanel.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 壁纸索引服务
+ * 启动时读取一次 backgrounds 目录，之后由上传、删除接口和WatchService增量维护；
+ * 索引是按修改时间倒序排列的不可变数组，整体替换，查询不访问文件系统
+ */
+@Slf4j
+@Service
+public class WallpaperIndexService {
+
+    public static final String SUB_DIRECTORY = "backgrounds";
+
+    /**
+     * 派生图目录（backgrounds/derived/<壁纸文件名>/），不在索引范围内
+     */
+    public static final String DERIVED_DIRECTORY = "derived";
+
+    public static final String THUMBNAIL_FILE = "thumb.jpg";
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "webp");
+
+    // 按修改时间倒序、同一时间按文件名排序
+    private static final Comparator<Wallpaper> ORDER = Comparator.comparingLong(Wallpaper::lastModified).reversed()
+            .thenComparing(Wallpaper::name);
+
+    @Value("${file.upload.path:uploads}")
+    private String uploadPath;
+
+    /**
+     * 壁纸记录
+     * @param name 文件名
+     * @param size 文件大小（字节）
+     * @param lastModified 修改时间（毫秒）
+     * @param widths 已生成的显示尺寸宽度（升序），文件为 w<宽度>.jpg
+     * @param thumbnail 是否已生成缩略图
+     */
+    public record Wallpaper(String name, long size, long lastModified, int[] widths, boolean thumbnail) {
+    }
+
+    /**
+     * 一页壁纸
+     * @param items 本页壁纸
+     * @param nextCursor 下一页游标，没有更多时为null
+     * @param total 壁纸总数
+     * @param version 索引版本
+     */
+    public record Page(List<Wallpaper> items, String nextCursor, int total, long version) {
+    }
+
+    private volatile Wallpaper[] entries = new Wallpaper[0];
+    private final AtomicLong version = new AtomicLong();
+    private final Object writeLock = new Object();
+
+    // 同一时间只进行一次整目录重建
+    private final Object rebuildLock = new Object();
+
+    // 重建扫描期间由refresh、remove记录的文件名，发布扫描结果前按磁盘最新状态补上；不在重建时为null，在 writeLock 下读写
+    private Set<String> changedDuringRebuild;
+
+    private volatile Path directory;
+    private WatchService watchService;
+    private Thread watcherThread;
+    private volatile boolean running;
+
+    /**
+     * 构建索引并开始监听目录
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        directory = Paths.get(uploadPath, SUB_DIRECTORY).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(directory);
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException e) {
+            log.warn("监听壁纸目录失败，索引只随上传和删除接口更新: {}", e.getMessage());
+            watchService = null;
+        }
+        rebuild();
+
+        running = true;
+        if (watchService != null) {
+            watcherThread = new Thread(this::watchLoop, "wallpaper-index-watcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+        }
+    }
+
+    /**
+     * 索引版本，任意壁纸增删改后递增
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * 获取全部壁纸（按修改时间倒序）
+     */
+    public List<Wallpaper> list() {
+        return List.of(entries);
+    }
+
+    /**
+     * 壁纸目录，索引未启动时返回null
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 按文件名查找壁纸
+     * @param name 文件名
+     * @return 壁纸记录，不存在时返回null
+     */
+    public Wallpaper find(String name) {
+        for (Wallpaper entry : entries) {
+            if (entry.name().equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 壁纸派生图所在目录
+     * @param name 壁纸文件名
+     * @return 目录，索引未启动时返回null
+     */
+    public Path derivedDirectory(String name) {
+        Path current = directory;
+        return current != null ? current.resolve(DERIVED_DIRECTORY).resolve(name) : null;
+    }
+
+    /**
+     * 显示尺寸派生图文件名
+     * @param width 宽度
+     */
+    public static String derivedFileName(int width) {
+        return "w" + width + ".jpg";
+    }
+
+    /**
+     * 分页获取壁纸
+     * @param cursor 上一页返回的游标，为空时从第一页开始
+     * @param limit 每页数量
+     * @return 壁纸分页
+     */
+    public Page page(String cursor, int limit) {
+        Wallpaper[] snapshot = entries;
+        long currentVersion = version.get();
+        limit = Math.max(1, Math.min(limit, 200));
+
+        int start = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            Wallpaper after = decodeCursor(cursor);
+            // 定位到游标之后的第一条，游标对应的壁纸已被删除也能正确续接
+            int index = Arrays.binarySearch(snapshot, after, ORDER);
+            start = index >= 0 ? index + 1 : -index - 1;
+        }
+
+        int end = Math.min(snapshot.length, start + limit);
+        List<Wallpaper> items = List.of(Arrays.copyOfRange(snapshot, start, end));
+        String nextCursor = end < snapshot.length ? encodeCursor(snapshot[end - 1]) : null;
+        return new Page(items, nextCursor, snapshot.length, currentVersion);
+    }
+
+    /**
+     * 壁纸文件新增或变化后调用，重新读取该文件
+     * @param name 文件名
+     */
+    public void refresh(String name) {
+        if (directory == null || !isImage(name)) {
+            return;
+        }
+        Wallpaper wallpaper = read(directory.resolve(name));
+        synchronized (writeLock) {
+            recordChange(name);
+            Wallpaper[] current = entries;
+            List<Wallpaper> updated = new ArrayList<>(current.length + 1);
+            for (Wallpaper entry : current) {
+                if (!entry.name().equals(name)) {
+                    updated.add(entry);
+                }
+            }
+            if (wallpaper != null) {
+                updated.add(wallpaper);
+            }
+            if (wallpaper == null && updated.size() == current.length) {
+                return;
+            }
+            publish(updated);
+        }
+    }
+
+    /**
+     * 壁纸文件删除后调用
+     * @param name 文件名
+     */
+    public void remove(String name) {
+        synchronized (writeLock) {
+            recordChange(name);
+            Wallpaper[] current = entries;
+            List<Wallpaper> updated = new ArrayList<>(current.length);
+            for (Wallpaper entry : current) {
+                if (!entry.name().equals(name)) {
+                    updated.add(entry);
+                }
+            }
+            if (updated.size() != current.length) {
+                publish(updated);
+            }
+        }
+    }
+
+    /**
+     * 重新读取整个目录
+     * 扫描不持有写锁，期间通过refresh、remove发生的变化会被记录，发布前以这些文件的最新状态覆盖扫描结果，不会丢失
+     */
+    public void rebuild() {
+        if (directory == null) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            synchronized (writeLock) {
+                changedDuringRebuild = new HashSet<>();
+            }
+            try {
+                Map<String, Wallpaper> scanned = new HashMap<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path file : stream) {
+                        if (isImage(file.getFileName().toString())) {
+                            Wallpaper wallpaper = read(file);
+                            if (wallpaper != null) {
+                                scanned.put(wallpaper.name(), wallpaper);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    log.warn("读取壁纸目录失败: {}", directory, e);
+                    return;
+                }
+                synchronized (writeLock) {
+                    for (String name : changedDuringRebuild) {
+                        Wallpaper wallpaper = isImage(name) ? read(directory.resolve(name)) : null;
+                        if (wallpaper != null) {
+                            scanned.put(name, wallpaper);
+                        } else {
+                            scanned.remove(name);
+                        }
+                    }
+                    publish(new ArrayList<>(scanned.values()));
+                }
+                log.info("壁纸索引已建立，壁纸数: {}", scanned.size());
+            } finally {
+                synchronized (writeLock) {
+                    changedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 重建扫描期间记录变化的文件名，需持有 writeLock
+     */
+    private void recordChange(String name) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(name);
+        }
+    }
+
+    private void publish(List<Wallpaper> updated) {
+        Wallpaper[] sorted = updated.toArray(new Wallpaper[0]);
+        Arrays.sort(sorted, ORDER);
+        entries = sorted;
+        version.incrementAndGet();
+    }
+
+    private static Wallpaper read(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            String name = file.getFileName().toString();
+            Path derived = file.resolveSibling(DERIVED_DIRECTORY).resolve(name);
+            return new Wallpaper(name, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    readWidths(derived), Files.isRegularFile(derived.resolve(THUMBNAIL_FILE)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static int[] readWidths(Path derived) {
+        if (!Files.isDirectory(derived)) {
+            return new int[0];
+        }
+        List<Integer> widths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(derived, "w*.jpg")) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                try {
+                    widths.add(Integer.parseInt(fileName.substring(1, fileName.length() - 4)));
+                } catch (NumberFormatException ignored) {
+                    // 不是派生图
+                }
+            }
+        } catch (IOException e) {
+            return new int[0];
+        }
+        return widths.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static boolean isImage(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static String encodeCursor(Wallpaper wallpaper) {
+        String raw = wallpaper.lastModified() + "/" + wallpaper.name();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Wallpaper decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('/');
+            return new Wallpaper(raw.substring(separator + 1), 0, Long.parseLong(raw.substring(0, separator)), null, false);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    private void watchLoop() {
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(1, TimeUnit.SECONDS);
+                if (key == null) {
+                    continue;
+                }
+                boolean overflow = false;
+                Set<String> changed = new LinkedHashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        overflow = true;
+                    } else {
+                        changed.add(event.context().toString());
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("壁纸目录监听已失效: {}", directory);
+                    break;
+                }
+                if (overflow) {
+                    rebuild();
+                } else {
+                    changed.forEach(this::refresh);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            } catch (Exception e) {
+                log.warn("处理壁纸目录变化失败", e);
+            }
+        }
+    }
+
+    /**
+     * 应用关闭时停止监听
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("关闭壁纸目录监听失败", e);
+            }
+        }
+    }
+}
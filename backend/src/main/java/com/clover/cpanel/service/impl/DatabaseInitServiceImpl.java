@@ -192,6 +192,12 @@ public class DatabaseInitServiceImpl implements DatabaseInitService {
             // 迁移旧的服务器配置数据
             migrateServerConfigData();
 
+            // 检查服务器表是否有latency_ms字段
+            if (!checkColumnExists("panel_servers", "latency_ms")) {
+                log.info("服务器表缺少latency_ms字段，开始添加...");
+                addServerLatencyColumn();
+            }
+
             // 可以在这里添加其他表结构更新检查
 
         } catch (Exception e) {
@@ -241,6 +247,7 @@ public class DatabaseInitServiceImpl implements DatabaseInitService {
                   group_name VARCHAR(100) DEFAULT '默认分组' COMMENT '服务器分组',
                   is_default BOOLEAN DEFAULT FALSE COMMENT '是否为默认服务器',
                   status VARCHAR(20) DEFAULT 'active' COMMENT '服务器状态：active或inactive',
+                  latency_ms INT COMMENT '最近一次健康探测的连接延迟（毫秒）',
                   sort_order INT DEFAULT 1 COMMENT '排序顺序',
                   created_at VARCHAR(19) COMMENT '创建时间，格式：yyyy-MM-dd HH:mm:ss',
                   updated_at VARCHAR(19) COMMENT '更新时间，格式：yyyy-MM-dd HH:mm:ss',
@@ -543,6 +550,23 @@ public class DatabaseInitServiceImpl implements DatabaseInitService {
         }
     }
 
+    /**
+     * 为服务器表添加latency_ms字段
+     */
+    private void addServerLatencyColumn() {
+        try {
+            String sql = """
+                ALTER TABLE panel_servers
+                ADD COLUMN latency_ms INT COMMENT '最近一次健康探测的连接延迟（毫秒）' AFTER status
+                """;
+
+            jdbcTemplate.execute(sql);
+            log.info("服务器表latency_ms字段添加成功");
+        } catch (Exception e) {
+            log.error("添加latency_ms字段失败", e);
+        }
+    }
+
     /**
      * 更新现有配置数据的类型
      */
@@ -1,21 +1,30 @@
 package com.clover.cpanel.service.impl;
 
 import com.clover.cpanel.service.FileUploadService;
+import com.clover.cpanel.service.UploadAssetService;
+import com.clover.cpanel.service.WallpaperDerivativeService;
+import com.clover.cpanel.service.WallpaperIndexService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * 文件上传服务实现类
@@ -24,6 +33,12 @@ import java.util.UUID;
 @Service
 public class FileUploadServiceImpl implements FileUploadService {
 
+    @Autowired
+    private WallpaperDerivativeService wallpaperDerivativeService;
+
+    @Autowired
+    private UploadAssetService uploadAssetService;
+
     @Value("${file.upload.path:./uploads/}")
     private String uploadPath;
 
@@ -36,6 +51,11 @@ public class FileUploadServiceImpl implements FileUploadService {
     @Value("${file.upload.max-size:10485760}")
     private long maxSize;
 
+    // 识别文件类型读取的文件头长度（SVG需要读到<svg标签）
+    private static final int SNIFF_LENGTH = 1024;
+
+    private volatile Set<String> allowedTypeSet;
+
     @Override
     public String uploadFile(MultipartFile file) {
         return uploadFile(file, null);
@@ -58,16 +78,12 @@ public class FileUploadServiceImpl implements FileUploadService {
                 uploadDir.mkdirs();
             }
 
-            // 生成唯一文件名（包含导航项名称）
-            String uniqueFileName = generateUniqueFileName(file.getOriginalFilename(), navigationName);
-
-            // 保存文件
-            Path filePath = Paths.get(uploadPath, uniqueFileName);
-            Files.copy(file.getInputStream(), filePath);
+            // 保存文件（按内容命名，相同内容复用已有文件）
+            StoredFile stored = store(file, uploadDir.toPath());
 
             // 返回访问URL
-            String fileUrl = urlPrefix + uniqueFileName;
-            log.info("文件上传成功: {}", fileUrl);
+            String fileUrl = urlPrefix + stored.fileName();
+            log.info("文件上传成功: {}, 名称: {}{}", fileUrl, navigationName, stored.created() ? "" : "（复用已有文件）");
             return fileUrl;
 
         } catch (IOException e) {
@@ -100,16 +116,17 @@ public class FileUploadServiceImpl implements FileUploadService {
                 log.info("创建子目录: {}", subDir.getAbsolutePath());
             }
 
-            // 生成唯一文件名
-            String uniqueFileName = generateUniqueFileName(file.getOriginalFilename(), fileName);
-
-            // 保存文件到子目录
-            Path filePath = Paths.get(subDir.getAbsolutePath(), uniqueFileName);
-            Files.copy(file.getInputStream(), filePath);
+            // 保存文件到子目录（按内容命名，相同内容复用已有文件）
+            StoredFile stored = store(file, subDir.toPath());
 
             // 返回访问URL（包含子目录路径）
-            String fileUrl = urlPrefix + subDirectory + "/" + uniqueFileName;
-            log.info("文件上传到子目录成功: {}", fileUrl);
+            String fileUrl = urlPrefix + subDirectory + "/" + stored.fileName();
+            log.info("文件上传到子目录成功: {}, 用途: {}{}", fileUrl, fileName, stored.created() ? "" : "（复用已有文件）");
+
+            // 新壁纸在后台生成缩略图和各显示尺寸
+            if (stored.created() && WallpaperIndexService.SUB_DIRECTORY.equals(subDirectory)) {
+                wallpaperDerivativeService.submit(stored.fileName());
+            }
             return fileUrl;
 
         } catch (IOException e) {
@@ -118,6 +135,117 @@ public class FileUploadServiceImpl implements FileUploadService {
         }
     }
 
+    /**
+     * 保存结果
+     * @param fileName 文件名
+     * @param created 是否新写入（false表示复用了内容相同的已有文件）
+     */
+    private record StoredFile(String fileName, boolean created) {
+    }
+
+    /**
+     * 边写临时文件边计算SHA-256，并按文件头识别实际类型，
+     * 再以 <哈希前32位>.<扩展名> 原子移动到目标目录；同名文件已存在时直接复用
+     * @param file 上传的文件
+     * @param directory 目标目录
+     * @return 保存结果
+     */
+    private StoredFile store(MultipartFile file, Path directory) throws IOException {
+        Path temp = Files.createTempFile(directory, ".upload-", ".tmp");
+        try {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+
+            byte[] header = new byte[SNIFF_LENGTH];
+            int headerLength = 0;
+            long size = 0;
+            try (InputStream input = file.getInputStream(); OutputStream output = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    if (headerLength < header.length) {
+                        int count = Math.min(read, header.length - headerLength);
+                        System.arraycopy(buffer, 0, header, headerLength, count);
+                        headerLength += count;
+                    }
+                    size += read;
+                    if (size > maxSize) {
+                        throw new RuntimeException("文件大小超出限制");
+                    }
+                    digest.update(buffer, 0, read);
+                    output.write(buffer, 0, read);
+                }
+            }
+
+            String extension = detectImageType(header, headerLength);
+            if (extension == null || !isAllowedType(extension)) {
+                throw new RuntimeException("文件内容不是支持的图片类型");
+            }
+
+            String fileName = HexFormat.of().formatHex(digest.digest(), 0, 16) + "." + extension;
+            Path target = directory.resolve(fileName);
+            if (Files.exists(target)) {
+                return new StoredFile(fileName, false);
+            }
+            // 同一目录内重命名是原子的，并发上传相同内容时后者覆盖为相同内容
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            uploadAssetService.precompress(target);
+            return new StoredFile(fileName, true);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 根据文件头识别图片类型
+     * @param header 文件开头的字节
+     * @param length 有效字节数
+     * @return 扩展名，无法识别时返回null
+     */
+    static String detectImageType(byte[] header, int length) {
+        if (startsWith(header, length, 0xFF, 0xD8, 0xFF)) {
+            return "jpg";
+        }
+        if (startsWith(header, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
+        }
+        if (startsWith(header, length, 'G', 'I', 'F', '8')) {
+            return "gif";
+        }
+        if (startsWith(header, length, 'B', 'M')) {
+            return "bmp";
+        }
+        if (length >= 12 && startsWith(header, length, 'R', 'I', 'F', 'F')
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "webp";
+        }
+        if (startsWith(header, length, 0x00, 0x00, 0x01, 0x00)) {
+            return "ico";
+        }
+        // SVG是文本，跳过BOM和空白后应以XML声明、注释或<svg开头，且开头部分包含<svg标签
+        String text = new String(header, 0, length, StandardCharsets.UTF_8).replace("\uFEFF", "").stripLeading();
+        if (text.startsWith("<") && text.contains("<svg")) {
+            return "svg";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, int... magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean isValidFileType(MultipartFile file) {
         if (file == null || file.isEmpty()) {
@@ -129,12 +257,29 @@ public class FileUploadServiceImpl implements FileUploadService {
             return false;
         }
 
-        // 获取文件扩展名
-        String extension = getFileExtension(originalFilename).toLowerCase();
-        
-        // 检查是否在允许的类型列表中
-        List<String> allowedTypeList = Arrays.asList(allowedTypes.toLowerCase().split(","));
-        return allowedTypeList.contains(extension);
+        // 获取文件扩展名并检查是否在允许的类型列表中
+        return isAllowedType(getFileExtension(originalFilename));
+    }
+
+    /**
+     * 扩展名是否在允许的类型列表中（jpg与jpeg视为同一类型）
+     * @param extension 扩展名
+     */
+    private boolean isAllowedType(String extension) {
+        Set<String> types = allowedTypeSet;
+        if (types == null) {
+            // 配置只解析一次
+            types = Arrays.stream(allowedTypes.toLowerCase(Locale.ROOT).split(","))
+                    .map(String::trim)
+                    .filter(type -> !type.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+            allowedTypeSet = types;
+        }
+        String type = extension.toLowerCase(Locale.ROOT);
+        if ("jpg".equals(type) || "jpeg".equals(type)) {
+            return types.contains("jpg") || types.contains("jpeg");
+        }
+        return types.contains(type);
     }
 
     @Override
@@ -191,6 +336,11 @@ public class FileUploadServiceImpl implements FileUploadService {
             boolean deleted = Files.deleteIfExists(filePath);
             if (deleted) {
                 log.info("文件删除成功: {}", fileUrl);
+                uploadAssetService.deleteVariants(filePath);
+                String wallpaperPrefix = WallpaperIndexService.SUB_DIRECTORY + "/";
+                if (relativePath.startsWith(wallpaperPrefix)) {
+                    wallpaperDerivativeService.delete(relativePath.substring(wallpaperPrefix.length()));
+                }
             }
             return deleted;
 
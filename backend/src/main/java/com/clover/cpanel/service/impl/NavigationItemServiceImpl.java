@@ -96,4 +96,9 @@ public class NavigationItemServiceImpl extends ServiceImpl<NavigationItemMapper,
         Integer maxSortOrder = baseMapper.getMaxSortOrderByCategory(categoryId);
         return maxSortOrder + 1;
     }
+
+    @Override
+    public int countByLogo(String logo) {
+        return baseMapper.countByLogo(logo);
+    }
 }
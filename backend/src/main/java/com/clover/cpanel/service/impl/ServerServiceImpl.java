@@ -10,7 +10,10 @@ import com.clover.cpanel.mapper.ServerMapper;
 import com.clover.cpanel.service.PanelCategoryService;
 import com.clover.cpanel.service.ServerEncryptionService;
 import com.clover.cpanel.service.ServerService;
+import com.clover.cpanel.service.SshConnectionPool;
+import com.clover.cpanel.service.SshCredentialCache;
 import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.connection.channel.direct.Session;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -35,6 +38,12 @@ public class ServerServiceImpl extends ServiceImpl<ServerMapper, Server> impleme
     @Autowired
     private ServerEncryptionService serverEncryptionService;
 
+    @Autowired
+    private SshConnectionPool sshConnectionPool;
+
+    @Autowired
+    private SshCredentialCache credentialCache;
+
     @Override
     public List<ServerResponse> getAllServers() {
         List<Server> servers = baseMapper.getAllServersOrdered();
@@ -53,6 +62,29 @@ public class ServerServiceImpl extends ServiceImpl<ServerMapper, Server> impleme
         return null;
     }
 
+    @Override
+    public List<Server> getServersWithAuthInfo(List<Integer> serverIds, List<Integer> categoryIds) {
+        boolean hasIds = serverIds != null && !serverIds.isEmpty();
+        boolean hasCategories = categoryIds != null && !categoryIds.isEmpty();
+        if (!hasIds && !hasCategories) {
+            return new ArrayList<>();
+        }
+
+        QueryWrapper<Server> queryWrapper = new QueryWrapper<>();
+        if (hasIds && hasCategories) {
+            queryWrapper.and(w -> w.in("id", serverIds).or().in("category_id", categoryIds));
+        } else if (hasIds) {
+            queryWrapper.in("id", serverIds);
+        } else {
+            queryWrapper.in("category_id", categoryIds);
+        }
+        queryWrapper.orderByAsc("sort_order").orderByAsc("id");
+
+        return list(queryWrapper).stream()
+                .map(serverEncryptionService::createDecryptedCopy)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public ServerResponse getServerById(Integer id) {
         Server server = getById(id);
@@ -153,6 +185,7 @@ public class ServerServiceImpl extends ServiceImpl<ServerMapper, Server> impleme
             serverEncryptionService.encryptSensitiveFields(existingServer);
 
             boolean success = updateById(existingServer);
+            credentialCache.invalidate(id);
             if (success) {
                 log.info("服务器配置更新成功: {}", existingServer.getServerName());
             }
@@ -180,6 +213,7 @@ public class ServerServiceImpl extends ServiceImpl<ServerMapper, Server> impleme
             }
 
             boolean success = removeById(id);
+            credentialCache.invalidate(id);
             if (success) {
                 log.info("服务器配置删除成功: {}", server.getServerName());
             }
@@ -232,10 +266,19 @@ public class ServerServiceImpl extends ServiceImpl<ServerMapper, Server> impleme
 
     @Override
     public boolean testServerConnection(ServerRequest request) {
-        // TODO: 实现实际的SSH连接测试逻辑
-        // 这里可以使用SSHJ或其他SSH客户端库进行连接测试
         log.info("测试服务器连接: {}:{}", request.getHost(), request.getPort());
-        return true;
+        int port = request.getPort() != null ? request.getPort() : 22;
+
+        // 建立连接、完成认证并打开一个会话通道，确认凭据可用
+        try (SshConnectionPool.Lease lease = sshConnectionPool.acquire(request.getHost(), port, request.getUsername(),
+                request.getAuthType(), request.getPassword(), request.getPrivateKey(), request.getPrivateKeyPassword());
+             Session session = lease.getClient().startSession()) {
+            log.info("服务器连接测试成功: {}:{}", request.getHost(), port);
+            return true;
+        } catch (Exception e) {
+            log.warn("服务器连接测试失败: {}:{}, {}", request.getHost(), port, e.getMessage());
+            return false;
+        }
     }
 
     @Override
@@ -6,22 +6,92 @@ import com.clover.cpanel.constant.ConfigType;
 import com.clover.cpanel.entity.SystemConfig;
 import com.clover.cpanel.mapper.SystemConfigMapper;
 import com.clover.cpanel.service.SystemConfigService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.DigestUtils;
 
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 系统配置服务实现类
+ * 启动后整表缓存在内存中，读取为哈希查找；写入在数据库提交后按键重新加载对应行并递增版本号
  */
 @Service
 public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, SystemConfig> implements SystemConfigService {
 
     private static final String LOGIN_PASSWORD_KEY = "login_password";
 
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 是否启用配置缓存
+     */
+    @Value("${config-cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    /**
+     * 缓存中不存在的键是否直接视为不存在（整表已加载，外部不直接写表时可开启）
+     */
+    @Value("${config-cache.negative:true}")
+    private boolean negativeCaching;
+
+    // 配置键名 -> 配置，加载完成前为null
+    private volatile Map<String, SystemConfig> cache;
+    private final Object cacheLock = new Object();
+    private final AtomicLong version = new AtomicLong();
+
+    @Override
+    public void loadCache() {
+        if (!cacheEnabled) {
+            return;
+        }
+        Map<String, SystemConfig> loaded = new ConcurrentHashMap<>();
+        for (SystemConfig config : super.list()) {
+            loaded.put(config.getConfigKey(), config);
+        }
+        synchronized (cacheLock) {
+            cache = loaded;
+            version.incrementAndGet();
+        }
+        log.debug("系统配置缓存已加载，配置数: " + loaded.size());
+    }
+
+    @Override
+    public long getConfigVersion() {
+        return version.get();
+    }
+
     @Override
     public String getConfigValue(String configKey) {
-        return baseMapper.getConfigValue(configKey);
+        Map<String, SystemConfig> current = cache;
+        if (current == null) {
+            return baseMapper.getConfigValue(configKey);
+        }
+        SystemConfig config = current.get(configKey);
+        if (config != null) {
+            return config.getConfigValue();
+        }
+        if (negativeCaching) {
+            return null;
+        }
+        // 未开启负缓存时回源查询，查到则补入缓存
+        String value = baseMapper.getConfigValue(configKey);
+        if (value != null) {
+            refreshKey(configKey);
+        }
+        return value;
     }
 
     @Override
@@ -33,30 +103,73 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
     @Override
     public boolean setConfigValue(String configKey, String configValue, String description, String configType) {
         try {
-            QueryWrapper<SystemConfig> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("config_key", configKey);
-            SystemConfig existingConfig = getOne(queryWrapper);
-
-            if (existingConfig != null) {
-                // 更新现有配置
-                existingConfig.setConfigValue(configValue);
-                existingConfig.setDescription(description);
-                existingConfig.setConfigType(configType);
-                return updateById(existingConfig);
-            } else {
-                // 创建新配置
-                SystemConfig newConfig = new SystemConfig();
-                newConfig.setConfigKey(configKey);
-                newConfig.setConfigValue(configValue);
-                newConfig.setDescription(description);
-                newConfig.setConfigType(configType);
-                return save(newConfig);
-            }
+            Map<String, String> values = new LinkedHashMap<>();
+            values.put(configKey, configValue);
+            Map<String, String> descriptions = new LinkedHashMap<>();
+            descriptions.put(configKey, description);
+            return setConfigValues(values, descriptions, configType);
         } catch (Exception e) {
+            log.error("设置配置失败: " + configKey, e);
             return false;
         }
     }
 
+    @Override
+    public Map<String, String> getConfigValues(Collection<String> configKeys) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (configKeys == null || configKeys.isEmpty()) {
+            return values;
+        }
+
+        Map<String, SystemConfig> current = cache;
+        List<String> missing = new ArrayList<>();
+        for (String configKey : configKeys) {
+            SystemConfig config = current != null ? current.get(configKey) : null;
+            if (config != null) {
+                values.put(configKey, config.getConfigValue());
+            } else if (current == null || !negativeCaching) {
+                missing.add(configKey);
+            }
+        }
+        if (missing.isEmpty()) {
+            return values;
+        }
+
+        for (SystemConfig config : baseMapper.selectByKeys(missing)) {
+            values.put(config.getConfigKey(), config.getConfigValue());
+        }
+        if (current != null && values.size() > 0) {
+            refreshKeys(missing);
+        }
+        return values;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean setConfigValues(Map<String, String> configValues, Map<String, String> descriptions, String configType) {
+        if (configValues == null || configValues.isEmpty()) {
+            return true;
+        }
+
+        String now = LocalDateTime.now().format(TIME_FORMATTER);
+        List<SystemConfig> configs = new ArrayList<>();
+        for (Map.Entry<String, String> entry : configValues.entrySet()) {
+            SystemConfig config = new SystemConfig();
+            config.setConfigKey(entry.getKey());
+            config.setConfigValue(entry.getValue());
+            config.setDescription(descriptions != null ? descriptions.get(entry.getKey()) : null);
+            config.setConfigType(configType);
+            config.setCreatedAt(now);
+            config.setUpdatedAt(now);
+            configs.add(config);
+        }
+        baseMapper.upsertBatch(configs);
+
+        List<String> keys = new ArrayList<>(configValues.keySet());
+        afterCommit(() -> refreshKeys(keys));
+        return true;
+    }
+
     @Override
     public boolean verifyLoginPassword(String password) {
         if (password == null || password.trim().isEmpty()) {
@@ -91,6 +204,17 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
 
     @Override
     public List<SystemConfig> getConfigsByType(String configType) {
+        Map<String, SystemConfig> current = cache;
+        if (current != null) {
+            List<SystemConfig> configs = new ArrayList<>();
+            for (SystemConfig config : current.values()) {
+                if (configType.equals(config.getConfigType())) {
+                    configs.add(copyOf(config));
+                }
+            }
+            configs.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+            return configs;
+        }
         QueryWrapper<SystemConfig> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("config_type", configType);
         return list(queryWrapper);
@@ -101,7 +225,11 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
         try {
             QueryWrapper<SystemConfig> queryWrapper = new QueryWrapper<>();
             queryWrapper.eq("config_key", configKey);
-            return remove(queryWrapper);
+            boolean removed = remove(queryWrapper);
+            if (removed) {
+                afterCommit(() -> evictKey(configKey));
+            }
+            return removed;
         } catch (Exception e) {
             log.error("删除配置失败: {}",e);
             return false;
@@ -117,4 +245,133 @@ public class SystemConfigServiceImpl extends ServiceImpl<SystemConfigMapper, Sys
         // 使用MD5进行简单哈希，实际项目中建议使用更安全的算法如BCrypt
         return DigestUtils.md5DigestAsHex(password.getBytes());
     }
+
+    @Override
+    public boolean save(SystemConfig entity) {
+        boolean saved = super.save(entity);
+        if (saved) {
+            String configKey = entity.getConfigKey();
+            afterCommit(() -> refreshKey(configKey));
+        }
+        return saved;
+    }
+
+    @Override
+    public boolean updateById(SystemConfig entity) {
+        String previousKey = findKeyById(entity.getId());
+        boolean updated = super.updateById(entity);
+        if (updated) {
+            Integer id = entity.getId();
+            afterCommit(() -> {
+                if (previousKey != null) {
+                    evictKey(previousKey);
+                }
+                refreshId(id);
+            });
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        String previousKey = findKeyById(id);
+        boolean removed = super.removeById(id);
+        if (removed && previousKey != null) {
+            afterCommit(() -> evictKey(previousKey));
+        }
+        return removed;
+    }
+
+    /**
+     * 在当前事务提交后执行缓存更新，没有事务时立即执行，避免回滚的写入进入缓存
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void refreshKey(String configKey) {
+        refreshKeys(List.of(configKey));
+    }
+
+    private void refreshKeys(Collection<String> configKeys) {
+        // 未启用缓存时也要递增版本号，依赖版本号的ETag才会随配置变化
+        if (cache == null) {
+            version.incrementAndGet();
+            return;
+        }
+        synchronized (cacheLock) {
+            Map<String, SystemConfig> fresh = new LinkedHashMap<>();
+            for (SystemConfig config : baseMapper.selectByKeys(configKeys)) {
+                fresh.put(config.getConfigKey(), config);
+            }
+            for (String configKey : configKeys) {
+                SystemConfig config = fresh.get(configKey);
+                if (config != null) {
+                    cache.put(configKey, config);
+                } else {
+                    cache.remove(configKey);
+                }
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private void refreshId(Integer id) {
+        if (cache == null || id == null) {
+            version.incrementAndGet();
+            return;
+        }
+        synchronized (cacheLock) {
+            SystemConfig fresh = baseMapper.selectById(id);
+            if (fresh != null) {
+                cache.put(fresh.getConfigKey(), fresh);
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private void evictKey(String configKey) {
+        if (cache == null) {
+            version.incrementAndGet();
+            return;
+        }
+        synchronized (cacheLock) {
+            cache.remove(configKey);
+            version.incrementAndGet();
+        }
+    }
+
+    private String findKeyById(Serializable id) {
+        Map<String, SystemConfig> current = cache;
+        if (current == null || id == null) {
+            return null;
+        }
+        for (SystemConfig config : current.values()) {
+            if (id.toString().equals(String.valueOf(config.getId()))) {
+                return config.getConfigKey();
+            }
+        }
+        return null;
+    }
+
+    private static SystemConfig copyOf(SystemConfig config) {
+        SystemConfig copy = new SystemConfig();
+        copy.setId(config.getId());
+        copy.setConfigKey(config.getConfigKey());
+        copy.setConfigValue(config.getConfigValue());
+        copy.setDescription(config.getDescription());
+        copy.setConfigType(config.getConfigType());
+        copy.setCreatedAt(config.getCreatedAt());
+        copy.setUpdatedAt(config.getUpdatedAt());
+        return copy;
+    }
 }
@@ -0,0 +1,85 @@
+package com.clover.cpanel.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * df -P -k（可带 -T）输出的磁盘用量汇总
+ * 只统计 /dev/ 下的真实块设备：排除伪文件系统与 /dev/loop*（snap的squashfs恒为100%），
+ * 同一设备的多个挂载点（bind mount）只计一次；没有可统计的设备时（如容器内根目录为overlay）使用根挂载点
+ */
+public final class DfUsage {
+
+    private final Set<String> devices = new HashSet<>();
+    private long total;
+    private long used;
+    private long rootTotal;
+    private long rootUsed;
+
+    /**
+     * 开始新一轮统计
+     */
+    public void reset() {
+        devices.clear();
+        total = used = rootTotal = rootUsed = 0;
+    }
+
+    /**
+     * 处理一行df输出，表头和无法解析的行被忽略
+     * @param line 如 "/dev/sda1 ext4 1024000 512000 512000 50% /"，不带 -T 时没有类型列
+     */
+    public void accept(String line) {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 6) {
+            return;
+        }
+        boolean hasType = fields.length >= 7 && !isNumber(fields[1]) && isNumber(fields[2]);
+        int offset = hasType ? 2 : 1;
+        if (!isNumber(fields[offset]) || !isNumber(fields[offset + 1])) {
+            return;
+        }
+        String source = fields[0];
+        String type = hasType ? fields[1] : null;
+        long blocksTotal = Long.parseLong(fields[offset]) * 1024;
+        long blocksUsed = Long.parseLong(fields[offset + 1]) * 1024;
+        String mount = fields[fields.length - 1];
+
+        if (DiskFilter.ROOT_MOUNT.equals(mount)) {
+            rootTotal = blocksTotal;
+            rootUsed = blocksUsed;
+        }
+        if (!source.startsWith("/dev/") || source.startsWith("/dev/loop") || DiskFilter.isPseudo(type)
+                || blocksTotal <= 0 || !devices.add(source)) {
+            return;
+        }
+        total += blocksTotal;
+        used += blocksUsed;
+    }
+
+    /**
+     * 总容量（字节）
+     */
+    public long getTotal() {
+        return devices.isEmpty() ? rootTotal : total;
+    }
+
+    /**
+     * 已用容量（字节）
+     */
+    public long getUsed() {
+        return devices.isEmpty() ? rootUsed : used;
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
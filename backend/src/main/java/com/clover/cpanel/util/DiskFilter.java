@@ -0,0 +1,60 @@
+package com.clover.cpanel.util;
+
+import com.clover.cpanel.dto.SystemInfoDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 磁盘挂载点过滤工具
+ * 伪文件系统和只读镜像（tmpfs、overlay、squashfs等）的使用率不代表真实磁盘占用，
+ * 例如snap挂载的squashfs恒为100%，汇总和告警时需要排除
+ */
+public final class DiskFilter {
+
+    public static final String ROOT_MOUNT = "/";
+
+    private static final Set<String> PSEUDO_TYPES = Set.of(
+            "tmpfs", "devtmpfs", "ramfs", "overlay", "overlayfs", "aufs", "squashfs", "iso9660", "udf",
+            "proc", "sysfs", "cgroup", "cgroup2", "devpts", "mqueue", "debugfs", "tracefs", "securityfs",
+            "pstore", "bpf", "autofs", "hugetlbfs", "configfs", "fusectl", "binfmt_misc", "nsfs",
+            "rpc_pipefs", "efivarfs", "selinuxfs", "fuse.lxcfs", "fuse.snapfuse", "none");
+
+    private DiskFilter() {
+    }
+
+    /**
+     * 是否为伪文件系统或只读镜像
+     * @param fileSystemType 文件系统类型
+     */
+    public static boolean isPseudo(String fileSystemType) {
+        return fileSystemType != null && PSEUDO_TYPES.contains(fileSystemType.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 过滤出真实磁盘；全部被排除时（如容器内根目录为overlay）只保留根挂载点
+     * @param disks 所有挂载点
+     * @return 需要统计的挂载点
+     */
+    public static List<SystemInfoDto.DiskInfo> realDisks(List<SystemInfoDto.DiskInfo> disks) {
+        List<SystemInfoDto.DiskInfo> result = new ArrayList<>();
+        if (disks == null) {
+            return result;
+        }
+        SystemInfoDto.DiskInfo root = null;
+        for (SystemInfoDto.DiskInfo disk : disks) {
+            if (ROOT_MOUNT.equals(disk.getName())) {
+                root = disk;
+            }
+            if (!isPseudo(disk.getFileSystem()) && disk.getTotal() > 0) {
+                result.add(disk);
+            }
+        }
+        if (result.isEmpty() && root != null) {
+            result.add(root);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package com.clover.cpanel.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的延迟直方图
+ * 记录时只对所属分桶和总和做一次无锁累加，读取时再计算累计计数，适合高频记录、低频读取的场景
+ */
+public class LatencyHistogram {
+
+    /**
+     * 默认分桶上限（秒）
+     */
+    public static final double[] DEFAULT_BOUNDS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final double[] bounds;
+    private final long[] boundNanos;
+    // 最后一个分桶对应 +Inf
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS);
+    }
+
+    public LatencyHistogram(double[] bounds) {
+        if (bounds.length == 0) {
+            throw new IllegalArgumentException("分桶不能为空");
+        }
+        this.bounds = bounds.clone();
+        this.boundNanos = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            if (i > 0 && bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("分桶上限必须递增");
+            }
+            boundNanos[i] = (long) (bounds[i] * 1_000_000_000L);
+        }
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int index = 0;
+        while (index < boundNanos.length && nanos > boundNanos[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * 分桶上限（秒），不含 +Inf
+     */
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * 各分桶的累计计数，最后一个元素为 +Inf 分桶即总次数
+     */
+    public long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    /**
+     * 耗时总和（秒）
+     */
+    public double getSumSeconds() {
+        return sumNanos.sum() / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,139 @@
+package com.clover.cpanel.util;
+
+/**
+ * OpenMetrics文本格式输出
+ * 按指标族输出 TYPE/HELP 元数据与采样行，最后调用 {@link #finish()} 追加结束标记
+ *
+ * 标签以键值交替的可变参数传入，例如 sample("http_requests_total", 3, "method", "GET")
+ */
+public class OpenMetricsWriter {
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder(8192);
+
+    /**
+     * 输出指标族元数据
+     * @param name 指标族名称（counter不含 _total 后缀）
+     * @param type counter / gauge / histogram 等
+     * @param help 说明
+     */
+    public OpenMetricsWriter family(String name, String type, String help) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        if (help != null && !help.isEmpty()) {
+            out.append("# HELP ").append(name).append(' ');
+            escape(help);
+            out.append('\n');
+        }
+        return this;
+    }
+
+    /**
+     * 输出指标族单位，指标族名称须以该单位结尾
+     */
+    public OpenMetricsWriter unit(String name, String unit) {
+        out.append("# UNIT ").append(name).append(' ').append(unit).append('\n');
+        return this;
+    }
+
+    /**
+     * 输出一条采样
+     * @param name 采样名称
+     * @param value 值
+     * @param labels 标签键值交替
+     */
+    public OpenMetricsWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        appendLabels(labels, null, null);
+        out.append(' ');
+        appendValue(value);
+        out.append('\n');
+        return this;
+    }
+
+    /**
+     * 输出直方图的全部采样（_bucket / _count / _sum）
+     * @param name 指标族名称
+     * @param histogram 直方图
+     * @param labels 标签键值交替
+     */
+    public OpenMetricsWriter histogram(String name, LatencyHistogram histogram, String... labels) {
+        double[] bounds = histogram.getBounds();
+        long[] counts = histogram.cumulativeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            out.append(name).append("_bucket");
+            appendLabels(labels, "le", i < bounds.length ? Double.toString(bounds[i]) : "+Inf");
+            out.append(' ').append(counts[i]).append('\n');
+        }
+        sample(name + "_count", counts[counts.length - 1], labels);
+        sample(name + "_sum", histogram.getSumSeconds(), labels);
+        return this;
+    }
+
+    /**
+     * 追加结束标记并返回完整文本
+     */
+    public String finish() {
+        out.append("# EOF\n");
+        return out.toString();
+    }
+
+    private void appendLabels(String[] labels, String extraName, String extraValue) {
+        if (labels.length == 0 && extraName == null) {
+            return;
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("标签必须成对出现");
+        }
+        out.append('{');
+        boolean first = true;
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!first) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"");
+            escape(labels[i + 1] == null ? "" : labels[i + 1]);
+            out.append('"');
+            first = false;
+        }
+        if (extraName != null) {
+            if (!first) {
+                out.append(',');
+            }
+            out.append(extraName).append("=\"").append(extraValue).append('"');
+        }
+        out.append('}');
+    }
+
+    private void appendValue(double value) {
+        out.append(formatValue(value));
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private void escape(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '"') {
+                out.append("\\\"");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.clover.cpanel.util;
+
+/**
+ * /proc 及 df 输出解析工具
+ * 逐字符扫描数字，不使用split或正则，解析结果写入调用方提供的数组，避免每行产生临时对象
+ */
+public final class ProcMetricsParser {
+
+    private ProcMetricsParser() {
+    }
+
+    /**
+     * 从指定位置开始解析行中的非负整数
+     * 非数字字符视为分隔符
+     * @param line 行内容
+     * @param from 起始位置
+     * @param out 输出数组，填满后停止
+     * @return 解析到的数量
+     */
+    public static int parseLongs(CharSequence line, int from, long[] out) {
+        int count = 0;
+        int length = line.length();
+        int i = Math.max(0, from);
+        while (i < length && count < out.length) {
+            char ch = line.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                long value = 0;
+                while (i < length && (ch = line.charAt(i)) >= '0' && ch <= '9') {
+                    value = value * 10 + (ch - '0');
+                    i++;
+                }
+                out[count++] = value;
+            } else {
+                i++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 从指定位置开始解析以空白分隔的小数（如 /proc/loadavg）
+     * 含有数字和小数点以外字符的字段会被跳过
+     * @param line 行内容
+     * @param from 起始位置
+     * @param out 输出数组，填满后停止
+     * @return 解析到的数量
+     */
+    public static int parseDecimals(CharSequence line, int from, double[] out) {
+        int count = 0;
+        int length = line.length();
+        int i = Math.max(0, from);
+        while (i < length && count < out.length) {
+            // 跳过空白
+            while (i < length && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i >= length) {
+                break;
+            }
+
+            long integerPart = 0;
+            long fraction = 0;
+            long scale = 1;
+            boolean seenDot = false;
+            boolean valid = true;
+            boolean hasDigit = false;
+            while (i < length && !Character.isWhitespace(line.charAt(i))) {
+                char ch = line.charAt(i++);
+                if (ch >= '0' && ch <= '9') {
+                    hasDigit = true;
+                    if (seenDot) {
+                        if (scale < 1_000_000_000L) {
+                            fraction = fraction * 10 + (ch - '0');
+                            scale *= 10;
+                        }
+                    } else {
+                        integerPart = integerPart * 10 + (ch - '0');
+                    }
+                } else if (ch == '.' && !seenDot) {
+                    seenDot = true;
+                } else {
+                    valid = false;
+                }
+            }
+            if (valid && hasDigit) {
+                out[count++] = integerPart + (double) fraction / scale;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 解析 /proc/meminfo 中形如 "MemTotal:  16318736 kB" 的行
+     * @param line 行内容
+     * @param key 字段名（不含冒号）
+     * @return 数值（kB），字段不匹配时返回-1
+     */
+    public static long parseMemInfoValue(String line, String key) {
+        if (!line.startsWith(key) || line.length() <= key.length() || line.charAt(key.length()) != ':') {
+            return -1;
+        }
+        long value = 0;
+        boolean found = false;
+        for (int i = key.length() + 1; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                value = value * 10 + (ch - '0');
+                found = true;
+            } else if (found) {
+                break;
+            }
+        }
+        return found ? value : -1;
+    }
+
+    /**
+     * 判断 /proc/net/dev 的行是否为回环网卡
+     * @param line 行内容
+     * @param colon 冒号位置
+     */
+    public static boolean isLoopbackInterface(String line, int colon) {
+        int start = 0;
+        while (start < colon && line.charAt(start) == ' ') {
+            start++;
+        }
+        return colon - start == 2 && line.startsWith("lo", start);
+    }
+}
@@ -0,0 +1,128 @@
+package com.clover.cpanel.util;
+
+import java.util.Arrays;
+
+/**
+ * 定长时间序列环形缓冲区
+ * 使用原始类型数组保存多个通道的采样值，写满后覆盖最旧的数据，追加采样不产生额外对象
+ */
+public class TimeSeriesRing {
+
+    private final int capacity;
+    private final int channels;
+    private final long[] timestamps;
+    // 按 [槽位 * 通道数 + 通道] 排列
+    private final double[] values;
+
+    // 下一个写入槽位
+    private int head;
+    private int size;
+
+    public TimeSeriesRing(int capacity, int channels) {
+        if (capacity <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("容量和通道数必须大于0");
+        }
+        this.capacity = capacity;
+        this.channels = channels;
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity * channels];
+    }
+
+    /**
+     * 追加一个采样
+     * @param timestamp 时间戳（毫秒）
+     * @param sample 各通道的值，长度必须等于通道数（数组会被复制，调用方可复用）
+     */
+    public synchronized void append(long timestamp, double[] sample) {
+        if (sample.length != channels) {
+            throw new IllegalArgumentException("采样通道数不匹配: " + sample.length + " != " + channels);
+        }
+        timestamps[head] = timestamp;
+        System.arraycopy(sample, 0, values, head * channels, channels);
+        head = (head + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 最新一个采样的时间戳，为空时返回-1
+     */
+    public synchronized long latestTimestamp() {
+        return size == 0 ? -1 : timestamps[(head - 1 + capacity) % capacity];
+    }
+
+    /**
+     * 最新一个采样中指定通道的值，为空时返回NaN
+     */
+    public synchronized double latest(int channel) {
+        return size == 0 ? Double.NaN : values[((head - 1 + capacity) % capacity) * channels + channel];
+    }
+
+    /**
+     * 获取最近若干个采样的快照，按时间从旧到新排列
+     * @param limit 最多返回的采样数，小于等于0表示全部
+     * @return 快照
+     */
+    public synchronized Snapshot snapshot(int limit) {
+        int count = limit > 0 ? Math.min(limit, size) : size;
+        long[] times = new long[count];
+        double[][] series = new double[channels][count];
+        int start = (head - count + capacity) % capacity;
+        for (int i = 0; i < count; i++) {
+            int slot = (start + i) % capacity;
+            times[i] = timestamps[slot];
+            int base = slot * channels;
+            for (int c = 0; c < channels; c++) {
+                series[c][i] = values[base + c];
+            }
+        }
+        return new Snapshot(times, series);
+    }
+
+    /**
+     * 清空所有采样
+     */
+    public synchronized void clear() {
+        Arrays.fill(timestamps, 0L);
+        Arrays.fill(values, 0.0);
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * 时间序列快照
+     */
+    public static class Snapshot {
+        private final long[] timestamps;
+        private final double[][] series;
+
+        Snapshot(long[] timestamps, double[][] series) {
+            this.timestamps = timestamps;
+            this.series = series;
+        }
+
+        public long[] getTimestamps() {
+            return timestamps;
+        }
+
+        /**
+         * 指定通道的数据
+         */
+        public double[] getSeries(int channel) {
+            return series[channel];
+        }
+    }
+}
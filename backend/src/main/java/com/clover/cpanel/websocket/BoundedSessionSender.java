@@ -0,0 +1,123 @@
+package com.clover.cpanel.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 带有界队列的WebSocket发送器
+ * 所有发往同一会话的消息都经过此队列，由独立线程串行发送；
+ * 队列满说明客户端跟不上，直接断开该客户端，而不是阻塞其他订阅者
+ */
+@Slf4j
+public class BoundedSessionSender {
+
+    private final WebSocketSession session;
+    private final BlockingQueue<WebSocketMessage<?>> queue;
+    private final Executor executor;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean closed;
+    private volatile Runnable drainListener;
+
+    public BoundedSessionSender(WebSocketSession session, int capacity, Executor executor) {
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.executor = executor;
+    }
+
+    public WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * 设置队列发送完毕时的回调（在发送线程中执行），用于补发因队列已满而暂存的数据
+     */
+    public void setDrainListener(Runnable drainListener) {
+        this.drainListener = drainListener;
+    }
+
+    /**
+     * 投递消息（非阻塞）
+     * @param message 消息
+     * @return 是否投递成功，队列已满或会话已关闭时返回false
+     */
+    public boolean offer(WebSocketMessage<?> message) {
+        if (closed || !session.isOpen()) {
+            return false;
+        }
+        if (!queue.offer(message)) {
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    /**
+     * 投递消息，队列已满时断开该客户端
+     * @param message 消息
+     * @return 是否投递成功
+     */
+    public boolean offerOrDrop(WebSocketMessage<?> message) {
+        if (offer(message)) {
+            return true;
+        }
+        if (!closed && session.isOpen()) {
+            log.warn("WebSocket客户端发送队列已满，断开慢速客户端: {}", session.getId());
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+        }
+        return false;
+    }
+
+    /**
+     * 关闭发送器及其会话
+     */
+    public void close(CloseStatus status) {
+        closed = true;
+        queue.clear();
+        try {
+            if (session.isOpen()) {
+                session.close(status);
+            }
+        } catch (Exception e) {
+            log.debug("关闭WebSocket会话失败: {}", session.getId(), e);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            WebSocketMessage<?> message;
+            while (!closed && (message = queue.poll()) != null) {
+                if (!session.isOpen()) {
+                    queue.clear();
+                    return;
+                }
+                session.sendMessage(message);
+            }
+            Runnable listener = drainListener;
+            if (!closed && listener != null) {
+                listener.run();
+            }
+        } catch (Exception e) {
+            log.warn("发送WebSocket消息失败: {}", session.getId(), e);
+            close(CloseStatus.SERVER_ERROR);
+        } finally {
+            draining.set(false);
+            // 释放标记后可能有新消息入队，需要重新调度
+            if (!closed && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
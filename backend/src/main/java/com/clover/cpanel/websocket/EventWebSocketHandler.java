@@ -0,0 +1,207 @@
+package com.clover.cpanel.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 事件推送WebSocket处理器
+ * 客户端按主题订阅，服务端通过 {@link #publish(String, Object)} 推送事件；
+ * 每个事件只序列化一次，经各客户端的有界队列发送，慢速客户端会被断开
+ *
+ * 客户端消息格式：{"type":"subscribe","topics":["server.health"]}、{"type":"unsubscribe","topics":[...]}
+ * 推送消息格式：{"type":"event","topic":"server.health","data":...}
+ */
+@Slf4j
+@Component
+public class EventWebSocketHandler implements WebSocketHandler {
+
+    // 订阅此主题的客户端会收到所有事件
+    private static final String WILDCARD_TOPIC = "*";
+
+    // 每个客户端的发送队列容量
+    @Value("${events.queue-capacity:256}")
+    private int queueCapacity;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>(); // WebSocket会话ID -> 订阅者
+    private final Map<String, Supplier<Object>> initialStateProviders = new ConcurrentHashMap<>(); // 主题 -> 订阅时推送的完整状态
+    private final AtomicInteger senderThreadIndex = new AtomicInteger();
+    private final ExecutorService senderExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "event-ws-sender-" + senderThreadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 订阅者
+     */
+    private static class Subscriber {
+        private final BoundedSessionSender sender;
+        private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+        Subscriber(BoundedSessionSender sender) {
+            this.sender = sender;
+        }
+
+        boolean accepts(String topic) {
+            return topics.contains(topic) || topics.contains(WILDCARD_TOPIC);
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        subscribers.put(session.getId(), new Subscriber(new BoundedSessionSender(session, queueCapacity, senderExecutor)));
+        log.debug("事件WebSocket连接建立: {}", session.getId());
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+
+        try {
+            JsonNode jsonNode = objectMapper.readTree(message.getPayload().toString());
+            String type = jsonNode.path("type").asText();
+            JsonNode topics = jsonNode.path("topics");
+
+            switch (type) {
+                case "subscribe":
+                    topics.forEach(topic -> {
+                        if (subscriber.topics.add(topic.asText())) {
+                            sendInitialState(subscriber, topic.asText());
+                        }
+                    });
+                    break;
+                case "unsubscribe":
+                    topics.forEach(topic -> subscriber.topics.remove(topic.asText()));
+                    break;
+                case "ping":
+                    subscriber.sender.offer(new TextMessage("{\"type\":\"pong\"}"));
+                    break;
+                default:
+                    log.warn("未知事件消息类型: {}", type);
+            }
+        } catch (Exception e) {
+            log.warn("处理事件WebSocket消息失败: {}", session.getId(), e);
+        }
+    }
+
+    /**
+     * 向订阅了该主题的所有客户端推送事件
+     * @param topic 主题
+     * @param data 事件数据（将序列化为JSON）
+     */
+    public void publish(String topic, Object data) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        Supplier<Object> provider = initialStateProviders.get(topic);
+        if (provider == null) {
+            deliver(topic, data);
+            return;
+        }
+        // 与订阅时推送完整状态互斥，保证同一客户端收到的完整状态与增量事件顺序一致
+        synchronized (provider) {
+            deliver(topic, data);
+        }
+    }
+
+    private void deliver(String topic, Object data) {
+        TextMessage message = null;
+        for (Subscriber subscriber : subscribers.values()) {
+            if (!subscriber.accepts(topic)) {
+                continue;
+            }
+            if (message == null) {
+                message = createMessage(topic, data);
+                if (message == null) {
+                    return;
+                }
+            }
+            subscriber.sender.offerOrDrop(message);
+        }
+    }
+
+    /**
+     * 注册主题的完整状态提供者，客户端订阅该主题时先收到一次完整状态，之后只收到增量事件
+     * @param topic 主题
+     * @param provider 完整状态提供者，返回null表示暂无状态
+     */
+    public void registerInitialState(String topic, Supplier<Object> provider) {
+        initialStateProviders.put(topic, provider);
+    }
+
+    private void sendInitialState(Subscriber subscriber, String topic) {
+        Supplier<Object> provider = initialStateProviders.get(topic);
+        if (provider == null) {
+            return;
+        }
+        synchronized (provider) {
+            Object state = provider.get();
+            if (state != null) {
+                TextMessage message = createMessage(topic, state);
+                if (message != null) {
+                    subscriber.sender.offer(message);
+                }
+            }
+        }
+    }
+
+    /**
+     * 是否有客户端订阅了该主题，可用于在无人订阅时跳过事件构建
+     */
+    public boolean hasSubscribers(String topic) {
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.accepts(topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private TextMessage createMessage(String topic, Object data) {
+        try {
+            Map<String, Object> messageMap = new LinkedHashMap<>();
+            messageMap.put("type", "event");
+            messageMap.put("topic", topic);
+            messageMap.put("data", data);
+            return new TextMessage(objectMapper.writeValueAsString(messageMap));
+        } catch (Exception e) {
+            log.error("序列化事件失败: {}", topic, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("事件WebSocket传输错误: {}", session.getId(), exception);
+        subscribers.remove(session.getId());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) {
+        log.debug("事件WebSocket连接关闭: {}, 状态: {}", session.getId(), closeStatus);
+        subscribers.remove(session.getId());
+    }
+
+    @Override
+    public boolean supportsPartialMessages() {
+        return false;
+    }
+}
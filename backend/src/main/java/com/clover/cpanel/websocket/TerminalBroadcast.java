@@ -0,0 +1,166 @@
+package com.clover.cpanel.websocket;
+
+import com.clover.cpanel.service.SshService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * 终端广播
+ * 订阅一个SSH会话的输出泵，将每段输出序列化一次后分发给所有观看者（包括所有者）；
+ * 只读观看者跟不上时被断开，所有者不会因此被断开：其队列已满时输出先合并暂存，队列发送完毕后一次补发；
+ * 暂存超出上限时从换行处丢弃最早的输出，补发时先发送属性重置和省略提示，避免残缺的转义序列污染终端显示
+ */
+@Slf4j
+class TerminalBroadcast implements SshService.OutputListener {
+
+    // 新观看者加入时回放的最近输出上限（字符）
+    private static final int SCROLLBACK_LIMIT = 32 * 1024;
+
+    // 所有者暂存输出的上限（字符），超出后丢弃最早的部分
+    private static final int OWNER_BACKLOG_LIMIT = 1024 * 1024;
+
+    // 截断时向后寻找换行的最大距离（字符），找不到时至少不切开代理对
+    private static final int CUT_SEARCH_LIMIT = 4096;
+
+    // 暂存输出被截断后补发前的提示：重置字符属性并另起一行
+    static final String TRUNCATION_MARKER = "\u001b[0m\r\n[输出过多，已省略较早的输出]\r\n";
+
+    private final String sshSessionId;
+    private final BoundedSessionSender owner;
+    private final BiFunction<String, String, TextMessage> messageFactory;
+    private final List<BoundedSessionSender> viewers = new CopyOnWriteArrayList<>();
+    private final StringBuilder scrollback = new StringBuilder();
+    private final StringBuilder ownerBacklog = new StringBuilder();
+    private boolean ownerBacklogTruncated;
+    private final Consumer<TerminalBroadcast> onClosedCallback;
+
+    /**
+     * @param owner 会话所有者的发送器，创建时即加入广播，不会错过订阅后的第一段输出
+     */
+    TerminalBroadcast(String sshSessionId, BoundedSessionSender owner,
+                      BiFunction<String, String, TextMessage> messageFactory, Consumer<TerminalBroadcast> onClosedCallback) {
+        this.sshSessionId = sshSessionId;
+        this.owner = owner;
+        this.messageFactory = messageFactory;
+        this.onClosedCallback = onClosedCallback;
+        owner.setDrainListener(this::flushOwnerBacklog);
+    }
+
+    String getSshSessionId() {
+        return sshSessionId;
+    }
+
+    String getOwnerWebSocketId() {
+        return owner.getSession().getId();
+    }
+
+    int getViewerCount() {
+        return viewers.size() + 1;
+    }
+
+    /**
+     * 添加只读观看者，并回放最近的输出
+     */
+    void addViewer(BoundedSessionSender viewer) {
+        synchronized (scrollback) {
+            if (scrollback.length() > 0) {
+                viewer.offerOrDrop(messageFactory.apply("output", scrollback.toString()));
+            }
+            viewers.add(viewer);
+        }
+    }
+
+    void removeViewer(BoundedSessionSender viewer) {
+        viewers.remove(viewer);
+    }
+
+    @Override
+    public void onOutput(String output) {
+        TextMessage message = messageFactory.apply("output", output);
+        synchronized (scrollback) {
+            scrollback.append(output);
+            if (scrollback.length() > SCROLLBACK_LIMIT) {
+                scrollback.delete(0, safeCut(scrollback, scrollback.length() - SCROLLBACK_LIMIT));
+            }
+            // 投递是非阻塞的，放在锁内保证与addViewer的回放不重不漏
+            deliverToOwner(message, output);
+            for (BoundedSessionSender viewer : viewers) {
+                if (!viewer.offerOrDrop(message)) {
+                    viewers.remove(viewer);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onClosed() {
+        TextMessage message = messageFactory.apply("disconnected", "SSH连接已断开");
+        synchronized (scrollback) {
+            flushOwnerBacklog();
+            if (!owner.offer(message)) {
+                owner.close(CloseStatus.NORMAL);
+            }
+        }
+        for (BoundedSessionSender viewer : viewers) {
+            viewer.offer(message);
+        }
+        viewers.clear();
+        owner.setDrainListener(null);
+        onClosedCallback.accept(this);
+    }
+
+    /**
+     * 投递给所有者：有暂存输出时先追加到暂存区，保证顺序
+     */
+    private void deliverToOwner(TextMessage message, String output) {
+        if (ownerBacklog.length() == 0 && owner.offer(message)) {
+            return;
+        }
+        ownerBacklog.append(output);
+        if (ownerBacklog.length() > OWNER_BACKLOG_LIMIT) {
+            if (!ownerBacklogTruncated) {
+                log.debug("终端所有者输出积压超过上限，丢弃最早的输出: {}", sshSessionId);
+            }
+            ownerBacklog.delete(0, safeCut(ownerBacklog, ownerBacklog.length() - OWNER_BACKLOG_LIMIT));
+            ownerBacklogTruncated = true;
+        }
+    }
+
+    /**
+     * 所有者队列发送完毕后，将暂存的输出合并为一条消息补发，曾被截断时在前面加上省略提示
+     */
+    private void flushOwnerBacklog() {
+        synchronized (scrollback) {
+            if (ownerBacklog.length() == 0) {
+                return;
+            }
+            String data = ownerBacklogTruncated ? TRUNCATION_MARKER + ownerBacklog : ownerBacklog.toString();
+            if (owner.offer(messageFactory.apply("output", data))) {
+                ownerBacklog.setLength(0);
+                ownerBacklogTruncated = false;
+            }
+        }
+    }
+
+    /**
+     * 计算丢弃最早输出时的截断位置：优先在换行之后截断，避免保留的内容以半个转义序列开头；
+     * 附近没有换行时至少不切开代理对
+     * @param from 至少需要丢弃的字符数
+     * @return 实际丢弃的字符数
+     */
+    static int safeCut(CharSequence text, int from) {
+        int end = Math.min(text.length(), from + CUT_SEARCH_LIMIT);
+        for (int i = from; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return from < text.length() && Character.isLowSurrogate(text.charAt(from)) ? from + 1 : from;
+    }
+}
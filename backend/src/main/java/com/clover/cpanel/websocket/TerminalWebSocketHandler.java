@@ -1,20 +1,23 @@
 package com.clover.cpanel.websocket;
 
 import com.clover.cpanel.service.SshService;
+import com.clover.cpanel.service.TerminalRecordingService;
 import com.clover.cpanel.service.TwoFactorAuthService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 终端WebSocket处理器
@@ -29,15 +32,32 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
     @Autowired
     private TwoFactorAuthService twoFactorAuthService;
 
+    @Autowired
+    private TerminalRecordingService terminalRecordingService;
+
+    // 每个WebSocket客户端的发送队列容量
+    @Value("${terminal.viewer.queue-capacity:256}")
+    private int viewerQueueCapacity;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final Map<String, WebSocketSession> webSocketSessions = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionToSshMapping = new ConcurrentHashMap<>(); // WebSocket会话ID -> SSH会话ID
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10);
+    private final Map<String, BoundedSessionSender> webSocketSenders = new ConcurrentHashMap<>(); // WebSocket会话ID -> 发送队列
+    private final Map<String, String> sessionToSshMapping = new ConcurrentHashMap<>(); // WebSocket会话ID -> SSH会话ID（会话所有者）
+    private final Map<String, String> viewerToSshMapping = new ConcurrentHashMap<>(); // WebSocket会话ID -> SSH会话ID（只读观看者）
+    private final Map<String, TerminalBroadcast> broadcasts = new ConcurrentHashMap<>(); // SSH会话ID -> 输出广播
+    private final Set<String> twoFactorVerifiedSessions = ConcurrentHashMap.newKeySet(); // 已在服务端通过2FA验证的WebSocket会话ID
+    private final AtomicInteger senderThreadIndex = new AtomicInteger();
+    private final ExecutorService senderExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "terminal-ws-sender-" + senderThreadIndex.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         String webSocketSessionId = session.getId();
         webSocketSessions.put(webSocketSessionId, session);
+        webSocketSenders.put(webSocketSessionId, new BoundedSessionSender(session, viewerQueueCapacity, senderExecutor));
         log.info("WebSocket连接建立: {}", webSocketSessionId);
 
         // 发送连接成功消息
@@ -66,6 +86,9 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
                 case "connect":
                     handleConnect(session, data);
                     break;
+                case "attach":
+                    handleAttach(session, data);
+                    break;
                 case "verify2fa":
                     handleVerify2FA(session, data);
                     break;
@@ -112,7 +135,7 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
      */
     private void handleVerify2FA(WebSocketSession session, JsonNode data) {
         try {
-            String userId = "admin"; // 默认用户，可以从JWT token中获取
+            String userId = getCurrentUser(session);
 
             // 检查是否启用了2FA
             boolean twoFactorEnabled = twoFactorAuthService.isTwoFactorEnabled(userId);
@@ -122,17 +145,7 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
                 return;
             }
 
-            String verificationCode = data.has("verificationCode") ? data.get("verificationCode").asText() : null;
-            String backupCode = data.has("backupCode") ? data.get("backupCode").asText() : null;
-
-            boolean verified = false;
-            if (verificationCode != null && !verificationCode.trim().isEmpty()) {
-                verified = twoFactorAuthService.verifyTwoFactorCode(userId, verificationCode);
-            } else if (backupCode != null && !backupCode.trim().isEmpty()) {
-                verified = twoFactorAuthService.verifyBackupCode(userId, backupCode);
-            }
-
-            if (verified) {
+            if (verifyTwoFactorCode(session, userId, data)) {
                 sendMessage(session, "2fa_verified", "2FA验证成功");
                 log.info("用户 {} 2FA验证成功，WebSocket会话: {}", userId, session.getId());
             } else {
@@ -146,6 +159,57 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
         }
     }
 
+    /**
+     * 检查2FA：未启用时直接通过；启用时要求该WebSocket会话已通过 verify2fa 验证，
+     * 或在当前消息中携带 verificationCode / backupCode，不信任客户端自报的验证状态
+     * @return 是否通过
+     */
+    private boolean checkTwoFactor(WebSocketSession session, JsonNode data) {
+        String userId = getCurrentUser(session);
+        if (!twoFactorAuthService.isTwoFactorEnabled(userId)
+                || twoFactorVerifiedSessions.contains(session.getId())) {
+            return true;
+        }
+
+        if (data != null && verifyTwoFactorCode(session, userId, data)) {
+            log.info("用户 {} 2FA验证成功，WebSocket会话: {}", userId, session.getId());
+            return true;
+        }
+
+        sendMessage(session, "2fa_required", "需要2FA验证");
+        return false;
+    }
+
+    /**
+     * 校验消息中的2FA验证码或备用恢复码，成功后记录该WebSocket会话已通过验证
+     */
+    private boolean verifyTwoFactorCode(WebSocketSession session, String userId, JsonNode data) {
+        String verificationCode = data.has("verificationCode") && !data.get("verificationCode").isNull()
+                ? data.get("verificationCode").asText() : null;
+        String backupCode = data.has("backupCode") && !data.get("backupCode").isNull()
+                ? data.get("backupCode").asText() : null;
+
+        boolean verified = false;
+        if (verificationCode != null && !verificationCode.trim().isEmpty()) {
+            verified = twoFactorAuthService.verifyTwoFactorCode(userId, verificationCode);
+        } else if (backupCode != null && !backupCode.trim().isEmpty()) {
+            verified = twoFactorAuthService.verifyBackupCode(userId, backupCode);
+        }
+
+        if (verified) {
+            twoFactorVerifiedSessions.add(session.getId());
+        }
+        return verified;
+    }
+
+    /**
+     * 获取握手时由JWT认证得到的用户
+     */
+    private String getCurrentUser(WebSocketSession session) {
+        Object currentUser = session.getAttributes().get("currentUser");
+        return currentUser != null ? currentUser.toString() : "admin"; // 默认用户
+    }
+
     /**
      * 处理SSH连接请求
      */
@@ -156,22 +220,10 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
         String sshSessionId = data.has("sessionId") ? data.get("sessionId").asText() : webSocketSessionId;
 
         try {
-            String userId = "admin"; // 默认用户，可以从JWT token中获取
-
-            // 检查是否启用了2FA
-            boolean twoFactorEnabled = twoFactorAuthService.isTwoFactorEnabled(userId);
-
-            if (twoFactorEnabled) {
-                // 需要2FA验证
-                boolean verified = data.has("2faVerified") && data.get("2faVerified").asBoolean();
-
-                if (!verified) {
-                    sendMessage(session, "2fa_required", "需要2FA验证");
-                    return;
-                }
-
-                log.info("用户 {} 已通过2FA验证，继续SSH连接", userId);
+            if (!checkTwoFactor(session, data)) {
+                return;
             }
+
             // 验证必需字段
             if (!data.has("host") || data.get("host").isNull()) {
                 sendMessage(session, "error", "缺少主机地址");
@@ -217,8 +269,13 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
             if (sshConnection.isConnected()) {
                 sendMessage(session, "connected", "SSH连接成功");
 
-                // 启动输出读取任务
-                startOutputReader(session, sshSessionId);
+                // 按需开始录制
+                boolean record = data.has("record") && !data.get("record").isNull()
+                        ? data.get("record").asBoolean() : terminalRecordingService.isRecordingEnabled();
+                TerminalRecordingService.Recorder recorder = record ? startRecording(session, sshSessionId) : null;
+
+                // 启动输出广播，广播（含所有者）与录制器一起订阅后才启动输出泵，都不会漏掉登录输出
+                startBroadcast(session, sshSessionId, recorder);
             } else {
                 sendMessage(session, "error", "SSH连接失败");
             }
@@ -244,10 +301,21 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
             return;
         }
 
+        // 只有会话所有者可以输入，观看者为只读
+        if (!isOwner(webSocketSessionId, sshSessionId)) {
+            sendMessage(session, "error", "只读观看模式，不能发送输入");
+            return;
+        }
+
         String command = data.get("command").asText();
 
         try {
             sshService.sendCommand(sshSessionId, command);
+
+            TerminalRecordingService.Recorder recorder = terminalRecordingService.getRecorder(sshSessionId);
+            if (recorder != null) {
+                recorder.recordInput(command);
+            }
             log.debug("发送命令到SSH会话 {}: {}", sshSessionId, command);
         } catch (Exception e) {
             log.error("发送命令失败", e);
@@ -261,13 +329,25 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
     private void handleDisconnect(WebSocketSession session) {
         String webSocketSessionId = session.getId();
 
+        // 观看者断开只取消订阅，不影响SSH会话
+        String watchedSshSessionId = viewerToSshMapping.remove(webSocketSessionId);
+        if (watchedSshSessionId != null) {
+            detachViewer(webSocketSessionId, watchedSshSessionId);
+            sendMessage(session, "disconnected", "已停止观看");
+            return;
+        }
+
         // 获取SSH会话ID
         String sshSessionId = sessionToSshMapping.get(webSocketSessionId);
 
         if (sshSessionId != null) {
             try {
+                boolean broadcasting = broadcasts.containsKey(sshSessionId);
                 sshService.disconnect(sshSessionId);
-                sendMessage(session, "disconnected", "SSH连接已断开");
+                // 有广播时由广播通知所有观看者（包括所有者）
+                if (!broadcasting) {
+                    sendMessage(session, "disconnected", "SSH连接已断开");
+                }
                 log.info("SSH连接已断开: {}", sshSessionId);
             } catch (Exception e) {
                 log.error("断开SSH连接失败", e);
@@ -278,6 +358,42 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
         }
     }
 
+    /**
+     * 处理观看请求：以只读方式加入已有的SSH会话
+     */
+    private void handleAttach(WebSocketSession session, JsonNode data) {
+        String webSocketSessionId = session.getId();
+        String sshSessionId = data != null && data.has("sessionId") ? data.get("sessionId").asText() : null;
+
+        if (sshSessionId == null || sshSessionId.isEmpty()) {
+            sendMessage(session, "error", "缺少要观看的SSH会话ID");
+            return;
+        }
+
+        // 观看与连接使用相同的认证要求
+        if (!checkTwoFactor(session, data)) {
+            return;
+        }
+
+        TerminalBroadcast broadcast = broadcasts.get(sshSessionId);
+        BoundedSessionSender sender = webSocketSenders.get(webSocketSessionId);
+        if (broadcast == null || sender == null) {
+            sendMessage(session, "error", "SSH会话不存在或已断开");
+            return;
+        }
+
+        // 切换观看目标时先退出之前的会话
+        String previous = viewerToSshMapping.put(webSocketSessionId, sshSessionId);
+        if (previous != null && !previous.equals(sshSessionId)) {
+            detachViewer(webSocketSessionId, previous);
+        }
+
+        sendMessage(session, "attached", "已加入只读观看");
+        broadcast.addViewer(sender);
+        log.info("WebSocket会话 {} 开始观看SSH会话 {}, 当前观看者数: {}",
+                webSocketSessionId, sshSessionId, broadcast.getViewerCount());
+    }
+
     /**
      * 处理终端大小调整
      */
@@ -293,12 +409,22 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
             return;
         }
 
+        // 终端尺寸由会话所有者决定
+        if (!isOwner(webSocketSessionId, sshSessionId)) {
+            return;
+        }
+
         int cols = data.get("cols").asInt();
         int rows = data.get("rows").asInt();
 
         try {
             // 调整SSH会话的PTY大小
             sshService.resizePty(sshSessionId, cols, rows);
+
+            TerminalRecordingService.Recorder recorder = terminalRecordingService.getRecorder(sshSessionId);
+            if (recorder != null) {
+                recorder.recordResize(cols, rows);
+            }
             log.debug("终端大小调整成功: {}x{}, SSH会话: {}", cols, rows, sshSessionId);
         } catch (Exception e) {
             log.error("终端大小调整失败", e);
@@ -307,48 +433,105 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
     }
 
     /**
-     * 启动输出读取任务
+     * 启动输出广播：输出泵只读取一次SSH通道，再分发给所有者和所有观看者
+     * @param recorder 录制器，不录制时为null
      */
-    private void startOutputReader(WebSocketSession session, String sshSessionId) {
-        scheduler.scheduleWithFixedDelay(() -> {
-            try {
-                if (!sshService.isConnected(sshSessionId) || !session.isOpen()) {
-                    return;
-                }
+    private void startBroadcast(WebSocketSession session, String sshSessionId, TerminalRecordingService.Recorder recorder) {
+        BoundedSessionSender ownerSender = webSocketSenders.get(session.getId());
+        if (ownerSender == null) {
+            if (recorder != null) {
+                terminalRecordingService.stopRecording(sshSessionId);
+            }
+            return;
+        }
 
-                String output = sshService.readOutput(sshSessionId);
-                if (!output.isEmpty()) {
-                    // 直接发送原始输出给前端xterm.js处理
-                    sendMessage(session, "output", output);
-                }
-            } catch (Exception e) {
-                log.error("读取SSH输出失败", e);
-                try {
-                    sendMessage(session, "error", "读取输出失败: " + e.getMessage());
-                } catch (Exception ex) {
-                    log.error("发送错误消息失败", ex);
-                }
+        TerminalBroadcast broadcast = new TerminalBroadcast(sshSessionId, ownerSender, this::createMessage,
+                closed -> broadcasts.remove(sshSessionId, closed));
+        TerminalBroadcast previous = broadcasts.put(sshSessionId, broadcast);
+        if (previous != null) {
+            sshService.unsubscribe(sshSessionId, previous);
+        }
+
+        boolean subscribed = recorder != null
+                ? sshService.subscribe(sshSessionId, broadcast, recorder)
+                : sshService.subscribe(sshSessionId, broadcast);
+        if (!subscribed) {
+            broadcasts.remove(sshSessionId, broadcast);
+            if (recorder != null) {
+                terminalRecordingService.stopRecording(sshSessionId);
             }
-        }, 100, 100, TimeUnit.MILLISECONDS);
+            sendMessage(session, "error", "读取输出失败: SSH会话不存在或已断开");
+        } else if (recorder != null) {
+            sendMessage(session, "recording", recorder.getRecordingId());
+        }
     }
 
+    /**
+     * 开始录制SSH会话，录制器随输出广播一起订阅输出泵
+     * @return 录制器，开始录制失败时返回null
+     */
+    private TerminalRecordingService.Recorder startRecording(WebSocketSession session, String sshSessionId) {
+        try {
+            // 初始PTY尺寸与SshService创建Shell时一致
+            return terminalRecordingService.startRecording(sshSessionId, 80, 24);
+        } catch (Exception e) {
+            log.error("开始录制终端会话失败: {}", sshSessionId, e);
+            sendMessage(session, "error", "开始录制失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 观看者退出广播
+     */
+    private void detachViewer(String webSocketSessionId, String sshSessionId) {
+        TerminalBroadcast broadcast = broadcasts.get(sshSessionId);
+        BoundedSessionSender sender = webSocketSenders.get(webSocketSessionId);
+        if (broadcast != null && sender != null) {
+            broadcast.removeViewer(sender);
+        }
+    }
+
+    /**
+     * 判断WebSocket会话是否为SSH会话的所有者
+     */
+    private boolean isOwner(String webSocketSessionId, String sshSessionId) {
+        return sshSessionId.equals(sessionToSshMapping.get(webSocketSessionId));
+    }
 
+    /**
+     * 构建WebSocket消息（广播时只序列化一次）
+     */
+    private TextMessage createMessage(String type, String data) {
+        try {
+            // 使用Jackson来正确序列化JSON，避免手动字符串拼接
+            Map<String, String> messageMap = new HashMap<>();
+            messageMap.put("type", type);
+            messageMap.put("data", data);
+            return new TextMessage(objectMapper.writeValueAsString(messageMap));
+        } catch (Exception e) {
+            throw new IllegalStateException("序列化WebSocket消息失败", e);
+        }
+    }
 
     /**
-     * 发送消息到WebSocket客户端
+     * 发送消息到WebSocket客户端（经由该客户端的发送队列，避免多线程并发写同一会话）
      */
     private void sendMessage(WebSocketSession session, String type, String data) {
         try {
             if (session.isOpen()) {
-                // 使用Jackson来正确序列化JSON，避免手动字符串拼接
-                Map<String, String> messageMap = new HashMap<>();
-                messageMap.put("type", type);
-                messageMap.put("data", data);
-
-                String message = objectMapper.writeValueAsString(messageMap);
-                session.sendMessage(new TextMessage(message));
+                TextMessage message = createMessage(type, data);
+                BoundedSessionSender sender = webSocketSenders.get(session.getId());
+                if (sender != null && sessionToSshMapping.containsKey(session.getId())) {
+                    // 会话所有者断开会结束SSH会话，队列已满时只丢弃这条消息
+                    sender.offer(message);
+                } else if (sender != null) {
+                    sender.offerOrDrop(message);
+                } else {
+                    session.sendMessage(message);
+                }
 
-                log.debug("发送WebSocket消息: {}", message);
+                log.debug("发送WebSocket消息: {}", message.getPayload());
             }
         } catch (Exception e) {
             log.error("发送WebSocket消息失败", e);
@@ -360,11 +543,20 @@ public class TerminalWebSocketHandler implements WebSocketHandler {
      */
     private void cleanupSession(String webSocketSessionId) {
         webSocketSessions.remove(webSocketSessionId);
+        twoFactorVerifiedSessions.remove(webSocketSessionId);
 
-        // 获取对应的SSH会话ID并断开连接
+        // 观看者离开只取消订阅
+        String watchedSshSessionId = viewerToSshMapping.remove(webSocketSessionId);
+        if (watchedSshSessionId != null) {
+            detachViewer(webSocketSessionId, watchedSshSessionId);
+        }
+
+        // 所有者离开则断开SSH连接，广播会通知其余观看者
         String sshSessionId = sessionToSshMapping.remove(webSocketSessionId);
         if (sshSessionId != null) {
             sshService.disconnect(sshSessionId);
         }
+
+        webSocketSenders.remove(webSocketSessionId);
     }
 }
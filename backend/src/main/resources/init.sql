@@ -87,7 +87,8 @@ CREATE TABLE IF NOT EXISTS panel_servers (
   category_id INT COMMENT '所属分类ID，外键关联panel_categories表（type=server）',
   group_name VARCHAR(100) DEFAULT '默认分组' COMMENT '服务器分组（兼容字段，优先使用category_id）',
   is_default BOOLEAN DEFAULT FALSE COMMENT '是否为默认服务器',
-  status VARCHAR(20) DEFAULT 'active' COMMENT '服务器状态：active或inactive',
+  status VARCHAR(20) DEFAULT 'active' COMMENT '服务器状态：active、inactive或auth_failed',
+  latency_ms INT COMMENT '最近一次健康探测的连接延迟（毫秒）',
   sort_order INT DEFAULT 1 COMMENT '排序顺序',
   created_at VARCHAR(19) COMMENT '创建时间，格式：yyyy-MM-dd HH:mm:ss',
   updated_at VARCHAR(19) COMMENT '更新时间，格式：yyyy-MM-dd HH:mm:ss',
@@ -0,0 +1,63 @@
+package com.clover.cpanel.controller;
+
+import com.clover.cpanel.service.MetricsExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 指标接口访问控制测试
+ */
+public class MetricsControllerTest {
+
+    private MetricsController createController(boolean enabled, String token) {
+        MetricsExportService exportService = new MetricsExportService() {
+            @Override
+            public String scrape() {
+                return "# EOF\n";
+            }
+        };
+        MetricsController controller = new MetricsController(exportService);
+        ReflectionTestUtils.setField(controller, "enabled", enabled);
+        ReflectionTestUtils.setField(controller, "token", token);
+        return controller;
+    }
+
+    @Test
+    public void testDisabled() {
+        ResponseEntity<String> response = createController(false, "secret").metrics("Bearer secret");
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void testEnabledWithoutTokenNotServed() {
+        ResponseEntity<String> response = createController(true, "").metrics(null);
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    public void testMissingToken() {
+        MetricsController controller = createController(true, "secret");
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.metrics(null).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.metrics("Basic c2VjcmV0").getStatusCode());
+    }
+
+    @Test
+    public void testWrongToken() {
+        MetricsController controller = createController(true, "secret");
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.metrics("Bearer secreT").getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.metrics("Bearer secret2").getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.metrics("Bearer ").getStatusCode());
+    }
+
+    @Test
+    public void testValidToken() {
+        ResponseEntity<String> response = createController(true, "secret").metrics("Bearer secret");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("# EOF\n", response.getBody());
+    }
+}
@@ -0,0 +1,130 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.AlertEvent;
+import com.clover.cpanel.dto.AlertRule;
+import com.clover.cpanel.dto.SystemInfoDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 告警规则判断测试
+ */
+public class AlertServiceTest {
+
+    @Test
+    public void testDurationAndHysteresis() {
+        AlertService service = new AlertService();
+        AlertRule rule = rule("cpu", 80, 300);
+        List<AlertRule> rules = List.of(rule);
+
+        // 持续不足5分钟不告警，中途回落则重新计时
+        assertTrue(service.evaluate(rules, 0, cpu(90)).isEmpty());
+        assertTrue(service.evaluate(rules, 200_000, cpu(70)).isEmpty());
+        assertTrue(service.evaluate(rules, 250_000, cpu(90)).isEmpty());
+        assertTrue(service.evaluate(rules, 500_000, cpu(90)).isEmpty());
+
+        List<AlertEvent> events = service.evaluate(rules, 550_000, cpu(91));
+        assertEquals(1, events.size());
+        assertEquals(AlertService.STATE_FIRING, events.get(0).getState());
+        assertEquals(250_000, events.get(0).getStartedAt());
+        assertEquals(1, service.getActiveAlerts().size());
+
+        // 已触发时不重复通知，低于阈值但未低于恢复阈值时保持触发
+        assertTrue(service.evaluate(rules, 552_000, cpu(95)).isEmpty());
+        assertTrue(service.evaluate(rules, 554_000, cpu(78)).isEmpty());
+
+        events = service.evaluate(rules, 556_000, cpu(74));
+        assertEquals(1, events.size());
+        assertEquals(AlertService.STATE_RESOLVED, events.get(0).getState());
+        assertTrue(service.getActiveAlerts().isEmpty());
+    }
+
+    @Test
+    public void testDiskPerMountAndRuleRemoval() {
+        AlertService service = new AlertService();
+        AlertRule rule = rule("disk", 90, 0);
+
+        SystemInfoDto snapshot = new SystemInfoDto();
+        snapshot.setDisks(List.of(disk("/", 95), disk("/data", 50)));
+
+        List<AlertEvent> events = service.evaluate(List.of(rule), 1000, snapshot);
+        assertEquals(1, events.size());
+        assertEquals("/", events.get(0).getTarget());
+
+        // 删除规则后触发中的告警随之恢复
+        events = service.evaluate(List.of(), 2000, snapshot);
+        assertEquals(1, events.size());
+        assertEquals(AlertService.STATE_RESOLVED, events.get(0).getState());
+        assertEquals(1000, events.get(0).getStartedAt());
+    }
+
+    @Test
+    public void testDiskRuleIgnoresPseudoFileSystems() {
+        AlertService service = new AlertService();
+        AlertRule rule = rule("disk", 90, 0);
+
+        // snap的squashfs镜像恒为100%，tmpfs/overlay也不代表真实磁盘，默认规则不应因此触发
+        SystemInfoDto snapshot = new SystemInfoDto();
+        snapshot.setDisks(List.of(
+                disk("/", 40),
+                disk("/snap/core20/2105", "squashfs", 100),
+                disk("/run/user/1000", "tmpfs", 100),
+                disk("/var/lib/docker/overlay2/abc/merged", "overlay", 100)));
+        assertTrue(service.evaluate(List.of(rule), 1000, snapshot).isEmpty());
+        assertTrue(service.getActiveAlerts().isEmpty());
+
+        // 明确指定挂载点的规则仍然检查该挂载点
+        AlertRule targeted = rule("disk", 90, 0);
+        targeted.setId("snap");
+        targeted.setTarget("/snap/core20/2105");
+        List<AlertEvent> events = service.evaluate(List.of(rule, targeted), 2000, snapshot);
+        assertEquals(1, events.size());
+        assertEquals("/snap/core20/2105", events.get(0).getTarget());
+    }
+
+    @Test
+    public void testDiskRuleInContainerUsesRootMount() {
+        AlertService service = new AlertService();
+
+        // 容器内根目录为overlay，没有其他真实磁盘时检查根挂载点
+        SystemInfoDto snapshot = new SystemInfoDto();
+        snapshot.setDisks(List.of(disk("/", "overlay", 95), disk("/dev/shm", "tmpfs", 100)));
+        List<AlertEvent> events = service.evaluate(List.of(rule("disk", 90, 0)), 1000, snapshot);
+        assertEquals(1, events.size());
+        assertEquals("/", events.get(0).getTarget());
+    }
+
+    private static AlertRule rule(String metric, double threshold, int durationSeconds) {
+        AlertRule rule = new AlertRule();
+        rule.setId(metric);
+        rule.setName(metric);
+        rule.setMetric(metric);
+        rule.setThreshold(threshold);
+        rule.setDurationSeconds(durationSeconds);
+        return rule;
+    }
+
+    private static SystemInfoDto cpu(double usage) {
+        SystemInfoDto.CpuInfo cpu = new SystemInfoDto.CpuInfo();
+        cpu.setUsage(usage);
+        SystemInfoDto snapshot = new SystemInfoDto();
+        snapshot.setCpu(cpu);
+        return snapshot;
+    }
+
+    private static SystemInfoDto.DiskInfo disk(String name, double usage) {
+        return disk(name, "ext4", usage);
+    }
+
+    private static SystemInfoDto.DiskInfo disk(String name, String fileSystem, double usage) {
+        SystemInfoDto.DiskInfo disk = new SystemInfoDto.DiskInfo();
+        disk.setName(name);
+        disk.setFileSystem(fileSystem);
+        disk.setTotal(100);
+        disk.setUsage(usage);
+        return disk;
+    }
+}
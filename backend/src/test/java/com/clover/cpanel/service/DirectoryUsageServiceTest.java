@@ -0,0 +1,216 @@
+package com.clover.cpanel.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 目录占用分析测试：初始扫描、增量更新、事件溢出后的重新扫描与监听取消
+ */
+public class DirectoryUsageServiceTest {
+
+    private static final long WAIT_MILLIS = 10_000;
+
+    @TempDir
+    Path root;
+
+    private DirectoryUsageService service;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Files.write(root.resolve("readme.md"), new byte[100]);
+        Path sub = Files.createDirectories(root.resolve("sub"));
+        Files.write(sub.resolve("a.txt"), new byte[200]);
+        Path deep = Files.createDirectories(sub.resolve("deep"));
+        Files.write(deep.resolve("b.txt"), new byte[300]);
+
+        service = new DirectoryUsageService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "uploadPath", root.toString());
+        ReflectionTestUtils.setField(service, "extraRoots", "");
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "rootCheckSeconds", 60);
+        service.start();
+        await(() -> scannedAt() > 0, "初始扫描未完成");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void testInitialScanTotals() {
+        assertEquals(600L, rootValue("bytes"));
+        assertEquals(3L, rootValue("files"));
+        assertEquals(500L, folderBytes(root.resolve("sub")));
+        assertEquals(300L, folderBytes(root.resolve("sub/deep")));
+
+        Map<String, Object> txt = type("txt");
+        assertEquals(500L, txt.get("bytes"));
+        assertEquals(2L, txt.get("files"));
+        assertEquals(100L, type("md").get("bytes"));
+        assertEquals(3, service.watchedDirectoryCount());
+    }
+
+    @Test
+    public void testDeltasPropagateToAncestors() throws Exception {
+        Path deep = root.resolve("sub/deep");
+
+        // 新建
+        Files.write(deep.resolve("c.txt"), new byte[50]);
+        await(() -> rootValue("bytes") == 650L, "新建文件未计入");
+        assertEquals(4L, rootValue("files"));
+        assertEquals(550L, folderBytes(root.resolve("sub")));
+        assertEquals(350L, folderBytes(deep));
+
+        // 修改
+        Files.write(deep.resolve("c.txt"), new byte[80]);
+        await(() -> rootValue("bytes") == 680L, "文件修改未计入");
+        assertEquals(4L, rootValue("files"));
+        assertEquals(580L, folderBytes(root.resolve("sub")));
+        assertEquals(380L, folderBytes(deep));
+
+        // 删除
+        Files.delete(root.resolve("sub/a.txt"));
+        await(() -> rootValue("bytes") == 480L, "删除文件未扣除");
+        assertEquals(3L, rootValue("files"));
+        assertEquals(380L, folderBytes(root.resolve("sub")));
+        assertEquals(380L, type("txt").get("bytes"));
+
+        // 新建的子目录连同其中已有的文件一起计入，并开始监听
+        Path added = Files.createDirectories(root.resolve("sub/added"));
+        Files.write(added.resolve("d.bin"), new byte[20]);
+        await(() -> rootValue("bytes") == 500L, "新建目录未计入");
+        assertEquals(400L, folderBytes(root.resolve("sub")));
+        assertEquals(20L, folderBytes(added));
+        await(() -> service.watchedDirectoryCount() == 4, "新建目录未监听");
+    }
+
+    @Test
+    public void testOverflowTriggersRescan() throws Exception {
+        // 注入一个并未发生的删除事件，使内存中的汇总与磁盘不一致
+        service.handleEvents(root.resolve("sub"), List.of(event(StandardWatchEventKinds.ENTRY_DELETE, Path.of("a.txt"))));
+        assertEquals(400L, rootValue("bytes"));
+        assertEquals(300L, folderBytes(root.resolve("sub")));
+
+        long before = scannedAt();
+        Thread.sleep(5);
+        service.handleEvents(root, List.of(event(StandardWatchEventKinds.OVERFLOW, null)));
+        await(() -> scannedAt() > before, "事件溢出后未重新扫描");
+
+        assertEquals(600L, rootValue("bytes"));
+        assertEquals(3L, rootValue("files"));
+        assertEquals(500L, folderBytes(root.resolve("sub")));
+        assertEquals(3, service.watchedDirectoryCount());
+    }
+
+    @Test
+    public void testDeletedSubtreeCancelsWatches() throws Exception {
+        Files.createDirectories(root.resolve("sub/deep/deeper"));
+        await(() -> service.watchedDirectoryCount() == 4, "新建目录未监听");
+
+        deleteRecursively(root.resolve("sub"));
+        await(() -> rootValue("bytes") == 100L, "删除目录未扣除");
+        assertEquals(1L, rootValue("files"));
+        assertNull(type("txt"));
+        await(() -> service.watchedDirectoryCount() == 1, "已删除目录的监听未取消");
+    }
+
+    @Test
+    public void testShutdownStopsWatching() throws Exception {
+        service.shutdown();
+        Files.write(root.resolve("late.md"), new byte[10]);
+        Thread.sleep(1500);
+        assertEquals(600L, rootValue("bytes"));
+
+        // 关闭后不再响应重新扫描请求
+        long before = scannedAt();
+        service.requestRescan();
+        Thread.sleep(1500);
+        assertEquals(before, scannedAt());
+    }
+
+    private long scannedAt() {
+        return (Long) service.getReport(10).get("scannedAt");
+    }
+
+    @SuppressWarnings("unchecked")
+    private long rootValue(String key) {
+        List<Map<String, Object>> roots = (List<Map<String, Object>>) service.getReport(10).get("roots");
+        assertEquals(1, roots.size());
+        return (Long) roots.get(0).get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private long folderBytes(Path dir) {
+        Map<String, Object> report = service.getReport(10);
+        String path = dir.toAbsolutePath().normalize().toString();
+        return Stream.concat(((List<Map<String, Object>>) report.get("roots")).stream(),
+                        ((List<Map<String, Object>>) report.get("folders")).stream())
+                .filter(item -> path.equals(item.get("path")))
+                .map(item -> (Long) item.get("bytes"))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("目录不在结果中: " + path));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> type(String extension) {
+        return ((List<Map<String, Object>>) service.getReport(10).get("types")).stream()
+                .filter(item -> extension.equals(item.get("extension")))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static WatchEvent<Path> event(WatchEvent.Kind<?> kind, Path context) {
+        return new WatchEvent<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Kind<Path> kind() {
+                return (Kind<Path>) kind;
+            }
+
+            @Override
+            public int count() {
+                return 1;
+            }
+
+            @Override
+            public Path context() {
+                return context;
+            }
+        };
+    }
+}
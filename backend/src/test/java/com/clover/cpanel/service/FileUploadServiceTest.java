@@ -0,0 +1,68 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.service.impl.FileUploadServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 文件上传按内容存储测试
+ */
+public class FileUploadServiceTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D};
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    public void testContentAddressedDeduplication() throws Exception {
+        FileUploadService service = createService();
+
+        String first = service.uploadFile(new MockMultipartFile("file", "a.png", "image/png", PNG), "A");
+        String second = service.uploadFile(new MockMultipartFile("file", "b.png", "image/png", PNG), "B");
+        assertEquals(first, second);
+        assertTrue(first.matches("/uploads/[0-9a-f]{32}\\.png"));
+
+        // 只保留一份文件，临时文件已清理
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(1, files.count());
+        }
+
+        // 扩展名以实际内容为准
+        byte[] svg = "\uFEFF<?xml version=\"1.0\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes(StandardCharsets.UTF_8);
+        String svgUrl = service.uploadFile(new MockMultipartFile("file", "icon.png", "image/png", svg), "C");
+        assertTrue(svgUrl.endsWith(".svg"));
+    }
+
+    @Test
+    public void testRejectsContentNotMatchingImageTypes() {
+        FileUploadService service = createService();
+        MockMultipartFile html = new MockMultipartFile("file", "logo.png", "image/png",
+                "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(RuntimeException.class, () -> service.uploadFile(html, "D"));
+        assertEquals(0, uploadDir.toFile().list().length);
+    }
+
+    private FileUploadService createService() {
+        UploadAssetService uploadAssetService = new UploadAssetService();
+        ReflectionTestUtils.setField(uploadAssetService, "precompressTypes", "svg,ico,bmp");
+        ReflectionTestUtils.setField(uploadAssetService, "precompressMinSize", 512L);
+
+        FileUploadServiceImpl service = new FileUploadServiceImpl();
+        ReflectionTestUtils.setField(service, "uploadAssetService", uploadAssetService);
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "urlPrefix", "/uploads/");
+        ReflectionTestUtils.setField(service, "allowedTypes", "jpg,jpeg,png,gif,bmp,webp,svg,ico,x-icon");
+        ReflectionTestUtils.setField(service, "maxSize", 10485760L);
+        return service;
+    }
+}
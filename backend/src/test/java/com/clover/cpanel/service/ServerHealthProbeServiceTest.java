@@ -0,0 +1,69 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.ServerHealthStatus;
+import com.clover.cpanel.entity.Server;
+import net.schmizz.sshj.SSHClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 服务器健康探测测试：认证检查失败时不视为正常服务器
+ */
+public class ServerHealthProbeServiceTest {
+
+    @Test
+    public void testAuthFailureMarksServer() throws Exception {
+        SshConnectionPool pool = new SshConnectionPool() {
+            @Override
+            SSHClient connect(String host, int port, String username, String authType,
+                              String password, String privateKey, String privateKeyPassword) {
+                throw new RuntimeException("密码错误");
+            }
+        };
+        ServerHealthProbeService service = new ServerHealthProbeService();
+        ReflectionTestUtils.setField(service, "connectionPool", pool);
+        ReflectionTestUtils.setField(service, "connectTimeout", 2000);
+
+        try (ServerSocket listener = new ServerSocket(0)) {
+            Thread sshd = new Thread(() -> {
+                for (int i = 0; i < 2; i++) {
+                    try (Socket socket = listener.accept(); OutputStream out = socket.getOutputStream()) {
+                        out.write("SSH-2.0-test\r\n".getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    } catch (Exception e) {
+                        return;
+                    }
+                }
+            });
+            sshd.setDaemon(true);
+            sshd.start();
+
+            Server server = new Server();
+            server.setId(1);
+            server.setHost("127.0.0.1");
+            server.setPort(listener.getLocalPort());
+            server.setUsername("root");
+            server.setAuthType("password");
+            server.setPassword("wrong");
+
+            // 未开启认证检查时只看SSH服务标识
+            ServerHealthStatus reachable = ReflectionTestUtils.invokeMethod(service, "probe", server);
+            assertEquals(ServerHealthProbeService.STATUS_ACTIVE, reachable.getStatus());
+            assertEquals("SSH-2.0-test", reachable.getBanner());
+
+            ReflectionTestUtils.setField(service, "authCheck", true);
+            ServerHealthStatus failed = ReflectionTestUtils.invokeMethod(service, "probe", server);
+            assertEquals(ServerHealthProbeService.STATUS_AUTH_FAILED, failed.getStatus());
+            assertFalse(failed.getAuthenticated());
+            assertEquals("认证失败: 密码错误", failed.getError());
+            assertFalse(ServerHealthProbeService.isUsable(failed.getStatus()));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.RelayRequest;
+import com.clover.cpanel.dto.RelayStatus;
+import com.clover.cpanel.websocket.EventWebSocketHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 服务器间文件中转测试：并发任务数上限与预读窗口
+ */
+public class SftpRelayServiceTest {
+
+    private static RelayRequest request(String targetPath) {
+        RelayRequest request = new RelayRequest();
+        request.setSourceServerId(1);
+        request.setSourcePath("/data/a.bin");
+        request.setTargetServerId(2);
+        request.setTargetPath(targetPath);
+        return request;
+    }
+
+    @Test
+    public void testConcurrentTransfersLimited() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // 第一个中转停在打开SFTP处，占用名额
+        SftpService sftpService = new SftpService() {
+            @Override
+            public SftpHandle open(Integer serverId) throws Exception {
+                entered.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("服务器不可达");
+            }
+        };
+        SftpRelayService service = new SftpRelayService();
+        ReflectionTestUtils.setField(service, "sftpService", sftpService);
+        ReflectionTestUtils.setField(service, "eventWebSocketHandler", new EventWebSocketHandler());
+        ReflectionTestUtils.setField(service, "maxConcurrent", 1);
+        try {
+            RelayStatus first = service.startRelay(request("/data/b.bin"));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            IllegalStateException limited = assertThrows(IllegalStateException.class,
+                    () -> service.startRelay(request("/data/c.bin")));
+            assertEquals("中转任务数量已达上限: 1", limited.getMessage());
+
+            // 第一个中转结束后名额归还
+            release.countDown();
+            await(() -> SftpRelayService.STATUS_FAILED.equals(service.getStatus(first.getTransferId()).getStatus()));
+            await(() -> {
+                try {
+                    service.startRelay(request("/data/d.bin"));
+                    return true;
+                } catch (IllegalStateException e) {
+                    return false;
+                }
+            });
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testWindowFitsInBuffer() {
+        SftpRelayService service = new SftpRelayService();
+        ReflectionTestUtils.setField(service, "maxOutstandingRequests", 16);
+        assertEquals(8, service.windowRequests(256 * 1024));
+        assertEquals(16, service.windowRequests(4 * 1024 * 1024));
+        assertEquals(1, service.windowRequests(8 * 1024));
+        service.shutdown();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
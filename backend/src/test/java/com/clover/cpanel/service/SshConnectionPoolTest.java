@@ -0,0 +1,133 @@
+package com.clover.cpanel.service;
+
+import net.schmizz.sshj.SSHClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSH连接池测试：锁外重连、旧租约失效与关闭时的限时等待
+ */
+public class SshConnectionPoolTest {
+
+    private static class FakeClient extends SSHClient {
+        volatile boolean connected = true;
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public boolean isAuthenticated() {
+            return connected;
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+    }
+
+    private static class FakePool extends SshConnectionPool {
+        final List<FakeClient> clients = new CopyOnWriteArrayList<>();
+        volatile CountDownLatch entered = new CountDownLatch(0);
+        volatile CountDownLatch gate = new CountDownLatch(0);
+
+        @Override
+        SSHClient connect(String host, int port, String username, String authType,
+                          String password, String privateKey, String privateKeyPassword) throws Exception {
+            entered.countDown();
+            assertTrue(gate.await(5, TimeUnit.SECONDS));
+            FakeClient client = new FakeClient();
+            clients.add(client);
+            return client;
+        }
+
+        Lease acquire() throws Exception {
+            return acquire("127.0.0.1", 22, "root", "password", "secret", null, null);
+        }
+    }
+
+    @Test
+    public void testReconnectOutsideLockInvalidatesOldLeases() throws Exception {
+        FakePool pool = new FakePool();
+        SshConnectionPool.Lease old = pool.acquire();
+        assertTrue(old.isValid());
+        pool.clients.get(0).connected = false;
+
+        // 重连停在建立连接处
+        pool.entered = new CountDownLatch(1);
+        pool.gate = new CountDownLatch(1);
+        CompletableFuture<SshConnectionPool.Lease> first = CompletableFuture.supplyAsync(() -> acquire(pool));
+        assertTrue(pool.entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<SshConnectionPool.Lease> second = CompletableFuture.supplyAsync(() -> acquire(pool));
+
+        // 重连期间归还旧租约不会被阻塞，也不影响新连接的引用计数
+        CompletableFuture.runAsync(old::close).get(1, TimeUnit.SECONDS);
+        assertFalse(old.isValid());
+        assertFalse(first.isDone());
+
+        pool.gate.countDown();
+        SshConnectionPool.Lease a = first.get(5, TimeUnit.SECONDS);
+        SshConnectionPool.Lease b = second.get(5, TimeUnit.SECONDS);
+        assertSame(pool.clients.get(1), a.getClient());
+        assertSame(a.getClient(), b.getClient());
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(1, pool.getReusedCount());
+
+        a.close();
+        assertTrue(b.isValid());
+        b.close();
+        assertEquals(0, pool.getPooledConnectionCount());
+        assertFalse(pool.clients.get(1).connected);
+    }
+
+    @Test
+    public void testShutdownWaitsBoundedForLeases() throws Exception {
+        FakePool pool = new FakePool();
+        ReflectionTestUtils.setField(pool, "shutdownTimeoutMillis", 200L);
+        SshConnectionPool.Lease lease = pool.acquire();
+
+        long start = System.currentTimeMillis();
+        pool.shutdown();
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 150 && elapsed < 2000, String.valueOf(elapsed));
+
+        // 超时后强制断开，未归还的租约失效
+        assertFalse(lease.isValid());
+        assertFalse(pool.clients.get(0).connected);
+        assertEquals(0, pool.getPooledConnectionCount());
+        lease.close();
+        assertThrows(IllegalStateException.class, pool::acquire);
+    }
+
+    @Test
+    public void testShutdownReturnsOnceLeasesReleased() throws Exception {
+        FakePool pool = new FakePool();
+        ReflectionTestUtils.setField(pool, "shutdownTimeoutMillis", 10_000L);
+        SshConnectionPool.Lease lease = pool.acquire();
+
+        CompletableFuture<Void> shutdown = CompletableFuture.runAsync(pool::shutdown);
+        Thread.sleep(100);
+        assertFalse(shutdown.isDone());
+        lease.close();
+        shutdown.get(2, TimeUnit.SECONDS);
+        assertFalse(pool.clients.get(0).connected);
+    }
+
+    private static SshConnectionPool.Lease acquire(FakePool pool) {
+        try {
+            return pool.acquire();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.ExecResult;
+import com.clover.cpanel.entity.Server;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSH命令执行超时与批量执行取消测试
+ */
+public class SshExecServiceTest {
+
+    private static Server server() {
+        Server server = new Server();
+        server.setId(1);
+        server.setServerName("test");
+        server.setHost("192.0.2.1");
+        server.setPort(22);
+        server.setUsername("root");
+        server.setAuthType("password");
+        server.setPassword("secret");
+        return server;
+    }
+
+    private static SshExecService service(SshConnectionPool pool) {
+        SshExecService service = new SshExecService();
+        ReflectionTestUtils.setField(service, "connectionPool", pool);
+        ReflectionTestUtils.setField(service, "maxOutputBytes", 1024);
+        ReflectionTestUtils.setField(service, "maxParallelism", 10);
+        ReflectionTestUtils.setField(service, "defaultTimeoutSeconds", 60);
+        return service;
+    }
+
+    @Test
+    public void testTimeoutCoversConnectionAcquire() {
+        CountDownLatch release = new CountDownLatch(1);
+        SshConnectionPool pool = new SshConnectionPool() {
+            @Override
+            public Lease acquire(String host, int port, String username, String authType,
+                                 String password, String privateKey, String privateKeyPassword) throws Exception {
+                // 模拟连接建立卡住（如同一服务器的其他请求正在握手）
+                release.await(10, TimeUnit.SECONDS);
+                throw new IllegalStateException("released");
+            }
+        };
+        SshExecService service = service(pool);
+        try {
+            ExecResult result = service.exec(server(), "uptime", 200);
+            assertTrue(result.isTimedOut());
+            assertEquals("获取SSH连接超时", result.getError());
+            assertTrue(result.getDurationMs() < 5000, "耗时: " + result.getDurationMs());
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testAcquireFailureKeepsOriginalError() {
+        SshConnectionPool pool = new SshConnectionPool() {
+            @Override
+            public Lease acquire(String host, int port, String username, String authType,
+                                 String password, String privateKey, String privateKeyPassword) {
+                throw new IllegalStateException("认证失败");
+            }
+        };
+        SshExecService service = service(pool);
+        try {
+            ExecResult result = service.exec(server(), "uptime", 5000);
+            assertFalse(result.isTimedOut());
+            assertEquals("认证失败", result.getError());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelBatchStopsRemainingServers() throws Exception {
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SshConnectionPool pool = new SshConnectionPool() {
+            @Override
+            public Lease acquire(String host, int port, String username, String authType,
+                                 String password, String privateKey, String privateKeyPassword) throws Exception {
+                acquired.incrementAndGet();
+                entered.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                throw new IllegalStateException("released");
+            }
+        };
+        SshExecService service = service(pool);
+        List<ExecResult> results = new CopyOnWriteArrayList<>();
+        try {
+            CompletableFuture<Void> batch = service.batchExec(List.of(server(), server(), server()), "uptime", 30, 1, results::add);
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            // 客户端断开时取消：正在执行的命令被中断，剩余服务器不再执行，也不再回调
+            batch.cancel(true);
+            release.countDown();
+            Thread.sleep(500);
+            assertEquals(1, acquired.get());
+            assertTrue(results.isEmpty());
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testEstimateBatchMillis() {
+        SshExecService service = service(new SshConnectionPool());
+        try {
+            // 5台服务器、并发2，分3轮，每轮不超过单机超时
+            assertEquals(30_000L, service.estimateBatchMillis(5, 10, 2));
+            assertEquals(60_000L, service.estimateBatchMillis(3, null, null));
+            assertEquals(10_000L, service.estimateBatchMillis(0, 10, 2));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.clover.cpanel.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSH会话输出分发测试
+ */
+public class SshServiceTest {
+
+    private static final String BANNER = "Welcome to test-host\r\nLast login: Sun Oct 18\r\n$ ";
+
+    @TempDir
+    Path recordingDir;
+
+    /**
+     * 收集输出的订阅者
+     */
+    private static class CollectingListener implements SshService.OutputListener {
+        final StringBuilder output = new StringBuilder();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public synchronized void onOutput(String output) {
+            this.output.append(output);
+        }
+
+        @Override
+        public void onClosed() {
+            closed.countDown();
+        }
+    }
+
+    private SshService.SshConnection register(SshService sshService, String sessionId, String output) {
+        SshService.SshConnection connection = new SshService.SshConnection(sessionId);
+        connection.setReader(new BufferedReader(new StringReader(output)));
+        connection.setWriter(new PrintWriter(new StringWriter()));
+        connection.setConnected(true);
+        sshService.register(connection);
+        return connection;
+    }
+
+    @Test
+    public void testInitialBurstReachesOwnerAndRecording() throws Exception {
+        SshService sshService = new SshService();
+        TerminalRecordingService recordingService = new TerminalRecordingService();
+        ReflectionTestUtils.setField(recordingService, "recordingPath", recordingDir.toString());
+        ReflectionTestUtils.setField(recordingService, "maxTotalSize", Long.MAX_VALUE);
+
+        // 登录输出在订阅前已经可读，输出泵一启动就会读到
+        register(sshService, "ssh-1", BANNER);
+        CollectingListener owner = new CollectingListener();
+        TerminalRecordingService.Recorder recorder = recordingService.startRecording("ssh-1", 80, 24);
+
+        assertTrue(sshService.subscribe("ssh-1", owner, recorder));
+        assertTrue(owner.closed.await(5, TimeUnit.SECONDS));
+        assertEquals(BANNER, owner.output.toString());
+
+        // 通道结束后录制器停止，文件由写入线程异步关闭
+        String replayed = "";
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline && !replayed.contains("test-host")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            recordingService.replay(recorder.getRecordingId(), 0, out);
+            replayed = out.toString(StandardCharsets.UTF_8);
+            Thread.sleep(50);
+        }
+        assertTrue(replayed.contains("Welcome to test-host\\r\\nLast login: Sun Oct 18\\r\\n$ "), replayed);
+        recordingService.shutdown();
+    }
+
+    @Test
+    public void testReconnectWithSameSessionIdClosesPreviousConnection() {
+        SshService sshService = new SshService();
+        SshService.SshConnection first = register(sshService, "ssh-1", "");
+        CollectingListener listener = new CollectingListener();
+        @SuppressWarnings("unchecked")
+        List<SshService.OutputListener> listeners =
+                (List<SshService.OutputListener>) ReflectionTestUtils.getField(first, "listeners");
+        listeners.add(listener);
+
+        SshService.SshConnection second = register(sshService, "ssh-1", "");
+
+        // 旧连接被断开并通知其订阅者，新连接成为活跃会话
+        assertFalse(first.isConnected());
+        assertEquals(0, listener.closed.getCount());
+        assertTrue(second.isConnected());
+        assertEquals(1, sshService.getActiveSessionCount());
+
+        // 按会话ID断开的是新连接
+        sshService.disconnect("ssh-1");
+        assertFalse(second.isConnected());
+        assertEquals(0, sshService.getActiveSessionCount());
+    }
+}
@@ -0,0 +1,179 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.TunnelInfo;
+import com.clover.cpanel.dto.TunnelRequest;
+import com.clover.cpanel.entity.Server;
+import net.schmizz.sshj.SSHClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SSH隧道数量上限与断线重连测试
+ */
+public class SshTunnelServiceTest {
+
+    private static TunnelRequest request() {
+        TunnelRequest request = new TunnelRequest();
+        request.setServerId(1);
+        request.setRemoteHost("127.0.0.1");
+        request.setRemotePort(5432);
+        return request;
+    }
+
+    @Test
+    public void testConcurrentCreateRespectsLimit() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // 第一次创建停在查询服务器配置处，此时已占用名额但尚未放入隧道表
+        ServerService serverService = (ServerService) Proxy.newProxyInstance(ServerService.class.getClassLoader(),
+                new Class<?>[]{ServerService.class}, (proxy, method, args) -> {
+                    if ("getServerWithAuthInfo".equals(method.getName())) {
+                        entered.countDown();
+                        release.await(5, TimeUnit.SECONDS);
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        SshTunnelService service = new SshTunnelService();
+        ReflectionTestUtils.setField(service, "serverService", serverService);
+        ReflectionTestUtils.setField(service, "maxTunnels", 1);
+        try {
+            CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+                try {
+                    service.createTunnel(request());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            IllegalStateException limited = assertThrows(IllegalStateException.class, () -> service.createTunnel(request()));
+            assertEquals("隧道数量已达上限: 1", limited.getMessage());
+
+            release.countDown();
+            ExecutionException failed = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, failed.getCause().getCause());
+
+            // 创建失败后名额已归还
+            IllegalArgumentException missing = assertThrows(IllegalArgumentException.class, () -> service.createTunnel(request()));
+            assertEquals("服务器配置不存在", missing.getMessage());
+            assertEquals(0, service.getTunnelCount());
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    /**
+     * 不实际连接的SSH客户端，可模拟传输断开
+     */
+    private static class FakeClient extends SSHClient {
+        volatile boolean connected = true;
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public boolean isAuthenticated() {
+            return connected;
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+    }
+
+    @Test
+    public void testDeadTransportReleasedAndMarkedFailed() throws Exception {
+        List<FakeClient> clients = new CopyOnWriteArrayList<>();
+        AtomicReference<String> connectError = new AtomicReference<>();
+        SshConnectionPool pool = new SshConnectionPool() {
+            @Override
+            SSHClient connect(String host, int port, String username, String authType,
+                              String password, String privateKey, String privateKeyPassword) {
+                if (connectError.get() != null) {
+                    throw new IllegalStateException(connectError.get());
+                }
+                FakeClient client = new FakeClient();
+                clients.add(client);
+                return client;
+            }
+        };
+        Server server = new Server();
+        server.setId(1);
+        server.setServerName("test");
+        server.setHost("192.0.2.1");
+        server.setUsername("root");
+        server.setAuthType("password");
+        server.setPassword("secret");
+        ServerService serverService = (ServerService) Proxy.newProxyInstance(ServerService.class.getClassLoader(),
+                new Class<?>[]{ServerService.class}, (proxy, method, args) -> {
+                    if ("getServerWithAuthInfo".equals(method.getName())) {
+                        return server;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        SshTunnelService service = new SshTunnelService();
+        ReflectionTestUtils.setField(service, "serverService", serverService);
+        ReflectionTestUtils.setField(service, "connectionPool", pool);
+        ReflectionTestUtils.setField(service, "bindAddress", "127.0.0.1");
+        ReflectionTestUtils.setField(service, "maxTunnels", 1);
+        ReflectionTestUtils.setField(service, "bufferSize", 1024);
+        try {
+            TunnelInfo info = service.createTunnel(request());
+            assertEquals(SshTunnelService.STATUS_ACTIVE, info.getStatus());
+            assertEquals(1, clients.size());
+
+            // 传输断开后，下一个入站连接归还旧租约并重新获取
+            clients.get(0).connected = false;
+            new Socket("127.0.0.1", info.getLocalPort()).close();
+            await(() -> clients.size() == 2);
+            await(() -> SshTunnelService.STATUS_ACTIVE.equals(service.listTunnels().get(0).getStatus()));
+            assertEquals(1, pool.getPooledConnectionCount());
+
+            // 重新连接失败时标记隧道失败并显示原因，隧道保留以便之后重试
+            connectError.set("Connection refused");
+            clients.get(1).connected = false;
+            new Socket("127.0.0.1", info.getLocalPort()).close();
+            await(() -> SshTunnelService.STATUS_FAILED.equals(service.listTunnels().get(0).getStatus()));
+            assertEquals("Connection refused", service.listTunnels().get(0).getError());
+            assertEquals(0, pool.getPooledConnectionCount());
+
+            connectError.set(null);
+            new Socket("127.0.0.1", info.getLocalPort()).close();
+            await(() -> SshTunnelService.STATUS_ACTIVE.equals(service.listTunnels().get(0).getStatus()));
+            assertNull(service.listTunnels().get(0).getError());
+        } finally {
+            service.shutdown();
+        }
+        assertEquals(0, pool.getPooledConnectionCount());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
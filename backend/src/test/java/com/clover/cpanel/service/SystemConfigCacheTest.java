@@ -0,0 +1,168 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.constant.ConfigType;
+import com.clover.cpanel.entity.SystemConfig;
+import com.clover.cpanel.mapper.SystemConfigMapper;
+import com.clover.cpanel.service.impl.SystemConfigServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 系统配置缓存测试：提交后刷新、负缓存与版本号，使用内存中的配置表代替数据库
+ */
+public class SystemConfigCacheTest {
+
+    /**
+     * 内存中的配置表，每次查询返回新对象，与数据库查询一致
+     */
+    private static class FakeTable {
+        final Map<String, SystemConfig> rows = new ConcurrentHashMap<>();
+        final AtomicInteger queries = new AtomicInteger();
+        int nextId = 1;
+
+        void put(String key, String value) {
+            SystemConfig existing = rows.get(key);
+            SystemConfig config = new SystemConfig();
+            config.setId(existing != null ? existing.getId() : nextId++);
+            config.setConfigKey(key);
+            config.setConfigValue(value);
+            config.setConfigType(ConfigType.SYSTEM);
+            rows.put(key, config);
+        }
+
+        static SystemConfig copy(SystemConfig config) {
+            SystemConfig copy = new SystemConfig();
+            copy.setId(config.getId());
+            copy.setConfigKey(config.getConfigKey());
+            copy.setConfigValue(config.getConfigValue());
+            copy.setConfigType(config.getConfigType());
+            return copy;
+        }
+
+        @SuppressWarnings("unchecked")
+        SystemConfigMapper mapper() {
+            return (SystemConfigMapper) Proxy.newProxyInstance(SystemConfigMapper.class.getClassLoader(),
+                    new Class<?>[]{SystemConfigMapper.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "selectList" -> rows.values().stream().map(FakeTable::copy).toList();
+                        case "getConfigValue" -> {
+                            queries.incrementAndGet();
+                            SystemConfig config = rows.get((String) args[0]);
+                            yield config != null ? config.getConfigValue() : null;
+                        }
+                        case "selectByKeys" -> {
+                            queries.incrementAndGet();
+                            List<SystemConfig> found = new ArrayList<>();
+                            for (String key : (Collection<String>) args[0]) {
+                                if (rows.containsKey(key)) {
+                                    found.add(copy(rows.get(key)));
+                                }
+                            }
+                            yield found;
+                        }
+                        case "upsertBatch" -> {
+                            for (SystemConfig config : (List<SystemConfig>) args[0]) {
+                                put(config.getConfigKey(), config.getConfigValue());
+                            }
+                            yield ((List<SystemConfig>) args[0]).size();
+                        }
+                        case "toString" -> "FakeSystemConfigMapper";
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+
+    private static SystemConfigServiceImpl service(FakeTable table, boolean cacheEnabled, boolean negative) {
+        SystemConfigServiceImpl service = new SystemConfigServiceImpl();
+        ReflectionTestUtils.setField(service, "baseMapper", table.mapper());
+        ReflectionTestUtils.setField(service, "cacheEnabled", cacheEnabled);
+        ReflectionTestUtils.setField(service, "negativeCaching", negative);
+        service.loadCache();
+        return service;
+    }
+
+    @Test
+    public void testRefreshAfterCommit() {
+        FakeTable table = new FakeTable();
+        table.put("site_title", "old");
+        SystemConfigServiceImpl service = service(table, true, true);
+        long loadedVersion = service.getConfigVersion();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(service.setConfigValues(Map.of("site_title", "new"), null, ConfigType.SYSTEM));
+            // 提交前缓存与版本号不变，回滚的写入不会进入缓存
+            assertEquals("old", service.getConfigValue("site_title"));
+            assertEquals(loadedVersion, service.getConfigVersion());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals("new", service.getConfigValue("site_title"));
+        assertTrue(service.getConfigVersion() > loadedVersion);
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        FakeTable table = new FakeTable();
+        table.put("site_title", "panel");
+        SystemConfigServiceImpl service = service(table, true, true);
+
+        // 绕过服务直接写表的键在负缓存下视为不存在，且不查询数据库
+        table.put("external_key", "value");
+        int queries = table.queries.get();
+        assertNull(service.getConfigValue("external_key"));
+        assertTrue(service.getConfigValues(List.of("external_key")).isEmpty());
+        assertEquals(queries, table.queries.get());
+        assertEquals("panel", service.getConfigValue("site_title"));
+
+        // 关闭负缓存时回源查询并补入缓存
+        SystemConfigServiceImpl fallback = service(table, true, false);
+        table.put("late_key", "late");
+        assertEquals("late", fallback.getConfigValue("late_key"));
+        int afterLoad = table.queries.get();
+        assertEquals("late", fallback.getConfigValue("late_key"));
+        assertEquals(afterLoad, table.queries.get());
+    }
+
+    @Test
+    public void testVersionIncrementsWithoutCache() {
+        FakeTable table = new FakeTable();
+        SystemConfigServiceImpl service = service(table, false, true);
+        long before = service.getConfigVersion();
+
+        assertTrue(service.setConfigValue("wallpaper_url", "/a.jpg", null, ConfigType.THEME));
+        long afterFirst = service.getConfigVersion();
+        assertTrue(afterFirst > before);
+        assertEquals("/a.jpg", service.getConfigValue("wallpaper_url"));
+
+        assertTrue(service.setConfigValue("wallpaper_url", "/b.jpg", null, ConfigType.THEME));
+        assertTrue(service.getConfigVersion() > afterFirst);
+        assertEquals("/b.jpg", service.getConfigValue("wallpaper_url"));
+    }
+
+    @Test
+    public void testVersionIncrementsOnEachWrite() {
+        FakeTable table = new FakeTable();
+        SystemConfigServiceImpl service = service(table, true, true);
+        long before = service.getConfigVersion();
+        assertTrue(service.setConfigValue("a", "1", null, ConfigType.SYSTEM));
+        long afterFirst = service.getConfigVersion();
+        assertTrue(afterFirst > before);
+        assertTrue(service.setConfigValue("a", "2", null, ConfigType.SYSTEM));
+        assertTrue(service.getConfigVersion() > afterFirst);
+        assertEquals("2", service.getConfigValue("a"));
+    }
+}
@@ -1,5 +1,6 @@
 package com.clover.cpanel.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.clover.cpanel.constant.ConfigType;
 import com.clover.cpanel.entity.SystemConfig;
 import org.junit.jupiter.api.Test;
@@ -7,7 +8,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -80,6 +83,27 @@ public class SystemConfigServiceTest {
         }
     }
 
+    @Test
+    public void testUpsertWithoutDescriptionKeepsExisting() {
+        assertTrue(systemConfigService.setConfigValue("test_keep_description", "v1", "保留的描述", ConfigType.THEME));
+
+        // 未传描述和类型时只更新值
+        Map<String, String> values = new HashMap<>();
+        values.put("test_keep_description", "v2");
+        assertTrue(systemConfigService.setConfigValues(values, null, null));
+
+        SystemConfig config = systemConfigService.getOne(
+                new QueryWrapper<SystemConfig>().eq("config_key", "test_keep_description"));
+        assertEquals("v2", config.getConfigValue());
+        assertEquals("保留的描述", config.getDescription());
+        assertEquals(ConfigType.THEME, config.getConfigType());
+
+        assertTrue(systemConfigService.setConfigValue("test_keep_description", "v3", null, ConfigType.THEME));
+        assertEquals("v3", systemConfigService.getConfigValue("test_keep_description"));
+        config = systemConfigService.getOne(new QueryWrapper<SystemConfig>().eq("config_key", "test_keep_description"));
+        assertEquals("保留的描述", config.getDescription());
+    }
+
     @Test
     public void testConfigTypeConstants() {
         // 验证配置类型常量
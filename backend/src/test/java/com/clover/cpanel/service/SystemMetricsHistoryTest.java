@@ -0,0 +1,145 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.dto.SystemInfoDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 系统指标历史汇总与快照测试
+ */
+public class SystemMetricsHistoryTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long HOUR = 3_600_000;
+    // 整点时刻
+    private static final long T0 = 1_700_000_000_000L - 1_700_000_000_000L % HOUR;
+
+    @TempDir
+    Path tempDir;
+
+    private SystemMetricsHistory createHistory(SystemMetricsSampler sampler) {
+        SystemMetricsHistory history = new SystemMetricsHistory();
+        ReflectionTestUtils.setField(history, "sampler", sampler);
+        ReflectionTestUtils.setField(history, "rawSize", 100);
+        ReflectionTestUtils.setField(history, "minuteSize", 100);
+        ReflectionTestUtils.setField(history, "hourSize", 10);
+        ReflectionTestUtils.setField(history, "snapshotPath", tempDir.resolve("history.bin").toString());
+        ReflectionTestUtils.setField(history, "persistIntervalSeconds", 0);
+        history.start();
+        return history;
+    }
+
+    private static double[] values(double value) {
+        double[] row = new double[SystemMetricsHistory.CHANNEL_NAMES.length];
+        Arrays.fill(row, value);
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double[] stat(Map<String, Object> result, String channel, String stat) {
+        Map<String, Object> series = (Map<String, Object>) result.get("series");
+        return ((Map<String, double[]>) series.get(channel)).get(stat);
+    }
+
+    @Test
+    public void testRollupBucketBoundaries() {
+        SystemMetricsHistory history = createHistory(new SystemMetricsSampler());
+
+        history.append(T0, values(10));
+        history.append(T0 + 30_000, values(20));
+        history.append(T0 + MINUTE - 1, values(30));
+        // 尚未跨过分钟边界，没有分钟汇总
+        assertEquals(0, ((long[]) history.query("minute", 0, 0).get("timestamps")).length);
+
+        // 恰好落在下一分钟起点的采样属于下一个桶，并触发上一分钟的汇总
+        history.append(T0 + MINUTE, values(100));
+        Map<String, Object> minutes = history.query("minute", 0, 0);
+        assertArrayEquals(new long[]{T0}, (long[]) minutes.get("timestamps"));
+        assertArrayEquals(new double[]{10}, stat(minutes, "cpu", "min"));
+        assertArrayEquals(new double[]{20}, stat(minutes, "cpu", "avg"));
+        assertArrayEquals(new double[]{30}, stat(minutes, "cpu", "max"));
+        assertEquals(0, ((long[]) history.query("hour", 0, 0).get("timestamps")).length);
+
+        // 跨过整点：下一小时第一分钟汇总输出时，上一小时汇总为各分钟的最小/平均/最大
+        history.append(T0 + HOUR, values(50));
+        history.append(T0 + HOUR + MINUTE, values(50));
+        Map<String, Object> hours = history.query("hour", 0, 0);
+        assertArrayEquals(new long[]{T0}, (long[]) hours.get("timestamps"));
+        assertArrayEquals(new double[]{10}, stat(hours, "disk", "min"));
+        assertArrayEquals(new double[]{60}, stat(hours, "disk", "avg"));
+        assertArrayEquals(new double[]{100}, stat(hours, "disk", "max"));
+
+        // 时钟回拨的采样被丢弃
+        history.append(T0 + 1, values(999));
+        long[] rawTimestamps = (long[]) history.query("raw", 0, 0).get("timestamps");
+        assertEquals(T0 + HOUR + MINUTE, rawTimestamps[rawTimestamps.length - 1]);
+        history.shutdown();
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() {
+        SystemMetricsSampler sampler = new SystemMetricsSampler();
+        SystemMetricsHistory history = createHistory(sampler);
+        for (int i = 0; i <= 62; i++) {
+            history.append(T0 + i * MINUTE, values(i));
+        }
+        Map<String, Object> rawBefore = history.query("raw", 0, 0);
+        Map<String, Object> minutesBefore = history.query("minute", 0, 0);
+        Map<String, Object> hoursBefore = history.query("hour", 0, 0);
+        history.shutdown();
+        assertTrue(Files.isRegularFile(tempDir.resolve("history.bin")));
+
+        SystemMetricsHistory restored = createHistory(sampler);
+        Map<String, Object> rawAfter = restored.query("raw", 0, 0);
+        Map<String, Object> minutesAfter = restored.query("minute", 0, 0);
+        Map<String, Object> hoursAfter = restored.query("hour", 0, 0);
+
+        assertEquals(63, ((long[]) rawAfter.get("timestamps")).length);
+        assertArrayEquals((long[]) rawBefore.get("timestamps"), (long[]) rawAfter.get("timestamps"));
+        for (String channel : SystemMetricsHistory.CHANNEL_NAMES) {
+            assertArrayEquals((double[]) ((Map<?, ?>) rawBefore.get("series")).get(channel),
+                    (double[]) ((Map<?, ?>) rawAfter.get("series")).get(channel));
+        }
+        assertArrayEquals((long[]) minutesBefore.get("timestamps"), (long[]) minutesAfter.get("timestamps"));
+        assertArrayEquals(stat(minutesBefore, "memory", "avg"), stat(minutesAfter, "memory", "avg"));
+        assertArrayEquals((long[]) hoursBefore.get("timestamps"), (long[]) hoursAfter.get("timestamps"));
+        assertArrayEquals(stat(hoursBefore, "cpu", "max"), stat(hoursAfter, "cpu", "max"));
+        restored.shutdown();
+    }
+
+    @Test
+    public void testDiskChannelIgnoresPseudoFileSystems() {
+        List<SystemInfoDto.DiskInfo> disks = List.of(
+                disk("/", "ext4", 40),
+                disk("/snap/core20/2105", "squashfs", 100),
+                disk("/dev/shm", "tmpfs", 95),
+                disk("/var/lib/docker/overlay2/abc/merged", "overlay", 99),
+                disk("/data", "xfs", 70));
+        assertEquals(70, SystemMetricsHistory.diskUsage(disks), 1e-9);
+
+        // 容器内根目录为overlay，只有伪文件系统时取根挂载点
+        List<SystemInfoDto.DiskInfo> container = List.of(
+                disk("/", "overlay", 55),
+                disk("/dev", "tmpfs", 0));
+        assertEquals(55, SystemMetricsHistory.diskUsage(container), 1e-9);
+        assertEquals(0, SystemMetricsHistory.diskUsage(null), 1e-9);
+    }
+
+    private static SystemInfoDto.DiskInfo disk(String mount, String type, double usage) {
+        SystemInfoDto.DiskInfo disk = new SystemInfoDto.DiskInfo();
+        disk.setName(mount);
+        disk.setFileSystem(type);
+        disk.setTotal(100);
+        disk.setUsage(usage);
+        return disk;
+    }
+}
@@ -0,0 +1,49 @@
+package com.clover.cpanel.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 系统指标增量计算测试
+ */
+public class SystemMetricsPublisherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testDiffOnlyChangedFields() throws Exception {
+        JsonNode before = objectMapper.readTree("{\"cpu\":{\"model\":\"x\",\"usage\":10.5},\"disks\":[{\"name\":\"/\",\"usage\":40}],\"timestamp\":1}");
+        JsonNode after = objectMapper.readTree("{\"cpu\":{\"model\":\"x\",\"usage\":12.0},\"disks\":[{\"name\":\"/\",\"usage\":40}],\"timestamp\":2}");
+
+        ObjectNode changes = SystemMetricsPublisher.diff(before, after);
+
+        assertNotNull(changes);
+        assertEquals(2, changes.size());
+        assertEquals(12.0, changes.get("cpu").get("usage").asDouble(), 1e-9);
+        assertFalse(changes.get("cpu").has("model"));
+        assertFalse(changes.has("disks"));
+        assertEquals(2, changes.get("timestamp").asLong());
+    }
+
+    @Test
+    public void testDiffNoChanges() throws Exception {
+        JsonNode node = objectMapper.readTree("{\"memory\":{\"usage\":50}}");
+        assertNull(SystemMetricsPublisher.diff(node, node.deepCopy()));
+    }
+
+    @Test
+    public void testDiffArrayReplacedWhole() throws Exception {
+        JsonNode before = objectMapper.readTree("{\"disks\":[{\"name\":\"/\",\"usage\":40}]}");
+        JsonNode after = objectMapper.readTree("{\"disks\":[{\"name\":\"/\",\"usage\":41}]}");
+
+        ObjectNode changes = SystemMetricsPublisher.diff(before, after);
+
+        assertNotNull(changes);
+        assertTrue(changes.get("disks").isArray());
+        assertEquals(41, changes.get("disks").get(0).get("usage").asInt());
+    }
+}
@@ -0,0 +1,116 @@
+package com.clover.cpanel.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 终端录制测试：键盘输入默认不录制、单个文件大小上限与待写入事件上限
+ */
+public class TerminalRecordingServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private TerminalRecordingService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new TerminalRecordingService();
+        ReflectionTestUtils.setField(service, "recordingPath", dir.toString());
+        ReflectionTestUtils.setField(service, "maxTotalSize", 1024L * 1024 * 1024);
+        ReflectionTestUtils.setField(service, "maxFileSize", 1024L * 1024);
+        ReflectionTestUtils.setField(service, "maxQueuedChars", 1024L * 1024);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void testInputNotRecordedByDefault() throws Exception {
+        TerminalRecordingService.Recorder recorder = service.startRecording("ssh-1", 80, 24);
+        recorder.recordInput("secret-password\r");
+        recorder.onOutput("Password: ");
+        service.stopRecording("ssh-1");
+        awaitWriter();
+
+        String cast = replay(recorder.getRecordingId());
+        assertTrue(cast.contains("\"o\",\"Password: \""));
+        assertFalse(cast.contains("secret-password"));
+
+        // 开启后录制输入事件
+        ReflectionTestUtils.setField(service, "recordInput", true);
+        TerminalRecordingService.Recorder withInput = service.startRecording("ssh-2", 80, 24);
+        withInput.recordInput("ls\r");
+        service.stopRecording("ssh-2");
+        awaitWriter();
+        assertTrue(replay(withInput.getRecordingId()).contains("\"i\",\"ls\\r\""));
+    }
+
+    @Test
+    public void testFileSizeLimitStopsRecording() throws Exception {
+        ReflectionTestUtils.setField(service, "maxFileSize", 1L);
+        TerminalRecordingService.Recorder recorder = service.startRecording("ssh-1", 80, 24);
+        recorder.onOutput("hello\r\n");
+        await(() -> service.getRecorder("ssh-1") == null);
+        awaitWriter();
+
+        // 停止后的输出不再写入
+        recorder.onOutput("after-limit");
+        String cast = replay(recorder.getRecordingId());
+        assertTrue(cast.contains("hello"));
+        assertTrue(cast.contains("\"m\",\"录制文件达到大小上限，停止录制\""));
+        assertFalse(cast.contains("after-limit"));
+    }
+
+    @Test
+    public void testQueueLimitDropsAndMarks() throws Exception {
+        ReflectionTestUtils.setField(service, "maxQueuedChars", 10L);
+        TerminalRecordingService.Recorder recorder = service.startRecording("ssh-1", 80, 24);
+        recorder.onOutput("12345678");
+        recorder.onOutput("overflowing");
+        service.stopRecording("ssh-1");
+        awaitWriter();
+
+        String cast = replay(recorder.getRecordingId());
+        assertTrue(cast.contains("12345678"));
+        assertFalse(cast.contains("overflowing"));
+        assertTrue(cast.contains("\"m\",\"录制丢弃了1个事件\""));
+    }
+
+    private String replay(String recordingId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.replay(recordingId, 0, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 写入线程是单线程的，等待此前提交的关闭任务执行完毕
+     */
+    private void awaitWriter() throws Exception {
+        ((ExecutorService) ReflectionTestUtils.getField(service, "writer")).submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
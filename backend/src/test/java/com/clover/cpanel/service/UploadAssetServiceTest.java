@@ -0,0 +1,133 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.interceptor.UploadCacheInterceptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上传文件静态资源测试：永久缓存判断、ETag与预压缩变体协商
+ */
+public class UploadAssetServiceTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadAssetService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new UploadAssetService();
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "precompressTypes", "svg,ico,bmp");
+        ReflectionTestUtils.setField(service, "precompressMinSize", 16L);
+        ReflectionTestUtils.setField(service, "etagMaxSize", 1024L);
+    }
+
+    @Test
+    public void testIsImmutable() throws Exception {
+        Files.write(uploadDir.resolve(HASH + ".png"), new byte[8]);
+        Files.write(uploadDir.resolve("logo_20240101_120000_abcdef12.png"), new byte[8]);
+        Files.write(uploadDir.resolve("plain.png"), new byte[8]);
+        Path derived = Files.createDirectories(uploadDir.resolve(WallpaperIndexService.SUB_DIRECTORY)
+                .resolve(WallpaperIndexService.DERIVED_DIRECTORY).resolve(HASH + ".jpg"));
+        Files.write(derived.resolve(WallpaperIndexService.derivedFileName(1280)), new byte[8]);
+
+        assertTrue(service.isImmutable(HASH + ".png"));
+        assertTrue(service.isImmutable("logo_20240101_120000_abcdef12.png"));
+        assertFalse(service.isImmutable("plain.png"));
+        // 不存在的文件不永久缓存，避免404被缓存
+        assertFalse(service.isImmutable("fedcba9876543210fedcba9876543210.png"));
+        assertFalse(service.isImmutable("../" + HASH + ".png"));
+        // 派生图会在原位置重新生成，需要重新验证
+        assertFalse(service.isImmutable(WallpaperIndexService.SUB_DIRECTORY + "/" + WallpaperIndexService.DERIVED_DIRECTORY
+                + "/" + HASH + ".jpg/" + WallpaperIndexService.derivedFileName(1280)));
+    }
+
+    @Test
+    public void testEtag() throws Exception {
+        Path named = Files.write(uploadDir.resolve(HASH + ".svg"), new byte[8]);
+        Path small = Files.write(uploadDir.resolve("small.png"), new byte[100]);
+        Path large = Files.write(uploadDir.resolve("large.png"), new byte[2048]);
+
+        // 按内容命名的文件使用文件名中的哈希，预压缩变体的ETag不同
+        assertEquals("\"" + HASH + "\"", service.etag(new FileSystemResource(named)));
+        assertEquals("\"" + HASH + "-gz\"", service.etag(new FileSystemResource(uploadDir.resolve(HASH + ".svg.gz"))));
+
+        String smallEtag = service.etag(new FileSystemResource(small));
+        assertTrue(smallEtag.matches("\"[A-Za-z0-9_-]{43}\""), smallEtag);
+        assertEquals(smallEtag, service.etag(new FileSystemResource(small)));
+
+        // 超过上限的文件不读取内容
+        assertEquals("\"" + Long.toHexString(2048) + "-" + Long.toHexString(large.toFile().lastModified()) + "\"",
+                service.etag(new FileSystemResource(large)));
+    }
+
+    @Test
+    public void testGzipNegotiation() throws Exception {
+        Path svg = uploadDir.resolve(HASH + ".svg");
+        Files.writeString(svg, "<svg xmlns=\"http://www.w3.org/2000/svg\">" + "<g/>".repeat(200) + "</svg>");
+        service.precompress(svg);
+        byte[] compressed = Files.readAllBytes(uploadDir.resolve(HASH + ".svg.gz"));
+
+        UploadCacheInterceptor interceptor = new UploadCacheInterceptor();
+        ReflectionTestUtils.setField(interceptor, "uploadAssetService", service);
+        ResourceHttpRequestHandler handler = new ResourceHttpRequestHandler();
+        handler.setServletContext(new MockServletContext());
+        handler.setLocations(List.of(new FileSystemResource(uploadDir.toString() + "/")));
+        handler.setResourceResolvers(List.of(new EncodedResourceResolver(), new PathResourceResolver()));
+        handler.setEtagGenerator(service::etag);
+        handler.afterPropertiesSet();
+
+        MockHttpServletResponse gzip = serve(interceptor, handler, "gzip", null);
+        assertEquals(200, gzip.getStatus());
+        assertEquals("gzip", gzip.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(gzip.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        assertArrayEquals(compressed, gzip.getContentAsByteArray());
+        assertEquals("\"" + HASH + "-gz\"", gzip.getHeader(HttpHeaders.ETAG));
+        assertTrue(gzip.getHeader(HttpHeaders.CACHE_CONTROL).contains("immutable"));
+
+        MockHttpServletResponse identity = serve(interceptor, handler, null, null);
+        assertNull(identity.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(Files.readString(svg), identity.getContentAsString(StandardCharsets.UTF_8));
+        assertEquals("\"" + HASH + "\"", identity.getHeader(HttpHeaders.ETAG));
+
+        assertEquals(304, serve(interceptor, handler, "gzip", "\"" + HASH + "-gz\"").getStatus());
+        assertEquals(200, serve(interceptor, handler, null, "\"" + HASH + "-gz\"").getStatus());
+    }
+
+    private static MockHttpServletResponse serve(UploadCacheInterceptor interceptor, ResourceHttpRequestHandler handler,
+                                                 String acceptEncoding, String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/" + HASH + ".svg");
+        request.setAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE, HASH + ".svg");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, handler);
+        handler.handleRequest(request, response);
+        return response;
+    }
+}
@@ -0,0 +1,114 @@
+package com.clover.cpanel.service;
+
+import com.clover.cpanel.service.impl.FileUploadServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 壁纸派生图测试：生成缩略图与显示宽度、像素数上限、随壁纸删除
+ */
+public class WallpaperDerivativeServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private Path backgrounds;
+    private WallpaperIndexService indexService;
+    private WallpaperDerivativeService derivativeService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        backgrounds = Files.createDirectories(uploadDir.resolve(WallpaperIndexService.SUB_DIRECTORY));
+
+        indexService = new WallpaperIndexService();
+        ReflectionTestUtils.setField(indexService, "uploadPath", uploadDir.toString());
+        indexService.start();
+
+        derivativeService = new WallpaperDerivativeService();
+        ReflectionTestUtils.setField(derivativeService, "wallpaperIndexService", indexService);
+        ReflectionTestUtils.setField(derivativeService, "enabled", true);
+        ReflectionTestUtils.setField(derivativeService, "widthsConfig", "64,128,400");
+        ReflectionTestUtils.setField(derivativeService, "thumbnailWidth", 48);
+        ReflectionTestUtils.setField(derivativeService, "quality", 0.8f);
+        ReflectionTestUtils.setField(derivativeService, "threads", 1);
+        ReflectionTestUtils.setField(derivativeService, "queueCapacity", 8);
+        ReflectionTestUtils.setField(derivativeService, "maxPixels", 100_000L);
+        derivativeService.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        derivativeService.shutdown();
+        indexService.shutdown();
+    }
+
+    @Test
+    public void testGenerateAndDeleteWithWallpaper() throws Exception {
+        writeImage("wall.png", 200, 100);
+        // 像素数超过上限的图片只读取尺寸，不解码也不生成
+        writeImage("huge.png", 400, 300);
+        indexService.refresh("huge.png");
+        derivativeService.submit("huge.png");
+        indexService.refresh("wall.png");
+        derivativeService.submit("wall.png");
+        await(() -> indexService.find("wall.png").thumbnail());
+
+        Path derived = indexService.derivedDirectory("wall.png");
+        assertEquals(48, ImageIO.read(derived.resolve(WallpaperIndexService.THUMBNAIL_FILE).toFile()).getWidth());
+        BufferedImage w128 = ImageIO.read(derived.resolve(WallpaperIndexService.derivedFileName(128)).toFile());
+        assertEquals(128, w128.getWidth());
+        assertEquals(64, w128.getHeight());
+        assertTrue(Files.exists(derived.resolve(WallpaperIndexService.derivedFileName(64))));
+        // 不生成比原图宽的尺寸
+        assertFalse(Files.exists(derived.resolve(WallpaperIndexService.derivedFileName(400))));
+        assertArrayEquals(new int[]{64, 128}, indexService.find("wall.png").widths());
+
+        assertFalse(Files.exists(indexService.derivedDirectory("huge.png")));
+        assertFalse(indexService.find("huge.png").thumbnail());
+
+        // 通过上传服务删除壁纸时一并删除派生图
+        assertTrue(uploadService().deleteFile("/uploads/" + WallpaperIndexService.SUB_DIRECTORY + "/wall.png"));
+        assertFalse(Files.exists(backgrounds.resolve("wall.png")));
+        assertFalse(Files.exists(derived));
+    }
+
+    private void writeImage(String name, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ImageIO.write(image, "png", backgrounds.resolve(name).toFile());
+    }
+
+    private FileUploadService uploadService() {
+        FileUploadServiceImpl service = new FileUploadServiceImpl();
+        ReflectionTestUtils.setField(service, "uploadAssetService", new UploadAssetService());
+        ReflectionTestUtils.setField(service, "wallpaperDerivativeService", derivativeService);
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        ReflectionTestUtils.setField(service, "urlPrefix", "/uploads/");
+        return service;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("等待超时");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.clover.cpanel.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 壁纸索引分页与重建测试
+ */
+public class WallpaperIndexServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    public void testCursorPagination() throws Exception {
+        Path backgrounds = Files.createDirectories(uploadDir.resolve(WallpaperIndexService.SUB_DIRECTORY));
+        for (int i = 1; i <= 5; i++) {
+            Path file = Files.write(backgrounds.resolve("wallpaper_" + i + ".jpg"), new byte[i]);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(i * 1000L));
+        }
+        Files.writeString(backgrounds.resolve("notes.txt"), "ignored");
+
+        WallpaperIndexService service = new WallpaperIndexService();
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        try {
+            service.start();
+
+            WallpaperIndexService.Page first = service.page(null, 2);
+            assertEquals(5, first.total());
+            assertEquals("wallpaper_5.jpg", first.items().get(0).name());
+            assertEquals("wallpaper_4.jpg", first.items().get(1).name());
+            assertNotNull(first.nextCursor());
+
+            // 游标对应的壁纸被删除后仍从原位置继续
+            Files.delete(backgrounds.resolve("wallpaper_4.jpg"));
+            service.remove("wallpaper_4.jpg");
+            WallpaperIndexService.Page second = service.page(first.nextCursor(), 2);
+            assertEquals("wallpaper_3.jpg", second.items().get(0).name());
+            assertEquals("wallpaper_2.jpg", second.items().get(1).name());
+
+            WallpaperIndexService.Page last = service.page(second.nextCursor(), 2);
+            assertEquals(1, last.items().size());
+            assertNull(last.nextCursor());
+            assertTrue(last.version() > first.version());
+
+            assertThrows(IllegalArgumentException.class, () -> service.page("not-a-cursor", 2));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testRebuildKeepsConcurrentChanges() throws Exception {
+        Path backgrounds = Files.createDirectories(uploadDir.resolve(WallpaperIndexService.SUB_DIRECTORY));
+        for (int i = 0; i < 300; i++) {
+            Files.write(backgrounds.resolve("old_" + i + ".jpg"), new byte[8]);
+        }
+
+        WallpaperIndexService service = new WallpaperIndexService();
+        ReflectionTestUtils.setField(service, "uploadPath", uploadDir.toString());
+        try {
+            service.start();
+
+            // 重建与上传、删除接口的增量更新同时进行
+            AtomicBoolean done = new AtomicBoolean();
+            CompletableFuture<Void> rebuilds = CompletableFuture.runAsync(() -> {
+                while (!done.get()) {
+                    service.rebuild();
+                }
+            });
+            for (int i = 0; i < 300; i++) {
+                Files.delete(backgrounds.resolve("old_" + i + ".jpg"));
+                service.remove("old_" + i + ".jpg");
+                Files.write(backgrounds.resolve("new_" + i + ".jpg"), new byte[8]);
+                service.refresh("new_" + i + ".jpg");
+            }
+            done.set(true);
+            rebuilds.get(30, TimeUnit.SECONDS);
+
+            Set<String> indexed = service.list().stream()
+                    .map(WallpaperIndexService.Wallpaper::name)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            Set<String> onDisk;
+            try (Stream<Path> files = Files.list(backgrounds)) {
+                onDisk = files.map(file -> file.getFileName().toString())
+                        .filter(name -> name.endsWith(".jpg"))
+                        .collect(Collectors.toCollection(TreeSet::new));
+            }
+            assertEquals(onDisk, indexed);
+        } finally {
+            service.shutdown();
+        }
+    }
+}
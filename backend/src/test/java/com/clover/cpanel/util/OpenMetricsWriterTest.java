@@ -0,0 +1,46 @@
+package com.clover.cpanel.util;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * OpenMetrics文本输出测试
+ */
+public class OpenMetricsWriterTest {
+
+    @Test
+    public void testCounterAndGauge() {
+        String text = new OpenMetricsWriter()
+                .family("requests", "counter", "请求数")
+                .sample("requests_total", 3, "path", "/a\"b")
+                .family("usage_ratio", "gauge", null)
+                .sample("usage_ratio", 0.25)
+                .finish();
+
+        assertEquals("# TYPE requests counter\n"
+                + "# HELP requests 请求数\n"
+                + "requests_total{path=\"/a\\\"b\"} 3\n"
+                + "# TYPE usage_ratio gauge\n"
+                + "usage_ratio 0.25\n"
+                + "# EOF\n", text);
+    }
+
+    @Test
+    public void testHistogramIsCumulative() {
+        LatencyHistogram histogram = new LatencyHistogram(new double[]{0.1, 1});
+        histogram.record(50_000_000L);
+        histogram.record(500_000_000L);
+        histogram.record(2_000_000_000L);
+
+        String text = new OpenMetricsWriter()
+                .histogram("latency_seconds", histogram, "route", "/x")
+                .finish();
+
+        assertTrue(text.contains("latency_seconds_bucket{route=\"/x\",le=\"0.1\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_bucket{route=\"/x\",le=\"1.0\"} 2\n"));
+        assertTrue(text.contains("latency_seconds_bucket{route=\"/x\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("latency_seconds_count{route=\"/x\"} 3\n"));
+        assertTrue(text.contains("latency_seconds_sum{route=\"/x\"} 2.55\n"));
+        assertTrue(text.endsWith("# EOF\n"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.clover.cpanel.util;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * /proc 及 df 解析工具测试
+ */
+public class ProcMetricsParserTest {
+
+    @Test
+    public void testParseCpuLine() {
+        long[] out = new long[16];
+        int n = ProcMetricsParser.parseLongs("cpu  4705 356 584 3699176 23060 0 277 0 0 0", 3, out);
+        assertEquals(10, n);
+        assertEquals(4705, out[0]);
+        assertEquals(3699176, out[3]);
+        assertEquals(23060, out[4]);
+    }
+
+    @Test
+    public void testParseLoadAvg() {
+        double[] out = new double[3];
+        assertEquals(3, ProcMetricsParser.parseDecimals("0.52 1.58 12.05 1/467 12345", 0, out));
+        assertEquals(0.52, out[0], 1e-9);
+        assertEquals(1.58, out[1], 1e-9);
+        assertEquals(12.05, out[2], 1e-9);
+    }
+
+    @Test
+    public void testParseMemInfo() {
+        assertEquals(16318736, ProcMetricsParser.parseMemInfoValue("MemTotal:       16318736 kB", "MemTotal"));
+        assertEquals(-1, ProcMetricsParser.parseMemInfoValue("MemTotalX:  1 kB", "MemTotal"));
+        assertEquals(-1, ProcMetricsParser.parseMemInfoValue("MemFree:  1 kB", "MemTotal"));
+    }
+
+    @Test
+    public void testParseNetDev() {
+        String line = "  eth0: 1000 10 0 0 0 0 0 0 2000 20 0 0 0 0 0 0";
+        int colon = line.indexOf(':');
+        long[] out = new long[16];
+        assertFalse(ProcMetricsParser.isLoopbackInterface(line, colon));
+        assertEquals(16, ProcMetricsParser.parseLongs(line, colon + 1, out));
+        assertEquals(1000, out[0]);
+        assertEquals(2000, out[8]);
+
+        String loopback = "    lo: 1 1 0 0 0 0 0 0 1 1 0 0 0 0 0 0";
+        assertTrue(ProcMetricsParser.isLoopbackInterface(loopback, loopback.indexOf(':')));
+    }
+
+    @Test
+    public void testParseDf() {
+        String line = "/dev/sda1        102400  51200     51200      50% /data1";
+        long[] out = new long[3];
+        assertEquals(3, ProcMetricsParser.parseLongs(line, line.indexOf(' '), out));
+        assertArrayEquals(new long[]{102400, 51200, 51200}, out);
+    }
+
+    @Test
+    public void testDfUsageSkipsLoopAndDuplicateMounts() {
+        DfUsage usage = new DfUsage();
+        usage.reset();
+        usage.accept("Filesystem     Type     1024-blocks    Used Available Capacity Mounted on");
+        usage.accept("/dev/sda1      ext4          102400   51200     51200      50% /");
+        usage.accept("tmpfs          tmpfs          10240    1024      9216      10% /run");
+        usage.accept("/dev/loop0     squashfs       56832   56832         0     100% /snap/core20/2105");
+        usage.accept("/dev/sdb1      xfs           204800  102400    102400      50% /data");
+        // 同一设备的bind mount
+        usage.accept("/dev/sdb1      xfs           204800  102400    102400      50% /var/lib/docker/data");
+        assertEquals((102400L + 204800L) * 1024, usage.getTotal());
+        assertEquals((51200L + 102400L) * 1024, usage.getUsed());
+
+        // 不带 -T 的输出（如busybox）
+        usage.reset();
+        usage.accept("/dev/sda1        102400  51200     51200      50% /");
+        usage.accept("/dev/loop3        56832  56832         0     100% /snap/lxd/1");
+        assertEquals(102400L * 1024, usage.getTotal());
+        assertEquals(51200L * 1024, usage.getUsed());
+    }
+
+    @Test
+    public void testDfUsageFallsBackToOverlayRoot() {
+        DfUsage usage = new DfUsage();
+        usage.reset();
+        usage.accept("overlay        overlay       409600  204800    204800      50% /");
+        usage.accept("tmpfs          tmpfs          65536       0     65536       0% /dev");
+        usage.accept("shm            tmpfs          65536       0     65536       0% /dev/shm");
+        assertEquals(409600L * 1024, usage.getTotal());
+        assertEquals(204800L * 1024, usage.getUsed());
+    }
+}
@@ -0,0 +1,56 @@
+package com.clover.cpanel.util;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间序列环形缓冲区测试
+ */
+public class TimeSeriesRingTest {
+
+    @Test
+    public void testAppendAndSnapshot() {
+        TimeSeriesRing ring = new TimeSeriesRing(4, 2);
+        double[] sample = new double[2];
+        for (int i = 1; i <= 3; i++) {
+            sample[0] = i;
+            sample[1] = i * 10;
+            ring.append(i * 1000L, sample);
+        }
+
+        assertEquals(3, ring.size());
+        assertEquals(3000L, ring.latestTimestamp());
+        assertEquals(30.0, ring.latest(1));
+
+        TimeSeriesRing.Snapshot snapshot = ring.snapshot(0);
+        assertArrayEquals(new long[]{1000L, 2000L, 3000L}, snapshot.getTimestamps());
+        assertArrayEquals(new double[]{1, 2, 3}, snapshot.getSeries(0));
+        assertArrayEquals(new double[]{10, 20, 30}, snapshot.getSeries(1));
+    }
+
+    @Test
+    public void testOverwriteOldest() {
+        TimeSeriesRing ring = new TimeSeriesRing(3, 1);
+        for (int i = 1; i <= 5; i++) {
+            ring.append(i, new double[]{i});
+        }
+
+        assertEquals(3, ring.size());
+        assertArrayEquals(new long[]{3, 4, 5}, ring.snapshot(0).getTimestamps());
+        assertArrayEquals(new double[]{4, 5}, ring.snapshot(2).getSeries(0));
+    }
+
+    @Test
+    public void testEmptyRing() {
+        TimeSeriesRing ring = new TimeSeriesRing(3, 1);
+        assertEquals(-1, ring.latestTimestamp());
+        assertTrue(Double.isNaN(ring.latest(0)));
+        assertEquals(0, ring.snapshot(10).getTimestamps().length);
+    }
+
+    @Test
+    public void testChannelMismatch() {
+        TimeSeriesRing ring = new TimeSeriesRing(3, 2);
+        assertThrows(IllegalArgumentException.class, () -> ring.append(1, new double[]{1}));
+    }
+}
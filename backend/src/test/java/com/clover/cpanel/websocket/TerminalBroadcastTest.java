@@ -0,0 +1,151 @@
+package com.clover.cpanel.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 终端输出广播测试
+ */
+public class TerminalBroadcastTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 手动执行的发送线程，用于模拟客户端跟不上
+     */
+    private static class ManualExecutor implements Executor {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * 记录已发送消息的WebSocket会话
+     */
+    private static class RecordingSession {
+        final List<String> sent = new ArrayList<>();
+        boolean open = true;
+        final WebSocketSession session;
+
+        RecordingSession(String id) {
+            session = (WebSocketSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{WebSocketSession.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getId" -> id;
+                        case "isOpen" -> open;
+                        case "sendMessage" -> {
+                            sent.add(((WebSocketMessage<?>) args[0]).getPayload().toString());
+                            yield null;
+                        }
+                        case "close" -> {
+                            open = false;
+                            yield null;
+                        }
+                        case "getAttributes" -> Map.of();
+                        default -> null;
+                    });
+        }
+    }
+
+    private TextMessage createMessage(String type, String data) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(Map.of("type", type, "data", data)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String output(List<String> sent) throws Exception {
+        StringBuilder result = new StringBuilder();
+        for (String payload : sent) {
+            Map<?, ?> message = objectMapper.readValue(payload, Map.class);
+            if ("output".equals(message.get("type"))) {
+                result.append(message.get("data"));
+            }
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testOwnerOverflowCoalescedInsteadOfDisconnect() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSession owner = new RecordingSession("owner");
+        RecordingSession viewer = new RecordingSession("viewer");
+        BoundedSessionSender ownerSender = new BoundedSessionSender(owner.session, 2, executor);
+        BoundedSessionSender viewerSender = new BoundedSessionSender(viewer.session, 2, executor);
+
+        TerminalBroadcast broadcast = new TerminalBroadcast("ssh-1", ownerSender, this::createMessage, closed -> { });
+        broadcast.addViewer(viewerSender);
+
+        // 发送线程未执行，队列容量为2，第3段输出起溢出
+        for (int i = 0; i < 5; i++) {
+            broadcast.onOutput("line" + i + "\n");
+        }
+
+        // 只读观看者被断开，所有者保持连接
+        assertFalse(viewer.open);
+        assertTrue(owner.open);
+
+        // 队列发送完毕后补发暂存的输出，顺序不变
+        executor.runAll();
+        assertEquals("line0\nline1\nline2\nline3\nline4\n", output(owner.sent));
+        assertEquals(3, owner.sent.size());
+    }
+
+    @Test
+    public void testOwnerBacklogTruncatedAtLineWithMarker() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSession owner = new RecordingSession("owner");
+        BoundedSessionSender ownerSender = new BoundedSessionSender(owner.session, 1, executor);
+        TerminalBroadcast broadcast = new TerminalBroadcast("ssh-1", ownerSender, this::createMessage, closed -> { });
+
+        // 每行带颜色转义序列，总量超过暂存上限
+        String line = "\u001b[31m" + "x".repeat(1000) + "\u001b[0m\n";
+        broadcast.onOutput("first\n");
+        for (int i = 0; i < 1200; i++) {
+            broadcast.onOutput(i + ":" + line);
+        }
+        executor.runAll();
+
+        assertTrue(owner.open);
+        assertEquals(2, owner.sent.size());
+        String flushed = output(owner.sent.subList(1, 2));
+        // 补发内容以省略提示开头，随后从完整的一行开始，最后一行保留
+        assertTrue(flushed.startsWith(TerminalBroadcast.TRUNCATION_MARKER));
+        String kept = flushed.substring(TerminalBroadcast.TRUNCATION_MARKER.length());
+        assertTrue(kept.matches("(?s)\\d+:\u001b\\[31m.*"), kept.substring(0, 20));
+        assertTrue(kept.endsWith("1199:" + line));
+        assertTrue(kept.length() <= 1024 * 1024);
+    }
+
+    @Test
+    public void testSafeCut() {
+        assertEquals(7, TerminalBroadcast.safeCut("ab\u001b[3m\nrest", 3));
+        // 附近没有换行时不切开代理对
+        String emoji = "a\uD83D\uDE00b";
+        assertEquals(3, TerminalBroadcast.safeCut(emoji, 2));
+        assertEquals(1, TerminalBroadcast.safeCut(emoji, 1));
+    }
+}
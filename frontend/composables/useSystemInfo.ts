@@ -2,7 +2,7 @@
  * 系统信息管理
  */
 
-import { apiRequest } from './useJwt'
+import { apiRequest, getAccessToken } from './useJwt'
 
 // 类型定义
 export interface CpuInfo {
@@ -37,11 +37,39 @@ export interface SystemBasicInfo {
   uptime: number
 }
 
+export interface NetworkInfo {
+  name: string
+  rxBytes: number
+  txBytes: number
+  rxRate: number
+  txRate: number
+}
+
+export interface DiskIoInfo {
+  name: string
+  readIops: number
+  writeIops: number
+  readRate: number
+  writeRate: number
+}
+
+export interface ProcessInfo {
+  pid: number
+  name: string
+  user: string
+  cpuUsage: number
+  rss: number
+}
+
 export interface SystemInfo {
   cpu: CpuInfo
   memory: MemoryInfo
   disks: DiskInfo[]
   system: SystemBasicInfo
+  networks?: NetworkInfo[]
+  diskIo?: DiskIoInfo[]
+  topCpuProcesses?: ProcessInfo[]
+  topMemoryProcesses?: ProcessInfo[]
 }
 
 export interface ApiResponse<T> {
@@ -128,6 +156,94 @@ export const useSystemInfo = () => {
     }
   }
 
+  /**
+   * 订阅系统信息实时推送（/ws/events 的 system.metrics 主题）
+   * 服务端先推送一次完整状态，之后只推送变化的字段，这里合并后回调完整的系统信息
+   * @returns 取消订阅函数
+   */
+  const subscribeSystemInfo = (onUpdate: (info: SystemInfo) => void): (() => void) => {
+    const topic = 'system.metrics'
+    let socket: WebSocket | null = null
+    let state: any = null
+    let seq = -1
+    let closed = false
+    let reconnectTimer: ReturnType<typeof setTimeout> | null = null
+
+    const getWebSocketUrl = () => {
+      // 握手时由服务端验证JWT
+      const token = getAccessToken()
+      const query = token ? `?token=${encodeURIComponent(token)}` : ''
+      if (config.public.isDevelopment) {
+        return `ws://localhost:8080/ws/events${query}`
+      }
+      const protocol = window.location.protocol === 'https:' ? 'wss:' : 'ws:'
+      return `${protocol}//${window.location.host}/ws/events${query}`
+    }
+
+    // 递归合并增量，数组整体替换
+    const merge = (target: any, changes: any): any => {
+      for (const key of Object.keys(changes)) {
+        const value = changes[key]
+        if (value && typeof value === 'object' && !Array.isArray(value)
+          && target[key] && typeof target[key] === 'object' && !Array.isArray(target[key])) {
+          merge(target[key], value)
+        } else {
+          target[key] = value
+        }
+      }
+      return target
+    }
+
+    const send = (type: string) => {
+      socket?.send(JSON.stringify({ type, topics: [topic] }))
+    }
+
+    const connect = () => {
+      socket = new WebSocket(getWebSocketUrl())
+      socket.onopen = () => send('subscribe')
+      socket.onmessage = (event) => {
+        const message = JSON.parse(event.data)
+        if (message.type !== 'event' || message.topic !== topic) {
+          return
+        }
+        const payload = message.data
+        if (payload.full) {
+          state = payload.data
+          seq = payload.seq
+        } else if (state && payload.seq > seq) {
+          if (payload.seq !== seq + 1) {
+            // 丢失了增量，重新订阅以获取完整状态
+            state = null
+            send('unsubscribe')
+            send('subscribe')
+            return
+          }
+          merge(state, payload.data)
+          seq = payload.seq
+        } else {
+          return
+        }
+        onUpdate(JSON.parse(JSON.stringify(state)))
+      }
+      socket.onclose = () => {
+        state = null
+        if (!closed) {
+          reconnectTimer = setTimeout(connect, 5000)
+        }
+      }
+    }
+
+    connect()
+
+    return () => {
+      closed = true
+      if (reconnectTimer) {
+        clearTimeout(reconnectTimer)
+      }
+      socket?.close()
+    }
+  }
+
   /**
    * 格式化运行时间
    */
@@ -195,6 +311,7 @@ export const useSystemInfo = () => {
     getMemoryInfo,
     getDiskInfo,
     getSystemBasicInfo,
+    subscribeSystemInfo,
     formatUptime,
     formatStorage,
     formatFrequency,
@@ -1,5 +1,5 @@
 import { ref, reactive, onMounted, watch, onUnmounted } from 'vue'
-import { apiRequest } from '~/composables/useJwt'
+import { apiRequest, getAccessToken } from '~/composables/useJwt'
 import { useWebSocket, type WebSocketMessage } from '~/composables/useWebSocket'
 
 // 服务器连接信息接口
@@ -134,7 +134,9 @@ export const useTerminal = () => {
   // 创建WebSocket连接
   const createWebSocketConnection = (sessionId: string) => {
     const wsBaseUrl = getWebSocketBaseUrl()
-    const wsUrl = `${wsBaseUrl}/ws/terminal`
+    // 浏览器WebSocket不能设置请求头，JWT通过查询参数传递，握手时由服务端验证
+    const token = getAccessToken()
+    const wsUrl = `${wsBaseUrl}/ws/terminal${token ? `?token=${encodeURIComponent(token)}` : ''}`
 
     const wsConnection = useWebSocket({
       url: wsUrl,
@@ -174,6 +176,11 @@ export const useTerminal = () => {
         isConnecting.value = false
         console.error('SSH连接错误:', sessionId, message.data)
         break
+      case '2fa_required':
+        // 服务端校验2FA验证码失败
+        connectionError.value = '2FA验证失败'
+        isConnecting.value = false
+        break
       case 'disconnected':
         session.isConnected = false
         console.log('SSH连接已断开:', sessionId, message.data)
@@ -306,7 +313,8 @@ export const useTerminal = () => {
   }
 
   // 连接到服务器（真实SSH连接）
-  const connectToServer = async (serverId: number) => {
+  // twoFactor: 启用2FA时由服务端在连接请求中校验的验证码或备用恢复码
+  const connectToServer = async (serverId: number, twoFactor?: { verificationCode?: string; backupCode?: string }) => {
     const server = getServerById(serverId)
     if (!server) {
       connectionError.value = '服务器不存在'
@@ -407,7 +415,8 @@ export const useTerminal = () => {
           password: serverConfig.password || null,
           privateKey: serverConfig.privateKey || null,
           privateKeyPassword: serverConfig.privateKeyPassword || null,
-          '2faVerified': true // 如果到达这里，说明2FA验证已通过或未启用
+          verificationCode: twoFactor?.verificationCode || null,
+          backupCode: twoFactor?.backupCode || null
         }
       }
 
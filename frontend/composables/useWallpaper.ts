@@ -2,6 +2,8 @@ import { ref, computed, readonly } from 'vue'
 
 // 全局壁纸状态
 const customWallpaper = ref('')
+// 当前壁纸的各显示尺寸派生图 [{ width, url }]，按宽度升序
+const wallpaperVariants = ref<{ width: number, url: string }[]>([])
 const wallpaperBlur = ref(5)
 const wallpaperMask = ref(30)
 
@@ -23,7 +25,16 @@ const isLoading = ref(true)
 // 计算背景图片URL
 const backgroundImageUrl = computed(() => {
   // 如果是预览模式，使用预览状态
-  const wallpaperUrl = isPreviewMode.value ? previewWallpaper.value : customWallpaper.value
+  let wallpaperUrl = isPreviewMode.value ? previewWallpaper.value : customWallpaper.value
+
+  // 非预览时按屏幕物理宽度选择足够宽的最小派生图，都不够宽时使用原图
+  if (!isPreviewMode.value && wallpaperUrl && process.client) {
+    const screenWidth = window.screen.width * (window.devicePixelRatio || 1)
+    const variant = wallpaperVariants.value.find(item => item.width >= screenWidth)
+    if (variant) {
+      wallpaperUrl = variant.url
+    }
+  }
 
   if (wallpaperUrl) {
     // 如果是完整URL（包含http或data:），直接使用
@@ -79,6 +90,7 @@ const loadWallpaperSettings = async () => {
 
         // 从后端加载配置
         customWallpaper.value = result.data.wallpaperUrl || ''
+        wallpaperVariants.value = result.data.wallpaperVariants || []
         wallpaperBlur.value = result.data.wallpaperBlur !== undefined ? result.data.wallpaperBlur : 5
         wallpaperMask.value = result.data.wallpaperMask !== undefined ? result.data.wallpaperMask : 30
 
@@ -177,6 +189,8 @@ const handleWallpaperChange = async (event: CustomEvent) => {
   // 如果事件包含详细信息，直接使用
   if (event.detail) {
     customWallpaper.value = event.detail.wallpaperUrl || ''
+    // 派生图属于之前的壁纸，事件未携带时清空，使用原图
+    wallpaperVariants.value = event.detail.wallpaperVariants || []
     wallpaperBlur.value = event.detail.wallpaperBlur !== undefined ? event.detail.wallpaperBlur : 5
     wallpaperMask.value = event.detail.wallpaperMask !== undefined ? event.detail.wallpaperMask : 30
 